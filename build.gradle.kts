@@ -27,9 +27,9 @@ plugins {
     id("java-library")
     id("checkstyle")
     id("jacoco")
-    id("org.checkerframework") version "0.6.20"
-    id("com.github.spotbugs") version "5.0.13"
-    id("org.sonarqube") version "3.5.0.2730"
+    id("org.checkerframework") version "0.6.61"
+    id("com.github.spotbugs") version "6.4.8"
+    id("org.sonarqube") version "7.2.2.6593"
 }
 
 group = "eu.volsch"
@@ -37,12 +37,21 @@ version = "0.9.0-SNAPSHOT"
 
 java {
     toolchain {
-        languageVersion.set(JavaLanguageVersion.of(11))
+        languageVersion.set(JavaLanguageVersion.of(21))
     }
 }
 
 jacoco {
-    toolVersion = "0.8.8"
+    toolVersion = "0.8.11"
+}
+
+checkstyle {
+    toolVersion = "8.45.1"
+}
+
+spotbugs {
+    toolVersion.set("4.8.6")
+    excludeFilter.set(file("config/spotbugs/exclude.xml"))
 }
 
 sonar {
@@ -62,12 +71,12 @@ repositories {
 }
 
 dependencies {
-    val lombokVersion = "1.18.24"
-    val mockitoVersion = "3.12.4"
-    val junitJupiterVersion = "5.9.1"
+    val lombokVersion = "1.18.30"
+    val mockitoVersion = "5.8.0"
+    val junitJupiterVersion = "5.10.1"
     val hamcrestVersion = "2.2"
-    val spotbugsAnnotationsVersion = "4.7.3"
-    val checkerFrameworkVersion = "3.28.0"
+    val spotbugsAnnotationsVersion = "4.8.6"
+    val checkerFrameworkVersion = "3.42.0"
 
     compileOnly("org.projectlombok:lombok:$lombokVersion")
     annotationProcessor("org.projectlombok:lombok:$lombokVersion")
@@ -81,9 +90,10 @@ dependencies {
     testImplementation("org.mockito:mockito-junit-jupiter:$mockitoVersion")
     testImplementation("org.junit.jupiter:junit-jupiter-api:$junitJupiterVersion")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:$junitJupiterVersion")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
     testImplementation("org.hamcrest:hamcrest:$hamcrestVersion")
     testCompileOnly("org.checkerframework:checker-qual:$checkerFrameworkVersion")
-    testImplementation("nl.jqno.equalsverifier:equalsverifier:3.12.3")
+    testImplementation("nl.jqno.equalsverifier:equalsverifier:3.15.4")
 
     checkerFramework("org.checkerframework:checker:$checkerFrameworkVersion")
 }
@@ -144,6 +154,12 @@ tasks.withType<Checkstyle>().configureEach {
     }
 }
 
+tasks.spotbugsTest {
+    reports.create("xml") {
+        required.set(true)
+    }
+}
+
 tasks.spotbugsMain {
     reports.create("xml") {
         required.set(true)
@@ -24,17 +24,15 @@
  */
 
 plugins {
-    id("com.gradle.enterprise") version "3.9"
+    id("com.gradle.develocity") version "4.2.2"
 }
 
 rootProject.name = "stockmountain"
 
-gradleEnterprise {
-    if ("true".equals(System.getenv("CI"), true)) {
-        buildScan {
-            publishAlways()
-            termsOfServiceUrl = "https://gradle.com/terms-of-service"
-            termsOfServiceAgree = "yes"
-        }
+develocity {
+    buildScan {
+        termsOfUseUrl.set("https://gradle.com/help/legal-terms-of-use")
+        termsOfUseAgree.set("yes")
+        publishing.onlyIf { "true".equals(System.getenv("CI"), true) }
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Reads the primitive elements that have been written by {@link CodecOutput}. Invalid or
+ * truncated input results in an {@link IOException}.
+ */
+@NotThreadSafe
+final class CodecInput implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 13;
+  private static final int MAX_VAR_LONG_SHIFT = 63;
+  private static final int MAX_LENGTH = 1 << 20;
+
+  private final @NonNull InputStream input;
+  private final List<String> dictionary = new ArrayList<>();
+
+  CodecInput(@NonNull InputStream input) {
+    this.input = new BufferedInputStream(requireNonNull(input), BUFFER_SIZE);
+  }
+
+  /**
+   * Returns if the end of the input has been reached.
+   */
+  boolean isAtEnd() throws IOException {
+    input.mark(1);
+    final int value = input.read();
+    input.reset();
+    return value < 0;
+  }
+
+  int readByte() throws IOException {
+    final int value = input.read();
+    if (value < 0) {
+      throw new EOFException("Input ends within an entry");
+    }
+    return value;
+  }
+
+  int readInt() throws IOException {
+    return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+  }
+
+  long readLong() throws IOException {
+    return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+  }
+
+  long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift <= MAX_VAR_LONG_SHIFT; shift += 7) {
+      final int b = readByte();
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Variable length integer is too long");
+  }
+
+  long readSignedVarLong() throws IOException {
+    final long value = readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  int readVarInt() throws IOException {
+    final long value = readVarLong();
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new IOException("Integer is out of range: " + value);
+    }
+    return (int) value;
+  }
+
+  @NonNull BigDecimal readDecimal() throws IOException {
+    final long header = readSignedVarLong();
+    final long scale = header >> 1;
+    if (scale < Integer.MIN_VALUE || scale > Integer.MAX_VALUE) {
+      throw new IOException("Scale of decimal is out of range: " + scale);
+    }
+    if ((header & 1) == 0) {
+      return BigDecimal.valueOf(readSignedVarLong(), (int) scale);
+    }
+    final int length = readLength();
+    if (length == 0) {
+      throw new IOException("Unscaled value of decimal is empty");
+    }
+    return new BigDecimal(new BigInteger(readBytes(length)), (int) scale);
+  }
+
+  @NonNull LocalTime readTime() throws IOException {
+    final long value = readVarLong();
+    try {
+      return (value & 1) == 0
+          ? LocalTime.ofSecondOfDay(value >>> 1) : LocalTime.ofNanoOfDay(value >>> 1);
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid time: " + value, e);
+    }
+  }
+
+  @NonNull String readString() throws IOException {
+    return new String(readBytes(readLength()), StandardCharsets.UTF_8);
+  }
+
+  @NonNull String readDictionaryString() throws IOException {
+    final int reference = readVarInt();
+    if (reference == CodecOutput.NEW_STRING) {
+      final String value = readString();
+      if (dictionary.size() < CodecOutput.MAX_DICTIONARY_SIZE) {
+        dictionary.add(value);
+      }
+      return value;
+    }
+    if (reference > dictionary.size()) {
+      throw new IOException("Invalid dictionary reference: " + reference);
+    }
+    return dictionary.get(reference - 1);
+  }
+
+  private int readLength() throws IOException {
+    final int length = readVarInt();
+    if (length > MAX_LENGTH) {
+      throw new IOException("Invalid length: " + length);
+    }
+    return length;
+  }
+
+  private byte @NonNull [] readBytes(int length) throws IOException {
+    final byte[] bytes = input.readNBytes(length);
+    if (bytes.length < length) {
+      throw new EOFException("Input ends within an entry");
+    }
+    return bytes;
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Writes the primitive elements of the compact binary codec. Integers are written as variable
+ * length integers with 7 bits per byte (signed values are zigzag encoded), decimals as scale and
+ * unscaled long value and repeated strings as references into a dictionary that is built while
+ * writing.
+ */
+@NotThreadSafe
+final class CodecOutput implements Flushable, Closeable {
+
+  static final int MAX_DICTIONARY_SIZE = 1 << 16;
+  static final int NEW_STRING = 0;
+
+  private static final int BUFFER_SIZE = 1 << 13;
+  private static final int LONG_BIT_LENGTH = 63;
+
+  private final @NonNull OutputStream output;
+  private final Map<String, Integer> dictionary = new HashMap<>();
+
+  CodecOutput(@NonNull OutputStream output) {
+    this.output = new BufferedOutputStream(requireNonNull(output), BUFFER_SIZE);
+  }
+
+  void writeByte(int value) throws IOException {
+    output.write(value);
+  }
+
+  void writeInt(int value) throws IOException {
+    output.write(value >>> 24);
+    output.write(value >>> 16);
+    output.write(value >>> 8);
+    output.write(value);
+  }
+
+  void writeLong(long value) throws IOException {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  void writeVarLong(long value) throws IOException {
+    long remaining = value;
+    while ((remaining & ~0x7fL) != 0) {
+      output.write((int) ((remaining & 0x7f) | 0x80));
+      remaining >>>= 7;
+    }
+    output.write((int) remaining);
+  }
+
+  void writeSignedVarLong(long value) throws IOException {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes the scale and the unscaled value of the decimal. An unscaled value that does not fit
+   * into a long is written as two's complement bytes.
+   */
+  void writeDecimal(@NonNull BigDecimal value) throws IOException {
+    final BigInteger unscaledValue = value.unscaledValue();
+    final boolean big = unscaledValue.bitLength() > LONG_BIT_LENGTH;
+    writeSignedVarLong(((long) value.scale() << 1) | (big ? 1 : 0));
+    if (big) {
+      final byte[] bytes = unscaledValue.toByteArray();
+      writeVarLong(bytes.length);
+      output.write(bytes);
+    } else {
+      writeSignedVarLong(unscaledValue.longValue());
+    }
+  }
+
+  /**
+   * Writes the time as second of the day if it has no fraction of a second and otherwise as nano
+   * of the day. The lowest bit distinguishes both.
+   */
+  void writeTime(@NonNull LocalTime time) throws IOException {
+    if (time.getNano() == 0) {
+      writeVarLong((long) time.toSecondOfDay() << 1);
+    } else {
+      writeVarLong((time.toNanoOfDay() << 1) | 1);
+    }
+  }
+
+  void writeString(@NonNull String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Writes a reference to the string if it has been written before and otherwise the string
+   * itself. New strings are added to the dictionary until it is full.
+   */
+  void writeDictionaryString(@NonNull String value) throws IOException {
+    final Integer index = dictionary.get(value);
+    if (index != null) {
+      writeVarLong(index + 1L);
+      return;
+    }
+    writeVarLong(NEW_STRING);
+    writeString(value);
+    if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+      dictionary.put(value, dictionary.size());
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    output.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.close();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.RecordMetaData;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Constants of the compact binary stream format of records. A stream starts with a magic number,
+ * the format version and the ordinal numbers, names and types of the fields, followed by the
+ * records. Each value of a record starts with a tag of its type. Dates are encoded as difference
+ * to the date of the same field of the previous record and strings as references into the
+ * dictionary of the stream.
+ */
+final class RecordCodec {
+
+  static final int MAGIC = 0x534d5243;
+  static final int FORMAT_VERSION = 1;
+
+  static final int NULL = 0;
+  static final int STRING = 1;
+  static final int DECIMAL = 2;
+  static final int DATE = 3;
+  static final int TIME = 4;
+  static final int DATE_TIME = 5;
+  static final int ISIN = 6;
+  static final int ORDER_ID = 7;
+  static final int LONG = 8;
+  static final int INTEGER = 9;
+  static final int FALSE = 10;
+  static final int TRUE = 11;
+
+  private RecordCodec() {
+  }
+
+  static @NonNull List<Field<?>> fields(@NonNull RecordMetaData metaData) {
+    return metaData.fieldStream().collect(Collectors.toList());
+  }
+
+  static void writeHeader(@NonNull CodecOutput output, @NonNull List<Field<?>> fields)
+      throws IOException {
+    output.writeInt(MAGIC);
+    output.writeByte(FORMAT_VERSION);
+    output.writeVarLong(fields.size());
+    for (final Field<?> field : fields) {
+      output.writeVarLong(field.ordinal());
+      output.writeString(field.name());
+      output.writeString(field.type().getName());
+    }
+  }
+
+  static void readHeader(@NonNull CodecInput input, @NonNull List<Field<?>> fields)
+      throws IOException {
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Stream contains no encoded records");
+    }
+    final int formatVersion = input.readByte();
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("Unsupported format version: " + formatVersion);
+    }
+    final int fieldCount = input.readVarInt();
+    if (fieldCount != fields.size()) {
+      throw new IOException("Encoded records have " + fieldCount + " fields instead of "
+          + fields.size());
+    }
+    for (final Field<?> field : fields) {
+      final int ordinal = input.readVarInt();
+      final String name = input.readString();
+      final String type = input.readString();
+      if (ordinal != field.ordinal() || !name.equals(field.name())
+          || !type.equals(field.type().getName())) {
+        throw new IOException("Encoded field " + name + " (" + ordinal + ", " + type
+            + ") does not match field " + field.name());
+      }
+    }
+  }
+}
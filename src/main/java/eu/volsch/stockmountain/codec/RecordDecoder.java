@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.Record;
+import eu.volsch.stockmountain.extraction.api.RecordBinder;
+import eu.volsch.stockmountain.extraction.api.RecordMetaData;
+import eu.volsch.stockmountain.extraction.api.SimpleImmutableRecord;
+import eu.volsch.stockmountain.model.Isin;
+import eu.volsch.stockmountain.model.OrderId;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads a stream of {@linkplain Record records} that has been written by a {@link RecordEncoder}.
+ * The fields of the records must match the fields of the stream. The values can either be read
+ * into records or pushed into a {@linkplain RecordBinder binder} without creating records.
+ */
+@NotThreadSafe
+public final class RecordDecoder implements Closeable {
+
+  private final @NonNull CodecInput input;
+  private final @NonNull RecordMetaData metaData;
+  private final @NonNull List<Field<?>> fields;
+  private final long @NonNull [] previousEpochDays;
+
+  /**
+   * Creates a decoder and reads the header of the stream.
+   *
+   * @param input    the stream from which the records are read.
+   * @param metaData the metadata of the records.
+   * @throws IOException thrown if the header cannot be read, the format version is not supported
+   *                     or the fields of the stream do not match the fields of the metadata.
+   */
+  public RecordDecoder(@NonNull InputStream input, @NonNull RecordMetaData metaData)
+      throws IOException {
+    this.input = new CodecInput(input);
+    this.metaData = metaData;
+    this.fields = RecordCodec.fields(metaData);
+    this.previousEpochDays = new long[fields.size()];
+    RecordCodec.readHeader(this.input, fields);
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the record or <code>null</code> if the end of the stream has been reached.
+   * @throws IOException thrown if the record cannot be read or is invalid.
+   */
+  public @Nullable Record read() throws IOException {
+    if (input.isAtEnd()) {
+      return null;
+    }
+    final Object[] values = new Object[metaData.getMaxFieldOrdinal() + 1];
+    for (int i = 0; i < fields.size(); i++) {
+      values[fields.get(i).ordinal()] = cast(fields.get(i), readValue(i));
+    }
+    return new SimpleImmutableRecord(metaData, values);
+  }
+
+  /**
+   * Reads the next record into the specified binder.
+   *
+   * @param binder the binder to which the values are bound.
+   * @param <T>    the type of the objects that result from the bound records.
+   * @return the object that results from the record or <code>null</code> if the end of the stream
+   *         has been reached.
+   * @throws IOException thrown if the record cannot be read or is invalid.
+   */
+  public <T> @Nullable T read(@NonNull RecordBinder<T> binder) throws IOException {
+    if (input.isAtEnd()) {
+      return null;
+    }
+    binder.begin();
+    for (int i = 0; i < fields.size(); i++) {
+      bind(binder, fields.get(i), readValue(i));
+    }
+    return binder.complete();
+  }
+
+  private static <V> void bind(@NonNull RecordBinder<?> binder, @NonNull Field<V> field,
+      @Nullable Object value) throws IOException {
+    binder.bind(field, cast(field, value));
+  }
+
+  private static <V> @Nullable V cast(@NonNull Field<V> field, @Nullable Object value)
+      throws IOException {
+    try {
+      return field.cast(value);
+    } catch (ClassCastException e) {
+      throw new IOException("Encoded value does not match type of field " + field.name(), e);
+    }
+  }
+
+  private @Nullable Object readValue(int index) throws IOException {
+    final int tag = input.readByte();
+    try {
+      switch (tag) {
+        case RecordCodec.NULL:
+          return null;
+        case RecordCodec.STRING:
+          return input.readDictionaryString();
+        case RecordCodec.DECIMAL:
+          return input.readDecimal();
+        case RecordCodec.DATE:
+          return readDate(index);
+        case RecordCodec.TIME:
+          return input.readTime();
+        case RecordCodec.DATE_TIME:
+          return LocalDateTime.of(readDate(index), input.readTime());
+        case RecordCodec.ISIN:
+          return Isin.ofPackedValue(input.readVarLong());
+        case RecordCodec.ORDER_ID:
+          return new OrderId(input.readLong(), input.readLong());
+        case RecordCodec.LONG:
+          return input.readSignedVarLong();
+        case RecordCodec.INTEGER:
+          return Math.toIntExact(input.readSignedVarLong());
+        case RecordCodec.FALSE:
+          return Boolean.FALSE;
+        case RecordCodec.TRUE:
+          return Boolean.TRUE;
+        default:
+          throw new IOException("Invalid value tag of field " + fields.get(index).name() + ": "
+              + tag);
+      }
+    } catch (DateTimeException | IllegalArgumentException | ArithmeticException e) {
+      throw new IOException("Encoded value of field " + fields.get(index).name()
+          + " is invalid", e);
+    }
+  }
+
+  private @NonNull LocalDate readDate(int index) throws IOException {
+    previousEpochDays[index] += input.readSignedVarLong();
+    return LocalDate.ofEpochDay(previousEpochDays[index]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
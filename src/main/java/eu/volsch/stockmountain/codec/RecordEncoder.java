@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.Record;
+import eu.volsch.stockmountain.extraction.api.RecordMetaData;
+import eu.volsch.stockmountain.model.Isin;
+import eu.volsch.stockmountain.model.OrderId;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Writes a stream of extracted {@linkplain Record records} with the same fields in a compact
+ * versioned binary format that can be read by a {@link RecordDecoder}. Supported values are
+ * strings, decimals, dates, times, date-times, ISINs, order IDs, longs, integers and booleans.
+ * The stream is buffered and must be flushed or closed.
+ */
+@NotThreadSafe
+public final class RecordEncoder implements Flushable, Closeable {
+
+  private final @NonNull CodecOutput output;
+  private final @NonNull List<Field<?>> fields;
+  private final long @NonNull [] previousEpochDays;
+
+  /**
+   * Creates an encoder and writes the header of the stream with the fields of the records.
+   *
+   * @param output   the stream to which the records are written.
+   * @param metaData the metadata of the records.
+   * @throws IOException thrown if the header cannot be written.
+   */
+  public RecordEncoder(@NonNull OutputStream output, @NonNull RecordMetaData metaData)
+      throws IOException {
+    this.output = new CodecOutput(output);
+    this.fields = RecordCodec.fields(metaData);
+    this.previousEpochDays = new long[fields.size()];
+    RecordCodec.writeHeader(this.output, fields);
+  }
+
+  /**
+   * Writes the values of the fields of the specified record.
+   *
+   * @param record the record that should be written.
+   * @throws IOException              thrown if the record cannot be written.
+   * @throws IllegalArgumentException thrown if the record does not contain a field or the type of
+   *                                  a value is not supported.
+   */
+  public void write(@NonNull Record record) throws IOException, IllegalArgumentException {
+    for (int i = 0; i < fields.size(); i++) {
+      writeValue(i, record.getValue(fields.get(i)));
+    }
+  }
+
+  private void writeValue(int index, @Nullable Object value) throws IOException {
+    if (value == null) {
+      output.writeByte(RecordCodec.NULL);
+    } else if (value instanceof String) {
+      output.writeByte(RecordCodec.STRING);
+      output.writeDictionaryString((String) value);
+    } else if (value instanceof BigDecimal) {
+      output.writeByte(RecordCodec.DECIMAL);
+      output.writeDecimal((BigDecimal) value);
+    } else if (value instanceof LocalDate) {
+      output.writeByte(RecordCodec.DATE);
+      writeDate(index, (LocalDate) value);
+    } else if (value instanceof LocalTime) {
+      output.writeByte(RecordCodec.TIME);
+      output.writeTime((LocalTime) value);
+    } else if (value instanceof LocalDateTime) {
+      output.writeByte(RecordCodec.DATE_TIME);
+      writeDate(index, ((LocalDateTime) value).toLocalDate());
+      output.writeTime(((LocalDateTime) value).toLocalTime());
+    } else if (value instanceof Isin) {
+      output.writeByte(RecordCodec.ISIN);
+      output.writeVarLong(((Isin) value).getPackedValue());
+    } else if (value instanceof OrderId) {
+      output.writeByte(RecordCodec.ORDER_ID);
+      output.writeLong(((OrderId) value).getMostSignificantBits());
+      output.writeLong(((OrderId) value).getLeastSignificantBits());
+    } else if (value instanceof Long || value instanceof Integer) {
+      output.writeByte(value instanceof Long ? RecordCodec.LONG : RecordCodec.INTEGER);
+      output.writeSignedVarLong(((Number) value).longValue());
+    } else if (value instanceof Boolean) {
+      output.writeByte((Boolean) value ? RecordCodec.TRUE : RecordCodec.FALSE);
+    } else {
+      throw new IllegalArgumentException("Unsupported value type of field "
+          + fields.get(index).name() + ": " + value.getClass().getName());
+    }
+  }
+
+  private void writeDate(int index, @NonNull LocalDate date) throws IOException {
+    final long epochDay = date.toEpochDay();
+    output.writeSignedVarLong(epochDay - previousEpochDays[index]);
+    previousEpochDays[index] = epochDay;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    output.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.close();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+/**
+ * Constants of the compact binary stream format of transactions. A stream starts with a magic
+ * number and the format version, followed by the transactions. Each transaction starts with
+ * flags for its type and for the presence of its optional properties. IDs and dates are encoded
+ * as difference to the previous transaction of the stream and ISINs, names, currencies, ticker
+ * symbols and securities exchanges as references into the dictionary of the stream.
+ */
+final class TransactionCodec {
+
+  static final int MAGIC = 0x534d5443;
+  static final int FORMAT_VERSION = 1;
+
+  static final int PURCHASE = 1;
+  static final int FICTIONAL = 1 << 1;
+  static final int TIME = 1 << 2;
+  static final int TICKER_SYMBOL = 1 << 3;
+  static final int SECURITIES_EXCHANGE = 1 << 4;
+  static final int LOCAL_PRICE = 1 << 5;
+  static final int LOCAL_VALUE = 1 << 6;
+  static final int EXCHANGE_RATE = 1 << 7;
+  static final int VALUE = 1 << 8;
+  static final int COMMISSION = 1 << 9;
+  static final int ORDER_ID = 1 << 10;
+  static final int PACKED_ORDER_ID = 1 << 11;
+  static final int TRANSACTION_ID = 1 << 12;
+  static final int REMAINING_QUANTITY = 1 << 13;
+  static final int LAST_SPLIT_DATE = 1 << 14;
+  static final int ALL_FLAGS = (1 << 15) - 1;
+
+  private TransactionCodec() {
+  }
+}
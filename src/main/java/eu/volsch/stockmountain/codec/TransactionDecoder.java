@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static eu.volsch.stockmountain.codec.TransactionCodec.ALL_FLAGS;
+import static eu.volsch.stockmountain.codec.TransactionCodec.COMMISSION;
+import static eu.volsch.stockmountain.codec.TransactionCodec.EXCHANGE_RATE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.FICTIONAL;
+import static eu.volsch.stockmountain.codec.TransactionCodec.LAST_SPLIT_DATE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.LOCAL_PRICE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.LOCAL_VALUE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.ORDER_ID;
+import static eu.volsch.stockmountain.codec.TransactionCodec.PACKED_ORDER_ID;
+import static eu.volsch.stockmountain.codec.TransactionCodec.PURCHASE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.REMAINING_QUANTITY;
+import static eu.volsch.stockmountain.codec.TransactionCodec.SECURITIES_EXCHANGE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.TICKER_SYMBOL;
+import static eu.volsch.stockmountain.codec.TransactionCodec.TIME;
+import static eu.volsch.stockmountain.codec.TransactionCodec.TRANSACTION_ID;
+import static eu.volsch.stockmountain.codec.TransactionCodec.VALUE;
+
+import eu.volsch.stockmountain.model.AbstractSimpleTransaction.AbstractSimpleTransactionBuilder;
+import eu.volsch.stockmountain.model.OrderId;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction.SimplePurchaseTransactionBuilder;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads a stream of {@linkplain Transaction transactions} that has been written by a
+ * {@link TransactionEncoder}.
+ */
+@NotThreadSafe
+public final class TransactionDecoder implements Closeable {
+
+  private final @NonNull CodecInput input;
+  private long previousId;
+  private long previousEpochDay;
+
+  /**
+   * Creates a decoder and reads the header of the stream.
+   *
+   * @param input the stream from which the transactions are read.
+   * @throws IOException thrown if the header cannot be read or the format version is not
+   *                     supported.
+   */
+  public TransactionDecoder(@NonNull InputStream input) throws IOException {
+    this.input = new CodecInput(input);
+    if (this.input.readInt() != TransactionCodec.MAGIC) {
+      throw new IOException("Stream contains no encoded transactions");
+    }
+    final int formatVersion = this.input.readByte();
+    if (formatVersion != TransactionCodec.FORMAT_VERSION) {
+      throw new IOException("Unsupported format version: " + formatVersion);
+    }
+  }
+
+  /**
+   * Reads the next transaction.
+   *
+   * @return the transaction or <code>null</code> if the end of the stream has been reached.
+   * @throws IOException thrown if the transaction cannot be read or is invalid.
+   */
+  public @Nullable Transaction read() throws IOException {
+    if (input.isAtEnd()) {
+      return null;
+    }
+    final long flags = input.readVarLong();
+    if ((flags & ~ALL_FLAGS) != 0) {
+      throw new IOException("Invalid transaction flags: " + flags);
+    }
+    final AbstractSimpleTransactionBuilder<?, ?> builder;
+    SimplePurchaseTransactionBuilder<?, ?> purchaseBuilder = null;
+    if ((flags & PURCHASE) != 0) {
+      purchaseBuilder = SimplePurchaseTransaction.builder();
+      builder = purchaseBuilder;
+    } else {
+      builder = SimpleSaleTransaction.builder();
+    }
+
+    try {
+      builder.fictional((flags & FICTIONAL) != 0);
+      previousId += input.readSignedVarLong();
+      builder.id(previousId);
+      builder.version(input.readVarInt());
+      previousEpochDay += input.readSignedVarLong();
+      builder.date(LocalDate.ofEpochDay(previousEpochDay));
+      if ((flags & TIME) != 0) {
+        builder.time(input.readTime());
+      }
+
+      builder.isin(input.readDictionaryString());
+      if ((flags & TICKER_SYMBOL) != 0) {
+        builder.tickerSymbol(input.readDictionaryString());
+      }
+      builder.name(input.readDictionaryString());
+      if ((flags & SECURITIES_EXCHANGE) != 0) {
+        builder.securitiesExchange(input.readDictionaryString());
+      }
+
+      builder.quantity(input.readDecimal());
+      builder.localPrice((flags & LOCAL_PRICE) != 0 ? readPrice() : null);
+      builder.localValue((flags & LOCAL_VALUE) != 0 ? readPrice() : null);
+      builder.exchangeRate((flags & EXCHANGE_RATE) != 0 ? input.readDecimal() : null);
+      builder.value((flags & VALUE) != 0 ? readPrice() : null);
+      builder.commission((flags & COMMISSION) != 0 ? readPrice() : null);
+      builder.total(readPrice());
+
+      if ((flags & PACKED_ORDER_ID) != 0) {
+        builder.orderId(new OrderId(input.readLong(), input.readLong()).toString());
+      } else if ((flags & ORDER_ID) != 0) {
+        builder.orderId(input.readString());
+      }
+      if ((flags & TRANSACTION_ID) != 0) {
+        builder.transactionId(input.readString());
+      }
+      if (purchaseBuilder != null) {
+        if ((flags & REMAINING_QUANTITY) != 0) {
+          purchaseBuilder.remainingQuantity(input.readDecimal());
+        }
+        if ((flags & LAST_SPLIT_DATE) != 0) {
+          purchaseBuilder.lastSplitDate(
+              LocalDate.ofEpochDay(previousEpochDay + input.readSignedVarLong()));
+        }
+      }
+      return builder.build();
+    } catch (DateTimeException | IllegalArgumentException e) {
+      throw new IOException("Encoded transaction is invalid", e);
+    }
+  }
+
+  private @NonNull Price readPrice() throws IOException {
+    return new Price(input.readDecimal(), input.readDictionaryString());
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
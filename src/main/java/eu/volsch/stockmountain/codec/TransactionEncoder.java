@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static eu.volsch.stockmountain.codec.TransactionCodec.COMMISSION;
+import static eu.volsch.stockmountain.codec.TransactionCodec.EXCHANGE_RATE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.FICTIONAL;
+import static eu.volsch.stockmountain.codec.TransactionCodec.LAST_SPLIT_DATE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.LOCAL_PRICE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.LOCAL_VALUE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.ORDER_ID;
+import static eu.volsch.stockmountain.codec.TransactionCodec.PACKED_ORDER_ID;
+import static eu.volsch.stockmountain.codec.TransactionCodec.PURCHASE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.REMAINING_QUANTITY;
+import static eu.volsch.stockmountain.codec.TransactionCodec.SECURITIES_EXCHANGE;
+import static eu.volsch.stockmountain.codec.TransactionCodec.TICKER_SYMBOL;
+import static eu.volsch.stockmountain.codec.TransactionCodec.TIME;
+import static eu.volsch.stockmountain.codec.TransactionCodec.TRANSACTION_ID;
+import static eu.volsch.stockmountain.codec.TransactionCodec.VALUE;
+
+import eu.volsch.stockmountain.model.OrderId;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Writes a stream of {@linkplain Transaction transactions} in a compact versioned binary format
+ * that can be read by a {@link TransactionDecoder}. The encoding is most compact if the
+ * transactions are written in the order of their IDs or dates. The stream is buffered and must be
+ * flushed or closed.
+ *
+ * <p>IDs and dates are encoded as deltas and strings by a dictionary of the stream, so that a
+ * transaction can only be decoded together with all preceding transactions of the stream. The
+ * format is therefore meant for complete streams (e.g. exports and caches). The journal and the
+ * snapshots keep their own per-entry encoding, so that each journal entry can be checked and
+ * decoded on its own.</p>
+ */
+@NotThreadSafe
+public final class TransactionEncoder implements Flushable, Closeable {
+
+  private final @NonNull CodecOutput output;
+  private long previousId;
+  private long previousEpochDay;
+
+  /**
+   * Creates an encoder and writes the header of the stream.
+   *
+   * @param output the stream to which the transactions are written.
+   * @throws IOException thrown if the header cannot be written.
+   */
+  public TransactionEncoder(@NonNull OutputStream output) throws IOException {
+    this.output = new CodecOutput(output);
+    this.output.writeInt(TransactionCodec.MAGIC);
+    this.output.writeByte(TransactionCodec.FORMAT_VERSION);
+  }
+
+  /**
+   * Writes the specified transaction.
+   *
+   * @param transaction the transaction that should be written.
+   * @throws IOException thrown if the transaction cannot be written.
+   */
+  public void write(@NonNull Transaction transaction) throws IOException {
+    final PurchaseTransaction purchase = transaction.getType() == TransactionType.PURCHASE
+        ? (PurchaseTransaction) transaction : null;
+    final String orderId = transaction.getOrderId();
+    final boolean packedOrderId = orderId != null && isPackable(orderId);
+    final LocalTime time = transaction.getTime();
+    final LocalDate lastSplitDate = purchase == null ? null : purchase.getLastSplitDate();
+    final BigDecimal remainingQuantity = purchase == null ? null : purchase.getRemainingQuantity();
+
+    int flags = purchase == null ? 0 : PURCHASE;
+    flags |= flag(transaction.isFictional(), FICTIONAL);
+    flags |= flag(time != null, TIME);
+    flags |= flag(transaction.getTickerSymbol() != null, TICKER_SYMBOL);
+    flags |= flag(transaction.getSecuritiesExchange() != null, SECURITIES_EXCHANGE);
+    flags |= flag(transaction.getLocalPrice() != null, LOCAL_PRICE);
+    flags |= flag(transaction.getLocalValue() != null, LOCAL_VALUE);
+    flags |= flag(transaction.getExchangeRate() != null, EXCHANGE_RATE);
+    flags |= flag(transaction.getValue() != null, VALUE);
+    flags |= flag(transaction.getCommission() != null, COMMISSION);
+    flags |= flag(orderId != null, packedOrderId ? PACKED_ORDER_ID : ORDER_ID);
+    flags |= flag(transaction.getTransactionId() != null, TRANSACTION_ID);
+    flags |= flag(remainingQuantity != null, REMAINING_QUANTITY);
+    flags |= flag(lastSplitDate != null, LAST_SPLIT_DATE);
+    output.writeVarLong(flags);
+
+    output.writeSignedVarLong(transaction.getId() - previousId);
+    previousId = transaction.getId();
+    output.writeVarLong(transaction.getVersion());
+    final long epochDay = transaction.getDate().toEpochDay();
+    output.writeSignedVarLong(epochDay - previousEpochDay);
+    previousEpochDay = epochDay;
+    if (time != null) {
+      output.writeTime(time);
+    }
+
+    output.writeDictionaryString(transaction.getIsin());
+    writeOptionalDictionaryString(transaction.getTickerSymbol());
+    output.writeDictionaryString(transaction.getName());
+    writeOptionalDictionaryString(transaction.getSecuritiesExchange());
+
+    output.writeDecimal(transaction.getQuantity());
+    writeOptionalPrice(transaction.getLocalPrice());
+    writeOptionalPrice(transaction.getLocalValue());
+    final BigDecimal exchangeRate = transaction.getExchangeRate();
+    if (exchangeRate != null) {
+      output.writeDecimal(exchangeRate);
+    }
+    writeOptionalPrice(transaction.getValue());
+    writeOptionalPrice(transaction.getCommission());
+    writePrice(transaction.getTotal());
+
+    if (packedOrderId) {
+      final OrderId packed = OrderId.parse(orderId);
+      output.writeLong(packed.getMostSignificantBits());
+      output.writeLong(packed.getLeastSignificantBits());
+    } else if (orderId != null) {
+      output.writeString(orderId);
+    }
+    final String transactionId = transaction.getTransactionId();
+    if (transactionId != null) {
+      output.writeString(transactionId);
+    }
+    if (remainingQuantity != null) {
+      output.writeDecimal(remainingQuantity);
+    }
+    if (lastSplitDate != null) {
+      output.writeSignedVarLong(lastSplitDate.toEpochDay() - epochDay);
+    }
+  }
+
+  private static int flag(boolean condition, int flag) {
+    return condition ? flag : 0;
+  }
+
+  private static boolean isPackable(@NonNull String orderId) {
+    // only the canonical lower case representation can be restored from the packed order ID
+    return OrderId.isValid(orderId) && OrderId.parse(orderId).toString().equals(orderId);
+  }
+
+  private void writeOptionalDictionaryString(@Nullable String value) throws IOException {
+    if (value != null) {
+      output.writeDictionaryString(value);
+    }
+  }
+
+  private void writeOptionalPrice(@Nullable Price price) throws IOException {
+    if (price != null) {
+      writePrice(price);
+    }
+  }
+
+  private void writePrice(@NonNull Price price) throws IOException {
+    output.writeDecimal(price.getValue());
+    output.writeDictionaryString(price.getCurrency());
+  }
+
+  @Override
+  public void flush() throws IOException {
+    output.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.close();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.degiro;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.MappingRecordBinder;
+import eu.volsch.stockmountain.extraction.api.RecordBinder;
+import eu.volsch.stockmountain.model.AbstractSimpleTransaction.AbstractSimpleTransactionBuilder;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Binds the records of the {@linkplain DegiroTransactionFields DEGIRO Transactions CSV} to
+ * transactions. A record with a positive quantity results in a purchase and a record with a
+ * negative quantity in a sale. The price per unit becomes the local price and the costs become the
+ * commission. The IDs and versions of the resulting transactions are not assigned yet.
+ *
+ * <p>The binder can be passed to an {@linkplain eu.volsch.stockmountain.extraction.api.Extractor
+ * extractor}, so that the fills of the orders can be aggregated while the records are extracted
+ * (e.g. by an {@linkplain eu.volsch.stockmountain.portfolio.OrderAggregator order
+ * aggregator}).</p>
+ */
+@NotThreadSafe
+public final class DegiroTransactionBinder implements RecordBinder<Transaction> {
+
+  private final MappingRecordBinder<Values, Transaction> binder =
+      MappingRecordBinder.<Values, Transaction>builder(Values::new, Values::toTransaction)
+          .bind(DegiroTransactionFields.DATE, (v, value) -> v.date = value)
+          .bind(DegiroTransactionFields.TIME, (v, value) -> v.time = value)
+          .bind(DegiroTransactionFields.NAME, (v, value) -> v.name = value)
+          .bind(DegiroTransactionFields.ISIN, (v, value) -> v.isin = value)
+          .bind(DegiroTransactionFields.EXCHANGE, (v, value) -> v.securitiesExchange = value)
+          .bind(DegiroTransactionFields.QUANTITY, (v, value) -> v.quantity = value)
+          .bind(DegiroTransactionFields.PRICE_PER_UNIT, (v, value) -> v.localPrice = value)
+          .bind(DegiroTransactionFields.PRICE_PER_UNIT_CURRENCY,
+              (v, value) -> v.localPriceCurrency = value)
+          .bind(DegiroTransactionFields.LOCAL_VALUE, (v, value) -> v.localValue = value)
+          .bind(DegiroTransactionFields.LOCAL_VALUE_CURRENCY,
+              (v, value) -> v.localValueCurrency = value)
+          .bind(DegiroTransactionFields.VALUE, (v, value) -> v.value = value)
+          .bind(DegiroTransactionFields.VALUE_CURRENCY, (v, value) -> v.valueCurrency = value)
+          .bind(DegiroTransactionFields.EXCHANGE_RATE, (v, value) -> v.exchangeRate = value)
+          .bind(DegiroTransactionFields.COSTS, (v, value) -> v.commission = value)
+          .bind(DegiroTransactionFields.COSTS_CURRENCY, (v, value) -> v.commissionCurrency = value)
+          .bind(DegiroTransactionFields.TOTAL, (v, value) -> v.total = value)
+          .bind(DegiroTransactionFields.TOTAL_CURRENCY, (v, value) -> v.totalCurrency = value)
+          .bind(DegiroTransactionFields.ORDER_ID, (v, value) -> v.orderId = value)
+          .build();
+
+  @Override
+  public void begin() {
+    binder.begin();
+  }
+
+  @Override
+  public <V> void bind(@NonNull Field<V> field, @Nullable V value) {
+    binder.bind(field, value);
+  }
+
+  /**
+   * Creates the transaction from the values of the current record.
+   *
+   * @return the purchase or sale of the current record.
+   * @throws IllegalArgumentException thrown if the quantity is zero.
+   * @throws NullPointerException     thrown if a mandatory value is missing.
+   */
+  @Override
+  public @NonNull Transaction complete() throws IllegalArgumentException, NullPointerException {
+    return binder.complete();
+  }
+
+  /**
+   * Mutable values of the current record.
+   */
+  @NotThreadSafe
+  private static final class Values {
+
+    private @Nullable LocalDate date;
+    private @Nullable LocalTime time;
+    private @Nullable String name;
+    private @Nullable String isin;
+    private @Nullable String securitiesExchange;
+    private @Nullable BigDecimal quantity;
+    private @Nullable BigDecimal localPrice;
+    private @Nullable String localPriceCurrency;
+    private @Nullable BigDecimal localValue;
+    private @Nullable String localValueCurrency;
+    private @Nullable BigDecimal value;
+    private @Nullable String valueCurrency;
+    private @Nullable BigDecimal exchangeRate;
+    private @Nullable BigDecimal commission;
+    private @Nullable String commissionCurrency;
+    private @Nullable BigDecimal total;
+    private @Nullable String totalCurrency;
+    private @Nullable String orderId;
+
+    private @NonNull Transaction toTransaction() {
+      final BigDecimal nonNullQuantity = requireNonNull(quantity, "quantity");
+      final int signum = nonNullQuantity.signum();
+      if (signum == 0) {
+        throw new IllegalArgumentException("Quantity of transaction must not be zero");
+      }
+      final AbstractSimpleTransactionBuilder<?, ?> builder = signum > 0
+          ? SimplePurchaseTransaction.builder() : SimpleSaleTransaction.builder();
+      return builder
+          .date(requireNonNull(date, "date"))
+          .time(time)
+          .isin(requireNonNull(isin, "isin"))
+          .name(requireNonNull(name, "name"))
+          .securitiesExchange(securitiesExchange)
+          .quantity(nonNullQuantity)
+          .localPrice(price(localPrice, localPriceCurrency))
+          .localValue(price(localValue, localValueCurrency))
+          .exchangeRate(exchangeRate)
+          .value(price(value, valueCurrency))
+          .commission(price(commission, commissionCurrency))
+          .total(requireNonNull(price(total, totalCurrency), "total"))
+          .orderId(orderId)
+          .build();
+    }
+
+    private static @Nullable Price price(@Nullable BigDecimal value, @Nullable String currency) {
+      return value == null || currency == null ? null : new Price(value, currency);
+    }
+  }
+}
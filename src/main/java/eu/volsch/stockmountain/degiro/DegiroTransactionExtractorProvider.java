@@ -29,17 +29,27 @@ import eu.volsch.stockmountain.extraction.api.Extractor;
 import eu.volsch.stockmountain.extraction.api.ExtractorProvider;
 import eu.volsch.stockmountain.extraction.csv.CsvExtractor;
 import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 /**
- * Provides the extractor for DEGIRO transaction files.
+ * Provides the extractor for DEGIRO transaction files. The extractor is created when it is used
+ * for the first time.
  */
 public class DegiroTransactionExtractorProvider implements ExtractorProvider {
 
   private static final int HEADER_ROW_COUNT = 1;
+  private static final char FIELD_SEPARATOR = ',';
+  private static final int FIELD_COUNT = 19;
 
-  private static final Extractor extractor = new CsvExtractor(',', DegiroTransactionFields.fields(),
-      HEADER_ROW_COUNT, Integer.MAX_VALUE, StandardCharsets.ISO_8859_1);
+  private static final int HEADER_SCORE = 50;
+  private static final int DATE_TIME_SCORE = 30;
+  private static final int ISIN_SCORE = 20;
+  private static final Pattern DATE_TIME_PATTERN =
+      Pattern.compile("\\d{2}-\\d{2}-\\d{4},\\d{2}:\\d{2},.*");
+  private static final Pattern ISIN_PATTERN = Pattern.compile("[A-Z]{2}[A-Z0-9]{9}\\d");
+  private static final int ISIN_FIELD_INDEX = 3;
 
   @Override
   public @NonNull String getBrokerId() {
@@ -48,6 +58,62 @@ public class DegiroTransactionExtractorProvider implements ExtractorProvider {
 
   @Override
   public @NonNull Extractor getExtractor() {
-    return extractor;
+    return ExtractorHolder.EXTRACTOR;
+  }
+
+  @Override
+  public @NonNegative int score(byte @NonNull [] prefix, @NonNegative int length) {
+    if (containsZeroByte(prefix, length)) {
+      // multibyte character set that is not used by DEGIRO
+      return 0;
+    }
+    final String[] lines = new String(prefix, 0, length, StandardCharsets.ISO_8859_1)
+        .split("\\r\\n?|\\n", 3);
+    if (countFields(lines[0]) != FIELD_COUNT) {
+      return 0;
+    }
+    int score = HEADER_SCORE;
+    if (lines.length > 1) {
+      final String data = lines[1];
+      if (DATE_TIME_PATTERN.matcher(data).matches()) {
+        score += DATE_TIME_SCORE;
+      }
+      final String[] values = data.split(String.valueOf(FIELD_SEPARATOR), ISIN_FIELD_INDEX + 2);
+      if (values.length > ISIN_FIELD_INDEX + 1
+          && ISIN_PATTERN.matcher(values[ISIN_FIELD_INDEX]).matches()) {
+        score += ISIN_SCORE;
+      }
+    }
+    return score;
+  }
+
+  private static boolean containsZeroByte(byte @NonNull [] prefix, @NonNegative int length) {
+    for (int i = 0; i < length; i++) {
+      if (prefix[i] == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int countFields(@NonNull String line) {
+    int count = 1;
+    boolean enclosed = false;
+    for (int i = 0; i < line.length(); i++) {
+      final char c = line.charAt(i);
+      if (c == '"') {
+        enclosed = !enclosed;
+      } else if (c == FIELD_SEPARATOR && !enclosed) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static final class ExtractorHolder {
+
+    private static final Extractor EXTRACTOR = new CsvExtractor(FIELD_SEPARATOR,
+        DegiroTransactionFields.fields(), HEADER_ROW_COUNT, Integer.MAX_VALUE,
+        StandardCharsets.ISO_8859_1);
   }
 }
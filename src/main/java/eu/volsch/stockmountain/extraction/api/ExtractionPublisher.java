@@ -0,0 +1,217 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Publishes the results of an extraction to a single {@linkplain Subscriber subscriber}. Only
+ * as many results are extracted as have been requested by the subscriber, so that the memory that
+ * is used by the extraction is bounded by the demand of the subscriber. The extraction is
+ * performed by the specified executor. When the subscription is cancelled or the extraction has
+ * been finished, the underlying input is closed.
+ *
+ * @param <T> the type of the published results.
+ */
+@ThreadSafe
+public final class ExtractionPublisher<T> implements Publisher<T> {
+
+  private final @NonNull Supplier<? extends Stream<T>> extraction;
+  private final @NonNull Closeable input;
+  private final @NonNull Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * Creates a publisher for the specified extraction.
+   *
+   * @param extraction supplies the stream of the extraction when the subscriber subscribes.
+   * @param input      the input of the extraction that is closed when the publishing ends.
+   * @param executor   the executor that performs the extraction (e.g. <code>Runnable::run</code>
+   *                   to extract in the thread that requests the results).
+   */
+  public ExtractionPublisher(@NonNull Supplier<? extends Stream<T>> extraction,
+      @NonNull Closeable input, @NonNull Executor executor) {
+    this.extraction = requireNonNull(extraction);
+    this.input = requireNonNull(input);
+    this.executor = requireNonNull(executor);
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    requireNonNull(subscriber);
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new ClosedSubscription());
+      subscriber.onError(new IllegalStateException(
+          "Extraction can only be published to a single subscriber"));
+      return;
+    }
+    subscriber.onSubscribe(new ExtractionSubscription(subscriber));
+  }
+
+  private static final class ClosedSubscription implements Subscription {
+
+    @Override
+    public void request(long n) {
+      // nothing will be published
+    }
+
+    @Override
+    public void cancel() {
+      // nothing will be published
+    }
+  }
+
+  private final class ExtractionSubscription implements Subscription, Runnable {
+
+    private final Subscriber<? super T> subscriber;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile @Nullable Throwable invalidRequest;
+    private boolean done;
+    private @Nullable Spliterator<T> spliterator;
+
+    private ExtractionSubscription(@NonNull Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException(
+            "Number of requested results must be positive: " + n);
+      } else {
+        requested.getAndAccumulate(n, (current, add) -> {
+          final long sum = current + add;
+          return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          pending.set(0);
+          cancelled = true;
+          finish(e);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        if (done) {
+          return;
+        }
+        if (cancelled) {
+          finish(null);
+          return;
+        }
+        final Throwable error = invalidRequest;
+        if (error != null) {
+          finish(error);
+          return;
+        }
+        publishRequested();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void publishRequested() {
+      final long count = requested.get();
+      long published = 0;
+      try {
+        if (spliterator == null) {
+          spliterator = extraction.get().spliterator();
+        }
+        while (published != count && !cancelled) {
+          if (!spliterator.tryAdvance(subscriber::onNext)) {
+            finish(null);
+            return;
+          }
+          published++;
+        }
+      } catch (RuntimeException e) {
+        finish(e);
+        return;
+      }
+      if (published != 0 && count != Long.MAX_VALUE) {
+        requested.addAndGet(-published);
+      }
+    }
+
+    private void finish(@Nullable Throwable error) {
+      if (done) {
+        return;
+      }
+      done = true;
+      Throwable closeError = null;
+      try {
+        input.close();
+      } catch (IOException e) {
+        closeError = new ExtractionDataAccessException("Error when closing input", e);
+      }
+      if (cancelled && !(error instanceof RejectedExecutionException)) {
+        return;
+      }
+      if (error != null) {
+        subscriber.onError(error);
+      } else if (closeError != null) {
+        subscriber.onError(closeError);
+      } else {
+        subscriber.onComplete();
+      }
+    }
+  }
+}
@@ -28,6 +28,8 @@ package eu.volsch.stockmountain.extraction.api;
 import eu.volsch.stockmountain.extraction.csv.CsvExtractionException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
 import java.util.stream.Stream;
 import net.jcip.annotations.ThreadSafe;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -70,4 +72,65 @@ public interface Extractor {
    * @see #readerSupported()
    */
   @NonNull Stream<Record> extract(@NonNull Reader reader);
+
+  /**
+   * Extracts the records from the specified input stream and binds the values of each record with
+   * the specified binder. The returned stream contains the objects that result from the bound
+   * records. Stream operations may throw the same exceptions as the stream that is returned by
+   * {@link #extract(InputStream)}.
+   *
+   * @param inputStream the input stream from which the records should be read.
+   * @param binder      the binder to which the values of the records are bound.
+   * @param <T>         the type of the objects that result from the bound records.
+   * @return the stream with the objects that result from the bound records.
+   */
+  <T> @NonNull Stream<T> extract(@NonNull InputStream inputStream,
+      @NonNull RecordBinder<T> binder);
+
+  /**
+   * Extracts the records from the specified reader and binds the values of each record with the
+   * specified binder. The returned stream contains the objects that result from the bound records.
+   * Stream operations may throw the same exceptions as the stream that is returned by
+   * {@link #extract(Reader)}. This method throws a {@link UnsupportedOperationException} if using
+   * a reader is not supported.
+   *
+   * @param reader the reader from which the records should be read.
+   * @param binder the binder to which the values of the records are bound.
+   * @param <T>    the type of the objects that result from the bound records.
+   * @return the stream with the objects that result from the bound records.
+   * @see #readerSupported()
+   */
+  <T> @NonNull Stream<T> extract(@NonNull Reader reader, @NonNull RecordBinder<T> binder);
+
+  /**
+   * Publishes the records of the specified input stream to a single subscriber. Only as many
+   * records are extracted as have been requested by the subscriber. The records are extracted by
+   * the thread that requests them. The input stream is closed when the subscription is cancelled
+   * or all records have been published. The subscriber may receive the same exceptions as the
+   * stream that is returned by {@link #extract(InputStream)}.
+   *
+   * @param inputStream the input stream from which the records should be read.
+   * @return the publisher of the records.
+   * @see #publish(InputStream, Executor)
+   */
+  default @NonNull Publisher<Record> publish(@NonNull InputStream inputStream) {
+    return publish(inputStream, Runnable::run);
+  }
+
+  /**
+   * Publishes the records of the specified input stream to a single subscriber. Only as many
+   * records are extracted as have been requested by the subscriber. The records are extracted by
+   * the specified executor, so that the extraction may run in another thread than the
+   * subscriber. The input stream is closed when the subscription is cancelled or all records have
+   * been published. The subscriber may receive the same exceptions as the stream that is returned
+   * by {@link #extract(InputStream)}.
+   *
+   * @param inputStream the input stream from which the records should be read.
+   * @param executor    the executor that performs the extraction.
+   * @return the publisher of the records.
+   */
+  default @NonNull Publisher<Record> publish(@NonNull InputStream inputStream,
+      @NonNull Executor executor) {
+    return new ExtractionPublisher<>(() -> extract(inputStream), inputStream, executor);
+  }
 }
@@ -26,17 +26,38 @@
 package eu.volsch.stockmountain.extraction.api;
 
 import eu.volsch.stockmountain.model.BrokerAware;
+import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 /**
- * Provides a specific extractor of a broker.
+ * Provides a specific extractor of a broker. Implementations are registered as service providers
+ * of this interface, so that they can be looked up by the
+ * {@linkplain ExtractorProviderRegistry registry}.
  */
 public interface ExtractorProvider extends BrokerAware {
 
+  /**
+   * The maximum score that is returned by {@link #score(byte[], int)}.
+   */
+  int MAX_SCORE = 100;
+
   /**
    * Returns the specific extractor of a broker.
    *
    * @return the extractor.
    */
   @NonNull Extractor getExtractor();
+
+  /**
+   * Scores how likely the data that starts with the specified prefix can be extracted by the
+   * extractor of this provider. The score is based on characteristics like the header row, the
+   * field separator or the character set. The default implementation returns <code>0</code>.
+   *
+   * @param prefix the prefix of the data (may contain an incomplete last line).
+   * @param length the number of valid bytes in the prefix.
+   * @return the score between <code>0</code> (not supported) and {@link #MAX_SCORE}.
+   */
+  default @NonNegative int score(byte @NonNull [] prefix, @NonNegative int length) {
+    return 0;
+  }
 }
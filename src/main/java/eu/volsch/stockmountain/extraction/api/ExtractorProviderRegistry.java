@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Registry of {@linkplain ExtractorProvider extractor providers} that are keyed by their
+ * {@linkplain ExtractorProvider#getBrokerId() broker ID}. The default instance contains all
+ * providers that are registered as service providers and is initialized when it is used for the
+ * first time. The registry is also able to detect the broker of data of which the broker is not
+ * known by scoring a prefix of the data with each provider.
+ */
+@Immutable
+@ThreadSafe
+public final class ExtractorProviderRegistry {
+
+  /**
+   * The default number of bytes that are used to detect the broker.
+   */
+  public static final int DEFAULT_PREFIX_LENGTH = 4096;
+
+  private final @NonNull Map<String, ExtractorProvider> providers;
+  private final @Positive int prefixLength;
+
+  /**
+   * Creates a registry with the specified providers that uses
+   * {@linkplain #DEFAULT_PREFIX_LENGTH the default prefix length}.
+   *
+   * @param providers the providers that should be included in the registry.
+   * @throws IllegalArgumentException thrown if several providers have the same broker ID.
+   */
+  public ExtractorProviderRegistry(@NonNull Iterable<? extends ExtractorProvider> providers)
+      throws IllegalArgumentException {
+    this(providers, DEFAULT_PREFIX_LENGTH);
+  }
+
+  /**
+   * Creates a registry with the specified providers.
+   *
+   * @param providers    the providers that should be included in the registry.
+   * @param prefixLength the number of bytes that are used to detect the broker.
+   * @throws IllegalArgumentException thrown if several providers have the same broker ID or the
+   *                                  prefix length is not positive.
+   */
+  public ExtractorProviderRegistry(@NonNull Iterable<? extends ExtractorProvider> providers,
+      @Positive int prefixLength) throws IllegalArgumentException {
+    if (prefixLength <= 0) {
+      throw new IllegalArgumentException("Prefix length must be positive: " + prefixLength);
+    }
+    final Map<String, ExtractorProvider> map = new TreeMap<>();
+    for (final ExtractorProvider provider : providers) {
+      if (map.putIfAbsent(provider.getBrokerId(), provider) != null) {
+        throw new IllegalArgumentException(
+            "Duplicate extractor provider for broker: " + provider.getBrokerId());
+      }
+    }
+    this.providers = Collections.unmodifiableMap(map);
+    this.prefixLength = prefixLength;
+  }
+
+  /**
+   * Returns the default registry that contains all providers that are registered as service
+   * providers of {@link ExtractorProvider}.
+   *
+   * @return the default registry.
+   */
+  public static @NonNull ExtractorProviderRegistry getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Returns the IDs of all brokers for which a provider is registered.
+   *
+   * @return the ordered IDs of the brokers.
+   */
+  public @NonNull Set<@NonNull String> getBrokerIds() {
+    return providers.keySet();
+  }
+
+  /**
+   * Returns the provider of the specified broker.
+   *
+   * @param brokerId the ID of the broker.
+   * @return the provider of the broker.
+   */
+  public @NonNull Optional<ExtractorProvider> getProvider(@NonNull String brokerId) {
+    return Optional.ofNullable(providers.get(brokerId));
+  }
+
+  /**
+   * Detects the provider that supports the data of the specified input stream. The input stream
+   * must support {@linkplain InputStream#mark(int) marks}, since the prefix of the data is read
+   * and the input stream is reset afterwards. Therefore, the data that is read by the detection is
+   * not consumed.
+   *
+   * @param inputStream the input stream from which the prefix of the data is read.
+   * @return the provider with the highest positive score.
+   * @throws IllegalArgumentException thrown if the input stream does not support marks.
+   * @throws IOException              thrown if reading the input stream fails.
+   */
+  public @NonNull Optional<ExtractorProvider> detect(@NonNull InputStream inputStream)
+      throws IllegalArgumentException, IOException {
+    if (!inputStream.markSupported()) {
+      throw new IllegalArgumentException("Input stream must support marks");
+    }
+    final byte[] prefix = new byte[prefixLength];
+    final int length;
+    inputStream.mark(prefixLength);
+    try {
+      length = inputStream.readNBytes(prefix, 0, prefixLength);
+    } finally {
+      inputStream.reset();
+    }
+    return detect(prefix, length);
+  }
+
+  /**
+   * Detects the provider that supports the data with the specified prefix.
+   *
+   * @param prefix the prefix of the data.
+   * @param length the number of valid bytes in the prefix.
+   * @return the provider with the highest positive score. If several providers have the same
+   *         score, the provider with the lowest broker ID is returned.
+   */
+  public @NonNull Optional<ExtractorProvider> detect(byte @NonNull [] prefix,
+      @NonNegative int length) {
+    ExtractorProvider result = null;
+    int maxScore = 0;
+    for (final ExtractorProvider provider : providers.values()) {
+      final int score = provider.score(prefix, length);
+      if (score > maxScore) {
+        result = provider;
+        maxScore = score;
+      }
+    }
+    return Optional.ofNullable(result);
+  }
+
+  private static final class DefaultHolder {
+
+    private static final ExtractorProviderRegistry INSTANCE = new ExtractorProviderRegistry(
+        ServiceLoader.load(ExtractorProvider.class, ExtractorProviderRegistry.class
+            .getClassLoader()));
+  }
+}
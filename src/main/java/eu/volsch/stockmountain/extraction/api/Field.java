@@ -25,6 +25,7 @@
 
 package eu.volsch.stockmountain.extraction.api;
 
+import eu.volsch.stockmountain.extraction.conversion.ColumnConversionException;
 import eu.volsch.stockmountain.extraction.conversion.ConversionException;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
@@ -104,6 +105,30 @@ public interface Field<T> {
     return type().cast(value);
   }
 
+  /**
+   * Converts the first <code>count</code> values of the specified column to the
+   * {@linkplain #type() type} of this field and stores them in the specified target array. The
+   * default implementation {@linkplain #convert(Object) converts} each value separately.
+   *
+   * @param values  the values that should be converted to the type of this field.
+   * @param count   the number of values that should be converted.
+   * @param targets the array to which the converted values are stored.
+   * @throws ColumnConversionException thrown if a value cannot be converted. The converted values
+   *                                   before the index of the failed value have been stored.
+   * @throws ClassCastException        thrown if the conversion is not supported due to the type of
+   *                                   a value.
+   */
+  default void convertColumn(@Nullable Object @NonNull [] values, @NonNegative int count,
+      @Nullable Object @NonNull [] targets) throws ColumnConversionException, ClassCastException {
+    for (int i = 0; i < count; i++) {
+      try {
+        targets[i] = convert(values[i]);
+      } catch (ConversionException e) {
+        throw new ColumnConversionException(i, e.getMessage());
+      }
+    }
+  }
+
   @Override
   boolean equals(Object o);
 
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@linkplain RecordBinder Record binder} that maps the values of fields to setters of a target.
+ * The target is either created for each record by a factory (e.g. a builder or a holder of
+ * constructor arguments that is finished into the resulting object) or a single reusable mutable
+ * target is used for all records. Values of fields without a setter are ignored.
+ *
+ * @param <S> the type of the target to which the values are bound.
+ * @param <T> the type of the objects that result from the bound records.
+ */
+@NotThreadSafe
+public final class MappingRecordBinder<S, T> implements RecordBinder<T> {
+
+  private final @NonNull Supplier<? extends S> targetFactory;
+  private final @NonNull Function<? super S, ? extends T> finisher;
+  private final @Nullable Field<?>[] fields;
+  private final @Nullable BiConsumer<S, Object>[] setters;
+  private @Nullable S target;
+
+  private MappingRecordBinder(@NonNull Builder<S, T> builder) {
+    this.targetFactory = builder.targetFactory;
+    this.finisher = builder.finisher;
+
+    final int length = builder.mappings.isEmpty() ? 0 : builder.mappings.lastKey() + 1;
+    this.fields = new Field[length];
+    this.setters = newSetterArray(length);
+    builder.mappings.forEach((ordinal, mapping) -> {
+      this.fields[ordinal] = mapping.field;
+      this.setters[ordinal] = mapping.setter;
+    });
+  }
+
+  /**
+   * Creates a builder for a binder that creates a new target for each record. After all values of
+   * a record have been bound, the target is finished into the resulting object.
+   *
+   * @param targetFactory the factory that creates the target for each record.
+   * @param finisher      creates the resulting object from the target.
+   * @param <S>           the type of the target to which the values are bound.
+   * @param <T>           the type of the objects that result from the bound records.
+   * @return the builder.
+   */
+  public static <S, T> @NonNull Builder<S, T> builder(
+      @NonNull Supplier<? extends S> targetFactory,
+      @NonNull Function<? super S, ? extends T> finisher) {
+    return new Builder<>(targetFactory, finisher);
+  }
+
+  /**
+   * Creates a builder for a binder that binds the values of all records to the same mutable
+   * target. The target is returned for each record, so that the caller must have processed the
+   * target before the next record is bound.
+   *
+   * @param reusableTarget the target that is reused for all records.
+   * @param <T>            the type of the reusable target.
+   * @return the builder.
+   */
+  public static <T> @NonNull Builder<T, T> builder(@NonNull T reusableTarget) {
+    requireNonNull(reusableTarget);
+    return new Builder<>(() -> reusableTarget, Function.identity());
+  }
+
+  @Override
+  public void begin() {
+    target = targetFactory.get();
+  }
+
+  @Override
+  public <V> void bind(@NonNull Field<V> field, @Nullable V value) {
+    final int ordinal = field.ordinal();
+    if (ordinal < fields.length) {
+      final Field<?> mappedField = fields[ordinal];
+      if (mappedField != null && (mappedField == field || mappedField.equals(field))) {
+        setters[ordinal].accept(currentTarget(), value);
+      }
+    }
+  }
+
+  @Override
+  public @NonNull T complete() {
+    final T result = finisher.apply(currentTarget());
+    target = null;
+    return requireNonNull(result);
+  }
+
+  private @NonNull S currentTarget() {
+    if (target == null) {
+      throw new IllegalStateException("Binding of record has not been begun");
+    }
+    return target;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <S> @Nullable BiConsumer<S, Object>[] newSetterArray(int length) {
+    return new BiConsumer[length];
+  }
+
+  /**
+   * Builder of {@linkplain MappingRecordBinder mapping record binders}. The builder can be used to
+   * build several independent binders with the same mappings.
+   *
+   * @param <S> the type of the target to which the values are bound.
+   * @param <T> the type of the objects that result from the bound records.
+   */
+  @NotThreadSafe
+  public static final class Builder<S, T> {
+
+    private final @NonNull Supplier<? extends S> targetFactory;
+    private final @NonNull Function<? super S, ? extends T> finisher;
+    private final TreeMap<Integer, Mapping<S>> mappings = new TreeMap<>();
+
+    private Builder(@NonNull Supplier<? extends S> targetFactory,
+        @NonNull Function<? super S, ? extends T> finisher) {
+      this.targetFactory = requireNonNull(targetFactory);
+      this.finisher = requireNonNull(finisher);
+    }
+
+    /**
+     * Maps the value of the specified field to the specified setter of the target.
+     *
+     * @param field  the field of which the value should be bound.
+     * @param setter the setter that binds the value to the target.
+     * @param <V>    the concrete type of the value of the field.
+     * @return this builder.
+     * @throws IllegalArgumentException thrown if a field with the same ordinal number has already
+     *                                  been mapped.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> @NonNull Builder<S, T> bind(@NonNull Field<V> field,
+        @NonNull BiConsumer<? super S, ? super V> setter) throws IllegalArgumentException {
+      requireNonNull(setter);
+      final Mapping<S> mapping = new Mapping<>(field, (BiConsumer<S, Object>) setter);
+      if (mappings.putIfAbsent(field.ordinal(), mapping) != null) {
+        throw new IllegalArgumentException("Field has already been mapped: " + field.name());
+      }
+      return this;
+    }
+
+    /**
+     * Builds a new binder with the current mappings of this builder.
+     *
+     * @return the new binder.
+     */
+    public @NonNull MappingRecordBinder<S, T> build() {
+      return new MappingRecordBinder<>(this);
+    }
+  }
+
+  private static final class Mapping<S> {
+
+    private final @NonNull Field<?> field;
+    private final @NonNull BiConsumer<S, Object> setter;
+
+    private Mapping(@NonNull Field<?> field, @NonNull BiConsumer<S, Object> setter) {
+      this.field = field;
+      this.setter = setter;
+    }
+  }
+}
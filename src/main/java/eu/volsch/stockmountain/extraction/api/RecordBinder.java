@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Binds the values of the fields of a record directly to a caller-defined object. The converted
+ * values are pushed into the binder as soon as they are available, so that no intermediate
+ * {@linkplain Record record} must be created. A binder is used by a single extraction only and does
+ * not need to be thread-safe.
+ *
+ * @param <T> the type of the objects that result from the bound records.
+ */
+@NotThreadSafe
+public interface RecordBinder<T> {
+
+  /**
+   * Invoked before the values of the next record are bound.
+   */
+  void begin();
+
+  /**
+   * Binds the converted value of the specified field of the current record.
+   *
+   * @param field the field to which the value belongs.
+   * @param value the converted value of the field.
+   * @param <V>   the concrete type of the value of the field.
+   */
+  <V> void bind(@NonNull Field<V> field, @Nullable V value);
+
+  /**
+   * Invoked after all values of the current record have been bound. The returned object may be
+   * the same instance for all records if the binder uses a reusable mutable target.
+   *
+   * @return the object that results from the current record.
+   */
+  @NonNull T complete();
+}
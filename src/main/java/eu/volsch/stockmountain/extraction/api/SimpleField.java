@@ -28,6 +28,7 @@ package eu.volsch.stockmountain.extraction.api;
 import static java.util.Objects.requireNonNull;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.extraction.conversion.ColumnConversionException;
 import eu.volsch.stockmountain.extraction.conversion.ConversionException;
 import eu.volsch.stockmountain.extraction.conversion.Converter;
 import java.util.Objects;
@@ -115,6 +116,16 @@ public final class SimpleField<T> implements Field<T> {
     return converter.castAndConvert(value);
   }
 
+  @Override
+  public void convertColumn(@Nullable Object @NonNull [] values, @NonNegative int count,
+      @Nullable Object @NonNull [] targets) throws ColumnConversionException, ClassCastException {
+    if (converter == null) {
+      Field.super.convertColumn(values, count, targets);
+    } else {
+      converter.castAndConvertColumn(values, count, targets);
+    }
+  }
+
   @Override
   @EqualsMethod
   public boolean equals(Object o) {
@@ -28,11 +28,14 @@ package eu.volsch.stockmountain.extraction.conversion;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.Temporal;
+import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Implementations converts a string to a {@linkplain Temporal temporal} based on the specified
- * formatter.
+ * formatter. When converting a column, consecutive equal values (e.g. the dates of transactions
+ * of the same day) are parsed only once.
  *
  * @param <T> the concrete type of the temporal.
  */
@@ -45,6 +48,25 @@ public abstract class AbstractStringToTemporalConverter<T extends Temporal>
     this.formatter = formatter;
   }
 
+  @Override
+  public void convertColumn(@Nullable String @NonNull [] sources, @NonNegative int count,
+      @Nullable T @NonNull [] targets) throws ColumnConversionException {
+    String lastSource = null;
+    T lastTarget = null;
+    for (int i = 0; i < count; i++) {
+      final String source = sources[i];
+      if (source == null || !source.equals(lastSource)) {
+        try {
+          lastTarget = convert(source);
+        } catch (ConversionException e) {
+          throw new ColumnConversionException(i, e.getMessage());
+        }
+        lastSource = source;
+      }
+      targets[i] = lastTarget;
+    }
+  }
+
   @Override
   protected final @NonNull T doConvert(@NonNull String source) throws ConversionException {
     try {
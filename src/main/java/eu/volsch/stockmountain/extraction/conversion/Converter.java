@@ -25,12 +25,16 @@
 
 package eu.volsch.stockmountain.extraction.conversion;
 
+import java.lang.reflect.Array;
 import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
- * Converts a value to a target type.
+ * Converts a value to a target type. Besides converting single values, a converter can convert a
+ * slice of a column at once, so that an implementation can process all values of the column in a
+ * tight loop and can reuse its setup for all values.
  *
  * @param <S> the source value type.
  * @param <T> the target value type.
@@ -77,4 +81,69 @@ public interface Converter<S, T> {
    */
   @Nullable T convert(@Nullable S source)
       throws ConversionException;
+
+  /**
+   * Converts the first <code>count</code> source values of the specified column to the target type
+   * and stores them in the specified target array. The source values will be cast to the
+   * {@linkplain #getSourceType() source type} and a {@linkplain ClassCastException} will be thrown
+   * if this fails. If the component types of the arrays do not match the source and the target
+   * type, the values are copied from and to arrays of the matching types.
+   *
+   * @param sources the source values that should be converted.
+   * @param count   the number of values that should be converted.
+   * @param targets the array to which the converted values are stored.
+   * @throws ColumnConversionException thrown if a value cannot be converted. The target values
+   *                                   before the index of the failed value have been stored.
+   * @throws ClassCastException        thrown if a source value cannot be cast to the
+   *                                   {@linkplain #getSourceType() source type}
+   */
+  @SuppressWarnings("unchecked")
+  default void castAndConvertColumn(@Nullable Object @NonNull [] sources,
+      @NonNegative int count, @Nullable Object @NonNull [] targets)
+      throws ColumnConversionException, ClassCastException {
+    final Class<S> sourceType = getSourceType();
+    final S[] typedSources;
+    if (sourceType.isAssignableFrom(sources.getClass().getComponentType())) {
+      typedSources = (S[]) sources;
+    } else {
+      typedSources = (S[]) Array.newInstance(sourceType, count);
+      for (int i = 0; i < count; i++) {
+        typedSources[i] = sourceType.cast(sources[i]);
+      }
+    }
+
+    final Class<T> targetType = getTargetType();
+    if (targets.getClass().getComponentType() == targetType) {
+      convertColumn(typedSources, count, (T[]) targets);
+    } else {
+      final T[] typedTargets = (T[]) Array.newInstance(targetType, count);
+      try {
+        convertColumn(typedSources, count, typedTargets);
+      } finally {
+        System.arraycopy(typedTargets, 0, targets, 0, count);
+      }
+    }
+  }
+
+  /**
+   * Converts the first <code>count</code> source values of the specified column to the target type
+   * and stores them in the specified target array. The default implementation
+   * {@linkplain #convert(Object) converts} each value separately.
+   *
+   * @param sources the source values that should be converted.
+   * @param count   the number of values that should be converted.
+   * @param targets the array to which the converted values are stored.
+   * @throws ColumnConversionException thrown if a value cannot be converted. The target values
+   *                                   before the index of the failed value have been stored.
+   */
+  default void convertColumn(@Nullable S @NonNull [] sources, @NonNegative int count,
+      @Nullable T @NonNull [] targets) throws ColumnConversionException {
+    for (int i = 0; i < count; i++) {
+      try {
+        targets[i] = convert(sources[i]);
+      } catch (ConversionException e) {
+        throw new ColumnConversionException(i, e.getMessage());
+      }
+    }
+  }
 }
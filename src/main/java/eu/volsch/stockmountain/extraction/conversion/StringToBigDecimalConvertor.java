@@ -33,7 +33,8 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
- * Converts a string into a decimal value.
+ * Converts a string into a decimal value. Values without thousand separators and with at most 18
+ * digits are converted without any intermediate copy of their characters.
  */
 @Immutable
 @ThreadSafe
@@ -45,6 +46,8 @@ public class StringToBigDecimalConvertor extends AbstractStringConverter<BigDeci
   public static final StringToBigDecimalConvertor DECIMAL_COMMA_INSTANCE =
       new StringToBigDecimalConvertor(',', '.');
 
+  private static final int MAX_FAST_DIGITS = 18;
+
   private final char decimalSeparator;
   private final char thousandSeparator;
 
@@ -60,12 +63,44 @@ public class StringToBigDecimalConvertor extends AbstractStringConverter<BigDeci
 
   @Override
   public @Nullable BigDecimal doConvert(@NonNull String source) throws ConversionException {
+    final BigDecimal result = convertSimple(source);
+    if (result != null) {
+      return result;
+    }
     final char[] value = source.toCharArray();
     final int len = removeThousandSeparator(source, value, value.length);
     replaceCharacters(source, value, len);
     return new BigDecimal(value, 0, len);
   }
 
+  private @Nullable BigDecimal convertSimple(@NonNull String source) {
+    final int len = source.length();
+    final char first = source.charAt(0);
+    final boolean negative = first == '-';
+    int i = negative || first == '+' ? 1 : 0;
+    long unscaledValue = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean fraction = false;
+    for (; i < len; i++) {
+      final char c = source.charAt(i);
+      if (c == decimalSeparator && !fraction) {
+        fraction = true;
+      } else if (isNonDigitChar(c) || ++digits > MAX_FAST_DIGITS) {
+        return null;
+      } else {
+        unscaledValue = unscaledValue * 10 + (c - '0');
+        if (fraction) {
+          scale++;
+        }
+      }
+    }
+    if (digits == 0) {
+      return null;
+    }
+    return BigDecimal.valueOf(negative ? -unscaledValue : unscaledValue, scale);
+  }
+
   private void replaceCharacters(@NonNull String source, char[] value, @NonNegative int len)
       throws ConversionException {
     final boolean replaceDecimalSeparator = decimalSeparator != '.';
@@ -25,19 +25,21 @@
 
 package eu.volsch.stockmountain.extraction.conversion;
 
-import java.util.regex.Pattern;
+import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Converts a string to a trimmed currency string and converts blank strings to <code>null</code>.
  * If the currency does not contain exactly three upper-case US-ASCII letters,
- * {@link ConversionException} is thrown.
+ * {@link ConversionException} is thrown. When converting a column, the same string instance is
+ * used for consecutive equal currencies.
  */
 public class StringToCurrencyConverter extends AbstractStringConverter<String> {
 
   public static final StringToCurrencyConverter INSTANCE = new StringToCurrencyConverter();
 
-  private static final Pattern CURRENCY_PATTERN = Pattern.compile("[A-Z]{3}");
+  private static final int CURRENCY_LENGTH = 3;
 
   private StringToCurrencyConverter() {
   }
@@ -47,11 +49,33 @@ public class StringToCurrencyConverter extends AbstractStringConverter<String> {
     return String.class;
   }
 
+  @Override
+  public void convertColumn(@Nullable String @NonNull [] sources, @NonNegative int count,
+      @Nullable String @NonNull [] targets) throws ColumnConversionException {
+    String lastTarget = null;
+    for (int i = 0; i < count; i++) {
+      final String source = sources[i];
+      if (lastTarget == null || source == null || !lastTarget.equals(source)) {
+        try {
+          lastTarget = convert(source);
+        } catch (ConversionException e) {
+          throw new ColumnConversionException(i, e.getMessage());
+        }
+      }
+      targets[i] = lastTarget;
+    }
+  }
+
   @Override
   protected String doConvert(@NonNull String source) throws ConversionException {
-    if (!CURRENCY_PATTERN.matcher(source).matches()) {
+    if (source.length() != CURRENCY_LENGTH || isNonCurrencyChar(source.charAt(0))
+        || isNonCurrencyChar(source.charAt(1)) || isNonCurrencyChar(source.charAt(2))) {
       throw new ConversionException("Invalid currency: " + source);
     }
     return source;
   }
+
+  private static boolean isNonCurrencyChar(char c) {
+    return c < 'A' || c > 'Z';
+  }
 }
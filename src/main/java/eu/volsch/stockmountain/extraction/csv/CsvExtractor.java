@@ -25,18 +25,23 @@
 
 package eu.volsch.stockmountain.extraction.csv;
 
+import static java.util.Objects.requireNonNull;
+
 import eu.volsch.stockmountain.extraction.api.ExtractionDataAccessException;
 import eu.volsch.stockmountain.extraction.api.Extractor;
 import eu.volsch.stockmountain.extraction.api.Field;
 import eu.volsch.stockmountain.extraction.api.Record;
+import eu.volsch.stockmountain.extraction.api.RecordBinder;
 import eu.volsch.stockmountain.extraction.api.RecordMetaData;
 import eu.volsch.stockmountain.extraction.api.SimpleImmutableRecord;
 import eu.volsch.stockmountain.extraction.api.SimpleRecordMetaData;
+import eu.volsch.stockmountain.extraction.conversion.ColumnConversionException;
 import eu.volsch.stockmountain.extraction.conversion.ConversionException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.lang.reflect.Array;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
@@ -52,13 +57,18 @@ import net.jcip.annotations.ThreadSafe;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.index.qual.Positive;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Extracts CSV character streams to record streams. The format of the records are fixed and all
  * fields and their columns (the {@linkplain Field#ordinal() ordinal number} of the
  * {@linkplain Field field}) must be known before extraction. If data is extracted from an
  * {@linkplain InputStream input stream}, ISO 8859-1 character set is used to read characters from
- * that stream. Malformed byte input or unmappable characters result in an exception.
+ * that stream. Malformed byte input or unmappable characters result in an exception.<br> If all
+ * remaining records of a stream are processed (e.g. by collecting them), the records are read in
+ * batches and the values of each batch are converted column by column.<br> A
+ * {@linkplain CsvRowFilter row filter} may be used to skip records based on their raw field values,
+ * so that the values of skipped records are never converted.
  */
 @Immutable
 @ThreadSafe
@@ -70,6 +80,8 @@ public class CsvExtractor implements Extractor {
   private static final char NL_CHAR = '\n';
   private static final char ENCLOSE_CHAR = '"';
 
+  private static final int BATCH_SIZE = 256;
+
   private final Charset charset;
   private final char fieldSeparator;
   private final @NonNegative int skipCount;
@@ -122,6 +134,36 @@ public class CsvExtractor implements Extractor {
         .forEach(field -> this.fields[field.ordinal()] = field);
   }
 
+  public char getFieldSeparator() {
+    return fieldSeparator;
+  }
+
+  public @NonNegative int getSkipCount() {
+    return skipCount;
+  }
+
+  public @Positive int getMaxRecordsChars() {
+    return maxRecordsChars;
+  }
+
+  /**
+   * Returns the character set that is used to decode an {@linkplain InputStream input stream}.
+   *
+   * @return the character set.
+   */
+  public @NonNull Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Returns the metadata of the extracted records with the fields of this extractor.
+   *
+   * @return the metadata of the records.
+   */
+  public @NonNull RecordMetaData getRecordMetaData() {
+    return recordMetaData;
+  }
+
   @Override
   public boolean readerSupported() {
     return true;
@@ -129,9 +171,7 @@ public class CsvExtractor implements Extractor {
 
   @Override
   public @NonNull Stream<Record> extract(@NonNull InputStream inputStream) {
-    return extract(new InputStreamReader(inputStream, charset.newDecoder()
-        .onMalformedInput(CodingErrorAction.REPORT)
-        .onUnmappableCharacter(CodingErrorAction.REPORT)));
+    return extract(newReader(inputStream));
   }
 
   /**
@@ -143,36 +183,131 @@ public class CsvExtractor implements Extractor {
    * @return the stream with the resulting records.
    */
   public @NonNull Stream<Record> extract(@NonNull Reader reader) {
-    return StreamSupport.stream(new CsvSpliterator(reader), false);
+    return extract(reader, new ArrayRecordBinder());
+  }
+
+  @Override
+  public <T> @NonNull Stream<T> extract(@NonNull InputStream inputStream,
+      @NonNull RecordBinder<T> binder) {
+    return extract(newReader(inputStream), binder);
+  }
+
+  /**
+   * Extracts the CSV records from the specified reader and binds the values of each record with
+   * the specified binder. Stream operations may throw a {@link ExtractionDataAccessException} if
+   * reading the characters from the underlying stream fails or a {@link CsvExtractionException} if
+   * the CSV contains any invalid data.
+   *
+   * @param reader the reader from which the CSV should be read.
+   * @param binder the binder to which the values of the records are bound.
+   * @param <T>    the type of the objects that result from the bound records.
+   * @return the stream with the objects that result from the bound records.
+   */
+  @Override
+  public <T> @NonNull Stream<T> extract(@NonNull Reader reader, @NonNull RecordBinder<T> binder) {
+    return StreamSupport.stream(new CsvSpliterator<>(reader, binder, null), false);
+  }
+
+  /**
+   * Extracts the CSV records from the specified input stream and binds the values of each record
+   * that is accepted by the specified filter with the specified binder. Stream operations may throw
+   * the same exceptions as the stream that is returned by
+   * {@link #extract(Reader, RecordBinder, CsvRowFilter)}.
+   *
+   * @param inputStream the input stream from which the CSV should be read.
+   * @param binder      the binder to which the values of the accepted records are bound.
+   * @param rowFilter   the filter that decides on the raw values if a record is converted.
+   * @param <T>         the type of the objects that result from the bound records.
+   * @return the stream with the objects that result from the accepted records.
+   */
+  public <T> @NonNull Stream<T> extract(@NonNull InputStream inputStream,
+      @NonNull RecordBinder<T> binder, @NonNull CsvRowFilter rowFilter) {
+    return extract(newReader(inputStream), binder, rowFilter);
+  }
+
+  /**
+   * Extracts the CSV records from the specified reader and binds the values of each record that is
+   * accepted by the specified filter with the specified binder. The filter is invoked with the raw
+   * values of each record in the order of the records before any value of the record is converted.
+   * Stream operations may throw a {@link ExtractionDataAccessException} if reading the characters
+   * from the underlying stream fails or a {@link CsvExtractionException} if the CSV contains any
+   * invalid data.
+   *
+   * @param reader    the reader from which the CSV should be read.
+   * @param binder    the binder to which the values of the accepted records are bound.
+   * @param rowFilter the filter that decides on the raw values if a record is converted.
+   * @param <T>       the type of the objects that result from the bound records.
+   * @return the stream with the objects that result from the accepted records.
+   */
+  public <T> @NonNull Stream<T> extract(@NonNull Reader reader, @NonNull RecordBinder<T> binder,
+      @NonNull CsvRowFilter rowFilter) {
+    return StreamSupport.stream(
+        new CsvSpliterator<>(reader, binder, requireNonNull(rowFilter)), false);
+  }
+
+  private @NonNull Reader newReader(@NonNull InputStream inputStream) {
+    return new InputStreamReader(inputStream, charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT));
+  }
+
+  @NotThreadSafe
+  private class ArrayRecordBinder implements RecordBinder<Record> {
+
+    private final Object[] values = new Object[fieldCount];
+
+    @Override
+    public void begin() {
+      // all values of a record are bound, so that no values of the previous record remain
+    }
+
+    @Override
+    public <V> void bind(@NonNull Field<V> field, @Nullable V value) {
+      values[field.ordinal()] = value;
+    }
+
+    @Override
+    public @NonNull Record complete() {
+      return new SimpleImmutableRecord(recordMetaData, values);
+    }
   }
 
   @NotThreadSafe
-  private class CsvSpliterator extends AbstractSpliterator<Record> {
+  private class CsvSpliterator<T> extends AbstractSpliterator<T> {
 
     private final StringBuilder value = new StringBuilder();
     private final @NonNull Reader reader;
-    private final Object[] values;
+    private final @NonNull RecordBinder<T> binder;
+    private final @Nullable CsvRowFilter rowFilter;
     private boolean eof;
     private boolean finished;
     private boolean lastCrChar;
     private @NonNegative int skippedCount;
     private @NonNegative int lineNo;
     private @NonNegative int recordNo;
+    private @Nullable ColumnBatch batch;
+    private @Nullable ColumnBatch rowBatch;
 
-    public CsvSpliterator(@NonNull Reader reader) {
+    public CsvSpliterator(@NonNull Reader reader, @NonNull RecordBinder<T> binder,
+        @Nullable CsvRowFilter rowFilter) {
       super(Long.MAX_VALUE, Spliterator.IMMUTABLE | Spliterator.NONNULL);
       this.reader = reader;
-      this.values = new Object[fieldCount];
+      this.binder = binder;
+      this.rowFilter = rowFilter;
     }
 
     @Override
-    public boolean tryAdvance(@NonNull Consumer<@NonNull ? super Record> action) {
+    public boolean tryAdvance(@NonNull Consumer<@NonNull ? super T> action) {
+      if (rowFilter != null) {
+        return tryAdvanceFiltered(action);
+      }
       try {
         if (skippedCount < skipCount && !skipRows()) {
           return false;
         }
+        binder.begin();
         if (readRow(true)) {
-          action.accept(new SimpleImmutableRecord(recordMetaData, values));
+          action.accept(binder.complete());
           return true;
         }
       } catch (IOException e) {
@@ -181,6 +316,68 @@ public class CsvExtractor implements Extractor {
       return false;
     }
 
+    private boolean tryAdvanceFiltered(@NonNull Consumer<@NonNull ? super T> action) {
+      // the raw values of a record must be available before it is converted
+      if (rowBatch == null) {
+        rowBatch = new ColumnBatch();
+      }
+      final ColumnBatch columnBatch = rowBatch;
+      batch = columnBatch;
+      try {
+        readBatch(columnBatch, 1);
+      } finally {
+        batch = null;
+      }
+      if (columnBatch.rowCount == 0) {
+        return false;
+      }
+      columnBatch.bindRows(action);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(@NonNull Consumer<@NonNull ? super T> action) {
+      final ColumnBatch columnBatch = new ColumnBatch();
+      boolean more = true;
+      while (more) {
+        RuntimeException failure = null;
+        batch = columnBatch;
+        try {
+          more = readBatch(columnBatch, BATCH_SIZE);
+        } catch (RuntimeException e) {
+          // the records that have been read before must be processed first
+          failure = e;
+          more = false;
+        } finally {
+          batch = null;
+        }
+        columnBatch.bindRows(action);
+        if (failure != null) {
+          throw failure;
+        }
+      }
+    }
+
+    private boolean readBatch(@NonNull ColumnBatch columnBatch, @Positive int maxRowCount) {
+      columnBatch.rowCount = 0;
+      try {
+        if (skippedCount < skipCount && !skipRows()) {
+          return false;
+        }
+        while (columnBatch.rowCount < maxRowCount) {
+          if (!readRow(true)) {
+            return false;
+          }
+          if (rowFilter == null || rowFilter.accept(columnBatch)) {
+            columnBatch.rowCount++;
+          }
+        }
+      } catch (IOException e) {
+        throw new ExtractionDataAccessException("Error when reading input stream", e);
+      }
+      return true;
+    }
+
     private boolean skipRows() throws IOException {
       while (skippedCount < skipCount) {
         if (readRow(false)) {
@@ -366,27 +563,30 @@ public class CsvExtractor implements Extractor {
         @Positive int linePos, @NonNegative int fieldIndex) {
       if (data && fieldIndex < fieldCount) {
         final Field<?> field = fields[fieldIndex];
-        if (field != null) {
-          final String stringValue = value.toString();
-          final Object resultingValue;
-          try {
-            resultingValue = field.convert(stringValue);
-          } catch (ConversionException e) {
-            throw new CsvExtractionException(recordNo, lineNo, fieldIndex + 1, linePos, stringValue,
-                "Field " + (fieldIndex + 1) + " in record " + recordNo + " contains invalid value: "
-                    + stringValue);
-          }
-          if (resultingValue == null && !field.nullable()) {
-            throw new CsvExtractionException(recordNo, lineNo, fieldIndex + 1, linePos, stringValue,
-                "Non-nullable field " + (fieldIndex + 1) + " in record " + recordNo
-                    + " contains null value");
-          }
-          values[fieldIndex] = resultingValue;
+        if (field != null && batch != null) {
+          batch.store(fieldIndex, value.toString(), linePos);
+        } else if (field != null) {
+          bindFieldValue(field, linePos, fieldIndex);
         }
       }
       value.setLength(0);
     }
 
+    private <V> void bindFieldValue(@NonNull Field<V> field,
+        @Positive int linePos, @NonNegative int fieldIndex) {
+      final String stringValue = value.toString();
+      final V resultingValue;
+      try {
+        resultingValue = field.convert(stringValue);
+      } catch (ConversionException e) {
+        throw newInvalidValueException(recordNo, lineNo, fieldIndex, linePos, stringValue);
+      }
+      if (resultingValue == null && !field.nullable()) {
+        throw newNullValueException(recordNo, lineNo, fieldIndex, linePos, stringValue);
+      }
+      binder.bind(field, resultingValue);
+    }
+
     private int read() throws IOException {
       if (eof) {
         return -1;
@@ -397,6 +597,125 @@ public class CsvExtractor implements Extractor {
       }
       return c;
     }
+
+    /**
+     * Stores the values of a batch of records column by column until the values of each column
+     * are converted at once. The record that has been read last and has not yet been counted is
+     * provided as the current {@linkplain CsvRow row}.
+     */
+    @NotThreadSafe
+    private final class ColumnBatch implements CsvRow {
+
+      private final String[][] sources = new String[fieldCount][];
+      private final Object[][] targets = new Object[fieldCount][];
+      private final int[][] lineNos = new int[fieldCount][];
+      private final int[][] linePositions = new int[fieldCount][];
+      private final int[] failedRows = new int[fieldCount];
+      private final int[] recordNos = new int[BATCH_SIZE];
+      private @NonNegative int rowCount;
+
+      private ColumnBatch() {
+        for (int i = 0; i < fieldCount; i++) {
+          final Field<?> field = fields[i];
+          if (field != null) {
+            sources[i] = new String[BATCH_SIZE];
+            targets[i] = newTargetArray(field.type());
+            lineNos[i] = new int[BATCH_SIZE];
+            linePositions[i] = new int[BATCH_SIZE];
+          }
+        }
+      }
+
+      private void store(@NonNegative int fieldIndex, @NonNull String value,
+          @Positive int linePos) {
+        sources[fieldIndex][rowCount] = value;
+        lineNos[fieldIndex][rowCount] = lineNo;
+        linePositions[fieldIndex][rowCount] = linePos;
+        recordNos[rowCount] = recordNo;
+      }
+
+      @Override
+      public @Positive int getRecordNo() {
+        return recordNos[rowCount];
+      }
+
+      @Override
+      public @NonNull String getRawValue(@NonNull Field<?> field) {
+        final int ordinal = field.ordinal();
+        if (ordinal >= fieldCount || !field.equals(fields[ordinal])) {
+          throw new IllegalArgumentException("Field is not extracted: " + field.name());
+        }
+        return sources[ordinal][rowCount];
+      }
+
+      private void bindRows(@NonNull Consumer<@NonNull ? super T> action) {
+        final int lastRow = convertColumns();
+        for (int row = 0; row < rowCount && row <= lastRow; row++) {
+          binder.begin();
+          for (int i = 0; i < fieldCount; i++) {
+            final Field<?> field = fields[i];
+            if (field != null) {
+              bindValue(field, i, row);
+            }
+          }
+          action.accept(binder.complete());
+        }
+      }
+
+      private @NonNegative int convertColumns() {
+        int firstFailedRow = rowCount;
+        for (int i = 0; i < fieldCount; i++) {
+          final Field<?> field = fields[i];
+          if (field != null) {
+            try {
+              field.convertColumn(sources[i], rowCount, targets[i]);
+              failedRows[i] = rowCount;
+            } catch (ColumnConversionException e) {
+              failedRows[i] = e.getIndex();
+              firstFailedRow = Math.min(firstFailedRow, e.getIndex());
+            }
+          }
+        }
+        return firstFailedRow;
+      }
+
+      private <V> void bindValue(@NonNull Field<V> field, @NonNegative int fieldIndex,
+          @NonNegative int row) {
+        if (failedRows[fieldIndex] == row) {
+          throw newInvalidValueException(recordNos[row], lineNos[fieldIndex][row], fieldIndex,
+              linePositions[fieldIndex][row], sources[fieldIndex][row]);
+        }
+        final V value = field.cast(targets[fieldIndex][row]);
+        if (value == null && !field.nullable()) {
+          throw newNullValueException(recordNos[row], lineNos[fieldIndex][row], fieldIndex,
+              linePositions[fieldIndex][row], sources[fieldIndex][row]);
+        }
+        binder.bind(field, value);
+      }
+    }
+  }
+
+  private static @NonNull CsvExtractionException newInvalidValueException(@Positive int recordNo,
+      @Positive int lineNo, @NonNegative int fieldIndex, @Positive int linePos,
+      @NonNull String stringValue) {
+    return new CsvExtractionException(recordNo, lineNo, fieldIndex + 1, linePos, stringValue,
+        "Field " + (fieldIndex + 1) + " in record " + recordNo + " contains invalid value: "
+            + stringValue);
+  }
+
+  private static @NonNull CsvExtractionException newNullValueException(@Positive int recordNo,
+      @Positive int lineNo, @NonNegative int fieldIndex, @Positive int linePos,
+      @NonNull String stringValue) {
+    return new CsvExtractionException(recordNo, lineNo, fieldIndex + 1, linePos, stringValue,
+        "Non-nullable field " + (fieldIndex + 1) + " in record " + recordNo
+            + " contains null value");
+  }
+
+  private static @Nullable Object @NonNull [] newTargetArray(@NonNull Class<?> type) {
+    if (type.isPrimitive()) {
+      return new Object[BATCH_SIZE];
+    }
+    return (Object[]) Array.newInstance(type, BATCH_SIZE);
   }
 
   private enum EolAction {
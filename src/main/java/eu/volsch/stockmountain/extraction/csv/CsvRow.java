@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.csv;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * The raw values of a CSV record that has been read but whose values have not yet been converted.
+ * A row is only valid while the {@linkplain CsvRowFilter row filter} to which it has been passed is
+ * invoked.
+ */
+@NotThreadSafe
+public interface CsvRow {
+
+  /**
+   * Returns the number of the record (starting with 1) including skipped records.
+   *
+   * @return the number of the record.
+   */
+  @Positive int getRecordNo();
+
+  /**
+   * Returns the raw value of the specified field as it has been read from the CSV without
+   * enclosing characters. An empty field results in an empty string.
+   *
+   * @param field the field of which the raw value should be returned.
+   * @return the raw value of the field.
+   * @throws IllegalArgumentException thrown if the field is not extracted by the extractor.
+   */
+  @NonNull String getRawValue(@NonNull Field<?> field) throws IllegalArgumentException;
+}
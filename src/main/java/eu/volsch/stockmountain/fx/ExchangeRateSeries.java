@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.fx;
+
+import java.util.Arrays;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * Time series of the exchange rates of a single currency pair. The epoch days of the rates are
+ * stored sorted in a primitive array and the rates are stored as scaled longs in a parallel array,
+ * so that a lookup is a binary search without any allocation. A single rate is stored per day and a
+ * later rate of the same day replaces the earlier rate. Rates are normally recorded in the order
+ * of their dates, so that inserting a rate normally appends it.
+ */
+@NotThreadSafe
+final class ExchangeRateSeries {
+
+  /**
+   * The number of decimal places of the scaled rates.
+   */
+  static final int RATE_SCALE = 8;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] epochDays = new int[INITIAL_CAPACITY];
+  private long[] rates = new long[INITIAL_CAPACITY];
+  private @NonNegative int size;
+
+  @NonNegative int size() {
+    return size;
+  }
+
+  int getEpochDay(@NonNegative int index) {
+    return epochDays[index];
+  }
+
+  long getRate(@NonNegative int index) {
+    return rates[index];
+  }
+
+  /**
+   * Records the rate of the specified day and replaces a rate that has already been recorded for
+   * the day.
+   *
+   * @param epochDay   the epoch day of the rate.
+   * @param scaledRate the rate scaled by {@link #RATE_SCALE} decimal places.
+   */
+  void put(int epochDay, long scaledRate) {
+    if (size > 0 && epochDays[size - 1] < epochDay) {
+      insert(size, epochDay, scaledRate);
+      return;
+    }
+    final int index = Arrays.binarySearch(epochDays, 0, size, epochDay);
+    if (index >= 0) {
+      rates[index] = scaledRate;
+    } else {
+      insert(-index - 1, epochDay, scaledRate);
+    }
+  }
+
+  private void insert(@NonNegative int index, int epochDay, long scaledRate) {
+    if (size == epochDays.length) {
+      epochDays = Arrays.copyOf(epochDays, size * 2);
+      rates = Arrays.copyOf(rates, size * 2);
+    }
+    System.arraycopy(epochDays, index, epochDays, index + 1, size - index);
+    System.arraycopy(rates, index, rates, index + 1, size - index);
+    epochDays[index] = epochDay;
+    rates[index] = scaledRate;
+    size++;
+  }
+
+  /**
+   * Returns the index of the rate that is used for the specified day.
+   *
+   * @param epochDay the epoch day.
+   * @param lookup   selects the rate that is used.
+   * @return the index of the rate or <code>-1</code> if no rate can be used.
+   */
+  int indexOf(int epochDay, RateLookup lookup) {
+    final int index = Arrays.binarySearch(epochDays, 0, size, epochDay);
+    if (index >= 0) {
+      return index;
+    }
+    final int next = -index - 1;
+    if (lookup == RateLookup.AS_OF || next == size) {
+      return next - 1;
+    }
+    if (next == 0) {
+      return 0;
+    }
+    return epochDay - epochDays[next - 1] <= epochDays[next] - epochDay ? next - 1 : next;
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.fx;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Money;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stores the exchange rates that are contained in transactions as compact time series per
+ * currency pair. A transaction with a {@linkplain Transaction#getLocalValue() local value} in a
+ * different currency than its {@linkplain Transaction#getValue() value} records its
+ * {@linkplain Transaction#getExchangeRate() exchange rate} as the number of units of the local
+ * currency per unit of the currency of the value.
+ *
+ * <p>A rate between two currencies is taken from the series of the pair, from the inverse series
+ * of the pair or is triangulated through the base currency (normally the currency of the
+ * account). The way a pair is resolved is kept in a bounded cache of the recently used pairs, so
+ * that converting all positions of a portfolio costs a binary search per position.
+ */
+@NotThreadSafe
+public class ExchangeRateStore {
+
+  /**
+   * The default maximum number of resolved currency pairs that are cached.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 64;
+
+  private static final MathContext RATE_CONTEXT = MathContext.DECIMAL64;
+  private static final int MIN_AMOUNT_SCALE = 2;
+
+  private final @NonNull String baseCurrency;
+  private final Map<Long, ExchangeRateSeries> series = new HashMap<>();
+  private final @Positive int cacheSize;
+  private final Map<Long, Conversion> conversions;
+
+  /**
+   * Creates an empty store with the default cache size.
+   *
+   * @param baseCurrency the currency through which rates are triangulated.
+   */
+  public ExchangeRateStore(@NonNull String baseCurrency) {
+    this(baseCurrency, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Creates an empty store.
+   *
+   * @param baseCurrency the currency through which rates are triangulated.
+   * @param cacheSize    the maximum number of resolved currency pairs that are cached.
+   * @throws IllegalArgumentException thrown if the currency is invalid or the cache size is not
+   *                                  positive.
+   */
+  public ExchangeRateStore(@NonNull String baseCurrency, @Positive int cacheSize)
+      throws IllegalArgumentException {
+    Money.currencyId(baseCurrency);
+    if (cacheSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+    }
+    this.baseCurrency = baseCurrency;
+    this.cacheSize = cacheSize;
+    this.conversions = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  public @NonNull String getBaseCurrency() {
+    return baseCurrency;
+  }
+
+  /**
+   * Records the exchange rates of the specified transactions.
+   *
+   * @param transactions the transactions.
+   * @see #add(Transaction)
+   */
+  public void addAll(@NonNull Iterable<? extends Transaction> transactions) {
+    transactions.forEach(this::add);
+  }
+
+  /**
+   * Records the exchange rate of the specified transaction. Transactions without a local value,
+   * value or exchange rate and transactions whose local value and value have the same currency are
+   * ignored.
+   *
+   * @param transaction the transaction.
+   */
+  public void add(@NonNull Transaction transaction) {
+    final Price localValue = transaction.getLocalValue();
+    final Price value = transaction.getValue();
+    final BigDecimal exchangeRate = transaction.getExchangeRate();
+    if (localValue != null && value != null && exchangeRate != null
+        && exchangeRate.signum() > 0 && !localValue.getCurrency().equals(value.getCurrency())) {
+      add(value.getCurrency(), localValue.getCurrency(), transaction.getDate(), exchangeRate);
+    }
+  }
+
+  /**
+   * Records an exchange rate. A rate that has already been recorded for the pair and the date is
+   * replaced.
+   *
+   * @param fromCurrency the currency of which one unit is exchanged.
+   * @param toCurrency   the currency into which is exchanged.
+   * @param date         the date of the rate.
+   * @param rate         the number of units of the target currency per unit of the source
+   *                     currency.
+   * @throws IllegalArgumentException thrown if a currency is invalid, both currencies are equal or
+   *                                  the rate is not positive.
+   */
+  public void add(@NonNull String fromCurrency, @NonNull String toCurrency,
+      @NonNull LocalDate date, @NonNull BigDecimal rate) throws IllegalArgumentException {
+    if (rate.signum() <= 0) {
+      throw new IllegalArgumentException("Rate must be positive: " + rate);
+    }
+    if (fromCurrency.equals(toCurrency)) {
+      throw new IllegalArgumentException("Currencies must differ: " + fromCurrency);
+    }
+    final long scaledRate = rate.setScale(ExchangeRateSeries.RATE_SCALE, RoundingMode.HALF_EVEN)
+        .unscaledValue().longValueExact();
+    final long pair = pair(fromCurrency, toCurrency);
+    ExchangeRateSeries pairSeries = series.get(pair);
+    if (pairSeries == null) {
+      pairSeries = new ExchangeRateSeries();
+      series.put(pair, pairSeries);
+      // a new pair may resolve pairs that could not be resolved or had to be triangulated
+      conversions.clear();
+    }
+    pairSeries.put(epochDay(date), scaledRate);
+  }
+
+  /**
+   * Returns the exchange rate between the specified currencies.
+   *
+   * @param fromCurrency the currency of which one unit is exchanged.
+   * @param toCurrency   the currency into which is exchanged.
+   * @param date         the date for which the rate is requested.
+   * @param lookup       selects the recorded rate that is used for the date.
+   * @return the number of units of the target currency per unit of the source currency or
+   *         <code>null</code> if no rate has been recorded.
+   * @throws IllegalArgumentException thrown if a currency is invalid.
+   */
+  public @Nullable BigDecimal getRate(@NonNull String fromCurrency, @NonNull String toCurrency,
+      @NonNull LocalDate date, @NonNull RateLookup lookup) throws IllegalArgumentException {
+    return conversion(fromCurrency, toCurrency).getRate(epochDay(date), requireNonNull(lookup));
+  }
+
+  /**
+   * Converts the specified price into the specified currency. The converted value has the scale
+   * of the specified value, but at least two decimal places.
+   *
+   * @param price    the price that should be converted.
+   * @param currency the currency into which the price is converted.
+   * @param date     the date for which the rate is requested.
+   * @param lookup   selects the recorded rate that is used for the date.
+   * @return the converted price or <code>null</code> if no rate has been recorded.
+   * @throws IllegalArgumentException thrown if a currency is invalid.
+   */
+  public @Nullable Price convert(@NonNull Price price, @NonNull String currency,
+      @NonNull LocalDate date, @NonNull RateLookup lookup) throws IllegalArgumentException {
+    if (price.getCurrency().equals(currency)) {
+      return price;
+    }
+    final BigDecimal rate = getRate(price.getCurrency(), currency, date, lookup);
+    if (rate == null) {
+      return null;
+    }
+    final int scale = Math.max(MIN_AMOUNT_SCALE, price.getValue().scale());
+    return new Price(price.getValue().multiply(rate).setScale(scale, RoundingMode.HALF_EVEN),
+        currency);
+  }
+
+  private @NonNull Conversion conversion(@NonNull String fromCurrency,
+      @NonNull String toCurrency) {
+    final long pair = pair(fromCurrency, toCurrency);
+    Conversion conversion = conversions.get(pair);
+    if (conversion == null) {
+      conversion = resolve(fromCurrency, toCurrency);
+      if (conversions.size() >= cacheSize) {
+        final Iterator<Conversion> iterator = conversions.values().iterator();
+        iterator.next();
+        iterator.remove();
+      }
+      conversions.put(pair, conversion);
+    }
+    return conversion;
+  }
+
+  private @NonNull Conversion resolve(@NonNull String fromCurrency, @NonNull String toCurrency) {
+    if (fromCurrency.equals(toCurrency)) {
+      return Conversion.IDENTITY;
+    }
+    final Leg leg = resolveLeg(fromCurrency, toCurrency);
+    if (leg != null) {
+      return new Conversion(leg, null);
+    }
+    if (!fromCurrency.equals(baseCurrency) && !toCurrency.equals(baseCurrency)) {
+      final Leg firstLeg = resolveLeg(fromCurrency, baseCurrency);
+      final Leg secondLeg = resolveLeg(baseCurrency, toCurrency);
+      if (firstLeg != null && secondLeg != null) {
+        return new Conversion(firstLeg, secondLeg);
+      }
+    }
+    return Conversion.UNRESOLVED;
+  }
+
+  private @Nullable Leg resolveLeg(@NonNull String fromCurrency, @NonNull String toCurrency) {
+    final ExchangeRateSeries direct = series.get(pair(fromCurrency, toCurrency));
+    if (direct != null) {
+      return new Leg(direct, false);
+    }
+    final ExchangeRateSeries inverse = series.get(pair(toCurrency, fromCurrency));
+    return inverse == null ? null : new Leg(inverse, true);
+  }
+
+  private static long pair(@NonNull String fromCurrency, @NonNull String toCurrency) {
+    return ((long) Money.currencyId(fromCurrency) << Integer.SIZE)
+        | Money.currencyId(toCurrency);
+  }
+
+  private static int epochDay(@NonNull LocalDate date) {
+    return Math.toIntExact(date.toEpochDay());
+  }
+
+  /**
+   * Resolved conversion between two currencies with one or two legs.
+   */
+  private static final class Conversion {
+
+    private static final Conversion IDENTITY = new Conversion(null, null);
+    private static final Conversion UNRESOLVED = new Conversion(null, null);
+
+    private final @Nullable Leg firstLeg;
+    private final @Nullable Leg secondLeg;
+
+    private Conversion(@Nullable Leg firstLeg, @Nullable Leg secondLeg) {
+      this.firstLeg = firstLeg;
+      this.secondLeg = secondLeg;
+    }
+
+    @Nullable BigDecimal getRate(int epochDay, @NonNull RateLookup lookup) {
+      if (this == IDENTITY) {
+        return BigDecimal.ONE;
+      }
+      if (firstLeg == null) {
+        return null;
+      }
+      final BigDecimal firstRate = firstLeg.getRate(epochDay, lookup);
+      if (firstRate == null || secondLeg == null) {
+        return firstRate;
+      }
+      final BigDecimal secondRate = secondLeg.getRate(epochDay, lookup);
+      return secondRate == null ? null
+          : firstRate.multiply(secondRate, RATE_CONTEXT).stripTrailingZeros();
+    }
+  }
+
+  /**
+   * Series of a currency pair that is used directly or inverted.
+   */
+  private static final class Leg {
+
+    private final @NonNull ExchangeRateSeries series;
+    private final boolean inverted;
+
+    private Leg(@NonNull ExchangeRateSeries series, boolean inverted) {
+      this.series = series;
+      this.inverted = inverted;
+    }
+
+    @Nullable BigDecimal getRate(int epochDay, @NonNull RateLookup lookup) {
+      final int index = series.indexOf(epochDay, lookup);
+      if (index < 0) {
+        return null;
+      }
+      final BigDecimal rate = BigDecimal.valueOf(series.getRate(index),
+          ExchangeRateSeries.RATE_SCALE);
+      return inverted ? BigDecimal.ONE.divide(rate, RATE_CONTEXT) : rate.stripTrailingZeros();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Bloom filter over 64-bit fingerprints. The fingerprints must already be well distributed, so
+ * that the bit positions are derived from the two halves of a fingerprint by double hashing. With
+ * 10 bits and 7 probes per expected element the false positive rate is below 1%.
+ */
+@NotThreadSafe
+final class BloomFilter {
+
+  private static final int BITS_PER_ELEMENT = 10;
+  private static final int PROBE_COUNT = 7;
+  private static final int MIN_BIT_COUNT = 1 << 10;
+
+  private final long[] words;
+  private final int mask;
+
+  /**
+   * Creates an empty filter that is sized for the specified number of elements.
+   *
+   * @param expectedCount the expected number of elements.
+   */
+  BloomFilter(@NonNegative int expectedCount) {
+    final long minBits = Math.max(MIN_BIT_COUNT, (long) expectedCount * BITS_PER_ELEMENT);
+    final long bitCount = Math.min(1L << 30, Long.highestOneBit(minBits - 1) << 1);
+    this.words = new long[(int) (bitCount >>> 6)];
+    this.mask = (int) bitCount - 1;
+  }
+
+  private BloomFilter(long @NonNull [] words) {
+    this.words = words;
+    this.mask = words.length * Long.SIZE - 1;
+  }
+
+  /**
+   * Reads a filter that has been written by {@link #writeTo(DataOutput)}.
+   *
+   * @param input the input from which the filter is read.
+   * @return the read filter.
+   * @throws IOException thrown if reading fails or the filter is invalid.
+   */
+  static @NonNull BloomFilter readFrom(@NonNull DataInput input) throws IOException {
+    final int wordCount = input.readInt();
+    if (wordCount <= 0 || Integer.bitCount(wordCount) != 1 || wordCount > (1 << 24)) {
+      throw new IOException("Invalid number of words: " + wordCount);
+    }
+    final long[] words = new long[wordCount];
+    for (int i = 0; i < wordCount; i++) {
+      words[i] = input.readLong();
+    }
+    return new BloomFilter(words);
+  }
+
+  /**
+   * Writes the filter to the specified output.
+   *
+   * @param output the output to which the filter is written.
+   * @throws IOException thrown if writing fails.
+   */
+  void writeTo(@NonNull DataOutput output) throws IOException {
+    output.writeInt(words.length);
+    for (final long word : words) {
+      output.writeLong(word);
+    }
+  }
+
+  @Positive int getBitCount() {
+    return mask + 1;
+  }
+
+  void add(long fingerprint) {
+    final int hash1 = (int) fingerprint;
+    final int hash2 = (int) (fingerprint >>> 32) | 1;
+    for (int i = 0; i < PROBE_COUNT; i++) {
+      final int bit = (hash1 + i * hash2) & mask;
+      words[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Returns if the filter may contain the specified fingerprint. If <code>false</code> is
+   * returned, the fingerprint has definitely not been added.
+   *
+   * @param fingerprint the fingerprint.
+   * @return if the fingerprint may have been added.
+   */
+  boolean mightContain(long fingerprint) {
+    final int hash1 = (int) fingerprint;
+    final int hash2 = (int) (fingerprint >>> 32) | 1;
+    for (int i = 0; i < PROBE_COUNT; i++) {
+      final int bit = (hash1 + i * hash2) & mask;
+      if ((words[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Persistent index of the fingerprints of the rows that have been imported from an account. Each
+ * entry is identified by the identity fingerprint of a row and contains the content fingerprint of
+ * the row, the date of the row and a caller-defined reference (e.g. the ID of the resulting
+ * transaction).
+ *
+ * <p>The entries are stored sorted by their identity fingerprint in a file that is mapped into
+ * memory and searched binarily, so that the entries are not loaded onto the heap. A
+ * {@linkplain BloomFilter Bloom filter} in front of the file answers most lookups of unknown
+ * fingerprints without accessing the file. The filter is stored in a separate file and is rebuilt
+ * from the entries if it is missing or does not belong to the current entries. Changes are
+ * committed by writing a new file that replaces the current file atomically, so that a failed
+ * commit leaves the previous entries intact.
+ */
+@NotThreadSafe
+public final class FingerprintIndex implements Closeable {
+
+  /**
+   * The reference of an entry for which the caller did not define any reference.
+   */
+  public static final long NO_REFERENCE = -1;
+
+  static final String ENTRIES_FILE_NAME = "fingerprints.idx";
+  static final String FILTER_FILE_NAME = "fingerprints.bloom";
+
+  private static final int ENTRIES_MAGIC = 0x534d4649;
+  private static final int FILTER_MAGIC = 0x534d4642;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 24;
+  private static final int ENTRY_SIZE = 28;
+  private static final int CONTENT_OFFSET = 8;
+  private static final int REFERENCE_OFFSET = 16;
+  private static final int EPOCH_DAY_OFFSET = 24;
+  private static final int MAX_ENTRY_COUNT = (Integer.MAX_VALUE - HEADER_SIZE) / ENTRY_SIZE;
+
+  private final @NonNull Path directory;
+  private @Nullable MappedByteBuffer entries;
+  private @NonNegative int size;
+  private long generation;
+  private @NonNull BloomFilter filter;
+  private boolean closed;
+
+  private FingerprintIndex(@NonNull Path directory) {
+    this.directory = directory;
+    this.filter = new BloomFilter(0);
+  }
+
+  /**
+   * Opens the index in the specified directory. The directory and an empty index are created if
+   * they do not exist.
+   *
+   * @param directory the directory that contains the files of the index.
+   * @return the opened index.
+   * @throws IOException thrown if the files of the index cannot be read or are invalid.
+   */
+  public static @NonNull FingerprintIndex open(@NonNull Path directory) throws IOException {
+    Files.createDirectories(directory);
+    final FingerprintIndex index = new FingerprintIndex(directory);
+    index.load();
+    return index;
+  }
+
+  private void load() throws IOException {
+    final Path entriesFile = directory.resolve(ENTRIES_FILE_NAME);
+    if (!Files.exists(entriesFile)) {
+      entries = null;
+      size = 0;
+      generation = 0;
+      filter = new BloomFilter(0);
+      return;
+    }
+
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(entriesFile)) {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("Fingerprint index is truncated: " + entriesFile);
+      }
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.getInt(0) != ENTRIES_MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("File is no fingerprint index of version " + VERSION + ": "
+          + entriesFile);
+    }
+    final long count = buffer.getLong(16);
+    if (count < 0 || count > MAX_ENTRY_COUNT
+        || HEADER_SIZE + count * ENTRY_SIZE != buffer.capacity()) {
+      throw new IOException("Fingerprint index is corrupted: " + entriesFile);
+    }
+    entries = buffer;
+    size = (int) count;
+    generation = buffer.getLong(8);
+    filter = loadFilter();
+  }
+
+  private @NonNull BloomFilter loadFilter() throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(directory.resolve(FILTER_FILE_NAME))))) {
+      if (input.readInt() == FILTER_MAGIC && input.readInt() == VERSION
+          && input.readLong() == generation) {
+        return BloomFilter.readFrom(input);
+      }
+    } catch (IOException e) {
+      // the filter only contains derived data and is rebuilt if it cannot be read
+    }
+    final BloomFilter rebuiltFilter = new BloomFilter(size);
+    for (int i = 0; i < size; i++) {
+      rebuiltFilter.add(getIdentity(i));
+    }
+    return rebuiltFilter;
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the number of entries.
+   */
+  public @NonNegative int size() {
+    return size;
+  }
+
+  /**
+   * Returns the position of the entry with the specified identity fingerprint.
+   *
+   * @param identity the identity fingerprint of the entry.
+   * @return the position of the entry or <code>-1</code> if the index contains no such entry.
+   */
+  public int find(long identity) {
+    checkOpen();
+    if (!filter.mightContain(identity)) {
+      return -1;
+    }
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final long midIdentity = getIdentity(mid);
+      if (midIdentity < identity) {
+        low = mid + 1;
+      } else if (midIdentity > identity) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  public long getIdentity(@NonNegative int position) {
+    return requireEntries().getLong(offset(position));
+  }
+
+  public long getContent(@NonNegative int position) {
+    return requireEntries().getLong(offset(position) + CONTENT_OFFSET);
+  }
+
+  public long getReference(@NonNegative int position) {
+    return requireEntries().getLong(offset(position) + REFERENCE_OFFSET);
+  }
+
+  public int getEpochDay(@NonNegative int position) {
+    return requireEntries().getInt(offset(position) + EPOCH_DAY_OFFSET);
+  }
+
+  private @NonNull MappedByteBuffer requireEntries() {
+    checkOpen();
+    if (entries == null) {
+      throw new IndexOutOfBoundsException("Index is empty");
+    }
+    return entries;
+  }
+
+  private int offset(@NonNegative int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Invalid position: " + position);
+    }
+    return HEADER_SIZE + position * ENTRY_SIZE;
+  }
+
+  /**
+   * Commits the specified changes. Entries with the identity of an added entry are replaced. The
+   * changes are either committed completely or not at all.
+   *
+   * @param addedEntries       the entries that are added or replace existing entries.
+   * @param removedIdentities  the identity fingerprints of the entries that are removed.
+   * @throws IOException              thrown if the changes cannot be written.
+   * @throws IllegalArgumentException thrown if the added entries contain an identity twice.
+   */
+  void commit(@NonNull List<Entry> addedEntries, @NonNull Set<Long> removedIdentities)
+      throws IOException, IllegalArgumentException {
+    checkOpen();
+    final Entry[] added = addedEntries.toArray(new Entry[0]);
+    Arrays.sort(added, Comparator.comparingLong(Entry::getIdentity));
+    for (int i = 1; i < added.length; i++) {
+      if (added[i - 1].identity == added[i].identity) {
+        throw new IllegalArgumentException("Duplicate identity: " + added[i].identity);
+      }
+    }
+
+    final long newGeneration = generation + 1;
+    final Path entriesFile = directory.resolve(ENTRIES_FILE_NAME);
+    final Path tempEntriesFile = directory.resolve(ENTRIES_FILE_NAME + ".tmp");
+    final int count = countMerged(added, removedIdentities);
+    if (count > MAX_ENTRY_COUNT) {
+      throw new IOException("Fingerprint index exceeds maximum size: " + count);
+    }
+    final BloomFilter newFilter = new BloomFilter(count);
+    try (FileChannel channel = openTempFile(tempEntriesFile)) {
+      final DataOutputStream output = newOutput(channel);
+      output.writeInt(ENTRIES_MAGIC);
+      output.writeInt(VERSION);
+      output.writeLong(newGeneration);
+      output.writeLong(count);
+      int existing = 0;
+      int next = 0;
+      while (existing < size || next < added.length) {
+        final long existingIdentity = existing < size ? getIdentity(existing) : Long.MAX_VALUE;
+        if (next < added.length && (existing >= size
+            || added[next].identity <= existingIdentity)) {
+          if (added[next].identity == existingIdentity) {
+            existing++;
+          }
+          writeEntry(output, added[next++], newFilter);
+        } else {
+          if (!removedIdentities.contains(existingIdentity)) {
+            writeEntry(output, new Entry(existingIdentity, getContent(existing),
+                getReference(existing), getEpochDay(existing)), newFilter);
+          }
+          existing++;
+        }
+      }
+      output.flush();
+      channel.force(true);
+    }
+
+    final Path tempFilterFile = directory.resolve(FILTER_FILE_NAME + ".tmp");
+    try (FileChannel channel = openTempFile(tempFilterFile)) {
+      final DataOutputStream output = newOutput(channel);
+      output.writeInt(FILTER_MAGIC);
+      output.writeInt(VERSION);
+      output.writeLong(newGeneration);
+      newFilter.writeTo(output);
+      output.flush();
+      channel.force(true);
+    }
+    Files.move(tempEntriesFile, entriesFile, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    // a stale filter is detected by its generation and rebuilt when the index is opened
+    Files.move(tempFilterFile, directory.resolve(FILTER_FILE_NAME),
+        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    // the renamed files are only durable when the directory has been written as well
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+    load();
+  }
+
+  private int countMerged(Entry @NonNull [] added, @NonNull Set<Long> removedIdentities) {
+    int count = added.length;
+    for (int i = 0; i < size; i++) {
+      final long identity = getIdentity(i);
+      if (!removedIdentities.contains(identity) && !containsIdentity(added, identity)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static boolean containsIdentity(Entry @NonNull [] sortedEntries, long identity) {
+    int low = 0;
+    int high = sortedEntries.length - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final long midIdentity = sortedEntries[mid].identity;
+      if (midIdentity < identity) {
+        low = mid + 1;
+      } else if (midIdentity > identity) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static @NonNull FileChannel openTempFile(@NonNull Path file) throws IOException {
+    return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Returns an output stream that writes to the specified channel. The stream does not need to be
+   * closed, since the channel is closed instead after it has been forced.
+   */
+  private static @NonNull DataOutputStream newOutput(@NonNull FileChannel channel) {
+    return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+  }
+
+  private static void writeEntry(@NonNull DataOutputStream output, @NonNull Entry entry,
+      @NonNull BloomFilter filter) throws IOException {
+    output.writeLong(entry.identity);
+    output.writeLong(entry.content);
+    output.writeLong(entry.reference);
+    output.writeInt(entry.epochDay);
+    filter.add(entry.identity);
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Fingerprint index has been closed");
+    }
+  }
+
+  /**
+   * Closes the index. The mapping of the entries is released by the garbage collector.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    entries = null;
+  }
+
+  /**
+   * Entry that is committed to the index.
+   */
+  static final class Entry {
+
+    private final long identity;
+    private final long content;
+    private final long reference;
+    private final int epochDay;
+
+    Entry(long identity, long content, long reference, int epochDay) {
+      this.identity = identity;
+      this.content = content;
+      this.reference = reference;
+      this.epochDay = epochDay;
+    }
+
+    long getIdentity() {
+      return identity;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.extraction.api.ExtractorProvider;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Import of the data of a single account at a broker.
+ */
+@Immutable
+@ThreadSafe
+public final class ImportJob {
+
+  private final @NonNull String accountId;
+  private final @NonNull ExtractorProvider extractorProvider;
+  private final @NonNull ImportSource source;
+
+  /**
+   * Creates an import job.
+   *
+   * @param accountId         the ID of the account to which the imported data belongs.
+   * @param extractorProvider the provider of the extractor of the broker of the account.
+   * @param source            the source of the data that should be imported.
+   */
+  public ImportJob(@NonNull String accountId, @NonNull ExtractorProvider extractorProvider,
+      @NonNull ImportSource source) {
+    this.accountId = requireNonNull(accountId);
+    this.extractorProvider = requireNonNull(extractorProvider);
+    this.source = requireNonNull(source);
+  }
+
+  public @NonNull String getAccountId() {
+    return accountId;
+  }
+
+  public @NonNull String getBrokerId() {
+    return extractorProvider.getBrokerId();
+  }
+
+  public @NonNull ExtractorProvider getExtractorProvider() {
+    return extractorProvider;
+  }
+
+  public @NonNull ImportSource getSource() {
+    return source;
+  }
+
+  @Override
+  public @NonNull String toString() {
+    return getBrokerId() + "/" + accountId;
+  }
+}
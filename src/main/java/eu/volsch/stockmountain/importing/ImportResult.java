@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.Objects.requireNonNull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Result of a single {@linkplain ImportJob import job}. The result either contains the mapped
+ * value of the import or the failure that occurred while importing.
+ *
+ * @param <T> the type of the mapped value of the import.
+ */
+@Immutable
+@ThreadSafe
+public final class ImportResult<T> {
+
+  private final @NonNull ImportJob job;
+  private final @Nullable T value;
+  private final @Nullable Exception failure;
+
+  private ImportResult(@NonNull ImportJob job, @Nullable T value, @Nullable Exception failure) {
+    this.job = requireNonNull(job);
+    this.value = value;
+    this.failure = failure;
+  }
+
+  static <T> @NonNull ImportResult<T> success(@NonNull ImportJob job, @Nullable T value) {
+    return new ImportResult<>(job, value, null);
+  }
+
+  static <T> @NonNull ImportResult<T> failure(@NonNull ImportJob job,
+      @NonNull Exception failure) {
+    return new ImportResult<>(job, null, requireNonNull(failure));
+  }
+
+  public @NonNull ImportJob getJob() {
+    return job;
+  }
+
+  public boolean isSuccessful() {
+    return failure == null;
+  }
+
+  /**
+   * Returns the mapped value of the import.
+   *
+   * @return the mapped value of the import or <code>null</code> if the import failed or the
+   *         mapping resulted in <code>null</code>.
+   */
+  public @Nullable T getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the failure that occurred while importing.
+   *
+   * @return the failure or <code>null</code> if the import has been successful.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  public @Nullable Exception getFailure() {
+    return failure;
+  }
+}
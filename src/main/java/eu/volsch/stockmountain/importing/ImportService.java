@@ -0,0 +1,271 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.extraction.api.Record;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Imports the data of many accounts concurrently. Each {@linkplain ImportJob import job} extracts
+ * the records of an account and maps them with a caller-defined mapper. The jobs are executed by
+ * an executor and the number of jobs that are executed concurrently for the same broker is
+ * limited. Jobs that exceed the limit are queued without occupying a thread of the executor.
+ * A failure of a job does not affect any other job.
+ *
+ * <p>Since the jobs mostly wait for I/O, each job is executed on a new virtual thread by default.
+ * A caller-supplied executor (e.g. a cached thread pool) can be used as well, since the number of
+ * concurrent jobs is bounded by the broker limits.
+ */
+@ThreadSafe
+public class ImportService {
+
+  private final @NonNull Executor executor;
+  private final @Positive int defaultBrokerConcurrency;
+  private final @NonNull Map<String, Integer> brokerConcurrency;
+  private final Map<String, BrokerLane> lanes = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an import service that executes each job on a new virtual thread and uses the same
+   * concurrency limit for all brokers.
+   *
+   * @param defaultBrokerConcurrency the maximum number of concurrent jobs per broker.
+   */
+  public ImportService(@Positive int defaultBrokerConcurrency) {
+    this(defaultBrokerConcurrency, Map.of());
+  }
+
+  /**
+   * Creates an import service that executes each job on a new virtual thread.
+   *
+   * @param defaultBrokerConcurrency the maximum number of concurrent jobs of a broker for which
+   *                                 no specific limit has been specified.
+   * @param brokerConcurrency        the maximum number of concurrent jobs per broker ID.
+   * @throws IllegalArgumentException thrown if any limit is not positive.
+   */
+  public ImportService(@Positive int defaultBrokerConcurrency,
+      @NonNull Map<String, Integer> brokerConcurrency) throws IllegalArgumentException {
+    // the executor does not pool threads, so that it does not need to be shut down
+    this(Executors.newVirtualThreadPerTaskExecutor(), defaultBrokerConcurrency,
+        brokerConcurrency);
+  }
+
+  /**
+   * Creates an import service that uses the same concurrency limit for all brokers.
+   *
+   * @param executor                 the executor that executes the import jobs.
+   * @param defaultBrokerConcurrency the maximum number of concurrent jobs per broker.
+   */
+  public ImportService(@NonNull Executor executor, @Positive int defaultBrokerConcurrency) {
+    this(executor, defaultBrokerConcurrency, Map.of());
+  }
+
+  /**
+   * Creates an import service.
+   *
+   * @param executor                 the executor that executes the import jobs.
+   * @param defaultBrokerConcurrency the maximum number of concurrent jobs of a broker for which
+   *                                 no specific limit has been specified.
+   * @param brokerConcurrency        the maximum number of concurrent jobs per broker ID.
+   * @throws IllegalArgumentException thrown if any limit is not positive.
+   */
+  public ImportService(@NonNull Executor executor, @Positive int defaultBrokerConcurrency,
+      @NonNull Map<String, Integer> brokerConcurrency) throws IllegalArgumentException {
+    verifyConcurrency(defaultBrokerConcurrency);
+    brokerConcurrency.values().forEach(ImportService::verifyConcurrency);
+    this.executor = requireNonNull(executor);
+    this.defaultBrokerConcurrency = defaultBrokerConcurrency;
+    this.brokerConcurrency = Map.copyOf(brokerConcurrency);
+  }
+
+  private static void verifyConcurrency(int concurrency) {
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+    }
+  }
+
+  /**
+   * Imports all specified jobs. The returned future completes when all jobs have been completed.
+   * Failed jobs are contained in the summary and do not complete the future exceptionally. Only
+   * an error (e.g. a {@link java.util.ServiceConfigurationError}) while executing a job completes
+   * the future exceptionally.
+   *
+   * @param jobs   the jobs that should be imported.
+   * @param mapper maps the extracted records of a job to the resulting value.
+   * @param <T>    the type of the mapped value of a job.
+   * @return the future of the summary of all jobs.
+   */
+  public <T> @NonNull CompletableFuture<ImportSummary<T>> importAll(
+      @NonNull Collection<@NonNull ImportJob> jobs,
+      @NonNull Function<? super Stream<Record>, ? extends T> mapper) {
+    final List<CompletableFuture<ImportResult<T>>> futures = new ArrayList<>(jobs.size());
+    for (final ImportJob job : jobs) {
+      futures.add(submit(job, mapper));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+        .thenApply(v -> {
+          final List<ImportResult<T>> results = new ArrayList<>(futures.size());
+          futures.forEach(f -> results.add(f.join()));
+          return new ImportSummary<>(results);
+        });
+  }
+
+  /**
+   * Submits a single job. The returned future is completed with a failed result if the job
+   * fails. The future is completed exceptionally with an error (e.g. a
+   * {@link java.util.ServiceConfigurationError}) that occurs while executing the job.
+   *
+   * @param job    the job that should be imported.
+   * @param mapper maps the extracted records of the job to the resulting value.
+   * @param <T>    the type of the mapped value of the job.
+   * @return the future of the result of the job.
+   */
+  public <T> @NonNull CompletableFuture<ImportResult<T>> submit(@NonNull ImportJob job,
+      @NonNull Function<? super Stream<Record>, ? extends T> mapper) {
+    final PendingImport<T> pendingImport = new PendingImport<>(job, requireNonNull(mapper));
+    lanes.computeIfAbsent(job.getBrokerId(), this::createLane).submit(pendingImport);
+    return pendingImport.future;
+  }
+
+  private @NonNull BrokerLane createLane(@NonNull String brokerId) {
+    return new BrokerLane(brokerConcurrency.getOrDefault(brokerId, defaultBrokerConcurrency));
+  }
+
+  private static final class PendingImport<T> {
+
+    private final @NonNull ImportJob job;
+    private final @NonNull Function<? super Stream<Record>, ? extends T> mapper;
+    private final CompletableFuture<ImportResult<T>> future = new CompletableFuture<>();
+
+    private PendingImport(@NonNull ImportJob job,
+        @NonNull Function<? super Stream<Record>, ? extends T> mapper) {
+      this.job = job;
+      this.mapper = mapper;
+    }
+
+    void execute() {
+      try {
+        future.complete(doExecute());
+      } catch (Error e) {
+        // waiting callers must not block forever
+        future.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    private @NonNull ImportResult<T> doExecute() {
+      try (InputStream inputStream = job.getSource().open();
+          Stream<Record> records = job.getExtractorProvider().getExtractor()
+              .extract(inputStream)) {
+        return ImportResult.success(job, mapper.apply(records));
+      } catch (IOException | RuntimeException e) {
+        return ImportResult.failure(job, e);
+      }
+    }
+
+    void reject(@NonNull RejectedExecutionException e) {
+      future.complete(ImportResult.failure(job, e));
+    }
+  }
+
+  /**
+   * Executes the jobs of a single broker while limiting the number of concurrent jobs.
+   */
+  @ThreadSafe
+  private final class BrokerLane {
+
+    private final @Positive int concurrency;
+    @GuardedBy("this")
+    private final Queue<PendingImport<?>> queue = new ArrayDeque<>();
+    @GuardedBy("this")
+    private int running;
+
+    private BrokerLane(@Positive int concurrency) {
+      this.concurrency = concurrency;
+    }
+
+    void submit(@NonNull PendingImport<?> pendingImport) {
+      synchronized (this) {
+        if (running >= concurrency) {
+          queue.add(pendingImport);
+          return;
+        }
+        running++;
+      }
+      start(pendingImport);
+    }
+
+    private void start(@Nullable PendingImport<?> pendingImport) {
+      PendingImport<?> current = pendingImport;
+      while (current != null) {
+        final PendingImport<?> started = current;
+        try {
+          executor.execute(() -> run(started));
+          return;
+        } catch (RejectedExecutionException e) {
+          started.reject(e);
+          current = finished();
+        }
+      }
+    }
+
+    private void run(@NonNull PendingImport<?> pendingImport) {
+      try {
+        pendingImport.execute();
+      } finally {
+        start(finished());
+      }
+    }
+
+    private synchronized @Nullable PendingImport<?> finished() {
+      final PendingImport<?> next = queue.poll();
+      if (next == null) {
+        running--;
+      }
+      return next;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+import java.util.List;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Aggregated results of several {@linkplain ImportJob import jobs}. The results are ordered like
+ * the jobs that have been passed to the {@linkplain ImportService import service}.
+ *
+ * @param <T> the type of the mapped values of the imports.
+ */
+@Immutable
+@ThreadSafe
+public final class ImportSummary<T> {
+
+  private final @NonNull List<@NonNull ImportResult<T>> results;
+
+  ImportSummary(@NonNull List<@NonNull ImportResult<T>> results) {
+    this.results = List.copyOf(results);
+  }
+
+  public @NonNull List<@NonNull ImportResult<T>> getResults() {
+    return results;
+  }
+
+  /**
+   * Returns the results of all successful imports.
+   *
+   * @return the results of all successful imports.
+   */
+  public @NonNull List<@NonNull ImportResult<T>> getSuccessful() {
+    return results.stream()
+        .filter(ImportResult::isSuccessful)
+        .collect(toUnmodifiableList());
+  }
+
+  /**
+   * Returns the results of all failed imports.
+   *
+   * @return the results of all failed imports.
+   */
+  public @NonNull List<@NonNull ImportResult<T>> getFailed() {
+    return results.stream()
+        .filter(r -> !r.isSuccessful())
+        .collect(toUnmodifiableList());
+  }
+
+  /**
+   * Returns the number of failed imports.
+   *
+   * @return the number of failed imports.
+   */
+  public @NonNegative int getFailedCount() {
+    return (int) results.stream()
+        .filter(r -> !r.isSuccessful())
+        .count();
+  }
+}
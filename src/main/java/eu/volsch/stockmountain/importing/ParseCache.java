@@ -0,0 +1,381 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.codec.RecordDecoder;
+import eu.volsch.stockmountain.codec.RecordEncoder;
+import eu.volsch.stockmountain.extraction.api.ExtractionDataAccessException;
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.Record;
+import eu.volsch.stockmountain.extraction.api.RecordBinder;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractor;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Content-addressed cache of the records that have been extracted from export files. An entry is
+ * identified by the SHA-256 hash of the bytes of the file and of the schema of the
+ * {@linkplain CsvExtractor extractor} (field separator, skip count, maximum record length,
+ * character set and the ordinal numbers, names, types and nullability of the fields). If the same
+ * file is extracted again with the same schema, the records are streamed from the cache without
+ * tokenizing and converting the file.
+ *
+ * <p>The records are stored in the compact binary format of the {@link RecordEncoder} in a file per
+ * entry on the local disk. If the total size of the entries exceeds the maximum size, the least
+ * recently used entries are deleted. The last modified time of a file is updated when the entry is
+ * used, so that the order of use survives a restart. The converters of the fields are not part of
+ * the schema, so that a cache directory must be cleared if a converter changes.
+ */
+@ThreadSafe
+public final class ParseCache {
+
+  static final String FILE_SUFFIX = ".records";
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final int SCHEMA_VERSION = 1;
+
+  private final @NonNull Path directory;
+  private final @Positive long maxSize;
+  @GuardedBy("this")
+  private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+  @GuardedBy("this")
+  private long size;
+  @GuardedBy("this")
+  private long hitCount;
+  @GuardedBy("this")
+  private long missCount;
+
+  /**
+   * Opens the cache in the specified directory. The directory is created if it does not exist
+   * and existing entries are used in the order of their last use.
+   *
+   * @param directory the directory of the cache files.
+   * @param maxSize   the maximum total size of the cache files in bytes.
+   * @throws IOException              thrown if the directory cannot be created or listed.
+   * @throws IllegalArgumentException thrown if the maximum size is not positive.
+   */
+  public ParseCache(@NonNull Path directory, @Positive long maxSize)
+      throws IOException, IllegalArgumentException {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Maximum size must be positive: " + maxSize);
+    }
+    this.directory = Files.createDirectories(requireNonNull(directory));
+    this.maxSize = maxSize;
+
+    final List<Path> files;
+    try (Stream<Path> stream = Files.list(directory)) {
+      files = stream
+          .filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+          .sorted(Comparator.comparing(ParseCache::lastModifiedTime))
+          .collect(Collectors.toList());
+    }
+    synchronized (this) {
+      for (final Path file : files) {
+        final String name = requireNonNull(file.getFileName()).toString();
+        final long fileSize = Files.size(file);
+        entrySizes.put(name.substring(0, name.length() - FILE_SUFFIX.length()), fileSize);
+        size += fileSize;
+      }
+      evict(null);
+    }
+  }
+
+  /**
+   * Extracts the records of the specified input with the specified extractor or streams them from
+   * the cache if the same input has been extracted before with the same schema. The input is read
+   * completely before the first record is returned. The returned stream must be closed. Stream
+   * operations throw an {@link ExtractionDataAccessException} if the cache file cannot be read.
+   *
+   * @param extractor the extractor of the records.
+   * @param input     the input stream of the export file.
+   * @return the stream of the records.
+   * @throws IOException thrown if the input cannot be read or the cache file cannot be written.
+   */
+  public @NonNull Stream<Record> extract(@NonNull CsvExtractor extractor,
+      @NonNull InputStream input) throws IOException {
+    return stream(extractor, input, RecordDecoder::read);
+  }
+
+  /**
+   * Extracts the records of the specified input like {@link #extract(CsvExtractor, InputStream)}
+   * and binds the values of each record with the specified binder.
+   *
+   * @param extractor the extractor of the records.
+   * @param input     the input stream of the export file.
+   * @param binder    the binder to which the values of the records are bound.
+   * @param <T>       the type of the objects that result from the bound records.
+   * @return the stream of the objects that result from the bound records.
+   * @throws IOException thrown if the input cannot be read or the cache file cannot be written.
+   */
+  public <T> @NonNull Stream<T> extract(@NonNull CsvExtractor extractor,
+      @NonNull InputStream input, @NonNull RecordBinder<T> binder) throws IOException {
+    requireNonNull(binder);
+    return stream(extractor, input, decoder -> decoder.read(binder));
+  }
+
+  private <T> @NonNull Stream<T> stream(@NonNull CsvExtractor extractor,
+      @NonNull InputStream input, @NonNull RecordReader<T> recordReader) throws IOException {
+    final byte[] content = input.readAllBytes();
+    final String key = key(extractor, content);
+    final Path file = directory.resolve(key + FILE_SUFFIX);
+
+    RecordDecoder decoder = open(key, file, extractor);
+    if (decoder == null) {
+      write(key, file, extractor, content);
+      decoder = openDecoder(file, extractor);
+    }
+    final DecoderSpliterator<T> spliterator = new DecoderSpliterator<>(decoder, recordReader);
+    return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+  }
+
+  private @Nullable RecordDecoder open(@NonNull String key, @NonNull Path file,
+      @NonNull CsvExtractor extractor) throws IOException {
+    synchronized (this) {
+      if (entrySizes.get(key) == null) {
+        missCount++;
+        return null;
+      }
+    }
+    try {
+      final RecordDecoder decoder = openDecoder(file, extractor);
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+      synchronized (this) {
+        hitCount++;
+      }
+      return decoder;
+    } catch (IOException e) {
+      // a file that has been deleted or damaged is replaced by a new extraction
+      synchronized (this) {
+        remove(key);
+        missCount++;
+      }
+      return null;
+    }
+  }
+
+  private static @NonNull RecordDecoder openDecoder(@NonNull Path file,
+      @NonNull CsvExtractor extractor) throws IOException {
+    final InputStream input = Files.newInputStream(file);
+    try {
+      return new RecordDecoder(input, extractor.getRecordMetaData());
+    } catch (IOException | RuntimeException e) {
+      input.close();
+      throw e;
+    }
+  }
+
+  private void write(@NonNull String key, @NonNull Path file, @NonNull CsvExtractor extractor,
+      byte @NonNull [] content) throws IOException {
+    final Path tempFile = Files.createTempFile(directory, key, ".tmp");
+    try {
+      try (OutputStream output = Files.newOutputStream(tempFile);
+          RecordEncoder encoder = new RecordEncoder(output, extractor.getRecordMetaData());
+          Stream<Record> records = extractor.extract(new ByteArrayInputStream(content))) {
+        for (final Record record : (Iterable<Record>) records::iterator) {
+          encoder.write(record);
+        }
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+
+    final long fileSize = Files.size(file);
+    synchronized (this) {
+      remove(key);
+      entrySizes.put(key, fileSize);
+      size += fileSize;
+      evict(key);
+    }
+  }
+
+  @GuardedBy("this")
+  private void evict(@Nullable String retainedKey) throws IOException {
+    final Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+    while (size > maxSize && iterator.hasNext()) {
+      final Map.Entry<String, Long> eldest = iterator.next();
+      if (!eldest.getKey().equals(retainedKey)) {
+        iterator.remove();
+        size -= eldest.getValue();
+        Files.deleteIfExists(directory.resolve(eldest.getKey() + FILE_SUFFIX));
+      }
+    }
+  }
+
+  @GuardedBy("this")
+  private void remove(@NonNull String key) {
+    final Long entrySize = entrySizes.remove(key);
+    if (entrySize != null) {
+      size -= entrySize;
+    }
+  }
+
+  static @NonNull String key(@NonNull CsvExtractor extractor, byte @NonNull [] content) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Hash algorithm is not supported: " + HASH_ALGORITHM, e);
+    }
+    try (DataOutputStream output = new DataOutputStream(
+        new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+      output.writeInt(SCHEMA_VERSION);
+      output.writeChar(extractor.getFieldSeparator());
+      output.writeInt(extractor.getSkipCount());
+      output.writeInt(extractor.getMaxRecordsChars());
+      output.writeUTF(extractor.getCharset().name());
+      for (final Field<?> field : (Iterable<Field<?>>) extractor.getRecordMetaData()
+          .fieldStream()::iterator) {
+        output.writeInt(field.ordinal());
+        output.writeUTF(field.name());
+        output.writeUTF(field.type().getName());
+        output.writeBoolean(field.nullable());
+      }
+      output.writeLong(content.length);
+      output.write(content);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Schema cannot be hashed", e);
+    }
+
+    final StringBuilder key = new StringBuilder();
+    for (final byte b : digest.digest()) {
+      key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return key.toString();
+  }
+
+  private static @NonNull FileTime lastModifiedTime(@NonNull Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the total size of the cache files.
+   *
+   * @return the size in bytes.
+   */
+  public synchronized @NonNegative long getSize() {
+    return size;
+  }
+
+  public synchronized @NonNegative int getEntryCount() {
+    return entrySizes.size();
+  }
+
+  /**
+   * Returns the number of extractions that have been served from the cache.
+   *
+   * @return the number of cache hits.
+   */
+  public synchronized @NonNegative long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of extractions that have tokenized and converted the input.
+   *
+   * @return the number of cache misses.
+   */
+  public synchronized @NonNegative long getMissCount() {
+    return missCount;
+  }
+
+  @FunctionalInterface
+  private interface RecordReader<T> {
+
+    @Nullable T read(@NonNull RecordDecoder decoder) throws IOException;
+  }
+
+  private static final class DecoderSpliterator<T> extends AbstractSpliterator<T> {
+
+    private final @NonNull RecordDecoder decoder;
+    private final @NonNull RecordReader<T> recordReader;
+
+    DecoderSpliterator(@NonNull RecordDecoder decoder, @NonNull RecordReader<T> recordReader) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.decoder = decoder;
+      this.recordReader = recordReader;
+    }
+
+    @Override
+    public boolean tryAdvance(@NonNull Consumer<? super T> action) {
+      final T value;
+      try {
+        value = recordReader.read(decoder);
+      } catch (IOException e) {
+        throw new ExtractionDataAccessException("Cached records cannot be read", e);
+      }
+      if (value == null) {
+        return false;
+      }
+      action.accept(value);
+      return true;
+    }
+
+    void close() {
+      try {
+        decoder.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
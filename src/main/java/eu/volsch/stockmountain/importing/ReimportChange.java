@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDate;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Change of a single row that has been detected by a {@linkplain Reimporter re-import}.
+ *
+ * @param <T> the type of the objects that result from the converted rows.
+ */
+@Immutable
+@ThreadSafe
+public final class ReimportChange<T> {
+
+  /**
+   * Type of change of a row.
+   */
+  public enum Type {
+    /**
+     * The row has not been imported before.
+     */
+    ADDED,
+    /**
+     * The row has been imported before with different content.
+     */
+    CHANGED,
+    /**
+     * The row has been imported before, but is no longer contained in the covered date range.
+     */
+    DISAPPEARED
+  }
+
+  private final @NonNull Type type;
+  private final @NonNull LocalDate date;
+  private final @Nullable T value;
+  private final long previousReference;
+
+  ReimportChange(@NonNull Type type, @NonNull LocalDate date, @Nullable T value,
+      long previousReference) {
+    this.type = requireNonNull(type);
+    this.date = requireNonNull(date);
+    this.value = value;
+    this.previousReference = previousReference;
+  }
+
+  public @NonNull Type getType() {
+    return type;
+  }
+
+  public @NonNull LocalDate getDate() {
+    return date;
+  }
+
+  /**
+   * Returns the object that results from the converted row.
+   *
+   * @return the object or <code>null</code> if the row has disappeared.
+   */
+  public @Nullable T getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the reference that has been recorded when the row has been imported before.
+   *
+   * @return the previous reference or {@link FingerprintIndex#NO_REFERENCE} if the row has been
+   *         added.
+   */
+  public long getPreviousReference() {
+    return previousReference;
+  }
+
+  @Override
+  public @NonNull String toString() {
+    return "ReimportChange{type=" + type + ", date=" + date + ", value=" + value
+        + ", previousReference=" + previousReference + '}';
+  }
+}
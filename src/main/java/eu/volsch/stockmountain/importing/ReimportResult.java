@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import eu.volsch.stockmountain.importing.ReimportChange.Type;
+import java.util.List;
+import java.util.stream.Collectors;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Result of a {@linkplain Reimporter re-import}. The result contains the changes in the order of
+ * the rows followed by the disappeared rows and the number of rows that have been skipped, since
+ * they have been imported before without any change.
+ *
+ * @param <T> the type of the objects that result from the converted rows.
+ */
+@Immutable
+@ThreadSafe
+public final class ReimportResult<T> {
+
+  private final @NonNull List<ReimportChange<T>> changes;
+  private final @NonNegative int unchangedCount;
+
+  ReimportResult(@NonNull List<ReimportChange<T>> changes, @NonNegative int unchangedCount) {
+    this.changes = List.copyOf(changes);
+    this.unchangedCount = unchangedCount;
+  }
+
+  public @NonNull List<ReimportChange<T>> getChanges() {
+    return changes;
+  }
+
+  /**
+   * Returns the changes of the specified type.
+   *
+   * @param type the type of the changes.
+   * @return the changes of the type in the order of the rows.
+   */
+  public @NonNull List<ReimportChange<T>> getChanges(@NonNull Type type) {
+    return changes.stream()
+        .filter(change -> change.getType() == type)
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  public @NonNegative int getUnchangedCount() {
+    return unchangedCount;
+  }
+
+  @Override
+  public @NonNull String toString() {
+    return "ReimportResult{changes=" + changes + ", unchangedCount=" + unchangedCount + '}';
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.RecordBinder;
+import eu.volsch.stockmountain.extraction.conversion.ConversionException;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractor;
+import eu.volsch.stockmountain.extraction.csv.CsvRow;
+import eu.volsch.stockmountain.extraction.csv.CsvRowFilter;
+import eu.volsch.stockmountain.importing.FingerprintIndex.Entry;
+import eu.volsch.stockmountain.importing.ReimportChange.Type;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Re-imports exported CSV files of an account that overlap with files that have been imported
+ * before. A fingerprint of the raw values of each row is computed while the row is parsed and is
+ * checked against the {@linkplain FingerprintIndex fingerprint index} of the account, so that only
+ * new and changed rows are converted. Rows of the date range that is covered by the file and that
+ * have been imported before, but are no longer contained in the file, are reported as disappeared.
+ *
+ * <p>A row is identified by the fingerprint of its identity fields (e.g. date, time, ISIN and
+ * order ID of a DEGIRO transaction). Rows with the same identity in the same file are
+ * distinguished by their occurrence. A row has changed if the fingerprint of its content fields
+ * (e.g. additionally quantity and total) differs from the recorded fingerprint. The index is only
+ * updated if the complete file has been extracted successfully. Rows without a date are skipped if
+ * the date field is nullable, since they cannot be assigned to the covered date range.
+ */
+@Immutable
+@ThreadSafe
+public class Reimporter {
+
+  private final @NonNull CsvExtractor extractor;
+  private final @NonNull Field<LocalDate> dateField;
+  private final @NonNull List<Field<?>> identityFields;
+  private final @NonNull List<Field<?>> contentFields;
+
+  /**
+   * Creates a re-importer.
+   *
+   * @param extractor      the extractor of the CSV files.
+   * @param dateField      the field that contains the date of a row.
+   * @param identityFields the fields that identify a row.
+   * @param contentFields  the fields of which a change results in a changed row.
+   * @throws IllegalArgumentException thrown if no identity or content fields are specified.
+   */
+  public Reimporter(@NonNull CsvExtractor extractor, @NonNull Field<LocalDate> dateField,
+      @NonNull List<Field<?>> identityFields, @NonNull List<Field<?>> contentFields)
+      throws IllegalArgumentException {
+    if (identityFields.isEmpty() || contentFields.isEmpty()) {
+      throw new IllegalArgumentException("Identity and content fields must be specified");
+    }
+    this.extractor = requireNonNull(extractor);
+    this.dateField = requireNonNull(dateField);
+    this.identityFields = List.copyOf(identityFields);
+    this.contentFields = List.copyOf(contentFields);
+  }
+
+  /**
+   * Re-imports the CSV file that is read from the specified reader. The new and changed rows are
+   * bound with the specified binder, which must create a new object for each row. The reference
+   * of each of these objects is recorded in the index and is reported if the row changes or
+   * disappears later.
+   *
+   * @param reader            the reader from which the CSV file is read.
+   * @param binder            the binder to which the values of new and changed rows are bound.
+   * @param referenceFunction returns the reference of an object that results from a row.
+   * @param index             the fingerprint index of the account.
+   * @param <T>               the type of the objects that result from the converted rows.
+   * @return the changes of the rows.
+   * @throws IOException thrown if the index cannot be updated.
+   */
+  public <T> @NonNull ReimportResult<T> reimport(@NonNull Reader reader,
+      @NonNull RecordBinder<T> binder, @NonNull ToLongFunction<? super T> referenceFunction,
+      @NonNull FingerprintIndex index) throws IOException {
+    final Session session = new Session(index);
+    final List<ReimportChange<T>> changes = new ArrayList<>();
+    final List<Entry> entries = new ArrayList<>();
+    try (Stream<T> values = extractor.extract(reader, binder, session)) {
+      values.forEachOrdered(value -> {
+        final PendingRow row = session.pendingRows.remove();
+        changes.add(new ReimportChange<>(row.type, LocalDate.ofEpochDay(row.epochDay), value,
+            row.previousReference));
+        entries.add(new Entry(row.identity, row.content, referenceFunction.applyAsLong(value),
+            row.epochDay));
+      });
+    }
+
+    final Set<Long> removedIdentities = new HashSet<>();
+    for (int i = 0; i < index.size() && session.minEpochDay <= session.maxEpochDay; i++) {
+      final int epochDay = index.getEpochDay(i);
+      final long identity = index.getIdentity(i);
+      if (epochDay >= session.minEpochDay && epochDay <= session.maxEpochDay
+          && !session.identities.contains(identity)) {
+        removedIdentities.add(identity);
+        changes.add(new ReimportChange<>(Type.DISAPPEARED, LocalDate.ofEpochDay(epochDay), null,
+            index.getReference(i)));
+      }
+    }
+
+    if (!entries.isEmpty() || !removedIdentities.isEmpty()) {
+      index.commit(entries, removedIdentities);
+    }
+    return new ReimportResult<>(changes, session.unchangedCount);
+  }
+
+  /**
+   * Filters the rows of a single re-import and records the rows that are converted.
+   */
+  @NotThreadSafe
+  private final class Session implements CsvRowFilter {
+
+    private final @NonNull FingerprintIndex index;
+    private final Queue<PendingRow> pendingRows = new ArrayDeque<>();
+    private final Map<Long, Integer> occurrences = new HashMap<>();
+    private final Set<Long> identities = new HashSet<>();
+    private @Nullable String lastRawDate;
+    private int lastEpochDay;
+    private int minEpochDay = Integer.MAX_VALUE;
+    private int maxEpochDay = Integer.MIN_VALUE;
+    private @NonNegative int unchangedCount;
+
+    private Session(@NonNull FingerprintIndex index) {
+      this.index = requireNonNull(index);
+    }
+
+    @Override
+    public boolean accept(@NonNull CsvRow row) {
+      final String rawDate = row.getRawValue(dateField);
+      if (!rawDate.equals(lastRawDate)) {
+        final LocalDate date;
+        try {
+          date = dateField.convert(rawDate);
+        } catch (ConversionException e) {
+          // the conversion of the row reports the invalid value with its position
+          return true;
+        }
+        if (date == null) {
+          // a missing value of a non-nullable field is reported by the conversion of the row
+          return !dateField.nullable();
+        }
+        lastRawDate = rawDate;
+        lastEpochDay = (int) date.toEpochDay();
+      }
+      minEpochDay = Math.min(minEpochDay, lastEpochDay);
+      maxEpochDay = Math.max(maxEpochDay, lastEpochDay);
+
+      final long baseIdentity = RowFingerprint.of(row, identityFields);
+      final int occurrence = occurrences.merge(baseIdentity, 1, Integer::sum) - 1;
+      final long identity = RowFingerprint.occurrence(baseIdentity, occurrence);
+      identities.add(identity);
+      final long content = RowFingerprint.of(row, contentFields);
+
+      final int position = index.find(identity);
+      if (position < 0) {
+        pendingRows.add(new PendingRow(Type.ADDED, identity, content, lastEpochDay,
+            FingerprintIndex.NO_REFERENCE));
+        return true;
+      }
+      if (index.getContent(position) == content) {
+        unchangedCount++;
+        return false;
+      }
+      pendingRows.add(new PendingRow(Type.CHANGED, identity, content, lastEpochDay,
+          index.getReference(position)));
+      return true;
+    }
+  }
+
+  private static final class PendingRow {
+
+    private final @NonNull Type type;
+    private final long identity;
+    private final long content;
+    private final int epochDay;
+    private final long previousReference;
+
+    private PendingRow(@NonNull Type type, long identity, long content, int epochDay,
+        long previousReference) {
+      this.type = type;
+      this.identity = identity;
+      this.content = content;
+      this.epochDay = epochDay;
+      this.previousReference = previousReference;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.csv.CsvRow;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Computes 64-bit fingerprints of the raw values of CSV rows. The characters of the values are
+ * hashed with FNV-1a and the length of each value is hashed before the value, so that moving
+ * characters between adjacent values results in a different fingerprint. The result is finally
+ * mixed, so that the bits of the fingerprint are distributed well enough to be used directly by a
+ * {@linkplain BloomFilter Bloom filter}.
+ */
+final class RowFingerprint {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private RowFingerprint() {
+  }
+
+  /**
+   * Computes the fingerprint of the raw values of the specified fields of a row.
+   *
+   * @param row    the row.
+   * @param fields the fields of which the raw values are hashed in this order.
+   * @return the fingerprint.
+   */
+  static long of(@NonNull CsvRow row, @NonNull List<Field<?>> fields) {
+    long hash = FNV_OFFSET_BASIS;
+    for (final Field<?> field : fields) {
+      final String value = row.getRawValue(field);
+      final int length = value.length();
+      hash = (hash ^ length) * FNV_PRIME;
+      for (int i = 0; i < length; i++) {
+        hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+      }
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Derives the fingerprint of the specified occurrence of rows with the same fingerprint. The
+   * first occurrence keeps the fingerprint.
+   *
+   * @param fingerprint the fingerprint of the rows.
+   * @param occurrence  the occurrence (starting with 0) of the row.
+   * @return the fingerprint of the occurrence.
+   */
+  static long occurrence(long fingerprint, int occurrence) {
+    return occurrence == 0 ? fingerprint : mix(fingerprint + occurrence * GOLDEN_GAMMA);
+  }
+
+  private static long mix(long hash) {
+    long result = hash;
+    result = (result ^ (result >>> 33)) * 0xff51afd7ed558ccdL;
+    result = (result ^ (result >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return result ^ (result >>> 33);
+  }
+}
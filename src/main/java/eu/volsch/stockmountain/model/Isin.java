@@ -0,0 +1,246 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * International Securities Identification Number (ISIN) that is packed into a single
+ * <code>long</code>. The first eleven characters are packed as base-36 number, so that the order
+ * of the packed values is the same as the order of the strings. The check digit is not stored,
+ * since it is derived from the other characters and is validated when an ISIN is packed.
+ */
+@Immutable
+@ThreadSafe
+public final class Isin implements Comparable<Isin> {
+
+  /**
+   * The number of characters of an ISIN.
+   */
+  public static final int LENGTH = 12;
+
+  /**
+   * The value returned by {@link #tryPack(CharSequence)} for an invalid ISIN.
+   */
+  public static final long INVALID_PACKED_VALUE = -1;
+
+  private static final int PACKED_LENGTH = LENGTH - 1;
+  private static final int COUNTRY_LENGTH = 2;
+  private static final int RADIX = 36;
+  private static final long MAX_PACKED_VALUE = maxPackedValue();
+
+  private final @NonNegative long packedValue;
+
+  private Isin(@NonNegative long packedValue) {
+    this.packedValue = packedValue;
+  }
+
+  /**
+   * Parses and validates the specified ISIN.
+   *
+   * @param isin the ISIN that should be parsed.
+   * @return the parsed ISIN.
+   * @throws IllegalArgumentException thrown if the ISIN is invalid or its check digit does not
+   *                                  match.
+   */
+  public static @NonNull Isin parse(@NonNull CharSequence isin) throws IllegalArgumentException {
+    return new Isin(pack(isin));
+  }
+
+  /**
+   * Creates an ISIN from the specified packed value.
+   *
+   * @param packedValue the packed value of the ISIN.
+   * @return the ISIN.
+   * @throws IllegalArgumentException thrown if the packed value is invalid.
+   * @see #getPackedValue()
+   */
+  public static @NonNull Isin ofPackedValue(long packedValue) throws IllegalArgumentException {
+    if (packedValue < 0 || packedValue > MAX_PACKED_VALUE || !hasValidCountry(packedValue)) {
+      throw new IllegalArgumentException("Invalid packed ISIN: " + packedValue);
+    }
+    return new Isin(packedValue);
+  }
+
+  /**
+   * Packs and validates the specified ISIN without creating any object. Indexes can use the
+   * packed value as key instead of the string.
+   *
+   * @param isin the ISIN that should be packed.
+   * @return the packed value of the ISIN.
+   * @throws IllegalArgumentException thrown if the ISIN is invalid or its check digit does not
+   *                                  match.
+   */
+  public static @NonNegative long pack(@NonNull CharSequence isin)
+      throws IllegalArgumentException {
+    final long packedValue = tryPack(isin);
+    if (packedValue == INVALID_PACKED_VALUE) {
+      throw new IllegalArgumentException("Invalid ISIN: " + isin);
+    }
+    return packedValue;
+  }
+
+  /**
+   * Packs and validates the specified ISIN like {@link #pack(CharSequence)}, but returns
+   * {@link #INVALID_PACKED_VALUE} instead of throwing an exception if the ISIN is invalid. Since
+   * only upper-case letters are valid, the packed value of a valid ISIN is unique for its string.
+   *
+   * @param isin the ISIN that should be packed.
+   * @return the packed value of the ISIN or {@link #INVALID_PACKED_VALUE}.
+   */
+  public static long tryPack(@NonNull CharSequence isin) {
+    if (isin.length() != LENGTH) {
+      return INVALID_PACKED_VALUE;
+    }
+    long packedValue = 0;
+    for (int i = 0; i < PACKED_LENGTH; i++) {
+      final int digit = digit(isin.charAt(i));
+      if (digit < 0 || (i < COUNTRY_LENGTH && digit < 10)) {
+        return INVALID_PACKED_VALUE;
+      }
+      packedValue = packedValue * RADIX + digit;
+    }
+    if (isin.charAt(PACKED_LENGTH) != checkDigit(packedValue)) {
+      return INVALID_PACKED_VALUE;
+    }
+    return packedValue;
+  }
+
+  /**
+   * Returns if the specified ISIN is valid.
+   *
+   * @param isin the ISIN that should be validated.
+   * @return <code>true</code> if the ISIN is valid.
+   */
+  public static boolean isValid(@NonNull CharSequence isin) {
+    return tryPack(isin) != INVALID_PACKED_VALUE;
+  }
+
+  public @NonNegative long getPackedValue() {
+    return packedValue;
+  }
+
+  /**
+   * Returns the two-letter country code of this ISIN.
+   *
+   * @return the country code of this ISIN.
+   */
+  public @NonNull String getCountryCode() {
+    return toString().substring(0, COUNTRY_LENGTH);
+  }
+
+  private static int digit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  private static boolean hasValidCountry(long packedValue) {
+    long value = packedValue;
+    for (int i = COUNTRY_LENGTH; i < PACKED_LENGTH; i++) {
+      value /= RADIX;
+    }
+    return value / RADIX >= 10 && value % RADIX >= 10;
+  }
+
+  /**
+   * Calculates the check digit with the Luhn algorithm. Letters are expanded to two decimal
+   * digits. The digits are processed from right to left, starting with the rightmost digit that
+   * is doubled.
+   */
+  private static char checkDigit(long packedValue) {
+    long value = packedValue;
+    int sum = 0;
+    boolean doubled = true;
+    for (int i = 0; i < PACKED_LENGTH; i++) {
+      final int digit = (int) (value % RADIX);
+      value /= RADIX;
+      sum += luhnDigit(digit % 10, doubled);
+      doubled = !doubled;
+      if (digit >= 10) {
+        sum += luhnDigit(digit / 10, doubled);
+        doubled = !doubled;
+      }
+    }
+    return (char) ('0' + (10 - sum % 10) % 10);
+  }
+
+  private static int luhnDigit(int digit, boolean doubled) {
+    if (!doubled) {
+      return digit;
+    }
+    final int result = digit * 2;
+    return result > 9 ? result - 9 : result;
+  }
+
+  private static long maxPackedValue() {
+    long value = 1;
+    for (int i = 0; i < PACKED_LENGTH; i++) {
+      value *= RADIX;
+    }
+    return value - 1;
+  }
+
+  @Override
+  public int compareTo(@NonNull Isin o) {
+    return Long.compare(packedValue, o.packedValue);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return packedValue == ((Isin) o).packedValue;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(packedValue);
+  }
+
+  @Override
+  public @NonNull String toString() {
+    final char[] chars = new char[LENGTH];
+    long value = packedValue;
+    for (int i = PACKED_LENGTH - 1; i >= 0; i--) {
+      chars[i] = Character.toUpperCase(Character.forDigit((int) (value % RADIX), RADIX));
+      value /= RADIX;
+    }
+    chars[PACKED_LENGTH] = checkDigit(packedValue);
+    return new String(chars);
+  }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Compact fixed-point amount of money. The amount is stored as an unscaled <code>long</code>
+ * value with a scale of at most {@value #MAX_SCALE} and a currency that consists of three
+ * upper-case US-ASCII letters and that is packed into a numeric ID. Additions, subtractions and
+ * multiplications are exact. If the result of an operation does not fit into the compact
+ * representation, the amount falls back to a {@linkplain BigDecimal decimal value}. Two amounts
+ * are equal if they have the same currency and the same numeric value regardless of their scale.
+ */
+@Immutable
+@ThreadSafe
+public final class Money implements Comparable<Money> {
+
+  /**
+   * The maximum scale of the compact representation.
+   */
+  public static final int MAX_SCALE = 18;
+
+  private static final int CURRENCY_LENGTH = 3;
+  private static final int CURRENCY_RADIX = 26;
+  private static final int CURRENCY_COUNT = CURRENCY_RADIX * CURRENCY_RADIX * CURRENCY_RADIX;
+  private static final int LONG_BITS = 63;
+  private static final long[] POWERS_OF_TEN = newPowersOfTen();
+  private static final String[] CURRENCIES = new String[CURRENCY_COUNT];
+
+  private final long unscaledValue;
+  private final @NonNegative int scale;
+  private final @NonNegative int currencyId;
+  private final @Nullable BigDecimal inflatedValue;
+
+  private Money(long unscaledValue, @NonNegative int scale, @NonNegative int currencyId,
+      @Nullable BigDecimal inflatedValue) {
+    this.unscaledValue = unscaledValue;
+    this.scale = scale;
+    this.currencyId = currencyId;
+    this.inflatedValue = inflatedValue;
+  }
+
+  /**
+   * Creates an amount from the specified unscaled value and scale.
+   *
+   * @param unscaledValue the unscaled value of the amount.
+   * @param scale         the scale of the amount (between 0 and {@value #MAX_SCALE}).
+   * @param currency      the currency of the amount.
+   * @return the amount.
+   * @throws IllegalArgumentException thrown if the scale or the currency is invalid.
+   */
+  public static @NonNull Money of(long unscaledValue, int scale, @NonNull String currency)
+      throws IllegalArgumentException {
+    if (scale < 0 || scale > MAX_SCALE) {
+      throw new IllegalArgumentException("Invalid scale: " + scale);
+    }
+    return new Money(unscaledValue, scale, currencyId(currency), null);
+  }
+
+  /**
+   * Creates an amount from the specified decimal value. The compact representation is used if the
+   * value fits into it.
+   *
+   * @param value    the value of the amount.
+   * @param currency the currency of the amount.
+   * @return the amount.
+   * @throws IllegalArgumentException thrown if the currency is invalid.
+   */
+  public static @NonNull Money of(@NonNull BigDecimal value, @NonNull String currency)
+      throws IllegalArgumentException {
+    return of(value, currencyId(currency));
+  }
+
+  private static @NonNull Money of(@NonNull BigDecimal value, @NonNegative int currencyId) {
+    BigDecimal normalized = value;
+    if (normalized.scale() < 0) {
+      normalized = normalized.setScale(0);
+    }
+    if (normalized.scale() <= MAX_SCALE) {
+      final BigInteger unscaled = normalized.unscaledValue();
+      if (unscaled.bitLength() <= LONG_BITS) {
+        return new Money(unscaled.longValue(), normalized.scale(), currencyId, null);
+      }
+    }
+    return new Money(0, 0, currencyId, normalized);
+  }
+
+  /**
+   * Returns the numeric ID of the specified currency. The IDs of the currencies have the same
+   * order as the currencies.
+   *
+   * @param currency the currency that consists of three upper-case US-ASCII letters.
+   * @return the numeric ID of the currency.
+   * @throws IllegalArgumentException thrown if the currency is invalid.
+   */
+  public static @NonNegative int currencyId(@NonNull String currency)
+      throws IllegalArgumentException {
+    if (currency.length() != CURRENCY_LENGTH) {
+      throw new IllegalArgumentException("Invalid currency: " + currency);
+    }
+    int id = 0;
+    for (int i = 0; i < CURRENCY_LENGTH; i++) {
+      final char c = currency.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        throw new IllegalArgumentException("Invalid currency: " + currency);
+      }
+      id = id * CURRENCY_RADIX + (c - 'A');
+    }
+    return id;
+  }
+
+  /**
+   * Returns the currency of the specified numeric ID.
+   *
+   * @param currencyId the numeric ID of the currency.
+   * @return the currency.
+   * @throws IllegalArgumentException thrown if the ID is invalid.
+   * @see #currencyId(String)
+   */
+  public static @NonNull String currency(int currencyId) throws IllegalArgumentException {
+    if (currencyId < 0 || currencyId >= CURRENCY_COUNT) {
+      throw new IllegalArgumentException("Invalid currency ID: " + currencyId);
+    }
+    String currency = CURRENCIES[currencyId];
+    if (currency == null) {
+      final char[] chars = new char[CURRENCY_LENGTH];
+      int id = currencyId;
+      for (int i = CURRENCY_LENGTH - 1; i >= 0; i--) {
+        chars[i] = (char) ('A' + id % CURRENCY_RADIX);
+        id /= CURRENCY_RADIX;
+      }
+      // strings are immutable, so that a concurrent initialization is harmless
+      currency = new String(chars);
+      CURRENCIES[currencyId] = currency;
+    }
+    return currency;
+  }
+
+  public @NonNull String getCurrency() {
+    return currency(currencyId);
+  }
+
+  public @NonNegative int getCurrencyId() {
+    return currencyId;
+  }
+
+  /**
+   * Returns if this amount uses the compact representation.
+   *
+   * @return if this amount uses the compact representation.
+   */
+  public boolean isCompact() {
+    return inflatedValue == null;
+  }
+
+  /**
+   * Returns the signum of this amount.
+   *
+   * @return -1, 0 or 1 as the value of this amount is negative, zero or positive.
+   */
+  public int signum() {
+    return inflatedValue == null ? Long.signum(unscaledValue) : inflatedValue.signum();
+  }
+
+  /**
+   * Returns the value of this amount as decimal value.
+   *
+   * @return the value of this amount.
+   */
+  public @NonNull BigDecimal toBigDecimal() {
+    return inflatedValue == null ? BigDecimal.valueOf(unscaledValue, scale) : inflatedValue;
+  }
+
+  /**
+   * Adds the specified amount to this amount.
+   *
+   * @param augend the amount to be added.
+   * @return the sum of both amounts.
+   * @throws IllegalArgumentException thrown if the currencies of both amounts differ.
+   */
+  public @NonNull Money add(@NonNull Money augend) throws IllegalArgumentException {
+    verifySameCurrency(augend);
+    if (inflatedValue == null && augend.inflatedValue == null) {
+      final int resultScale = Math.max(scale, augend.scale);
+      try {
+        return new Money(Math.addExact(rescale(resultScale), augend.rescale(resultScale)),
+            resultScale, currencyId, null);
+      } catch (ArithmeticException e) {
+        // falls back to decimal value
+      }
+    }
+    return of(toBigDecimal().add(augend.toBigDecimal()), currencyId);
+  }
+
+  /**
+   * Subtracts the specified amount from this amount.
+   *
+   * @param subtrahend the amount to be subtracted.
+   * @return the difference of both amounts.
+   * @throws IllegalArgumentException thrown if the currencies of both amounts differ.
+   */
+  public @NonNull Money subtract(@NonNull Money subtrahend) throws IllegalArgumentException {
+    verifySameCurrency(subtrahend);
+    if (inflatedValue == null && subtrahend.inflatedValue == null) {
+      final int resultScale = Math.max(scale, subtrahend.scale);
+      try {
+        return new Money(Math.subtractExact(rescale(resultScale),
+            subtrahend.rescale(resultScale)), resultScale, currencyId, null);
+      } catch (ArithmeticException e) {
+        // falls back to decimal value
+      }
+    }
+    return of(toBigDecimal().subtract(subtrahend.toBigDecimal()), currencyId);
+  }
+
+  /**
+   * Multiplies this amount by the specified quantity (e.g. the price of a unit by the number of
+   * units).
+   *
+   * @param quantityUnscaledValue the unscaled value of the quantity.
+   * @param quantityScale         the scale of the quantity (may be negative).
+   * @return the product of this amount and the quantity.
+   */
+  public @NonNull Money multiply(long quantityUnscaledValue, int quantityScale) {
+    final int resultScale = scale + quantityScale;
+    if (inflatedValue == null && quantityScale >= 0 && resultScale <= MAX_SCALE) {
+      try {
+        return new Money(Math.multiplyExact(unscaledValue, quantityUnscaledValue), resultScale,
+            currencyId, null);
+      } catch (ArithmeticException e) {
+        // falls back to decimal value
+      }
+    }
+    return of(toBigDecimal().multiply(BigDecimal.valueOf(quantityUnscaledValue, quantityScale)),
+        currencyId);
+  }
+
+  /**
+   * Multiplies this amount by the specified quantity (e.g. the price of a unit by the number of
+   * units).
+   *
+   * @param quantity the quantity.
+   * @return the product of this amount and the quantity.
+   */
+  public @NonNull Money multiply(@NonNull BigDecimal quantity) {
+    final BigInteger unscaledQuantity = quantity.unscaledValue();
+    if (unscaledQuantity.bitLength() <= LONG_BITS) {
+      return multiply(unscaledQuantity.longValue(), quantity.scale());
+    }
+    return of(toBigDecimal().multiply(quantity), currencyId);
+  }
+
+  /**
+   * Returns the negated amount.
+   *
+   * @return the negated amount.
+   */
+  public @NonNull Money negate() {
+    if (inflatedValue == null && unscaledValue != Long.MIN_VALUE) {
+      return new Money(-unscaledValue, scale, currencyId, null);
+    }
+    return of(toBigDecimal().negate(), currencyId);
+  }
+
+  private void verifySameCurrency(@NonNull Money other) {
+    if (currencyId != other.currencyId) {
+      throw new IllegalArgumentException("Currencies differ: " + getCurrency()
+          + " and " + other.getCurrency());
+    }
+  }
+
+  private long rescale(@NonNegative int targetScale) throws ArithmeticException {
+    return Math.multiplyExact(unscaledValue, POWERS_OF_TEN[targetScale - scale]);
+  }
+
+  @Override
+  public int compareTo(@NonNull Money o) {
+    final int result = Integer.compare(currencyId, o.currencyId);
+    if (result != 0) {
+      return result;
+    }
+    return compareValue(o);
+  }
+
+  private int compareValue(@NonNull Money o) {
+    if (inflatedValue == null && o.inflatedValue == null) {
+      final int commonScale = Math.max(scale, o.scale);
+      try {
+        return Long.compare(rescale(commonScale), o.rescale(commonScale));
+      } catch (ArithmeticException e) {
+        // falls back to decimal value
+      }
+    }
+    return toBigDecimal().compareTo(o.toBigDecimal());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final Money money = (Money) o;
+    return currencyId == money.currencyId && compareValue(money) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    final int valueHashCode = inflatedValue == null
+        ? valueHashCode(unscaledValue, scale) : valueHashCode(inflatedValue);
+    return 31 * valueHashCode + currencyId;
+  }
+
+  /**
+   * Returns a hash code of the specified decimal value that is equal for all numerically equal
+   * values regardless of their scale and that is equal to the hash code of the value of an amount.
+   *
+   * @param value the decimal value.
+   * @return the hash code of the value.
+   */
+  static int valueHashCode(@NonNull BigDecimal value) {
+    final BigDecimal stripped = value.stripTrailingZeros();
+    final BigInteger unscaled = stripped.unscaledValue();
+    if (unscaled.bitLength() <= LONG_BITS) {
+      return valueHashCode(unscaled.longValue(), stripped.scale());
+    }
+    return stripped.hashCode();
+  }
+
+  private static int valueHashCode(long unscaledValue, int scale) {
+    long strippedValue = unscaledValue;
+    int strippedScale = scale;
+    if (strippedValue == 0) {
+      strippedScale = 0;
+    } else {
+      while (strippedValue % 10 == 0) {
+        strippedValue /= 10;
+        strippedScale--;
+      }
+    }
+    return 31 * Long.hashCode(strippedValue) + strippedScale;
+  }
+
+  private static long @NonNull [] newPowersOfTen() {
+    final long[] powers = new long[MAX_SCALE + 1];
+    powers[0] = 1;
+    for (int i = 1; i < powers.length; i++) {
+      powers[i] = powers[i - 1] * 10;
+    }
+    return powers;
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal() + " " + getCurrency();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Broker generated ID of an order that is a UUID (e.g. the order IDs of DEGIRO). The 128 bits of
+ * the UUID are stored in two <code>long</code> values. The order of the IDs is the same as the
+ * order of their lower-case string representations.
+ */
+@Immutable
+@ThreadSafe
+public final class OrderId implements Comparable<OrderId> {
+
+  /**
+   * The number of characters of the string representation of an order ID.
+   */
+  public static final int LENGTH = 36;
+
+  private static final int HEX_RADIX = 16;
+  private static final int HEX_BITS = 4;
+  private static final int HALF_LENGTH = 18;
+  private static final char SEPARATOR = '-';
+
+  private final long mostSignificantBits;
+  private final long leastSignificantBits;
+
+  public OrderId(long mostSignificantBits, long leastSignificantBits) {
+    this.mostSignificantBits = mostSignificantBits;
+    this.leastSignificantBits = leastSignificantBits;
+  }
+
+  /**
+   * Parses the specified order ID in the format <code>xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx</code>
+   * with hexadecimal digits of any case.
+   *
+   * @param orderId the order ID that should be parsed.
+   * @return the parsed order ID.
+   * @throws IllegalArgumentException thrown if the order ID is invalid.
+   */
+  public static @NonNull OrderId parse(@NonNull CharSequence orderId)
+      throws IllegalArgumentException {
+    if (!isValid(orderId)) {
+      throw new IllegalArgumentException("Invalid order ID: " + orderId);
+    }
+    return new OrderId(parseBits(orderId, 0, HALF_LENGTH),
+        parseBits(orderId, HALF_LENGTH + 1, LENGTH));
+  }
+
+  /**
+   * Returns if the specified order ID is valid.
+   *
+   * @param orderId the order ID that should be validated.
+   * @return <code>true</code> if the order ID is valid.
+   */
+  public static boolean isValid(@NonNull CharSequence orderId) {
+    if (orderId.length() != LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < LENGTH; i++) {
+      final char c = orderId.charAt(i);
+      if (isSeparatorIndex(i) ? c != SEPARATOR : hexDigit(c) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns if the specified order ID is valid and has only lower-case hexadecimal digits, so that
+   * the {@linkplain #toString() string representation} of the parsed order ID equals the string.
+   * Indexes can use the parsed order ID instead of such a string as key without changing the
+   * result of any lookup.
+   *
+   * @param orderId the order ID that should be validated.
+   * @return <code>true</code> if the order ID is valid and in canonical form.
+   */
+  public static boolean isCanonical(@NonNull CharSequence orderId) {
+    if (!isValid(orderId)) {
+      return false;
+    }
+    for (int i = 0; i < LENGTH; i++) {
+      final char c = orderId.charAt(i);
+      if (c >= 'A' && c <= 'F') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSeparatorIndex(int index) {
+    return index == 8 || index == 13 || index == HALF_LENGTH || index == 23;
+  }
+
+  private static int hexDigit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  private static long parseBits(@NonNull CharSequence orderId, int start, int end) {
+    long bits = 0;
+    for (int i = start; i < end; i++) {
+      if (!isSeparatorIndex(i)) {
+        bits = (bits << HEX_BITS) | hexDigit(orderId.charAt(i));
+      }
+    }
+    return bits;
+  }
+
+  public long getMostSignificantBits() {
+    return mostSignificantBits;
+  }
+
+  public long getLeastSignificantBits() {
+    return leastSignificantBits;
+  }
+
+  @Override
+  public int compareTo(@NonNull OrderId o) {
+    final int result = Long.compareUnsigned(mostSignificantBits, o.mostSignificantBits);
+    if (result != 0) {
+      return result;
+    }
+    return Long.compareUnsigned(leastSignificantBits, o.leastSignificantBits);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final OrderId orderId = (OrderId) o;
+    return mostSignificantBits == orderId.mostSignificantBits
+        && leastSignificantBits == orderId.leastSignificantBits;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(mostSignificantBits ^ leastSignificantBits);
+  }
+
+  @Override
+  public @NonNull String toString() {
+    final char[] chars = new char[LENGTH];
+    formatBits(chars, 0, HALF_LENGTH, mostSignificantBits);
+    formatBits(chars, HALF_LENGTH + 1, LENGTH, leastSignificantBits);
+    chars[HALF_LENGTH] = SEPARATOR;
+    return new String(chars);
+  }
+
+  private static void formatBits(char @NonNull [] chars, int start, int end, long bits) {
+    long value = bits;
+    for (int i = end - 1; i >= start; i--) {
+      if (isSeparatorIndex(i)) {
+        chars[i] = SEPARATOR;
+      } else {
+        chars[i] = Character.forDigit((int) (value & (HEX_RADIX - 1)), HEX_RADIX);
+        value >>>= HEX_BITS;
+      }
+    }
+  }
+}
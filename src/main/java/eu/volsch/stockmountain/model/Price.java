@@ -25,23 +25,30 @@
 
 package eu.volsch.stockmountain.model;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.math.BigDecimal;
-import java.util.Objects;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 /**
- * Contains the price as value and currency.
+ * Contains the price as value and currency. Calculations should be made with the compact
+ * {@linkplain #toMoney() amount of money} of the price.
  */
 public final class Price implements Comparable<Price> {
 
   private final @NonNull BigDecimal value;
   private final @NonNull String currency;
+  @SuppressFBWarnings("JCIP_FIELD_ISNT_FINAL_IN_IMMUTABLE_CLASS")
+  private int cachedHashCode;
 
   public Price(@NonNull BigDecimal value, @NonNull String currency) {
     this.value = value;
     this.currency = currency;
   }
 
+  public Price(@NonNull Money money) {
+    this(money.toBigDecimal(), money.getCurrency());
+  }
+
   public @NonNull BigDecimal getValue() {
     return value;
   }
@@ -50,6 +57,17 @@ public final class Price implements Comparable<Price> {
     return currency;
   }
 
+  /**
+   * Returns the compact amount of money of this price.
+   *
+   * @return the compact amount of money of this price.
+   * @throws IllegalArgumentException thrown if the currency does not consist of three upper-case
+   *                                  US-ASCII letters.
+   */
+  public @NonNull Money toMoney() throws IllegalArgumentException {
+    return Money.of(value, currency);
+  }
+
   @Override
   public int compareTo(@NonNull Price o) {
     final int result = currency.compareTo(o.currency);
@@ -73,7 +91,14 @@ public final class Price implements Comparable<Price> {
 
   @Override
   public int hashCode() {
-    return Objects.hash(value.doubleValue(), currency);
+    if (cachedHashCode == 0) {
+      cachedHashCode = calcHashCode();
+    }
+    return cachedHashCode;
+  }
+
+  private int calcHashCode() {
+    return 31 * Money.valueHashCode(value) + currency.hashCode();
   }
 
   @Override
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Transaction;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Transaction that has been read from a {@linkplain TransactionJournal journal} together with its
+ * position in the journal.
+ */
+@Immutable
+@ThreadSafe
+public final class JournalEntry {
+
+  private final long position;
+  private final long nextPosition;
+  private final @NonNull Transaction transaction;
+
+  JournalEntry(long position, long nextPosition, @NonNull Transaction transaction) {
+    this.position = position;
+    this.nextPosition = nextPosition;
+    this.transaction = requireNonNull(transaction);
+  }
+
+  /**
+   * Returns the position of the entry in the journal.
+   *
+   * @return the position of the entry.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the position of the entry that follows this entry.
+   *
+   * @return the position of the following entry.
+   */
+  public long getNextPosition() {
+    return nextPosition;
+  }
+
+  public @NonNull Transaction getTransaction() {
+    return transaction;
+  }
+
+  @Override
+  public @NonNull String toString() {
+    return "JournalEntry{position=" + position + ", nextPosition=" + nextPosition
+        + ", transaction=" + transaction + '}';
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stores compact {@linkplain TransactionSnapshot snapshots} of all transactions in a directory, so
+ * that a restarted process does not have to replay the complete {@linkplain TransactionJournal
+ * journal}. Each snapshot records the position of the journal up to which it contains the
+ * transactions. When a snapshot is written, superseded versions of the transactions are dropped
+ * (compaction) and only the newest snapshots are retained.
+ *
+ * <p>Recovery memory-maps the newest valid snapshot and applies only the journal entries after
+ * its position. A snapshot that is damaged (checksum mismatch) or that lies beyond the end of the
+ * journal (e.g. the torn tail of the journal has been truncated) is skipped in favor of an older
+ * snapshot. {@link #compact(TransactionJournal)} should be invoked periodically (e.g. daily or
+ * after a number of appended entries) to keep the replayed part of the journal short.
+ *
+ * <p>A snapshot file consists of a header with magic number, version, position, number of
+ * transactions and the CRC-32 checksum of the body, followed by the length-prefixed
+ * {@linkplain TransactionEncoding encoded} transactions ordered by their IDs.
+ */
+@ThreadSafe
+public final class SnapshotStore {
+
+  /**
+   * The number of snapshots that are retained when a new snapshot has been written.
+   */
+  public static final int RETAINED_SNAPSHOT_COUNT = 2;
+
+  private static final String FILE_PREFIX = "snapshot-";
+  private static final String FILE_SUFFIX = ".snap";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final int MAGIC = 0x534d534e;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 24;
+  private static final int MAX_ENTRY_SIZE = 1 << 20;
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private final @NonNull Path directory;
+  private final Object writeLock = new Object();
+
+  /**
+   * Creates a store of the snapshots in the specified directory. The directory is created if it
+   * does not exist.
+   *
+   * @param directory the directory of the snapshots.
+   * @throws IOException thrown if the directory cannot be created.
+   */
+  public SnapshotStore(@NonNull Path directory) throws IOException {
+    this.directory = Files.createDirectories(requireNonNull(directory));
+  }
+
+  /**
+   * Writes a snapshot of the specified transactions. If the transactions contain several versions
+   * of a transaction, only the last one is included. Snapshots that exceed the number of
+   * {@linkplain #RETAINED_SNAPSHOT_COUNT retained snapshots} are deleted afterwards, but only after
+   * the directory has been forced, so that a crash cannot lose the new snapshot together with the
+   * older ones.
+   *
+   * @param position     the position of the journal up to which the transactions are included.
+   * @param transactions the transactions in the order in which they have been journaled.
+   * @return the written snapshot.
+   * @throws IOException              thrown if the snapshot cannot be written.
+   * @throws IllegalArgumentException thrown if the position is before the start of a journal.
+   */
+  public @NonNull TransactionSnapshot write(long position,
+      @NonNull Iterable<? extends Transaction> transactions)
+      throws IOException, IllegalArgumentException {
+    if (position < TransactionJournal.START_POSITION) {
+      throw new IllegalArgumentException("Invalid position: " + position);
+    }
+    final TreeMap<Long, Transaction> latest = new TreeMap<>();
+    for (final Transaction transaction : transactions) {
+      latest.put(transaction.getId(), transaction);
+    }
+    final TransactionSnapshot snapshot =
+        new TransactionSnapshot(position, new ArrayList<>(latest.values()));
+
+    synchronized (writeLock) {
+      final Path file = directory.resolve(fileName(position));
+      final Path tempFile = directory.resolve(fileName(position) + TEMP_SUFFIX);
+      try {
+        writeFile(tempFile, snapshot);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+      // the rename must be durable before older snapshots are deleted
+      forceDirectory();
+      final List<Path> files = listFiles();
+      for (int i = RETAINED_SNAPSHOT_COUNT; i < files.size(); i++) {
+        Files.deleteIfExists(files.get(i));
+      }
+    }
+    return snapshot;
+  }
+
+  private static void writeFile(@NonNull Path file, @NonNull TransactionSnapshot snapshot)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      channel.position(HEADER_SIZE);
+      final CRC32 crc = new CRC32();
+      // the channel must not be closed by the stream, since the header is written afterwards
+      final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+          new CheckedOutputStream(Channels.newOutputStream(channel), crc), WRITE_BUFFER_SIZE));
+      final ByteArrayOutputStream entry = new ByteArrayOutputStream(256);
+      for (final Transaction transaction : snapshot.getTransactions()) {
+        entry.reset();
+        TransactionEncoding.write(new DataOutputStream(entry), transaction);
+        output.writeInt(entry.size());
+        entry.writeTo(output);
+      }
+      output.flush();
+
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+          .putInt(MAGIC)
+          .putInt(VERSION)
+          .putLong(snapshot.getPosition())
+          .putInt(snapshot.size())
+          .putInt((int) crc.getValue())
+          .flip();
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      channel.force(true);
+    }
+  }
+
+  private void forceDirectory() throws IOException {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Loads the newest valid snapshot with a position that does not exceed the specified position.
+   *
+   * @param maxPosition the maximum position of the snapshot (e.g. the end of the journal).
+   * @return the snapshot or <code>null</code> if there is no such valid snapshot.
+   * @throws IOException thrown if the directory cannot be listed.
+   */
+  public @Nullable TransactionSnapshot loadLatest(long maxPosition) throws IOException {
+    for (final Path file : listFiles()) {
+      final long position = parsePosition(file);
+      if (position <= maxPosition) {
+        try {
+          return read(file, position);
+        } catch (IOException e) {
+          // damaged snapshots are skipped in favor of an older snapshot
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Recovers the transactions from the newest valid snapshot and the journal entries after it.
+   *
+   * @param journal the journal of the transactions.
+   * @return the recovered state.
+   * @throws IOException thrown if the snapshots or the journal cannot be read.
+   */
+  public @NonNull RecoveredState recover(@NonNull TransactionJournal journal) throws IOException {
+    final long end = journal.getEndPosition();
+    final TransactionSnapshot snapshot = loadLatest(end);
+    final long snapshotPosition =
+        snapshot == null ? TransactionJournal.START_POSITION : snapshot.getPosition();
+    final Map<Long, Transaction> latest = new TreeMap<>();
+    if (snapshot != null) {
+      snapshot.getTransactions().forEach(t -> latest.put(t.getId(), t));
+    }
+
+    long position = snapshotPosition;
+    long replayedEntryCount = 0;
+    try (Stream<JournalEntry> entries = journal.readFrom(snapshotPosition)) {
+      for (final JournalEntry entry : (Iterable<JournalEntry>) entries::iterator) {
+        if (entry.getNextPosition() > end) {
+          break;
+        }
+        latest.put(entry.getTransaction().getId(), entry.getTransaction());
+        position = entry.getNextPosition();
+        replayedEntryCount++;
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new RecoveredState(snapshotPosition, position, replayedEntryCount,
+        new ArrayList<>(latest.values()));
+  }
+
+  /**
+   * Writes a new snapshot that includes all durable entries of the journal. The new snapshot is
+   * built incrementally from the newest snapshot. No snapshot is written if the newest snapshot
+   * already includes all entries.
+   *
+   * @param journal the journal of the transactions.
+   * @return the recovered state that has been written as snapshot.
+   * @throws IOException thrown if the snapshots or the journal cannot be read or the snapshot
+   *                     cannot be written.
+   */
+  public @NonNull RecoveredState compact(@NonNull TransactionJournal journal) throws IOException {
+    final RecoveredState state = recover(journal);
+    if (state.getReplayedEntryCount() > 0
+        || state.getSnapshotPosition() == TransactionJournal.START_POSITION) {
+      write(state.getPosition(), state.getTransactions());
+    }
+    return state;
+  }
+
+  /**
+   * Returns the snapshot files ordered from the newest to the oldest one.
+   */
+  @NonNull List<Path> listFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> {
+            final String name = file.getFileName().toString();
+            return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+          })
+          .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static @NonNull String fileName(long position) {
+    // fixed-width hexadecimal positions are ordered by their names
+    return String.format("%s%016x%s", FILE_PREFIX, position, FILE_SUFFIX);
+  }
+
+  private static long parsePosition(@NonNull Path file) {
+    final String name = requireNonNull(file.getFileName()).toString();
+    try {
+      return Long.parseUnsignedLong(
+          name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()), 16);
+    } catch (NumberFormatException e) {
+      return Long.MAX_VALUE;
+    }
+  }
+
+  static @NonNull TransactionSnapshot read(@NonNull Path file, long position)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+          throw new IOException("File is no snapshot of version " + VERSION + ": " + file);
+        }
+        if (buffer.getLong() != position) {
+          throw new IOException("Position of snapshot does not match its name: " + file);
+        }
+        final int count = buffer.getInt();
+        final int checksum = buffer.getInt();
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != checksum) {
+          throw new IOException("Checksum of snapshot does not match: " + file);
+        }
+
+        final List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          final int length = buffer.getInt();
+          if (length <= 0 || length > MAX_ENTRY_SIZE) {
+            throw new IOException("Invalid entry length in snapshot: " + file);
+          }
+          final byte[] payload = new byte[length];
+          buffer.get(payload);
+          transactions.add(TransactionEncoding.read(
+              new DataInputStream(new ByteArrayInputStream(payload))));
+        }
+        return new TransactionSnapshot(position, transactions);
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Snapshot is incomplete: " + file, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import eu.volsch.stockmountain.model.AbstractSimpleTransaction.AbstractSimpleTransactionBuilder;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction.SimplePurchaseTransactionBuilder;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Encodes all properties of a {@linkplain Transaction transaction} in a simple binary format that
+ * is used by the persistent files. The encoding starts with a format version, so that entries of
+ * older versions can still be decoded when the format changes. Since version 2 the lot state of
+ * purchases (remaining quantity and last split date) is included.
+ *
+ * <p>Each transaction is encoded on its own, so that a single journal entry can be decoded after
+ * its checksum has been verified and a torn entry does not affect any other entry. The more compact
+ * {@linkplain eu.volsch.stockmountain.codec.TransactionEncoder codec} is not used by the persistent
+ * files, since it encodes IDs and dates as deltas and strings by a dictionary of the complete
+ * stream, so that an entry cannot be decoded without all preceding entries.</p>
+ */
+final class TransactionEncoding {
+
+  static final int FORMAT_VERSION = 2;
+
+  private static final int LOT_STATE_FORMAT_VERSION = 2;
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  private static final int FICTIONAL_FLAG = 1;
+  private static final long NO_TIME = -1;
+  private static final int MAX_DECIMAL_LENGTH = 1024;
+
+  private TransactionEncoding() {
+  }
+
+  static void write(@NonNull DataOutput output, @NonNull Transaction transaction)
+      throws IOException {
+    output.writeByte(FORMAT_VERSION);
+    output.writeByte(transaction.getType().ordinal());
+    output.writeByte(transaction.isFictional() ? FICTIONAL_FLAG : 0);
+    output.writeLong(transaction.getId());
+    output.writeInt(transaction.getVersion());
+    output.writeLong(transaction.getDate().toEpochDay());
+    final LocalTime time = transaction.getTime();
+    output.writeLong(time == null ? NO_TIME : time.toNanoOfDay());
+    output.writeUTF(transaction.getIsin());
+    writeString(output, transaction.getTickerSymbol());
+    output.writeUTF(transaction.getName());
+    writeString(output, transaction.getSecuritiesExchange());
+    writeDecimal(output, transaction.getQuantity());
+    writePrice(output, transaction.getLocalPrice());
+    writePrice(output, transaction.getLocalValue());
+    writeNullableDecimal(output, transaction.getExchangeRate());
+    writePrice(output, transaction.getValue());
+    writePrice(output, transaction.getCommission());
+    writePrice(output, transaction.getTotal());
+    writeString(output, transaction.getOrderId());
+    writeString(output, transaction.getTransactionId());
+    if (transaction.getType() == TransactionType.PURCHASE) {
+      final PurchaseTransaction purchase = (PurchaseTransaction) transaction;
+      writeNullableDecimal(output, purchase.getRemainingQuantity());
+      final LocalDate lastSplitDate = purchase.getLastSplitDate();
+      output.writeLong(lastSplitDate == null ? NO_DATE : lastSplitDate.toEpochDay());
+    }
+  }
+
+  static @NonNull Transaction read(@NonNull DataInput input) throws IOException {
+    final int formatVersion = input.readUnsignedByte();
+    if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+      throw new IOException("Unsupported format version: " + formatVersion);
+    }
+    final int typeOrdinal = input.readUnsignedByte();
+    final AbstractSimpleTransactionBuilder<?, ?> builder;
+    SimplePurchaseTransactionBuilder<?, ?> purchaseBuilder = null;
+    if (typeOrdinal == TransactionType.PURCHASE.ordinal()) {
+      purchaseBuilder = SimplePurchaseTransaction.builder();
+      builder = purchaseBuilder;
+    } else if (typeOrdinal == TransactionType.SALE.ordinal()) {
+      builder = SimpleSaleTransaction.builder();
+    } else {
+      throw new IOException("Invalid transaction type: " + typeOrdinal);
+    }
+    builder.fictional((input.readUnsignedByte() & FICTIONAL_FLAG) != 0);
+    builder.id(input.readLong());
+    builder.version(input.readInt());
+    builder.date(LocalDate.ofEpochDay(input.readLong()));
+    final long nanoOfDay = input.readLong();
+    builder.time(nanoOfDay == NO_TIME ? null : LocalTime.ofNanoOfDay(nanoOfDay));
+    builder.isin(input.readUTF());
+    builder.tickerSymbol(readString(input));
+    builder.name(input.readUTF());
+    builder.securitiesExchange(readString(input));
+    builder.quantity(readDecimal(input));
+    builder.localPrice(readPrice(input));
+    builder.localValue(readPrice(input));
+    builder.exchangeRate(readNullableDecimal(input));
+    builder.value(readPrice(input));
+    builder.commission(readPrice(input));
+    final Price total = readPrice(input);
+    if (total == null) {
+      throw new IOException("Transaction has no total");
+    }
+    builder.total(total);
+    builder.orderId(readString(input));
+    builder.transactionId(readString(input));
+    if (purchaseBuilder != null && formatVersion >= LOT_STATE_FORMAT_VERSION) {
+      purchaseBuilder.remainingQuantity(readNullableDecimal(input));
+      final long lastSplitEpochDay = input.readLong();
+      purchaseBuilder.lastSplitDate(
+          lastSplitEpochDay == NO_DATE ? null : LocalDate.ofEpochDay(lastSplitEpochDay));
+    }
+    return builder.build();
+  }
+
+  private static void writeString(@NonNull DataOutput output, @Nullable String value)
+      throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeUTF(value);
+    }
+  }
+
+  private static @Nullable String readString(@NonNull DataInput input) throws IOException {
+    return input.readBoolean() ? input.readUTF() : null;
+  }
+
+  private static void writeDecimal(@NonNull DataOutput output, @NonNull BigDecimal value)
+      throws IOException {
+    final byte[] unscaledValue = value.unscaledValue().toByteArray();
+    output.writeInt(value.scale());
+    output.writeInt(unscaledValue.length);
+    output.write(unscaledValue);
+  }
+
+  private static @NonNull BigDecimal readDecimal(@NonNull DataInput input) throws IOException {
+    final int scale = input.readInt();
+    final int length = input.readInt();
+    if (length <= 0 || length > MAX_DECIMAL_LENGTH) {
+      throw new IOException("Invalid decimal length: " + length);
+    }
+    final byte[] unscaledValue = new byte[length];
+    input.readFully(unscaledValue);
+    return new BigDecimal(new BigInteger(unscaledValue), scale);
+  }
+
+  private static void writeNullableDecimal(@NonNull DataOutput output, @Nullable BigDecimal value)
+      throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      writeDecimal(output, value);
+    }
+  }
+
+  private static @Nullable BigDecimal readNullableDecimal(@NonNull DataInput input)
+      throws IOException {
+    return input.readBoolean() ? readDecimal(input) : null;
+  }
+
+  private static void writePrice(@NonNull DataOutput output, @Nullable Price price)
+      throws IOException {
+    output.writeBoolean(price != null);
+    if (price != null) {
+      writeDecimal(output, price.getValue());
+      output.writeUTF(price.getCurrency());
+    }
+  }
+
+  private static @Nullable Price readPrice(@NonNull DataInput input) throws IOException {
+    if (!input.readBoolean()) {
+      return null;
+    }
+    final BigDecimal value = readDecimal(input);
+    return new Price(value, input.readUTF());
+  }
+}
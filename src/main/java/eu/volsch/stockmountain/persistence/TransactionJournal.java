@@ -0,0 +1,478 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import static java.util.Objects.requireNonNull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Append-only journal of transactions. Each entry consists of the length of its payload, the
+ * CRC-32 checksum of its payload and the {@linkplain TransactionEncoding encoded} transaction. The
+ * journal records the transactions as they are passed, so that the caller is responsible for
+ * incrementing the {@linkplain Transaction#getVersion() versions} of updated transactions.
+ *
+ * <p>Appending returns after the entries have been forced to the storage device. Entries that are
+ * appended concurrently are written and forced together by the first waiting writer (group
+ * commit), so that the number of synchronizations does not grow with the number of writers and the
+ * throughput is bounded by the sequential bandwidth of the device. If writing fails, the journal
+ * rejects all further appends, since the state of its end is unknown.
+ *
+ * <p>When the journal is opened, it is scanned and a torn tail (an incomplete entry or an entry
+ * with an invalid checksum that results from a crash while writing) is truncated.
+ */
+@ThreadSafe
+public final class TransactionJournal implements Closeable {
+
+  /**
+   * The position of the first entry of a journal.
+   */
+  public static final long START_POSITION = 8;
+
+  private static final int MAGIC = 0x534d4a4c;
+  private static final int VERSION = 1;
+  private static final int ENTRY_HEADER_SIZE = 8;
+  private static final int MAX_PAYLOAD_SIZE = 1 << 20;
+  private static final int READ_BUFFER_SIZE = 1 << 16;
+
+  private final @NonNull Path file;
+  private final @NonNull FileChannel channel;
+  private final @NonNegative long truncatedByteCount;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition durableCondition = lock.newCondition();
+  @GuardedBy("lock")
+  private final List<ByteBuffer> pendingEntries = new ArrayList<>();
+  @GuardedBy("lock")
+  private long endPosition;
+  @GuardedBy("lock")
+  private long durablePosition;
+  @GuardedBy("lock")
+  private long syncCount;
+  @GuardedBy("lock")
+  private boolean flushing;
+  @GuardedBy("lock")
+  private boolean closed;
+  @GuardedBy("lock")
+  private @Nullable IOException failure;
+
+  private TransactionJournal(@NonNull Path file, @NonNull FileChannel channel, long endPosition,
+      @NonNegative long truncatedByteCount) {
+    this.file = file;
+    this.channel = channel;
+    this.endPosition = endPosition;
+    this.durablePosition = endPosition;
+    this.truncatedByteCount = truncatedByteCount;
+  }
+
+  /**
+   * Opens the journal in the specified file and creates the file if it does not exist. A torn
+   * tail of the journal is truncated.
+   *
+   * @param file the file of the journal.
+   * @return the opened journal.
+   * @throws IOException thrown if the file cannot be opened or is no journal.
+   */
+  public static @NonNull TransactionJournal open(@NonNull Path file) throws IOException {
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      final long size = channel.size();
+      if (size < START_POSITION) {
+        final ByteBuffer header = ByteBuffer.allocate((int) START_POSITION)
+            .putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        writeFully(channel, header, 0);
+        channel.force(true);
+        return new TransactionJournal(file, channel, START_POSITION, size);
+      }
+
+      final ByteBuffer header = ByteBuffer.allocate((int) START_POSITION);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          throw new EOFException("Header of journal is incomplete: " + file);
+        }
+      }
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException("File is no transaction journal of version " + VERSION + ": "
+            + file);
+      }
+      final long validEnd = scanValidEnd(file, size);
+      if (validEnd < size) {
+        channel.truncate(validEnd);
+        channel.force(true);
+      }
+      return new TransactionJournal(file, channel, validEnd, size - validEnd);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static long scanValidEnd(@NonNull Path file, long size) throws IOException {
+    try (EntryReader reader = new EntryReader(file, START_POSITION, size)) {
+      long position = START_POSITION;
+      while (reader.skipValidEntry()) {
+        position = reader.position;
+      }
+      return position;
+    }
+  }
+
+  /**
+   * Returns the number of bytes of the torn tail that has been truncated when the journal has been
+   * opened.
+   *
+   * @return the number of truncated bytes.
+   */
+  public @NonNegative long getTruncatedByteCount() {
+    return truncatedByteCount;
+  }
+
+  /**
+   * Returns the position after the last entry that has been forced to the storage device.
+   *
+   * @return the end position of the durable entries.
+   */
+  public long getEndPosition() {
+    lock.lock();
+    try {
+      return durablePosition;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of times the appended entries have been forced to the storage device.
+   *
+   * @return the number of synchronizations.
+   */
+  public long getSyncCount() {
+    lock.lock();
+    try {
+      return syncCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Appends the specified transaction and waits until it has been forced to the storage device.
+   *
+   * @param transaction the transaction that should be appended.
+   * @return the position of the entry of the transaction.
+   * @throws IOException           thrown if the entry cannot be written or writing of the journal
+   *                               failed before.
+   * @throws IllegalStateException thrown if the journal has been closed.
+   */
+  public long append(@NonNull Transaction transaction) throws IOException, IllegalStateException {
+    return appendAll(List.of(transaction))[0];
+  }
+
+  /**
+   * Appends the specified transactions in their order and waits until they have been forced to
+   * the storage device.
+   *
+   * @param transactions the transactions that should be appended.
+   * @return the positions of the entries of the transactions.
+   * @throws IOException           thrown if the entries cannot be written or writing of the
+   *                               journal failed before.
+   * @throws IllegalStateException thrown if the journal has been closed.
+   */
+  public long @NonNull [] appendAll(@NonNull Collection<? extends Transaction> transactions)
+      throws IOException, IllegalStateException {
+    final List<ByteBuffer> entries = new ArrayList<>(transactions.size());
+    for (final Transaction transaction : transactions) {
+      entries.add(encode(transaction));
+    }
+
+    final long[] positions = new long[entries.size()];
+    lock.lock();
+    try {
+      checkWritable();
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = endPosition;
+        endPosition += entries.get(i).remaining();
+        pendingEntries.add(entries.get(i));
+      }
+      awaitDurable(endPosition);
+    } finally {
+      lock.unlock();
+    }
+    return positions;
+  }
+
+  @GuardedBy("lock")
+  private void awaitDurable(long position) throws IOException {
+    while (durablePosition < position) {
+      if (failure != null) {
+        throw new IOException("Writing of journal failed before: " + file, failure);
+      }
+      if (flushing) {
+        durableCondition.awaitUninterruptibly();
+      } else {
+        flushPending();
+      }
+    }
+  }
+
+  /**
+   * Writes and forces the pending entries. The lock is released while the entries are written and
+   * is held again when the method returns.
+   */
+  @GuardedBy("lock")
+  @SuppressFBWarnings({"UL_UNRELEASED_LOCK", "UL_UNRELEASED_LOCK_EXCEPTION_PATH"})
+  private void flushPending() {
+    final ByteBuffer[] batch = pendingEntries.toArray(new ByteBuffer[0]);
+    final long batchStart = durablePosition;
+    final long batchEnd = endPosition;
+    pendingEntries.clear();
+    flushing = true;
+    IOException error = null;
+    lock.unlock();
+    try {
+      long position = batchStart;
+      for (final ByteBuffer entry : batch) {
+        position += writeFully(channel, entry, position);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      error = e;
+    } finally {
+      lock.lock();
+    }
+    flushing = false;
+    if (error == null) {
+      durablePosition = batchEnd;
+      syncCount++;
+    } else {
+      failure = error;
+    }
+    durableCondition.signalAll();
+  }
+
+  @GuardedBy("lock")
+  private void checkWritable() throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Journal has been closed: " + file);
+    }
+    if (failure != null) {
+      throw new IOException("Writing of journal failed before: " + file, failure);
+    }
+  }
+
+  private static @NonNull ByteBuffer encode(@NonNull Transaction transaction) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      // the entry header is written when the size and checksum of the payload are known
+      output.writeLong(0);
+      TransactionEncoding.write(output, transaction);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Transaction cannot be encoded", e);
+    }
+    final ByteBuffer entry = ByteBuffer.wrap(bytes.toByteArray());
+    final int payloadSize = entry.remaining() - ENTRY_HEADER_SIZE;
+    if (payloadSize > MAX_PAYLOAD_SIZE) {
+      throw new IllegalArgumentException("Transaction is too large: " + payloadSize);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(entry.duplicate().position(ENTRY_HEADER_SIZE));
+    entry.putInt(0, payloadSize);
+    entry.putInt(4, (int) crc.getValue());
+    return entry;
+  }
+
+  private static int writeFully(@NonNull FileChannel channel, @NonNull ByteBuffer buffer,
+      long position) throws IOException {
+    final int size = buffer.remaining();
+    int written = 0;
+    while (written < size) {
+      written += channel.write(buffer, position + written);
+    }
+    return size;
+  }
+
+  /**
+   * Reads the durable entries from the specified position. The returned stream must be closed.
+   * Stream operations throw an {@link UncheckedIOException} if an entry cannot be read.
+   *
+   * @param position the position of the first entry that should be read (e.g. the next position
+   *                 of an entry that has been read before).
+   * @return the stream of the entries.
+   * @throws IOException              thrown if the journal cannot be read.
+   * @throws IllegalArgumentException thrown if the position is outside the durable entries.
+   */
+  public @NonNull Stream<JournalEntry> readFrom(long position)
+      throws IOException, IllegalArgumentException {
+    final long end = getEndPosition();
+    if (position < START_POSITION || position > end) {
+      throw new IllegalArgumentException("Invalid position: " + position);
+    }
+    final EntryReader reader = new EntryReader(file, position, end);
+    return StreamSupport.stream(reader, false).onClose(reader::close);
+  }
+
+  /**
+   * Closes the journal after the entries that are currently written have been forced. Entries that
+   * are pending are not written.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      closed = true;
+      while (flushing) {
+        durableCondition.awaitUninterruptibly();
+      }
+      if (failure == null && !pendingEntries.isEmpty()) {
+        failure = new IOException("Journal has been closed: " + file);
+        durableCondition.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+    channel.close();
+  }
+
+  /**
+   * Reads the entries of a journal sequentially with a separate channel.
+   */
+  @NotThreadSafe
+  private static final class EntryReader extends AbstractSpliterator<JournalEntry>
+      implements Closeable {
+
+    private final @NonNull FileChannel readChannel;
+    private final @NonNull DataInputStream input;
+    private final long end;
+    private long position;
+
+    EntryReader(@NonNull Path file, long position, long end) throws IOException {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+      this.readChannel = FileChannel.open(file, StandardOpenOption.READ);
+      this.input = new DataInputStream(new BufferedInputStream(
+          Channels.newInputStream(readChannel.position(position)), READ_BUFFER_SIZE));
+      this.position = position;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(@NonNull Consumer<? super JournalEntry> action) {
+      if (position >= end) {
+        return false;
+      }
+      try {
+        final byte[] payload = readPayload();
+        if (payload == null) {
+          throw new IOException("Journal entry is invalid at position " + position);
+        }
+        final Transaction transaction = TransactionEncoding.read(
+            new DataInputStream(new ByteArrayInputStream(payload)));
+        final long nextPosition = position + ENTRY_HEADER_SIZE + payload.length;
+        action.accept(new JournalEntry(position, nextPosition, transaction));
+        position = nextPosition;
+        return true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Skips the next entry if it is complete and valid.
+     *
+     * @return if a valid entry has been skipped.
+     */
+    boolean skipValidEntry() throws IOException {
+      if (end - position < ENTRY_HEADER_SIZE) {
+        return false;
+      }
+      final byte[] payload = readPayload();
+      if (payload == null) {
+        return false;
+      }
+      position += ENTRY_HEADER_SIZE + payload.length;
+      return true;
+    }
+
+    private byte @Nullable [] readPayload() throws IOException {
+      final int length = input.readInt();
+      final int checksum = input.readInt();
+      if (length <= 0 || length > MAX_PAYLOAD_SIZE
+          || length > end - position - ENTRY_HEADER_SIZE) {
+        return null;
+      }
+      final byte[] payload = new byte[length];
+      try {
+        input.readFully(payload);
+      } catch (EOFException e) {
+        return null;
+      }
+      final CRC32 crc = new CRC32();
+      crc.update(payload);
+      return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    @Override
+    public void close() {
+      try {
+        readChannel.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.util.List;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Compact state of all transactions up to a position of a {@linkplain TransactionJournal journal}.
+ * The snapshot contains only the latest version of each transaction, including the remaining
+ * quantities and split state of purchases.
+ */
+@Immutable
+@ThreadSafe
+public final class TransactionSnapshot {
+
+  private final long position;
+  private final @NonNull List<Transaction> transactions;
+
+  TransactionSnapshot(long position, @NonNull List<Transaction> transactions) {
+    this.position = position;
+    this.transactions = List.copyOf(transactions);
+  }
+
+  /**
+   * Returns the position of the journal up to which the snapshot contains the transactions. Only
+   * the entries from this position must be applied to the snapshot.
+   *
+   * @return the position in the journal.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the latest versions of the transactions.
+   *
+   * @return the transactions ordered by their IDs.
+   */
+  public @NonNull List<Transaction> getTransactions() {
+    return transactions;
+  }
+
+  public @NonNegative int size() {
+    return transactions.size();
+  }
+
+  @Override
+  public @NonNull String toString() {
+    return "TransactionSnapshot{position=" + position + ", size=" + transactions.size() + '}';
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.SimpleField;
+import eu.volsch.stockmountain.extraction.conversion.StringConverter;
+import eu.volsch.stockmountain.extraction.conversion.StringToBigDecimalConvertor;
+import eu.volsch.stockmountain.extraction.conversion.StringToCurrencyConverter;
+import eu.volsch.stockmountain.extraction.conversion.StringToLocalDateConverter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Fields of a local CSV file with daily close prices. The file starts with a header row and
+ * contains a row per security and day (e.g. <code>2022-12-16,US0231351067,90.86,USD</code>).
+ */
+public final class ClosePriceFields {
+
+  public static final Field<LocalDate> DATE = new SimpleField<>("DATE", 0, LocalDate.class, false,
+      new StringToLocalDateConverter(DateTimeFormatter.ISO_LOCAL_DATE));
+  public static final Field<String> ISIN = new SimpleField<>("ISIN", 1, String.class, false,
+      StringConverter.INSTANCE);
+  public static final Field<BigDecimal> CLOSE = new SimpleField<>("CLOSE", 2, BigDecimal.class,
+      false, StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE);
+  public static final Field<String> CURRENCY = new SimpleField<>("CURRENCY", 3, String.class,
+      false, StringToCurrencyConverter.INSTANCE);
+
+  private static final Set<Field<?>> FIELDS = Set.of(DATE, ISIN, CLOSE, CURRENCY);
+
+  /**
+   * Returns a set of these fields.
+   *
+   * @return set of these fields.
+   */
+  @SuppressWarnings("java:S1452")
+  public static @NonNull Set<Field<?>> fields() {
+    return FIELDS;
+  }
+
+  private ClosePriceFields() {
+  }
+}
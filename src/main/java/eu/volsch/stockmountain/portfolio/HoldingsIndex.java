@@ -0,0 +1,294 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Answers which securities have been held at a date. The index stores compact checkpoints of all
+ * positions every configured number of transactions and at the end of each month. A query loads
+ * the nearest checkpoint before the date and applies only the following transactions up to the
+ * date, so that the cost of a query is bounded by the checkpoint interval and not by the length
+ * of the history.
+ *
+ * <p>The cost basis of a position is the average cost: a purchase adds its total amount and a sale
+ * removes the share of the cost basis that corresponds to the sold quantity. Fictional
+ * transactions (e.g. of splits) change the quantity only.</p>
+ *
+ * <p>The index refers to the history list, which must be ordered by the IDs (and thereby the dates)
+ * of the transactions. Transactions that are appended to the list later are indexed by
+ * {@link #refresh()}. Other changes of the list require a new index.</p>
+ */
+@NotThreadSafe
+public final class HoldingsIndex {
+
+  private final @NonNull List<? extends Transaction> history;
+  private final @Positive int interval;
+  private final List<Checkpoint> checkpoints = new ArrayList<>();
+  private final Map<String, RunningPosition> positions = new HashMap<>();
+  private int[] epochDays = new int[0];
+  private @NonNegative int size;
+
+  /**
+   * Creates an index of the specified history.
+   *
+   * @param history  the history ordered by the IDs of the transactions.
+   * @param interval the maximum number of transactions between two checkpoints.
+   * @throws IllegalArgumentException thrown if the interval is not positive or the history is not
+   *                                  ordered by the dates of the transactions.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  public HoldingsIndex(@NonNull List<? extends Transaction> history, @Positive int interval)
+      throws IllegalArgumentException {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Interval must be positive: " + interval);
+    }
+    this.history = history;
+    this.interval = interval;
+    checkpoints.add(new Checkpoint(0, Map.of()));
+    refresh();
+  }
+
+  /**
+   * Indexes the transactions that have been appended to the history since the last refresh.
+   *
+   * @throws IllegalArgumentException thrown if the appended transactions are not ordered by their
+   *                                  dates.
+   */
+  public void refresh() throws IllegalArgumentException {
+    final int newSize = history.size();
+    if (newSize > epochDays.length) {
+      epochDays = Arrays.copyOf(epochDays, Math.max(newSize, epochDays.length * 2));
+    }
+    for (int i = size; i < newSize; i++) {
+      final Transaction transaction = history.get(i);
+      final int epochDay = Math.toIntExact(transaction.getDate().toEpochDay());
+      if (i > 0) {
+        final LocalDate previousDate = LocalDate.ofEpochDay(epochDays[i - 1]);
+        if (epochDay < epochDays[i - 1]) {
+          throw new IllegalArgumentException(
+              "History is not ordered by dates: " + transaction.getId());
+        }
+        if (i - lastCheckpoint().count >= interval
+            || previousDate.getMonthValue() != transaction.getDate().getMonthValue()
+            || previousDate.getYear() != transaction.getDate().getYear()) {
+          checkpoints.add(new Checkpoint(i, positions));
+        }
+      }
+      epochDays[i] = epochDay;
+      apply(positions, transaction);
+      size = i + 1;
+    }
+  }
+
+  /**
+   * Returns the number of stored checkpoints.
+   *
+   * @return the number of checkpoints.
+   */
+  public @Positive int getCheckpointCount() {
+    return checkpoints.size();
+  }
+
+  /**
+   * Returns all positions at the end of the specified date. Positions with a quantity of zero are
+   * not contained.
+   *
+   * @param date the date.
+   * @return the positions by the ISINs ordered by the ISINs.
+   */
+  public @NonNull Map<String, Position> getHoldings(@NonNull LocalDate date) {
+    return getHoldings(countUntil(Math.toIntExact(date.toEpochDay())));
+  }
+
+  /**
+   * Returns all positions after the specified number of transactions of the history. Positions
+   * with a quantity of zero are not contained.
+   *
+   * @param count the number of applied transactions of the history.
+   * @return the positions by the ISINs ordered by the ISINs.
+   * @throws IndexOutOfBoundsException thrown if the count exceeds the indexed transactions.
+   */
+  public @NonNull Map<String, Position> getHoldings(@NonNegative int count)
+      throws IndexOutOfBoundsException {
+    if (count < 0 || count > size) {
+      throw new IndexOutOfBoundsException("Invalid count: " + count);
+    }
+    final Checkpoint checkpoint = findCheckpoint(count);
+    final Map<String, RunningPosition> result = checkpoint.load();
+    for (int i = checkpoint.count; i < count; i++) {
+      apply(result, history.get(i));
+    }
+    final Map<String, Position> holdings = new TreeMap<>();
+    result.forEach((isin, position) -> {
+      if (position.quantity.signum() != 0) {
+        holdings.put(isin, new Position(isin, position.quantity,
+            new Price(position.cost, position.currency)));
+      }
+    });
+    return Collections.unmodifiableMap(holdings);
+  }
+
+  private @NonNull Checkpoint lastCheckpoint() {
+    return checkpoints.get(checkpoints.size() - 1);
+  }
+
+  /**
+   * Returns the number of transactions with a date before or at the specified epoch day.
+   */
+  private @NonNegative int countUntil(int epochDay) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (epochDays[middle] <= epochDay) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private @NonNull Checkpoint findCheckpoint(@NonNegative int count) {
+    int low = 0;
+    int high = checkpoints.size() - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (checkpoints.get(middle).count <= count) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return checkpoints.get(low);
+  }
+
+  private static void apply(@NonNull Map<String, RunningPosition> positions,
+      @NonNull Transaction transaction) {
+    final RunningPosition position = positions.computeIfAbsent(transaction.getIsin(),
+        isin -> new RunningPosition(transaction.getTotal().getCurrency()));
+    final BigDecimal quantity = transaction.getQuantity();
+    if (transaction.isFictional()) {
+      position.quantity = position.quantity.add(quantity);
+    } else if (transaction.getType() == TransactionType.PURCHASE) {
+      position.quantity = position.quantity.add(quantity);
+      position.cost = position.cost.subtract(transaction.getTotal().getValue());
+    } else {
+      final BigDecimal soldQuantity = quantity.negate();
+      if (soldQuantity.compareTo(position.quantity) >= 0) {
+        position.cost = BigDecimal.ZERO.setScale(position.cost.scale());
+      } else if (position.quantity.signum() > 0) {
+        position.cost = position.cost.subtract(position.cost.multiply(soldQuantity)
+            .divide(position.quantity, position.cost.scale(), RoundingMode.HALF_EVEN));
+      }
+      position.quantity = position.quantity.add(quantity);
+    }
+  }
+
+  /**
+   * Mutable position that is updated while transactions are applied.
+   */
+  @NotThreadSafe
+  private static final class RunningPosition {
+
+    private final @NonNull String currency;
+    private @NonNull BigDecimal quantity = BigDecimal.ZERO;
+    private @NonNull BigDecimal cost = BigDecimal.ZERO;
+
+    private RunningPosition(@NonNull String currency) {
+      this.currency = currency;
+    }
+
+    private RunningPosition(@NonNull String currency, @NonNull BigDecimal quantity,
+        @NonNull BigDecimal cost) {
+      this.currency = currency;
+      this.quantity = quantity;
+      this.cost = cost;
+    }
+  }
+
+  /**
+   * Positions after a number of transactions of the history. The positions are stored in parallel
+   * arrays. Positions without quantity and cost basis are omitted.
+   */
+  @Immutable
+  private static final class Checkpoint {
+
+    private final @NonNegative int count;
+    private final @NonNull String[] isins;
+    private final @NonNull String[] currencies;
+    private final @NonNull BigDecimal[] quantities;
+    private final @NonNull BigDecimal[] costs;
+
+    private Checkpoint(@NonNegative int count,
+        @NonNull Map<String, RunningPosition> positions) {
+      this.count = count;
+      final List<String> keptIsins = new ArrayList<>(positions.size());
+      positions.forEach((isin, position) -> {
+        if (position.quantity.signum() != 0 || position.cost.signum() != 0) {
+          keptIsins.add(isin);
+        }
+      });
+      isins = keptIsins.toArray(new String[0]);
+      currencies = new String[isins.length];
+      quantities = new BigDecimal[isins.length];
+      costs = new BigDecimal[isins.length];
+      for (int i = 0; i < isins.length; i++) {
+        final RunningPosition position = positions.get(isins[i]);
+        currencies[i] = position.currency;
+        quantities[i] = position.quantity;
+        costs[i] = position.cost;
+      }
+    }
+
+    private @NonNull Map<String, RunningPosition> load() {
+      final Map<String, RunningPosition> positions = new HashMap<>(isins.length * 2);
+      for (int i = 0; i < isins.length; i++) {
+        positions.put(isins[i], new RunningPosition(currencies[i], quantities[i], costs[i]));
+      }
+      return positions;
+    }
+  }
+}
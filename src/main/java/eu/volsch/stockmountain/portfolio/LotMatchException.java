@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Thrown if a transaction cannot be matched by a {@linkplain LotMatcher lot matcher}. The
+ * transactions before the invalid transaction have been processed and cannot be processed again,
+ * so that the exception contains the result of matching these transactions.
+ */
+public class LotMatchException extends IllegalArgumentException {
+
+  private final @NonNegative long transactionId;
+  private final transient @NonNull LotMatchResult partialResult;
+
+  /**
+   * Constructs the exception.
+   *
+   * @param transactionId the ID of the transaction that could not be matched.
+   * @param partialResult the result of matching the transactions before the invalid transaction.
+   * @param cause         the exception that describes the exact issue.
+   */
+  public LotMatchException(@NonNegative long transactionId, @NonNull LotMatchResult partialResult,
+      @NonNull IllegalArgumentException cause) {
+    super(cause.getMessage(), cause);
+    this.transactionId = transactionId;
+    this.partialResult = partialResult;
+  }
+
+  public @NonNegative long getTransactionId() {
+    return transactionId;
+  }
+
+  /**
+   * Returns the result of matching the transactions that have been processed before the invalid
+   * transaction. The invalid transaction and the following transactions have not been processed.
+   *
+   * @return the result of matching the processed transactions.
+   */
+  public @NonNull LotMatchResult getPartialResult() {
+    return partialResult;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Result of matching new transactions against the open purchase lots of a
+ * {@linkplain LotMatcher lot matcher}.
+ */
+@Immutable
+@ThreadSafe
+public final class LotMatchResult {
+
+  private final @NonNull List<@NonNull RealizedCost> realizedCosts;
+  private final @NonNull Map<Long, BigDecimal> remainingQuantities;
+
+  LotMatchResult(@NonNull List<@NonNull RealizedCost> realizedCosts,
+      @NonNull Map<Long, BigDecimal> remainingQuantities) {
+    this.realizedCosts = List.copyOf(realizedCosts);
+    this.remainingQuantities = Collections.unmodifiableMap(new TreeMap<>(remainingQuantities));
+  }
+
+  /**
+   * Returns the realized costs of all matched sales in the order of the sales and the matched
+   * purchase lots.
+   *
+   * @return the realized costs.
+   */
+  public @NonNull List<@NonNull RealizedCost> getRealizedCosts() {
+    return realizedCosts;
+  }
+
+  /**
+   * Returns the updated remaining quantities of all purchases that have been added or matched, by
+   * the IDs of the purchases in the order of the IDs.
+   *
+   * @return the updated remaining quantities by the IDs of the purchases.
+   * @see eu.volsch.stockmountain.model.PurchaseTransaction#getRemainingQuantity()
+   */
+  public @NonNull Map<Long, BigDecimal> getRemainingQuantities() {
+    return remainingQuantities;
+  }
+}
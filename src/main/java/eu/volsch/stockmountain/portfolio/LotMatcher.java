@@ -0,0 +1,382 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Matches {@linkplain SaleTransaction sales} against the open lots of
+ * {@linkplain PurchaseTransaction purchases} of the same ISIN by the first-in, first-out (FIFO)
+ * method. The open lots of each ISIN are kept in a queue, so that a sale consumes the oldest lots
+ * and each lot is removed at most once (amortized constant time per matched lot).
+ *
+ * <p>The matcher is incremental. It keeps the open lots of all previously processed transactions,
+ * so that only new transactions must be {@linkplain #process(Iterable) processed}. The
+ * transactions must be processed in the order of their IDs. A matcher can also be
+ * {@linkplain #restore(PurchaseTransaction) restored} from the stored remaining quantities of the
+ * purchases instead of processing the complete history again.</p>
+ *
+ * <p>Fictional transactions are skipped, since {@linkplain #applySplit(SplitEvent) splits} are
+ * applied to the open lots directly.</p>
+ */
+@NotThreadSafe
+public final class LotMatcher {
+
+  private final Map<String, ArrayDeque<Lot>> openLots = new HashMap<>();
+  private final Map<String, BigDecimal> openQuantities = new HashMap<>();
+  private final Map<String, Transaction> templates = new HashMap<>();
+  private final LotStateTable lotStates = new LotStateTable();
+  private long lastId = -1;
+
+  /**
+   * Processes the specified new transactions in the order of their IDs.
+   *
+   * @param transactions the new transactions ordered by their IDs.
+   * @return the realized costs of the sales and the updated remaining quantities of the purchases.
+   * @throws LotMatchException thrown if the ID of a transaction is not greater than the IDs of
+   *                            all previously processed transactions or if a sale exceeds the open
+   *                            quantity of its ISIN. All transactions before the invalid
+   *                            transaction have been processed and their result is contained in
+   *                            the exception.
+   */
+  public @NonNull LotMatchResult process(@NonNull Iterable<? extends Transaction> transactions)
+      throws LotMatchException {
+    final List<RealizedCost> realizedCosts = new ArrayList<>();
+    final Map<Long, BigDecimal> remainingQuantities = new TreeMap<>();
+    for (final Transaction transaction : transactions) {
+      try {
+        process(transaction, realizedCosts, remainingQuantities);
+      } catch (IllegalArgumentException e) {
+        throw new LotMatchException(transaction.getId(),
+            new LotMatchResult(realizedCosts, remainingQuantities), e);
+      }
+    }
+    return new LotMatchResult(realizedCosts, remainingQuantities);
+  }
+
+  /**
+   * Processes the specified transaction and adds its results. The state of the matcher is not
+   * changed if the transaction is invalid.
+   */
+  void process(@NonNull Transaction transaction, @NonNull List<RealizedCost> realizedCosts,
+      @NonNull Map<Long, BigDecimal> remainingQuantities) throws IllegalArgumentException {
+    checkId(transaction);
+    if (transaction.isFictional()) {
+      lastId = transaction.getId();
+      return;
+    }
+    final BigDecimal quantity = transaction.getQuantity();
+    if (transaction.getType() == TransactionType.PURCHASE) {
+      if (quantity.signum() <= 0) {
+        throw new IllegalArgumentException(
+            "Quantity of purchase must be positive: " + transaction.getId());
+      }
+      addLot(transaction, quantity, transaction.getTotal().getValue().negate(), null);
+      remainingQuantities.put(transaction.getId(), quantity);
+    } else {
+      final BigDecimal soldQuantity = quantity.negate();
+      if (soldQuantity.signum() <= 0) {
+        throw new IllegalArgumentException(
+            "Quantity of sale must be negative: " + transaction.getId());
+      }
+      if (soldQuantity.compareTo(getOpenQuantity(transaction.getIsin())) > 0) {
+        throw new IllegalArgumentException(
+            "Sale exceeds open quantity of " + transaction.getIsin() + ": " + transaction.getId());
+      }
+      match(transaction, soldQuantity, realizedCosts, remainingQuantities);
+    }
+    lastId = transaction.getId();
+  }
+
+  /**
+   * Restores an open lot from the stored remaining quantity of the specified purchase. The sales
+   * that have already reduced the remaining quantity must not be processed again. The purchase
+   * must not have a last split date.
+   *
+   * @param purchase the purchase with its stored remaining quantity.
+   * @throws IllegalArgumentException thrown if the ID of the purchase is not greater than the IDs
+   *                                  of all previously processed transactions or if a split has
+   *                                  been applied to the lot.
+   * @see #restore(PurchaseTransaction, Collection)
+   */
+  public void restore(@NonNull PurchaseTransaction purchase) throws IllegalArgumentException {
+    restore(purchase, List.of());
+  }
+
+  /**
+   * Restores an open lot from the stored remaining quantity of the specified purchase. The sales
+   * that have already reduced the remaining quantity must not be processed again. The remaining
+   * cost of the lot is derived from the quantity of the purchase adjusted by the splits that have
+   * been applied to the lot, i.e. the splits of its ISIN after the date of the purchase up to its
+   * last split date, since the remaining quantity is stated in units after these splits.
+   *
+   * @param purchase the purchase with its stored remaining quantity.
+   * @param splits   the splits in any order that include all splits that have been applied to the
+   *                 lot (e.g. all known splits). Each split must be included at most once.
+   * @throws IllegalArgumentException thrown if the ID of the purchase is not greater than the IDs
+   *                                  of all previously processed transactions or if the split at
+   *                                  the last split date of the purchase is not included.
+   */
+  public void restore(@NonNull PurchaseTransaction purchase,
+      @NonNull Collection<@NonNull SplitEvent> splits) throws IllegalArgumentException {
+    checkId(purchase);
+    final BigDecimal storedRemainingQuantity = purchase.getRemainingQuantity();
+    final BigDecimal remainingQuantity = storedRemainingQuantity == null
+        ? purchase.getQuantity() : storedRemainingQuantity;
+    if (remainingQuantity.signum() > 0) {
+      final BigDecimal adjustedQuantity = splitAdjustedQuantity(purchase, splits);
+      final BigDecimal remainingCost = purchase.getTotal().getValue().negate()
+          .multiply(remainingQuantity)
+          .divide(adjustedQuantity, purchase.getTotal().getValue().scale(),
+              RoundingMode.HALF_EVEN);
+      addLot(purchase, remainingQuantity, remainingCost, purchase.getLastSplitDate());
+    }
+    lastId = purchase.getId();
+  }
+
+  private static @NonNull BigDecimal splitAdjustedQuantity(@NonNull PurchaseTransaction purchase,
+      @NonNull Collection<@NonNull SplitEvent> splits) {
+    final LocalDate lastSplitDate = purchase.getLastSplitDate();
+    BigDecimal quantity = purchase.getQuantity();
+    if (lastSplitDate == null) {
+      return quantity;
+    }
+    boolean lastSplitIncluded = false;
+    for (final SplitEvent split : splits) {
+      // a split is applied before the first transaction at or after its date
+      if (split.getIsin().equals(purchase.getIsin()) && split.getDate().isAfter(purchase.getDate())
+          && !split.getDate().isAfter(lastSplitDate)) {
+        quantity = quantity.multiply(split.getRatio());
+        lastSplitIncluded |= split.getDate().equals(lastSplitDate);
+      }
+    }
+    if (!lastSplitIncluded) {
+      throw new IllegalArgumentException("Split of " + purchase.getIsin() + " at " + lastSplitDate
+          + " is required to restore lot: " + purchase.getId());
+    }
+    return quantity;
+  }
+
+  /**
+   * Applies a split to the open lots of the specified ISIN. The remaining quantities of the lots
+   * are multiplied by the ratio of the split and the date of the split is set as their last split
+   * date. Lots with a last split date at or after the date of the split are skipped, since the
+   * split or a later split has already been applied to them (e.g. restored lots or a repeated
+   * processing of the same splits). The remaining costs of the lots are not changed. Only the open
+   * lots of the ISIN are updated.
+   *
+   * @param split the split that should be applied.
+   * @return the open quantity of the lots to which the split has been applied before the split
+   *     (zero if the split has not been applied to any lot).
+   */
+  public @NonNull BigDecimal applySplit(@NonNull SplitEvent split) {
+    final String isin = split.getIsin();
+    final ArrayDeque<Lot> lots = openLots.get(isin);
+    if (lots == null || lots.isEmpty()) {
+      return BigDecimal.ZERO;
+    }
+    BigDecimal splitQuantity = BigDecimal.ZERO;
+    for (final Lot lot : lots) {
+      final LocalDate lastSplitDate = lotStates.getLastSplitDate(lot.index);
+      if (lastSplitDate == null || lastSplitDate.isBefore(split.getDate())) {
+        final BigDecimal remainingQuantity = requireNonNull(lotStates.getRemainingQuantity(
+            lot.index));
+        lotStates.setRemainingQuantity(lot.index, remainingQuantity.multiply(split.getRatio()));
+        lotStates.setLastSplitDate(lot.index, split.getDate());
+        splitQuantity = splitQuantity.add(remainingQuantity);
+      }
+    }
+    openQuantities.put(isin, getOpenQuantity(isin).subtract(splitQuantity)
+        .add(splitQuantity.multiply(split.getRatio())));
+    return splitQuantity;
+  }
+
+  /**
+   * Returns the open quantity of the specified ISIN, i.e. the sum of the remaining quantities of
+   * its open lots.
+   *
+   * @param isin the ISIN.
+   * @return the open quantity.
+   */
+  public @NonNull BigDecimal getOpenQuantity(@NonNull String isin) {
+    return openQuantities.getOrDefault(isin, BigDecimal.ZERO);
+  }
+
+  /**
+   * Returns the number of open lots of the specified ISIN.
+   *
+   * @param isin the ISIN.
+   * @return the number of open lots.
+   */
+  public int getOpenLotCount(@NonNull String isin) {
+    final ArrayDeque<Lot> lots = openLots.get(isin);
+    return lots == null ? 0 : lots.size();
+  }
+
+  /**
+   * Returns the state of the lots of all processed purchases. The remaining quantities of the
+   * purchases are updated in this table instead of creating copies of the purchases. A
+   * {@linkplain LotStateTable#snapshot() snapshot} of the table keeps the current state while
+   * further transactions are processed.
+   *
+   * @return the state of the lots.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  public @NonNull LotStateTable getLotStates() {
+    return lotStates;
+  }
+
+  /**
+   * Returns a view of the specified processed purchase with the current state of its lot.
+   *
+   * @param purchase the processed purchase.
+   * @return the view of the purchase.
+   * @see LotStateTable#view(PurchaseTransaction)
+   */
+  public @NonNull PurchaseTransaction view(@NonNull PurchaseTransaction purchase) {
+    return lotStates.view(purchase);
+  }
+
+  /**
+   * Returns the ID of the last processed transaction.
+   *
+   * @return the ID of the last processed transaction or <code>-1</code> if no transaction has been
+   *     processed.
+   */
+  public long getLastId() {
+    return lastId;
+  }
+
+  /**
+   * Returns the last processed or restored purchase of the specified ISIN that opened a lot. The
+   * purchase provides the ticker symbol, the name and the currency of the ISIN (e.g. for fictional
+   * transactions of splits).
+   */
+  @Nullable Transaction getTemplate(@NonNull String isin) {
+    return templates.get(isin);
+  }
+
+  private void match(@NonNull Transaction sale, @NonNull BigDecimal soldQuantity,
+      @NonNull List<RealizedCost> realizedCosts,
+      @NonNull Map<Long, BigDecimal> remainingQuantities) {
+    final String isin = sale.getIsin();
+    final ArrayDeque<Lot> lots = requireNonNull(openLots.get(isin));
+    final Price total = sale.getTotal();
+    BigDecimal unmatchedQuantity = soldQuantity;
+    BigDecimal unmatchedProceeds = total.getValue();
+    while (unmatchedQuantity.signum() > 0) {
+      final Lot lot = requireNonNull(lots.peekFirst());
+      final BigDecimal remainingQuantity = requireNonNull(lotStates.getRemainingQuantity(
+          lot.index));
+      final BigDecimal quantity = unmatchedQuantity.min(remainingQuantity);
+      final BigDecimal cost = share(lot.remainingCost, quantity, remainingQuantity);
+      final BigDecimal proceeds = share(unmatchedProceeds, quantity, unmatchedQuantity);
+      realizedCosts.add(new RealizedCost(sale.getId(), lot.purchaseId, isin, quantity,
+          new Price(cost, lot.currency), new Price(proceeds, total.getCurrency())));
+
+      final BigDecimal newRemainingQuantity = remainingQuantity.subtract(quantity);
+      lotStates.setRemainingQuantity(lot.index, newRemainingQuantity);
+      lot.remainingCost = lot.remainingCost.subtract(cost);
+      remainingQuantities.put(lot.purchaseId, newRemainingQuantity);
+      if (newRemainingQuantity.signum() == 0) {
+        lots.pollFirst();
+      }
+      unmatchedQuantity = unmatchedQuantity.subtract(quantity);
+      unmatchedProceeds = unmatchedProceeds.subtract(proceeds);
+    }
+    openQuantities.put(isin, getOpenQuantity(isin).subtract(soldQuantity));
+  }
+
+  private void addLot(@NonNull Transaction purchase, @NonNull BigDecimal quantity,
+      @NonNull BigDecimal cost, @Nullable LocalDate lastSplitDate) {
+    final String isin = purchase.getIsin();
+    final int index = lotStates.add(purchase.getId(), quantity, lastSplitDate);
+    openLots.computeIfAbsent(isin, k -> new ArrayDeque<>()).addLast(new Lot(purchase.getId(),
+        index, cost, purchase.getTotal().getCurrency()));
+    openQuantities.put(isin, getOpenQuantity(isin).add(quantity));
+    templates.put(isin, purchase);
+  }
+
+  private void checkId(@NonNull Transaction transaction) {
+    if (transaction.getId() <= lastId) {
+      throw new IllegalArgumentException("Transactions must be processed in the order of their "
+          + "IDs: " + transaction.getId() + " after " + lastId);
+    }
+  }
+
+  /**
+   * Returns the share of the specified amount that corresponds to the specified part of the total
+   * quantity. The complete remaining amount is returned for the complete remaining quantity, so
+   * that the shares always add up to the amount.
+   */
+  private static @NonNull BigDecimal share(@NonNull BigDecimal amount,
+      @NonNull BigDecimal quantity, @NonNull BigDecimal totalQuantity) {
+    if (quantity.compareTo(totalQuantity) == 0) {
+      return amount;
+    }
+    return amount.multiply(quantity).divide(totalQuantity, amount.scale(), RoundingMode.HALF_EVEN);
+  }
+
+  /**
+   * Open purchase lot with the index of its state and the remaining cost.
+   */
+  @NotThreadSafe
+  private static final class Lot {
+
+    private final long purchaseId;
+    private final int index;
+    private final @NonNull String currency;
+    private @NonNull BigDecimal remainingCost;
+
+    private Lot(long purchaseId, int index, @NonNull BigDecimal remainingCost,
+        @NonNull String currency) {
+      this.purchaseId = purchaseId;
+      this.index = index;
+      this.remainingCost = remainingCost;
+      this.currency = currency;
+    }
+  }
+}
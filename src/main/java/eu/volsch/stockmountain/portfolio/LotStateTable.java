@@ -0,0 +1,360 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Mutable state of purchase lots (the remaining quantity and the date of the last split) by the
+ * IDs of the purchases. The state is kept apart from the immutable purchase transactions, so that
+ * updating the state of a lot does not need a copy of the complete transaction. A
+ * {@linkplain #view(PurchaseTransaction) view} of a purchase merges the immutable purchase with the
+ * current state of its lot.
+ *
+ * <p>The state is stored in chunks of fixed size. A {@linkplain #snapshot() snapshot} shares all
+ * chunks with this table and the first update of a shared chunk by either table copies the chunk
+ * only (copy-on-write). Lots must be added in the order of the IDs of their purchases, so that a
+ * lot is found by a binary search.</p>
+ */
+@NotThreadSafe
+public final class LotStateTable {
+
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int NULL_DATE = Integer.MIN_VALUE;
+
+  private Object owner = new Object();
+  private @Nullable Object[] chunkOwners;
+  private long[][] ids;
+  private @Nullable BigDecimal[][] remainingQuantities;
+  private int[][] lastSplitEpochDays;
+  private @NonNegative int size;
+
+  /**
+   * Creates an empty table.
+   */
+  public LotStateTable() {
+    chunkOwners = new Object[0];
+    ids = new long[0][];
+    remainingQuantities = new BigDecimal[0][];
+    lastSplitEpochDays = new int[0][];
+  }
+
+  private LotStateTable(@NonNull LotStateTable table) {
+    chunkOwners = table.chunkOwners.clone();
+    ids = table.ids.clone();
+    remainingQuantities = table.remainingQuantities.clone();
+    lastSplitEpochDays = table.lastSplitEpochDays.clone();
+    size = table.size;
+  }
+
+  /**
+   * Returns the number of lots.
+   *
+   * @return the number of lots.
+   */
+  public @NonNegative int size() {
+    return size;
+  }
+
+  /**
+   * Adds the state of the lot of the specified purchase.
+   *
+   * @param purchaseId        the ID of the purchase.
+   * @param remainingQuantity the remaining quantity of the lot.
+   * @param lastSplitDate     the date of the last split that has been applied to the lot.
+   * @return the index of the added lot.
+   * @throws IllegalArgumentException thrown if the ID is not greater than the IDs of all lots.
+   */
+  public @NonNegative int add(long purchaseId, @Nullable BigDecimal remainingQuantity,
+      @Nullable LocalDate lastSplitDate) throws IllegalArgumentException {
+    if (size > 0 && purchaseId <= getId(size - 1)) {
+      throw new IllegalArgumentException("Lots must be added in the order of the IDs: "
+          + purchaseId + " after " + getId(size - 1));
+    }
+    final int index = size;
+    final int chunk = index >>> CHUNK_SHIFT;
+    if (chunk == ids.length) {
+      final int capacity = chunk + 1;
+      chunkOwners = Arrays.copyOf(chunkOwners, capacity);
+      ids = Arrays.copyOf(ids, capacity);
+      remainingQuantities = Arrays.copyOf(remainingQuantities, capacity);
+      lastSplitEpochDays = Arrays.copyOf(lastSplitEpochDays, capacity);
+      chunkOwners[chunk] = owner;
+      ids[chunk] = new long[CHUNK_SIZE];
+      remainingQuantities[chunk] = new BigDecimal[CHUNK_SIZE];
+      lastSplitEpochDays[chunk] = new int[CHUNK_SIZE];
+    }
+    writableChunk(chunk);
+    ids[chunk][index & CHUNK_MASK] = purchaseId;
+    size++;
+    setRemainingQuantity(index, remainingQuantity);
+    setLastSplitDate(index, lastSplitDate);
+    return index;
+  }
+
+  /**
+   * Returns the index of the lot of the specified purchase.
+   *
+   * @param purchaseId the ID of the purchase.
+   * @return the index of the lot or <code>-1</code> if there is no lot for the purchase.
+   */
+  public int find(long purchaseId) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final long id = getId(middle);
+      if (id < purchaseId) {
+        low = middle + 1;
+      } else if (id > purchaseId) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  public long getId(@NonNegative int index) {
+    Objects.checkIndex(index, size);
+    return ids[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  public @Nullable BigDecimal getRemainingQuantity(@NonNegative int index) {
+    Objects.checkIndex(index, size);
+    return remainingQuantities[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  /**
+   * Sets the remaining quantity of the lot at the specified index. Chunks shared with a snapshot
+   * are copied before they are written.
+   *
+   * @param index             the index of the lot.
+   * @param remainingQuantity the remaining quantity of the lot.
+   */
+  public void setRemainingQuantity(@NonNegative int index, @Nullable BigDecimal remainingQuantity) {
+    Objects.checkIndex(index, size);
+    final int chunk = index >>> CHUNK_SHIFT;
+    writableChunk(chunk);
+    remainingQuantities[chunk][index & CHUNK_MASK] = remainingQuantity;
+  }
+
+  /**
+   * Returns the date of the last split that has been applied to the lot at the specified index.
+   *
+   * @param index the index of the lot.
+   * @return the date of the last split or <code>null</code> if no split has been applied.
+   */
+  public @Nullable LocalDate getLastSplitDate(@NonNegative int index) {
+    Objects.checkIndex(index, size);
+    final int epochDay = lastSplitEpochDays[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+  }
+
+  /**
+   * Sets the date of the last split that has been applied to the lot at the specified index.
+   * Chunks shared with a snapshot are copied before they are written.
+   *
+   * @param index         the index of the lot.
+   * @param lastSplitDate the date of the last split or <code>null</code> if no split has been
+   *                      applied.
+   */
+  public void setLastSplitDate(@NonNegative int index, @Nullable LocalDate lastSplitDate) {
+    Objects.checkIndex(index, size);
+    final int chunk = index >>> CHUNK_SHIFT;
+    writableChunk(chunk);
+    lastSplitEpochDays[chunk][index & CHUNK_MASK] = lastSplitDate == null
+        ? NULL_DATE : Math.toIntExact(lastSplitDate.toEpochDay());
+  }
+
+  /**
+   * Creates a snapshot of this table. The snapshot is independent of this table, but shares all
+   * chunks with it until they are updated, so that only the references to the chunks are copied.
+   *
+   * @return the snapshot of this table.
+   */
+  public @NonNull LotStateTable snapshot() {
+    // neither table owns the shared chunks anymore
+    owner = new Object();
+    return new LotStateTable(this);
+  }
+
+  /**
+   * Returns a view of the specified purchase that returns the remaining quantity and the date of
+   * the last split of its lot in this table. The view reflects later updates of the lot. If there
+   * is no lot for the purchase, the purchase itself is returned.
+   *
+   * @param purchase the immutable purchase.
+   * @return the view of the purchase or the purchase itself.
+   */
+  public @NonNull PurchaseTransaction view(@NonNull PurchaseTransaction purchase) {
+    final int index = find(purchase.getId());
+    if (index < 0) {
+      return purchase;
+    }
+    return new LotView(purchase, this, index);
+  }
+
+  private void writableChunk(int chunk) {
+    if (chunkOwners[chunk] != owner) {
+      ids[chunk] = ids[chunk].clone();
+      remainingQuantities[chunk] = remainingQuantities[chunk].clone();
+      lastSplitEpochDays[chunk] = lastSplitEpochDays[chunk].clone();
+      chunkOwners[chunk] = owner;
+    }
+  }
+
+  /**
+   * View of an immutable purchase with the state of its lot.
+   */
+  @Immutable
+  private static final class LotView implements PurchaseTransaction {
+
+    private final @NonNull PurchaseTransaction purchase;
+    private final @NonNull LotStateTable table;
+    private final @NonNegative int index;
+
+    private LotView(@NonNull PurchaseTransaction purchase, @NonNull LotStateTable table,
+        @NonNegative int index) {
+      this.purchase = purchase;
+      this.table = table;
+      this.index = index;
+    }
+
+    @Override
+    public @Nullable BigDecimal getRemainingQuantity() {
+      return table.getRemainingQuantity(index);
+    }
+
+    @Override
+    public @Nullable LocalDate getLastSplitDate() {
+      return table.getLastSplitDate(index);
+    }
+
+    @Override
+    public long getId() {
+      return purchase.getId();
+    }
+
+    @Override
+    public int getVersion() {
+      return purchase.getVersion();
+    }
+
+    @Override
+    public boolean isFictional() {
+      return purchase.isFictional();
+    }
+
+    @Override
+    public @NonNull LocalDate getDate() {
+      return purchase.getDate();
+    }
+
+    @Override
+    public @Nullable LocalTime getTime() {
+      return purchase.getTime();
+    }
+
+    @Override
+    public @NonNull String getIsin() {
+      return purchase.getIsin();
+    }
+
+    @Override
+    public @Nullable String getTickerSymbol() {
+      return purchase.getTickerSymbol();
+    }
+
+    @Override
+    public @NonNull String getName() {
+      return purchase.getName();
+    }
+
+    @Override
+    public @Nullable String getSecuritiesExchange() {
+      return purchase.getSecuritiesExchange();
+    }
+
+    @Override
+    public @NonNull BigDecimal getQuantity() {
+      return purchase.getQuantity();
+    }
+
+    @Override
+    public @Nullable Price getLocalPrice() {
+      return purchase.getLocalPrice();
+    }
+
+    @Override
+    public @Nullable Price getLocalValue() {
+      return purchase.getLocalValue();
+    }
+
+    @Override
+    public @Nullable BigDecimal getExchangeRate() {
+      return purchase.getExchangeRate();
+    }
+
+    @Override
+    public @Nullable Price getValue() {
+      return purchase.getValue();
+    }
+
+    @Override
+    public @Nullable Price getCommission() {
+      return purchase.getCommission();
+    }
+
+    @Override
+    public @NonNull Price getTotal() {
+      return purchase.getTotal();
+    }
+
+    @Override
+    public @Nullable String getOrderId() {
+      return purchase.getOrderId();
+    }
+
+    @Override
+    public @Nullable String getTransactionId() {
+      return purchase.getTransactionId();
+    }
+  }
+}
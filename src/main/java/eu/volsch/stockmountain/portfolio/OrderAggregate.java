@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Aggregate of the fills (transactions) of a single order.
+ */
+@Immutable
+@ThreadSafe
+public final class OrderAggregate {
+
+  private final @Nullable String orderId;
+  private final @NonNull String isin;
+  private final @NonNull LocalDate date;
+  private final @Positive int fillCount;
+  private final @NonNull BigDecimal quantity;
+  private final @Nullable Price averagePrice;
+  private final @Nullable Price commission;
+  private final @NonNull Price total;
+
+  OrderAggregate(@Nullable String orderId, @NonNull String isin, @NonNull LocalDate date,
+      @Positive int fillCount, @NonNull BigDecimal quantity, @Nullable Price averagePrice,
+      @Nullable Price commission, @NonNull Price total) {
+    this.orderId = orderId;
+    this.isin = requireNonNull(isin);
+    this.date = requireNonNull(date);
+    this.fillCount = fillCount;
+    this.quantity = requireNonNull(quantity);
+    this.averagePrice = averagePrice;
+    this.commission = commission;
+    this.total = requireNonNull(total);
+  }
+
+  /**
+   * Returns the broker generated ID of the order.
+   *
+   * @return the ID of the order or <code>null</code> if the single fill has no order ID.
+   */
+  public @Nullable String getOrderId() {
+    return orderId;
+  }
+
+  public @NonNull String getIsin() {
+    return isin;
+  }
+
+  /**
+   * Returns the date of the first fill of the order.
+   *
+   * @return the date of the first fill.
+   */
+  public @NonNull LocalDate getDate() {
+    return date;
+  }
+
+  public @Positive int getFillCount() {
+    return fillCount;
+  }
+
+  /**
+   * Returns the sum of the quantities of all fills. The quantity is negative for sales.
+   *
+   * @return the sum of the quantities.
+   */
+  public @NonNull BigDecimal getQuantity() {
+    return quantity;
+  }
+
+  /**
+   * Returns the volume-weighted average of the local prices of the fills.
+   *
+   * @return the volume-weighted average price or <code>null</code> if a fill has no local price.
+   */
+  public @Nullable Price getAveragePrice() {
+    return averagePrice;
+  }
+
+  /**
+   * Returns the sum of the commissions of all fills.
+   *
+   * @return the sum of the commissions or <code>null</code> if no fill has a commission.
+   */
+  public @Nullable Price getCommission() {
+    return commission;
+  }
+
+  /**
+   * Returns the sum of the totals of all fills.
+   *
+   * @return the sum of the totals.
+   */
+  public @NonNull Price getTotal() {
+    return total;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final OrderAggregate that = (OrderAggregate) o;
+    return fillCount == that.fillCount && Objects.equals(orderId, that.orderId)
+        && isin.equals(that.isin) && date.equals(that.date) && quantity.equals(that.quantity)
+        && Objects.equals(averagePrice, that.averagePrice)
+        && Objects.equals(commission, that.commission) && total.equals(that.total);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(orderId, isin, date, fillCount, quantity, averagePrice, commission, total);
+  }
+
+  @Override
+  public String toString() {
+    return "OrderAggregate{orderId=" + orderId + ", isin=" + isin + ", date=" + date
+        + ", fillCount=" + fillCount + ", quantity=" + quantity + ", averagePrice=" + averagePrice
+        + ", commission=" + commission + ", total=" + total + '}';
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Aggregates the fills of orders from a stream of transactions in a single pass. Brokers usually
+ * export the fills of an order adjacently, so that only a few orders are open at the same time.
+ * The aggregator keeps a bounded window of open orders. When a fill of a new order arrives and the
+ * window is full, the order with the least recent fill is completed and passed to the sink. A
+ * window size of one uses the adjacency of the fills only and needs constant memory.
+ *
+ * <p>A fill of an order that has already been completed starts a new aggregate of the same order.
+ * Transactions without an order ID are passed to the sink as aggregates of a single fill. The
+ * remaining open orders are completed by {@link #flush()}.</p>
+ *
+ * <p>The records of a broker can be aggregated while they are extracted by passing the aggregator
+ * to the stream of a binder that maps the records to transactions (e.g.
+ * {@link eu.volsch.stockmountain.degiro.DegiroTransactionBinder}).</p>
+ */
+@NotThreadSafe
+public final class OrderAggregator implements Consumer<Transaction> {
+
+  static final int DEFAULT_WINDOW_SIZE = 16;
+
+  private final @Positive int windowSize;
+  private final @NonNull Consumer<? super OrderAggregate> sink;
+  private final Map<String, Accumulator> openOrders;
+
+  /**
+   * Creates an aggregator with the default window size.
+   *
+   * @param sink receives the completed order aggregates.
+   */
+  public OrderAggregator(@NonNull Consumer<? super OrderAggregate> sink) {
+    this(DEFAULT_WINDOW_SIZE, sink);
+  }
+
+  /**
+   * Creates an aggregator.
+   *
+   * @param windowSize the maximum number of open orders.
+   * @param sink       receives the completed order aggregates.
+   * @throws IllegalArgumentException thrown if the window size is not positive.
+   */
+  public OrderAggregator(@Positive int windowSize, @NonNull Consumer<? super OrderAggregate> sink)
+      throws IllegalArgumentException {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+    }
+    this.windowSize = windowSize;
+    this.sink = requireNonNull(sink);
+    this.openOrders = new LinkedHashMap<>(windowSize * 2, 0.75f, true);
+  }
+
+  /**
+   * Adds the specified fill to its order.
+   *
+   * @param transaction the fill of an order.
+   */
+  @Override
+  public void accept(@NonNull Transaction transaction) {
+    final String orderId = transaction.getOrderId();
+    if (orderId == null) {
+      final Accumulator accumulator = new Accumulator(null, transaction);
+      accumulator.add(transaction);
+      sink.accept(accumulator.complete());
+      return;
+    }
+    Accumulator accumulator = openOrders.get(orderId);
+    if (accumulator == null) {
+      if (openOrders.size() == windowSize) {
+        final Iterator<Accumulator> iterator = openOrders.values().iterator();
+        final Accumulator eldest = iterator.next();
+        iterator.remove();
+        sink.accept(eldest.complete());
+      }
+      accumulator = new Accumulator(orderId, transaction);
+      openOrders.put(orderId, accumulator);
+    }
+    accumulator.add(transaction);
+  }
+
+  /**
+   * Completes all open orders in the order of their least recent fills.
+   */
+  public void flush() {
+    final Iterator<Accumulator> iterator = openOrders.values().iterator();
+    while (iterator.hasNext()) {
+      final Accumulator accumulator = iterator.next();
+      iterator.remove();
+      sink.accept(accumulator.complete());
+    }
+  }
+
+  /**
+   * Sums of the fills of an open order.
+   */
+  @NotThreadSafe
+  private static final class Accumulator {
+
+    private final @Nullable String orderId;
+    private final @NonNull String isin;
+    private final @NonNull LocalDate date;
+    private final @NonNull String totalCurrency;
+    private int fillCount;
+    private @NonNull BigDecimal quantity = BigDecimal.ZERO;
+    private @NonNull BigDecimal total = BigDecimal.ZERO;
+    private @Nullable String priceCurrency;
+    private boolean priceMissing;
+    private @NonNull BigDecimal priceVolume = BigDecimal.ZERO;
+    private @NonNull BigDecimal volume = BigDecimal.ZERO;
+    private @Nullable String commissionCurrency;
+    private @NonNull BigDecimal commission = BigDecimal.ZERO;
+
+    private Accumulator(@Nullable String orderId, @NonNull Transaction first) {
+      this.orderId = orderId;
+      this.isin = first.getIsin();
+      this.date = first.getDate();
+      this.totalCurrency = first.getTotal().getCurrency();
+    }
+
+    private void add(@NonNull Transaction transaction) {
+      fillCount++;
+      quantity = quantity.add(transaction.getQuantity());
+      total = total.add(amount(transaction.getTotal(), totalCurrency));
+
+      final Price localPrice = transaction.getLocalPrice();
+      if (localPrice == null) {
+        priceMissing = true;
+      } else if (!priceMissing) {
+        if (priceCurrency == null) {
+          priceCurrency = localPrice.getCurrency();
+        }
+        final BigDecimal fillVolume = transaction.getQuantity().abs();
+        priceVolume = priceVolume.add(amount(localPrice, priceCurrency).multiply(fillVolume));
+        volume = volume.add(fillVolume);
+      }
+
+      final Price fillCommission = transaction.getCommission();
+      if (fillCommission != null) {
+        if (commissionCurrency == null) {
+          commissionCurrency = fillCommission.getCurrency();
+        }
+        commission = commission.add(amount(fillCommission, commissionCurrency));
+      }
+    }
+
+    private @NonNull OrderAggregate complete() {
+      Price averagePrice = null;
+      if (!priceMissing && priceCurrency != null && volume.signum() != 0) {
+        averagePrice = new Price(priceVolume.divide(volume, MathContext.DECIMAL64),
+            priceCurrency);
+      }
+      return new OrderAggregate(orderId, isin, date, fillCount, quantity, averagePrice,
+          commissionCurrency == null ? null : new Price(commission, commissionCurrency),
+          new Price(total, totalCurrency));
+    }
+
+    private @NonNull BigDecimal amount(@NonNull Price price, @NonNull String currency) {
+      if (!price.getCurrency().equals(currency)) {
+        throw new IllegalArgumentException("Fills of order " + orderId
+            + " have different currencies: " + currency + " and " + price.getCurrency());
+      }
+      return price.getValue();
+    }
+  }
+}
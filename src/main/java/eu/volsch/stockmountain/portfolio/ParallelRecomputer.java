@@ -0,0 +1,264 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Recomputes the lots, positions and realized gains of a complete transaction history in parallel.
+ * Securities are independent of each other, so that the transactions are partitioned by the hash
+ * of their ISINs into a fixed number of lanes. Each lane has its own FIFO queue and
+ * {@linkplain LotMatcher lot matcher} and is processed by a task of the specified executor. The
+ * order of the transactions of each security is preserved, since all transactions of a security
+ * are processed by the same lane in the order of the history. The results of the lanes are merged
+ * when all lanes have been completed.
+ *
+ * <p>The calling thread reads the history and distributes it in batches to the queues of the lanes,
+ * so that the lanes start while the history is still being read. The queues are bounded, so that
+ * the calling thread waits for a lane that cannot keep up instead of reading the complete history
+ * into memory. Therefore, the executor must run all lanes concurrently on other threads than the
+ * calling thread (e.g. a thread per task or a pool with at least as many threads as lanes). An
+ * executor that runs a lane in the calling thread is rejected. A lane that fails discards the
+ * remaining batches of its queue, so that the calling thread never waits for a failed lane.</p>
+ */
+@ThreadSafe
+public final class ParallelRecomputer {
+
+  static final int BATCH_SIZE = 256;
+  static final int QUEUE_CAPACITY = 16;
+
+  private static final Comparator<RealizedCost> SALE_ORDER =
+      Comparator.comparingLong(RealizedCost::getSaleId);
+
+  private final @Positive int laneCount;
+  private final @NonNull Executor executor;
+
+  /**
+   * Creates a recomputer.
+   *
+   * @param laneCount the number of lanes (e.g. the number of available processors).
+   * @param executor  the executor that processes the lanes. The executor must run all lanes
+   *                  concurrently on other threads than the calling thread.
+   * @throws IllegalArgumentException thrown if the number of lanes is not positive.
+   */
+  public ParallelRecomputer(@Positive int laneCount, @NonNull Executor executor)
+      throws IllegalArgumentException {
+    if (laneCount <= 0) {
+      throw new IllegalArgumentException("Lane count must be positive: " + laneCount);
+    }
+    this.laneCount = laneCount;
+    this.executor = requireNonNull(executor);
+  }
+
+  /**
+   * Recomputes the specified history.
+   *
+   * @param transactions the complete history ordered by the IDs of the transactions.
+   * @return the merged result of all lanes.
+   * @throws IllegalArgumentException thrown if the transactions of a security cannot be matched.
+   * @throws IllegalStateException    thrown if the executor has run a lane in the calling thread or
+   *                                  if the calling thread has been interrupted.
+   * @see LotMatcher#process(Iterable)
+   */
+  public @NonNull RecomputationResult recompute(
+      @NonNull Iterable<? extends Transaction> transactions)
+      throws IllegalArgumentException, IllegalStateException {
+    final Thread caller = Thread.currentThread();
+    final List<Lane> lanes = new ArrayList<>(laneCount);
+    final List<CompletableFuture<Lane>> futures = new ArrayList<>(laneCount);
+    for (int i = 0; i < laneCount; i++) {
+      final Lane lane = new Lane();
+      lanes.add(lane);
+      futures.add(CompletableFuture.supplyAsync(() -> lane.run(caller), executor));
+    }
+
+    try {
+      // an executor that runs the lanes in the calling thread has already failed them
+      if (futures.stream().noneMatch(CompletableFuture::isCompletedExceptionally)) {
+        distribute(transactions, lanes);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Recomputation has been interrupted", e);
+    } finally {
+      lanes.forEach(Lane::end);
+    }
+
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+    return merge(lanes);
+  }
+
+  private void distribute(@NonNull Iterable<? extends Transaction> transactions,
+      @NonNull List<Lane> lanes) throws InterruptedException {
+    final List<List<Transaction>> batches = new ArrayList<>(laneCount);
+    for (int i = 0; i < laneCount; i++) {
+      batches.add(new ArrayList<>(BATCH_SIZE));
+    }
+    for (final Transaction transaction : transactions) {
+      final int laneIndex = Math.floorMod(transaction.getIsin().hashCode(), laneCount);
+      final List<Transaction> batch = batches.get(laneIndex);
+      batch.add(transaction);
+      if (batch.size() == BATCH_SIZE) {
+        if (lanes.get(laneIndex).failed) {
+          return;
+        }
+        lanes.get(laneIndex).put(batch);
+        batches.set(laneIndex, new ArrayList<>(BATCH_SIZE));
+      }
+    }
+    for (int i = 0; i < laneCount; i++) {
+      if (!batches.get(i).isEmpty()) {
+        lanes.get(i).put(batches.get(i));
+      }
+    }
+  }
+
+  private static @NonNull RecomputationResult merge(@NonNull List<Lane> lanes) {
+    final List<RealizedCost> realizedCosts = new ArrayList<>();
+    final Map<Long, BigDecimal> remainingQuantities = new TreeMap<>();
+    final Map<String, BigDecimal> positions = new HashMap<>();
+    final Map<String, Price> realizedGains = new HashMap<>();
+    for (final Lane lane : lanes) {
+      realizedCosts.addAll(lane.realizedCosts);
+      remainingQuantities.putAll(lane.remainingQuantities);
+      positions.putAll(lane.positions);
+      realizedGains.putAll(lane.realizedGains);
+    }
+    // stable sort keeps the order of the lots of a sale
+    realizedCosts.sort(SALE_ORDER);
+    return new RecomputationResult(new LotMatchResult(realizedCosts, remainingQuantities),
+        positions, realizedGains);
+  }
+
+  /**
+   * Lane that processes the transactions of a subset of the securities. The queue of the lane is
+   * bounded by permits for the batches, so that the end of the transactions can always be queued
+   * without waiting.
+   */
+  @NotThreadSafe
+  private static final class Lane {
+
+    private static final List<Transaction> END = List.of();
+
+    private final BlockingQueue<List<Transaction>> queue = new LinkedBlockingQueue<>();
+    private final Semaphore permits = new Semaphore(QUEUE_CAPACITY);
+    private final LotMatcher matcher = new LotMatcher();
+    private final List<RealizedCost> realizedCosts = new ArrayList<>();
+    private final Map<Long, BigDecimal> remainingQuantities = new HashMap<>();
+    private final Map<String, BigDecimal> positions = new HashMap<>();
+    private final Map<String, Price> realizedGains = new HashMap<>();
+    private volatile boolean failed;
+
+    private void put(@NonNull List<Transaction> batch) throws InterruptedException {
+      permits.acquire();
+      queue.add(batch);
+    }
+
+    private void end() {
+      queue.add(END);
+    }
+
+    private @NonNull Lane run(@NonNull Thread caller) {
+      if (Thread.currentThread() == caller) {
+        throw new IllegalStateException("Lanes must not be run in the calling thread");
+      }
+      RuntimeException failure = null;
+      try {
+        List<Transaction> batch;
+        while ((batch = queue.take()) != END) {
+          permits.release();
+          if (failure == null) {
+            try {
+              process(batch);
+            } catch (RuntimeException e) {
+              // the remaining batches are discarded until the end
+              failure = e;
+              failed = true;
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        // the calling thread must not wait for permits of this lane
+        failed = true;
+        permits.drainPermits();
+        permits.release(Integer.MAX_VALUE);
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Recomputation has been interrupted", e);
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return this;
+    }
+
+    private void process(@NonNull List<Transaction> batch) {
+      final LotMatchResult result = matcher.process(batch);
+      realizedCosts.addAll(result.getRealizedCosts());
+      remainingQuantities.putAll(result.getRemainingQuantities());
+      for (final Transaction transaction : batch) {
+        positions.put(transaction.getIsin(), matcher.getOpenQuantity(transaction.getIsin()));
+      }
+      for (final RealizedCost realizedCost : result.getRealizedCosts()) {
+        realizedGains.merge(realizedCost.getIsin(), realizedCost.getGain(), Lane::add);
+      }
+    }
+
+    private static @NonNull Price add(@NonNull Price price1, @NonNull Price price2) {
+      if (!price1.getCurrency().equals(price2.getCurrency())) {
+        throw new IllegalStateException("Currencies of realized gains differ: "
+            + price1.getCurrency() + " and " + price2.getCurrency());
+      }
+      return new Price(price1.getValue().add(price2.getValue()), price1.getCurrency());
+    }
+  }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.extraction.api.MappingRecordBinder;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractor;
+import eu.volsch.stockmountain.fx.ExchangeRateStore;
+import eu.volsch.stockmountain.fx.RateLookup;
+import eu.volsch.stockmountain.model.Money;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Daily value series of a portfolio. The held quantities are derived from the transactions of the
+ * portfolio and are valued with daily close prices that are read from local CSV files (see
+ * {@link ClosePriceFields}). A close price is used until the next close price of the security. A
+ * held quantity of a security for which no close price is known yet does not contribute to the
+ * value.
+ *
+ * <p>The quantities and the carried forward close prices are kept per security in primitive
+ * arrays with one element per day. Adding a transaction or a close price updates the arrays of the
+ * security from its date and invalidates the daily values from that date. The invalidated tail of
+ * the series is recomputed when values are requested, so that appending the prices or trades of a
+ * single day recomputes only that day. The held quantities are accumulated as doubles, which is
+ * precise enough for a valuation that is rounded to cents.
+ */
+@NotThreadSafe
+public class PortfolioValuation {
+
+  private static final CsvExtractor PRICE_EXTRACTOR =
+      new CsvExtractor(',', ClosePriceFields.fields(), 1, 1024);
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int VALUE_SCALE = 2;
+
+  private final @NonNull String currency;
+  private final @Nullable ExchangeRateStore exchangeRates;
+  private final Map<String, Integer> securityIndexes = new HashMap<>();
+  private final List<double[]> quantities = new ArrayList<>();
+  private final List<double[]> closes = new ArrayList<>();
+  private final List<BitSet> closeDays = new ArrayList<>();
+  private double[] values = new double[0];
+  private int firstEpochDay;
+  private @NonNegative int dayCount;
+  private @NonNegative int validDayCount;
+  private @NonNegative int recomputedDayCount;
+
+  /**
+   * Creates an empty valuation that only accepts close prices in the specified currency.
+   *
+   * @param currency the currency of the valuation.
+   * @throws IllegalArgumentException thrown if the currency is invalid.
+   */
+  public PortfolioValuation(@NonNull String currency) throws IllegalArgumentException {
+    this(currency, null);
+  }
+
+  /**
+   * Creates an empty valuation. Close prices in other currencies are converted with the nearest
+   * exchange rate of their date.
+   *
+   * @param currency      the currency of the valuation.
+   * @param exchangeRates the exchange rates or <code>null</code> if all close prices have the
+   *                      currency of the valuation.
+   * @throws IllegalArgumentException thrown if the currency is invalid.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  public PortfolioValuation(@NonNull String currency,
+      @Nullable ExchangeRateStore exchangeRates) throws IllegalArgumentException {
+    Money.currencyId(currency);
+    this.currency = currency;
+    this.exchangeRates = exchangeRates;
+  }
+
+  public @NonNull String getCurrency() {
+    return currency;
+  }
+
+  /**
+   * Adds the quantities of the specified transactions.
+   *
+   * @param transactions the transactions.
+   */
+  public void addTransactions(@NonNull Iterable<? extends Transaction> transactions) {
+    transactions.forEach(this::addTransaction);
+  }
+
+  /**
+   * Adds the quantity of the specified transaction to the held quantity of its security from the
+   * date of the transaction.
+   *
+   * @param transaction the transaction.
+   */
+  public void addTransaction(@NonNull Transaction transaction) {
+    final int security = securityIndex(transaction.getIsin());
+    final int day = dayIndex(transaction.getDate());
+    final double quantity = transaction.getQuantity().doubleValue();
+    final double[] securityQuantities = quantities.get(security);
+    for (int i = day; i < dayCount; i++) {
+      securityQuantities[i] += quantity;
+    }
+    invalidate(day);
+  }
+
+  /**
+   * Adds the close prices that are read from the specified CSV with the fields of
+   * {@link ClosePriceFields}. Stream operations of the extraction may throw the same exceptions as
+   * {@link CsvExtractor#extract(Reader)}.
+   *
+   * @param reader the reader from which the CSV is read.
+   * @return the number of added close prices.
+   * @throws IllegalArgumentException thrown if a close price cannot be converted into the currency
+   *                                  of the valuation.
+   */
+  public @NonNegative int addClosePrices(@NonNull Reader reader) throws IllegalArgumentException {
+    final ClosePriceRow row = new ClosePriceRow();
+    final MappingRecordBinder<ClosePriceRow, ClosePriceRow> binder =
+        MappingRecordBinder.builder(row)
+            .bind(ClosePriceFields.DATE, (r, v) -> r.date = v)
+            .bind(ClosePriceFields.ISIN, (r, v) -> r.isin = v)
+            .bind(ClosePriceFields.CLOSE, (r, v) -> r.close = v)
+            .bind(ClosePriceFields.CURRENCY, (r, v) -> r.currency = v)
+            .build();
+    int count = 0;
+    try (Stream<ClosePriceRow> rows = PRICE_EXTRACTOR.extract(reader, binder)) {
+      for (final ClosePriceRow r : (Iterable<ClosePriceRow>) rows::iterator) {
+        addClosePrice(requireNonNull(r.isin), requireNonNull(r.date),
+            new Price(requireNonNull(r.close), requireNonNull(r.currency)));
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Adds the close price of a security on the specified date. The price replaces a close price
+   * that has already been added for the date and is used until the next close price of the
+   * security.
+   *
+   * @param isin  the ISIN of the security.
+   * @param date  the date of the close price.
+   * @param close the close price of a single unit of the security.
+   * @throws IllegalArgumentException thrown if the price cannot be converted into the currency of
+   *                                  the valuation.
+   */
+  public void addClosePrice(@NonNull String isin, @NonNull LocalDate date, @NonNull Price close)
+      throws IllegalArgumentException {
+    final double closeValue = convert(close, date).doubleValue();
+    final int security = securityIndex(isin);
+    final int day = dayIndex(date);
+    final double[] securityCloses = closes.get(security);
+    final BitSet securityCloseDays = closeDays.get(security);
+    securityCloseDays.set(day);
+    securityCloses[day] = closeValue;
+    for (int i = day + 1; i < dayCount && !securityCloseDays.get(i); i++) {
+      securityCloses[i] = closeValue;
+    }
+    invalidate(day);
+  }
+
+  private @NonNull BigDecimal convert(@NonNull Price close, @NonNull LocalDate date) {
+    if (close.getCurrency().equals(currency)) {
+      return close.getValue();
+    }
+    final Price converted = exchangeRates == null ? null
+        : exchangeRates.convert(close, currency, date, RateLookup.NEAREST);
+    if (converted == null) {
+      throw new IllegalArgumentException("No exchange rate from " + close.getCurrency() + " to "
+          + currency + " on " + date);
+    }
+    return converted.getValue();
+  }
+
+  /**
+   * Returns the first date of the series.
+   *
+   * @return the first date or <code>null</code> if neither transactions nor close prices have been
+   *         added.
+   */
+  public @Nullable LocalDate getFirstDate() {
+    return dayCount == 0 ? null : LocalDate.ofEpochDay(firstEpochDay);
+  }
+
+  /**
+   * Returns the last date of the series.
+   *
+   * @return the last date or <code>null</code> if neither transactions nor close prices have been
+   *         added.
+   */
+  public @Nullable LocalDate getLastDate() {
+    return dayCount == 0 ? null : LocalDate.ofEpochDay(firstEpochDay + dayCount - 1L);
+  }
+
+  /**
+   * Returns the value of the portfolio on the specified date. The value after the last date of the
+   * series is the value of the last date.
+   *
+   * @param date the date.
+   * @return the value of the portfolio.
+   */
+  public @NonNull Price getValue(@NonNull LocalDate date) {
+    recompute();
+    final long day = date.toEpochDay() - firstEpochDay;
+    if (dayCount == 0 || day < 0) {
+      return toPrice(0);
+    }
+    return toPrice(values[(int) Math.min(day, dayCount - 1L)]);
+  }
+
+  /**
+   * Returns the daily values of the portfolio of the dates of the series that are within the
+   * specified range.
+   *
+   * @param fromDate the first date of the range (inclusive).
+   * @param toDate   the last date of the range (inclusive).
+   * @return the values by date.
+   */
+  public @NonNull SortedMap<LocalDate, Price> getValues(@NonNull LocalDate fromDate,
+      @NonNull LocalDate toDate) {
+    recompute();
+    final TreeMap<LocalDate, Price> result = new TreeMap<>();
+    final long from = Math.max(0, fromDate.toEpochDay() - firstEpochDay);
+    final long to = Math.min(dayCount - 1L, toDate.toEpochDay() - firstEpochDay);
+    for (long day = from; day <= to; day++) {
+      result.put(LocalDate.ofEpochDay(firstEpochDay + day), toPrice(values[(int) day]));
+    }
+    return Collections.unmodifiableSortedMap(result);
+  }
+
+  /**
+   * Returns the number of days that have been recomputed by the last recomputation.
+   *
+   * @return the number of recomputed days.
+   */
+  @NonNegative int getRecomputedDayCount() {
+    return recomputedDayCount;
+  }
+
+  private @NonNull Price toPrice(double value) {
+    return new Price(BigDecimal.valueOf(value).setScale(VALUE_SCALE, RoundingMode.HALF_EVEN),
+        currency);
+  }
+
+  private void recompute() {
+    final int from = validDayCount;
+    if (from >= dayCount) {
+      return;
+    }
+    Arrays.fill(values, from, dayCount, 0);
+    for (int security = 0; security < quantities.size(); security++) {
+      final double[] securityQuantities = quantities.get(security);
+      final double[] securityCloses = closes.get(security);
+      for (int i = from; i < dayCount; i++) {
+        final double quantity = securityQuantities[i];
+        final double close = securityCloses[i];
+        if (quantity != 0 && !Double.isNaN(close)) {
+          values[i] += quantity * close;
+        }
+      }
+    }
+    recomputedDayCount = dayCount - from;
+    validDayCount = dayCount;
+  }
+
+  private void invalidate(@NonNegative int day) {
+    validDayCount = Math.min(validDayCount, day);
+  }
+
+  private int securityIndex(@NonNull String isin) {
+    final Integer index = securityIndexes.get(isin);
+    if (index != null) {
+      return index;
+    }
+    final double[] securityCloses = new double[values.length];
+    Arrays.fill(securityCloses, Double.NaN);
+    quantities.add(new double[values.length]);
+    closes.add(securityCloses);
+    closeDays.add(new BitSet());
+    securityIndexes.put(isin, quantities.size() - 1);
+    return quantities.size() - 1;
+  }
+
+  private @NonNegative int dayIndex(@NonNull LocalDate date) {
+    final int epochDay = Math.toIntExact(date.toEpochDay());
+    if (dayCount == 0) {
+      firstEpochDay = epochDay;
+      resize(INITIAL_CAPACITY, 0);
+      dayCount = 1;
+      return 0;
+    }
+    if (epochDay < firstEpochDay) {
+      final int shift = firstEpochDay - epochDay;
+      resize(Math.max(values.length, dayCount + shift), shift);
+      firstEpochDay = epochDay;
+      dayCount += shift;
+      validDayCount = 0;
+      return 0;
+    }
+    final int day = epochDay - firstEpochDay;
+    if (day >= dayCount) {
+      if (day >= values.length) {
+        resize(Math.max(values.length * 2, day + 1), 0);
+      }
+      for (int security = 0; security < quantities.size(); security++) {
+        // the last quantity and close price are carried forward
+        Arrays.fill(quantities.get(security), dayCount, day + 1,
+            quantities.get(security)[dayCount - 1]);
+        Arrays.fill(closes.get(security), dayCount, day + 1, closes.get(security)[dayCount - 1]);
+      }
+      dayCount = day + 1;
+    }
+    return day;
+  }
+
+  private void resize(@NonNegative int capacity, @NonNegative int shift) {
+    for (int security = 0; security < quantities.size(); security++) {
+      final double[] securityQuantities = new double[capacity];
+      System.arraycopy(quantities.get(security), 0, securityQuantities, shift, dayCount);
+      quantities.set(security, securityQuantities);
+
+      final double[] securityCloses = new double[capacity];
+      Arrays.fill(securityCloses, 0, shift, Double.NaN);
+      System.arraycopy(closes.get(security), 0, securityCloses, shift, dayCount);
+      Arrays.fill(securityCloses, shift + dayCount, capacity, Double.NaN);
+      closes.set(security, securityCloses);
+
+      if (shift > 0) {
+        final BitSet shiftedDays = new BitSet();
+        closeDays.get(security).stream().forEach(day -> shiftedDays.set(day + shift));
+        closeDays.set(security, shiftedDays);
+      }
+    }
+    final double[] newValues = new double[capacity];
+    System.arraycopy(values, 0, newValues, shift, dayCount);
+    values = newValues;
+  }
+
+  private static final class ClosePriceRow {
+
+    private @Nullable LocalDate date;
+    private @Nullable String isin;
+    private @Nullable BigDecimal close;
+    private @Nullable String currency;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import java.math.BigDecimal;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Held quantity of a security and its cost basis (the positive amount that has been paid for the
+ * held quantity including commissions).
+ */
+@Immutable
+@ThreadSafe
+public final class Position {
+
+  private final @NonNull String isin;
+  private final @NonNull BigDecimal quantity;
+  private final @NonNull Price costBasis;
+
+  /**
+   * Creates a position.
+   *
+   * @param isin      the ISIN of the security.
+   * @param quantity  the held quantity.
+   * @param costBasis the cost basis of the held quantity.
+   */
+  public Position(@NonNull String isin, @NonNull BigDecimal quantity, @NonNull Price costBasis) {
+    this.isin = requireNonNull(isin);
+    this.quantity = requireNonNull(quantity);
+    this.costBasis = requireNonNull(costBasis);
+  }
+
+  public @NonNull String getIsin() {
+    return isin;
+  }
+
+  public @NonNull BigDecimal getQuantity() {
+    return quantity;
+  }
+
+  public @NonNull Price getCostBasis() {
+    return costBasis;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final Position that = (Position) o;
+    return isin.equals(that.isin) && quantity.equals(that.quantity)
+        && costBasis.equals(that.costBasis);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(isin, quantity, costBasis);
+  }
+
+  @Override
+  public String toString() {
+    return "Position{isin=" + isin + ", quantity=" + quantity + ", costBasis=" + costBasis + '}';
+  }
+}
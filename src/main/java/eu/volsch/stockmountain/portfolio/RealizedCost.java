@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import java.math.BigDecimal;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Part of a sale that has been matched against a single purchase lot. The cost is the share of
+ * the total amount that has been paid for the purchase and the proceeds are the share of the total
+ * amount that has been returned for the sale. Both amounts include the commissions and are
+ * positive.
+ */
+@Immutable
+@ThreadSafe
+public final class RealizedCost {
+
+  private final long saleId;
+  private final long purchaseId;
+  private final @NonNull String isin;
+  private final @NonNull BigDecimal quantity;
+  private final @NonNull Price cost;
+  private final @NonNull Price proceeds;
+
+  /**
+   * Creates a realized cost.
+   *
+   * @param saleId     the ID of the sale transaction.
+   * @param purchaseId the ID of the matched purchase transaction.
+   * @param isin       the ISIN of the sold security.
+   * @param quantity   the matched quantity (positive).
+   * @param cost       the share of the total amount that has been paid for the purchase.
+   * @param proceeds   the share of the total amount that has been returned for the sale.
+   */
+  public RealizedCost(long saleId, long purchaseId, @NonNull String isin,
+      @NonNull BigDecimal quantity, @NonNull Price cost, @NonNull Price proceeds) {
+    this.saleId = saleId;
+    this.purchaseId = purchaseId;
+    this.isin = requireNonNull(isin);
+    this.quantity = requireNonNull(quantity);
+    this.cost = requireNonNull(cost);
+    this.proceeds = requireNonNull(proceeds);
+  }
+
+  public long getSaleId() {
+    return saleId;
+  }
+
+  public long getPurchaseId() {
+    return purchaseId;
+  }
+
+  public @NonNull String getIsin() {
+    return isin;
+  }
+
+  public @NonNull BigDecimal getQuantity() {
+    return quantity;
+  }
+
+  public @NonNull Price getCost() {
+    return cost;
+  }
+
+  public @NonNull Price getProceeds() {
+    return proceeds;
+  }
+
+  /**
+   * Returns the realized gain, i.e. the proceeds minus the cost. A negative gain is a loss.
+   *
+   * @return the realized gain.
+   * @throws IllegalStateException thrown if the currencies of the cost and the proceeds differ.
+   */
+  public @NonNull Price getGain() throws IllegalStateException {
+    if (!cost.getCurrency().equals(proceeds.getCurrency())) {
+      throw new IllegalStateException("Currencies of cost and proceeds differ: "
+          + cost.getCurrency() + " and " + proceeds.getCurrency());
+    }
+    return new Price(proceeds.getValue().subtract(cost.getValue()), cost.getCurrency());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final RealizedCost that = (RealizedCost) o;
+    return saleId == that.saleId && purchaseId == that.purchaseId && isin.equals(that.isin)
+        && quantity.equals(that.quantity) && cost.equals(that.cost)
+        && proceeds.equals(that.proceeds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(saleId, purchaseId, isin, quantity, cost, proceeds);
+  }
+
+  @Override
+  public String toString() {
+    return "RealizedCost{saleId=" + saleId + ", purchaseId=" + purchaseId + ", isin=" + isin
+        + ", quantity=" + quantity + ", cost=" + cost + ", proceeds=" + proceeds + '}';
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import eu.volsch.stockmountain.model.Price;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Merged result of a {@linkplain ParallelRecomputer parallel recomputation} of a transaction
+ * history.
+ */
+@Immutable
+@ThreadSafe
+public final class RecomputationResult {
+
+  private final @NonNull LotMatchResult matchResult;
+  private final @NonNull Map<String, BigDecimal> positions;
+  private final @NonNull Map<String, Price> realizedGains;
+
+  RecomputationResult(@NonNull LotMatchResult matchResult,
+      @NonNull Map<String, BigDecimal> positions, @NonNull Map<String, Price> realizedGains) {
+    this.matchResult = matchResult;
+    this.positions = Collections.unmodifiableMap(new TreeMap<>(positions));
+    this.realizedGains = Collections.unmodifiableMap(new TreeMap<>(realizedGains));
+  }
+
+  /**
+   * Returns the realized costs of all sales ordered by the IDs of the sales and the remaining
+   * quantities of all purchases.
+   *
+   * @return the merged result of matching the transactions of all securities.
+   */
+  public @NonNull LotMatchResult getMatchResult() {
+    return matchResult;
+  }
+
+  /**
+   * Returns the open quantities by the ISINs of all securities of the history ordered by the ISINs.
+   *
+   * @return the open quantities by the ISINs.
+   */
+  public @NonNull Map<String, BigDecimal> getPositions() {
+    return positions;
+  }
+
+  /**
+   * Returns the sums of the realized gains by the ISINs of all sold securities ordered by the
+   * ISINs.
+   *
+   * @return the realized gains by the ISINs.
+   * @see RealizedCost#getGain()
+   */
+  public @NonNull Map<String, Price> getRealizedGains() {
+    return realizedGains;
+  }
+}
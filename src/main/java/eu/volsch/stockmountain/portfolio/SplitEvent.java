@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Split of the security with an ISIN that is effective at the start of a date. The ratio is the
+ * number of new units for each old unit, e.g. <code>20</code> if 1 stock is split into 20 stocks
+ * and <code>0.1</code> for a reverse split of 10 stocks into 1 stock.
+ */
+@Immutable
+@ThreadSafe
+public final class SplitEvent {
+
+  private final @NonNull String isin;
+  private final @NonNull LocalDate date;
+  private final @NonNull BigDecimal ratio;
+
+  /**
+   * Creates a split event.
+   *
+   * @param isin  the ISIN of the split security.
+   * @param date  the date at which the split is effective.
+   * @param ratio the number of new units for each old unit.
+   * @throws IllegalArgumentException thrown if the ratio is not positive.
+   */
+  public SplitEvent(@NonNull String isin, @NonNull LocalDate date, @NonNull BigDecimal ratio)
+      throws IllegalArgumentException {
+    if (ratio.signum() <= 0) {
+      throw new IllegalArgumentException("Ratio must be positive: " + ratio);
+    }
+    this.isin = requireNonNull(isin);
+    this.date = requireNonNull(date);
+    this.ratio = ratio;
+  }
+
+  public @NonNull String getIsin() {
+    return isin;
+  }
+
+  public @NonNull LocalDate getDate() {
+    return date;
+  }
+
+  public @NonNull BigDecimal getRatio() {
+    return ratio;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final SplitEvent that = (SplitEvent) o;
+    return isin.equals(that.isin) && date.equals(that.date) && ratio.equals(that.ratio);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(isin, date, ratio);
+  }
+
+  @Override
+  public String toString() {
+    return "SplitEvent{isin=" + isin + ", date=" + date + ", ratio=" + ratio + '}';
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongUnaryOperator;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Applies splits to the purchase lots of a transaction history in a single pass. The splits are
+ * sorted by their dates and the transactions are processed by a {@linkplain LotMatcher lot matcher}
+ * in the order of their IDs. Before the first transaction at or after the date of a split, the
+ * split is {@linkplain LotMatcher#applySplit(SplitEvent) applied} to the open lots of its ISIN
+ * only, so that no split needs another pass over the transactions.
+ *
+ * <p>For each split that has been applied to an open quantity, a fictional sale of the open
+ * quantity and a fictional purchase of the resulting quantity are created. The fictional
+ * transactions have a total of zero and take the ticker symbol, the name and the currency from the
+ * {@linkplain LotMatcher#getTemplate(String) last purchase} of the ISIN that opened a lot in the
+ * matcher, so that lots that have been restored or processed before are supported. Splits that are
+ * already recorded by a fictional transaction of the same ISIN at the same date in the processed
+ * transactions do not get new fictional transactions. Since the recorded fictional transactions
+ * follow the split, the fictional transactions of a split are created when the first transaction
+ * after the date of the split is processed. Splits that have already been applied to a lot are not
+ * applied to it again.</p>
+ *
+ * <p>The IDs of the fictional transactions must follow the order of execution like the IDs of all
+ * transactions, i.e. they must be between the ID of the last transaction before the split and the
+ * ID of the first transaction at or after the date of the split. They are allocated by the
+ * specified ID allocator from the ID of the preceding transaction. For example, an allocator of
+ * consecutive IDs supports the splits after the last transaction and an allocator that adds one to
+ * the preceding ID supports histories whose IDs leave gaps.</p>
+ */
+@NotThreadSafe
+public final class SplitProcessor {
+
+  private static final Comparator<SplitEvent> SPLIT_ORDER =
+      Comparator.comparing(SplitEvent::getDate).thenComparing(SplitEvent::getIsin);
+
+  private final @NonNull LongUnaryOperator idAllocator;
+
+  /**
+   * Creates a split processor.
+   *
+   * @param idAllocator allocates the ID of a fictional transaction that directly follows the
+   *                    transaction with the specified ID (<code>-1</code> if there is none).
+   */
+  public SplitProcessor(@NonNull LongUnaryOperator idAllocator) {
+    this.idAllocator = requireNonNull(idAllocator);
+  }
+
+  /**
+   * Processes the specified transactions and applies the specified splits to the open lots.
+   *
+   * @param transactions the transactions ordered by their IDs. The transactions are iterated once.
+   * @param splits       the splits in any order.
+   * @param matcher      the lot matcher that has not yet processed the transactions.
+   * @return the created fictional transactions and the result of matching the transactions.
+   * @throws SplitProcessingException thrown if a transaction cannot be matched. The exception
+   *                                  contains the fictional transactions of the splits that have
+   *                                  been applied before the invalid transaction and the result of
+   *                                  matching the transactions before the invalid transaction.
+   * @throws IllegalStateException    thrown if an allocated ID does not follow the order of
+   *                                  execution.
+   * @see LotMatcher#process(Iterable)
+   */
+  public @NonNull SplitResult process(@NonNull Iterable<? extends Transaction> transactions,
+      @NonNull Collection<@NonNull SplitEvent> splits, @NonNull LotMatcher matcher)
+      throws SplitProcessingException, IllegalStateException {
+    final List<SplitEvent> sortedSplits = new ArrayList<>(splits);
+    sortedSplits.sort(SPLIT_ORDER);
+    final Pass pass = new Pass(matcher);
+
+    int splitIndex = 0;
+    for (final Transaction transaction : transactions) {
+      while (splitIndex < sortedSplits.size()
+          && !sortedSplits.get(splitIndex).getDate().isAfter(transaction.getDate())) {
+        pass.applySplit(sortedSplits.get(splitIndex++), transaction.getId());
+      }
+      pass.createFictionalTransactions(transaction.getDate());
+      if (transaction.isFictional()) {
+        // the split has already been recorded by the fictional transactions
+        pass.pendingSplits.remove(splitKey(transaction.getIsin(), transaction.getDate()));
+      }
+      try {
+        matcher.process(transaction, pass.realizedCosts, pass.remainingQuantities);
+      } catch (IllegalArgumentException e) {
+        pass.createFictionalTransactions(LocalDate.MAX);
+        throw new SplitProcessingException(transaction.getId(), pass.result(), e);
+      }
+    }
+    while (splitIndex < sortedSplits.size()) {
+      pass.applySplit(sortedSplits.get(splitIndex++), Long.MAX_VALUE);
+    }
+    pass.createFictionalTransactions(LocalDate.MAX);
+    return pass.result();
+  }
+
+  private static @NonNull String splitKey(@NonNull String isin, @NonNull LocalDate date) {
+    return isin + '@' + date;
+  }
+
+  /**
+   * State of processing transactions and splits.
+   */
+  @NotThreadSafe
+  private final class Pass {
+
+    private final @NonNull LotMatcher matcher;
+    private final List<RealizedCost> realizedCosts = new ArrayList<>();
+    private final Map<Long, BigDecimal> remainingQuantities = new TreeMap<>();
+    private final Map<String, PendingSplit> pendingSplits = new LinkedHashMap<>();
+    private final List<SplitTransactions> fictionalTransactions = new ArrayList<>();
+    private long lastFictionalId = -1;
+
+    private Pass(@NonNull LotMatcher matcher) {
+      this.matcher = matcher;
+    }
+
+    private void applySplit(@NonNull SplitEvent split, long nextId) {
+      final BigDecimal openQuantity = matcher.applySplit(split);
+      if (openQuantity.signum() > 0) {
+        // a lot has been split, so that the matcher has a purchase of the ISIN
+        pendingSplits.put(splitKey(split.getIsin(), split.getDate()), new PendingSplit(split,
+            openQuantity, requireNonNull(matcher.getTemplate(split.getIsin())),
+            matcher.getLastId(), nextId));
+      }
+    }
+
+    /**
+     * Creates the fictional transactions of the pending splits before the specified date. No
+     * fictional transactions of these splits can follow.
+     */
+    private void createFictionalTransactions(@NonNull LocalDate date) {
+      final Iterator<PendingSplit> iterator = pendingSplits.values().iterator();
+      while (iterator.hasNext()) {
+        final PendingSplit pendingSplit = iterator.next();
+        if (!pendingSplit.split.getDate().isBefore(date)) {
+          return;
+        }
+        iterator.remove();
+        fictionalTransactions.add(newFictionalTransactions(pendingSplit));
+      }
+    }
+
+    private @NonNull SplitTransactions newFictionalTransactions(
+        @NonNull PendingSplit pendingSplit) {
+      final SplitEvent split = pendingSplit.split;
+      final Transaction template = pendingSplit.template;
+      final long saleId = allocateId(Math.max(pendingSplit.previousId, lastFictionalId),
+          pendingSplit);
+      final long purchaseId = allocateId(saleId, pendingSplit);
+      lastFictionalId = purchaseId;
+
+      final Price zero = new Price(BigDecimal.ZERO, template.getTotal().getCurrency());
+      final SimpleSaleTransaction sale = SimpleSaleTransaction.builder()
+          .id(saleId)
+          .fictional(true)
+          .date(split.getDate())
+          .isin(split.getIsin())
+          .tickerSymbol(template.getTickerSymbol())
+          .name(template.getName())
+          .quantity(pendingSplit.openQuantity.negate())
+          .total(zero)
+          .build();
+      final SimplePurchaseTransaction purchase = SimplePurchaseTransaction.builder()
+          .id(purchaseId)
+          .fictional(true)
+          .date(split.getDate())
+          .isin(split.getIsin())
+          .tickerSymbol(template.getTickerSymbol())
+          .name(template.getName())
+          .quantity(pendingSplit.openQuantity.multiply(split.getRatio()))
+          .total(zero)
+          .build();
+      return new SplitTransactions(split, sale, purchase);
+    }
+
+    private long allocateId(long previousId, @NonNull PendingSplit pendingSplit) {
+      final long id = idAllocator.applyAsLong(previousId);
+      if (id <= previousId || id >= pendingSplit.nextId) {
+        throw new IllegalStateException("ID of fictional transaction of split of "
+            + pendingSplit.split.getIsin() + " at " + pendingSplit.split.getDate()
+            + " must be after " + previousId
+            + (pendingSplit.nextId == Long.MAX_VALUE ? "" : " and before " + pendingSplit.nextId)
+            + ": " + id);
+      }
+      return id;
+    }
+
+    private @NonNull SplitResult result() {
+      return new SplitResult(fictionalTransactions,
+          new LotMatchResult(realizedCosts, remainingQuantities));
+    }
+  }
+
+  /**
+   * Split that has been applied to an open quantity and whose fictional transactions have not yet
+   * been created. The IDs of its fictional transactions must be between the specified IDs.
+   */
+  private static final class PendingSplit {
+
+    private final @NonNull SplitEvent split;
+    private final @NonNull BigDecimal openQuantity;
+    private final @NonNull Transaction template;
+    private final long previousId;
+    private final long nextId;
+
+    private PendingSplit(@NonNull SplitEvent split, @NonNull BigDecimal openQuantity,
+        @NonNull Transaction template, long previousId, long nextId) {
+      this.split = split;
+      this.openQuantity = openQuantity;
+      this.template = template;
+      this.previousId = previousId;
+      this.nextId = nextId;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import java.util.List;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Result of {@linkplain SplitProcessor processing} transactions together with splits.
+ */
+@Immutable
+@ThreadSafe
+public final class SplitResult {
+
+  private final @NonNull List<@NonNull SplitTransactions> fictionalTransactions;
+  private final @NonNull LotMatchResult matchResult;
+
+  SplitResult(@NonNull List<@NonNull SplitTransactions> fictionalTransactions,
+      @NonNull LotMatchResult matchResult) {
+    this.fictionalTransactions = List.copyOf(fictionalTransactions);
+    this.matchResult = matchResult;
+  }
+
+  /**
+   * Returns the new fictional sales and purchases of the applied splits in the order of the
+   * splits. Splits that have already been recorded by fictional transactions and splits of
+   * securities without open quantity have no fictional transactions.
+   *
+   * @return the new fictional transactions of the applied splits.
+   */
+  public @NonNull List<@NonNull SplitTransactions> getFictionalTransactions() {
+    return fictionalTransactions;
+  }
+
+  /**
+   * Returns the result of matching the processed transactions. The remaining quantities and the
+   * last split dates of the adjusted lots are contained in the
+   * {@linkplain LotMatcher#getLotStates() lot states} of the used lot matcher.
+   *
+   * @return the result of matching the processed transactions.
+   */
+  public @NonNull LotMatchResult getMatchResult() {
+    return matchResult;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Fictional sale of the open quantity of a security before a split and the fictional purchase of
+ * the resulting quantity after the split.
+ */
+@Immutable
+@ThreadSafe
+public final class SplitTransactions {
+
+  private final @NonNull SplitEvent split;
+  private final @NonNull SimpleSaleTransaction sale;
+  private final @NonNull SimplePurchaseTransaction purchase;
+
+  SplitTransactions(@NonNull SplitEvent split, @NonNull SimpleSaleTransaction sale,
+      @NonNull SimplePurchaseTransaction purchase) {
+    this.split = requireNonNull(split);
+    this.sale = requireNonNull(sale);
+    this.purchase = requireNonNull(purchase);
+  }
+
+  public @NonNull SplitEvent getSplit() {
+    return split;
+  }
+
+  public @NonNull SimpleSaleTransaction getSale() {
+    return sale;
+  }
+
+  public @NonNull SimplePurchaseTransaction getPurchase() {
+    return purchase;
+  }
+}
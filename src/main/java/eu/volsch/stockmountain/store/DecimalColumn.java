@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Column of decimal values that are stored as unscaled <code>long</code> values and scales. The
+ * rare values that do not fit into this representation are kept as decimal values in a separate
+ * map. The scale of all values is preserved.
+ */
+@NotThreadSafe
+final class DecimalColumn {
+
+  static final int MAX_SCALE = 18;
+
+  private static final byte NULL_SCALE = Byte.MIN_VALUE;
+  private static final byte INFLATED_SCALE = Byte.MIN_VALUE + 1;
+  private static final int LONG_BITS = 63;
+
+  private long[] unscaledValues;
+  private byte[] scales;
+  private final Map<Integer, BigDecimal> inflatedValues = new HashMap<>();
+
+  DecimalColumn(@NonNegative int capacity) {
+    unscaledValues = new long[capacity];
+    scales = new byte[capacity];
+  }
+
+  void grow(@NonNegative int capacity) {
+    unscaledValues = Arrays.copyOf(unscaledValues, capacity);
+    scales = Arrays.copyOf(scales, capacity);
+  }
+
+  void set(@NonNegative int index, @Nullable BigDecimal value) {
+    inflatedValues.remove(index);
+    if (value == null) {
+      unscaledValues[index] = 0;
+      scales[index] = NULL_SCALE;
+      return;
+    }
+    final int scale = value.scale();
+    if (scale >= 0 && scale <= MAX_SCALE) {
+      final BigInteger unscaledValue = value.unscaledValue();
+      if (unscaledValue.bitLength() <= LONG_BITS) {
+        unscaledValues[index] = unscaledValue.longValue();
+        scales[index] = (byte) scale;
+        return;
+      }
+    }
+    unscaledValues[index] = 0;
+    scales[index] = INFLATED_SCALE;
+    inflatedValues.put(index, value);
+  }
+
+  @Nullable BigDecimal get(@NonNegative int index) {
+    final byte scale = scales[index];
+    if (scale == NULL_SCALE) {
+      return null;
+    }
+    if (scale == INFLATED_SCALE) {
+      return inflatedValues.get(index);
+    }
+    return BigDecimal.valueOf(unscaledValues[index], scale);
+  }
+
+  boolean isNull(@NonNegative int index) {
+    return scales[index] == NULL_SCALE;
+  }
+}
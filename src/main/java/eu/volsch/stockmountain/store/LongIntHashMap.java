@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import java.util.Arrays;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * Map from primitive <code>long</code> keys to non-negative <code>int</code> values with open
+ * addressing and linear probing. Neither keys nor values are boxed. Empty slots are marked by a
+ * negative value, so that all keys can be used.
+ */
+@NotThreadSafe
+final class LongIntHashMap {
+
+  static final int MISSING = -1;
+
+  private static final int MIN_CAPACITY = 16;
+  private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private @NonNegative int size;
+
+  LongIntHashMap() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   * Puts the value of the specified key.
+   *
+   * @param key   the key.
+   * @param value the non-negative value.
+   * @return the previous value or {@link #MISSING}.
+   */
+  int put(long key, @NonNegative int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Value must not be negative: " + value);
+    }
+    int slot = slot(key);
+    while (values[slot] != MISSING) {
+      if (keys[slot] == key) {
+        final int previousValue = values[slot];
+        values[slot] = value;
+        return previousValue;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    // load factor of 0.5 keeps the probe sequences short
+    if (++size > values.length >>> 1) {
+      rehash(values.length << 1);
+    }
+    return MISSING;
+  }
+
+  /**
+   * Returns the value of the specified key.
+   *
+   * @param key the key.
+   * @return the value or {@link #MISSING}.
+   */
+  int get(long key) {
+    int slot = slot(key);
+    while (values[slot] != MISSING) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return MISSING;
+  }
+
+  @NonNegative int size() {
+    return size;
+  }
+
+  private int slot(long key) {
+    final long hash = key * GOLDEN_RATIO;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, MISSING);
+    mask = capacity - 1;
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldKeys = keys;
+    final int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != MISSING) {
+        int slot = slot(oldKeys[i]);
+        while (values[slot] != MISSING) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
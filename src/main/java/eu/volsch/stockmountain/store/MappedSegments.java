@@ -0,0 +1,167 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * File that is mapped into memory in segments of a fixed size. A single mapped buffer is limited to
+ * 2 GiB, so that larger files are split into several segments that are mapped when they are
+ * accessed for the first time. The file starts with a header of a fixed size that is mapped
+ * separately. The file grows when a segment beyond its end is mapped.
+ *
+ * <p>The segments are mapped as {@link MappedByteBuffer MappedByteBuffers}. A
+ * {@code java.lang.foreign.MemorySegment} could map the complete file without this limit, but the
+ * Foreign Function and Memory API is only a preview API in Java 21 and would require enabling
+ * preview features for the build and at runtime.</p>
+ */
+@NotThreadSafe
+final class MappedSegments implements Closeable {
+
+  private final @NonNull FileChannel channel;
+  private final @Positive int headerSize;
+  private final @Positive int segmentSize;
+  private final boolean created;
+  private final @NonNull MappedByteBuffer header;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private boolean closed;
+
+  private MappedSegments(@NonNull FileChannel channel, @Positive int headerSize,
+      @Positive int segmentSize) throws IOException {
+    this.channel = channel;
+    this.headerSize = headerSize;
+    this.segmentSize = segmentSize;
+    this.created = channel.size() == 0;
+    this.header = channel.map(MapMode.READ_WRITE, 0, headerSize);
+  }
+
+  /**
+   * Opens the specified file and creates it if it does not exist.
+   *
+   * @param file        the file that should be opened.
+   * @param headerSize  the size of the header at the start of the file in bytes.
+   * @param segmentSize the size of a segment in bytes.
+   * @return the opened file.
+   * @throws IOException thrown if the file cannot be opened or mapped.
+   */
+  static @NonNull MappedSegments open(@NonNull Path file, @Positive int headerSize,
+      @Positive int segmentSize) throws IOException {
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      return new MappedSegments(channel, headerSize, segmentSize);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns if the file has been created (i.e. it was empty) when it was opened.
+   *
+   * @return <code>true</code> if the file has been created.
+   */
+  boolean isCreated() {
+    return created;
+  }
+
+  @NonNull MappedByteBuffer header() {
+    checkOpen();
+    return header;
+  }
+
+  @Positive int getSegmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Returns the segment with the specified index and maps it if it has not yet been mapped.
+   *
+   * @param segmentIndex the index of the segment.
+   * @return the mapped segment.
+   * @throws UncheckedIOException thrown if the segment cannot be mapped.
+   * @throws IllegalStateException thrown if the file has been closed.
+   */
+  @NonNull MappedByteBuffer segment(@NonNegative int segmentIndex)
+      throws UncheckedIOException, IllegalStateException {
+    checkOpen();
+    if (segmentIndex < segments.size()) {
+      return segments.get(segmentIndex);
+    }
+    try {
+      for (int i = segments.size(); i <= segmentIndex; i++) {
+        segments.add(channel.map(MapMode.READ_WRITE,
+            headerSize + (long) i * segmentSize, segmentSize));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Segment cannot be mapped: " + segmentIndex, e);
+    }
+    return segments.get(segmentIndex);
+  }
+
+  /**
+   * Writes all changes of the mapped segments and finally of the header to the storage device.
+   */
+  void force() {
+    checkOpen();
+    segments.forEach(MappedByteBuffer::force);
+    header.force();
+  }
+
+  /**
+   * Closes the file. The mapped buffers are released by the garbage collector, so that they must
+   * no longer be accessed.
+   *
+   * @throws IOException thrown if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      segments.clear();
+      channel.close();
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("File has been closed");
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Append-only file of strings that are referenced by their offset in the file. Each entry consists
+ * of its kind, the length of the UTF-8 encoded string and the encoded string. An entry never spans
+ * two segments of the file. The rest of a segment that cannot take the next entry is marked as
+ * padding.
+ *
+ * <p>Strings that occur in many rows (e.g. ISINs and currencies) are added as shared strings. The
+ * shared strings are also kept in memory, so that each shared string is stored only once and is
+ * not decoded on each access. When the file is opened, the shared strings are collected by skipping
+ * through the entries without decoding other strings.</p>
+ */
+@NotThreadSafe
+final class MappedStrings implements Closeable {
+
+  static final long NULL_OFFSET = -1;
+
+  private static final int MAGIC = 0x534d5354;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_POSITION = 0;
+  private static final int FORMAT_VERSION_POSITION = 4;
+  private static final int END_POSITION = 8;
+  private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+  private static final byte PLAIN_KIND = 0;
+  private static final byte SHARED_KIND = 1;
+  private static final byte PADDING_KIND = 2;
+  private static final int ENTRY_HEADER_SIZE = 5;
+
+  private final @NonNull MappedSegments file;
+  private final Map<String, Long> sharedOffsets = new HashMap<>();
+  private final Map<Long, String> sharedValues = new HashMap<>();
+  private long end;
+
+  private MappedStrings(@NonNull MappedSegments file) throws IOException {
+    this.file = file;
+    final MappedByteBuffer header = file.header();
+    if (file.isCreated()) {
+      header.putInt(MAGIC_POSITION, MAGIC);
+      header.putInt(FORMAT_VERSION_POSITION, FORMAT_VERSION);
+      header.putLong(END_POSITION, 0);
+    } else {
+      if (header.getInt(MAGIC_POSITION) != MAGIC) {
+        throw new IOException("File is not a string file");
+      }
+      if (header.getInt(FORMAT_VERSION_POSITION) != FORMAT_VERSION) {
+        throw new IOException("Unsupported format version of string file: "
+            + header.getInt(FORMAT_VERSION_POSITION));
+      }
+      end = header.getLong(END_POSITION);
+      collectSharedOffsets();
+    }
+  }
+
+  /**
+   * Opens the specified string file and creates it if it does not exist.
+   *
+   * @param file the string file.
+   * @return the opened string file.
+   * @throws IOException thrown if the file cannot be opened or is not a valid string file.
+   */
+  static @NonNull MappedStrings open(@NonNull Path file) throws IOException {
+    final MappedSegments segments = MappedSegments.open(file, HEADER_SIZE, SEGMENT_SIZE);
+    try {
+      return new MappedStrings(segments);
+    } catch (IOException | RuntimeException e) {
+      segments.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Adds the specified string as a new entry.
+   *
+   * @param value the string that should be added.
+   * @return the offset of the string or {@link #NULL_OFFSET} if the string is <code>null</code>.
+   * @throws IllegalArgumentException thrown if the encoded string exceeds the size of a segment.
+   */
+  long add(@Nullable String value) throws IllegalArgumentException {
+    if (value == null) {
+      return NULL_OFFSET;
+    }
+    return append(PLAIN_KIND, value);
+  }
+
+  /**
+   * Adds the specified string as a shared string unless an equal shared string has already been
+   * added.
+   *
+   * @param value the string that should be added.
+   * @return the offset of the string or {@link #NULL_OFFSET} if the string is <code>null</code>.
+   * @throws IllegalArgumentException thrown if the encoded string exceeds the size of a segment.
+   */
+  long addShared(@Nullable String value) throws IllegalArgumentException {
+    if (value == null) {
+      return NULL_OFFSET;
+    }
+    final Long offset = sharedOffsets.get(value);
+    if (offset != null) {
+      return offset;
+    }
+    final long newOffset = append(SHARED_KIND, value);
+    sharedOffsets.put(value, newOffset);
+    sharedValues.put(newOffset, value);
+    return newOffset;
+  }
+
+  /**
+   * Returns the string at the specified offset.
+   *
+   * @param offset the offset of the string or {@link #NULL_OFFSET}.
+   * @return the string or <code>null</code> if the offset is {@link #NULL_OFFSET}.
+   */
+  @Nullable String get(long offset) {
+    if (offset == NULL_OFFSET) {
+      return null;
+    }
+    final String sharedValue = sharedValues.get(offset);
+    if (sharedValue != null) {
+      return sharedValue;
+    }
+    final ByteBuffer segment = file.segment(segmentIndex(offset)).duplicate();
+    final int position = (int) (offset % SEGMENT_SIZE);
+    final byte[] bytes = new byte[segment.getInt(position + 1)];
+    segment.position(position + ENTRY_HEADER_SIZE);
+    segment.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes all added strings to the storage device.
+   */
+  void force() {
+    file.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  private long append(byte kind, @NonNull String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    final int entrySize = ENTRY_HEADER_SIZE + bytes.length;
+    if (entrySize > SEGMENT_SIZE) {
+      throw new IllegalArgumentException("String is too long: " + bytes.length + " bytes");
+    }
+    long offset = end;
+    if (offset % SEGMENT_SIZE + entrySize > SEGMENT_SIZE) {
+      if (SEGMENT_SIZE - offset % SEGMENT_SIZE >= ENTRY_HEADER_SIZE) {
+        file.segment(segmentIndex(offset)).put((int) (offset % SEGMENT_SIZE), PADDING_KIND);
+      }
+      offset = (segmentIndex(offset) + 1L) * SEGMENT_SIZE;
+    }
+    final ByteBuffer segment = file.segment(segmentIndex(offset)).duplicate();
+    final int position = (int) (offset % SEGMENT_SIZE);
+    segment.put(position, kind);
+    segment.putInt(position + 1, bytes.length);
+    segment.position(position + ENTRY_HEADER_SIZE);
+    segment.put(bytes);
+
+    end = offset + entrySize;
+    file.header().putLong(END_POSITION, end);
+    return offset;
+  }
+
+  private void collectSharedOffsets() {
+    long offset = 0;
+    while (offset < end) {
+      final ByteBuffer segment = file.segment(segmentIndex(offset));
+      final int position = (int) (offset % SEGMENT_SIZE);
+      if (SEGMENT_SIZE - position < ENTRY_HEADER_SIZE) {
+        offset = (segmentIndex(offset) + 1L) * SEGMENT_SIZE;
+        continue;
+      }
+      final byte kind = segment.get(position);
+      if (kind == PADDING_KIND) {
+        offset = (segmentIndex(offset) + 1L) * SEGMENT_SIZE;
+        continue;
+      }
+      final int length = segment.getInt(position + 1);
+      if (kind == SHARED_KIND) {
+        final String value = requireNonNull(get(offset));
+        sharedOffsets.put(value, offset);
+        sharedValues.put(offset, value);
+      }
+      offset += ENTRY_HEADER_SIZE + length;
+    }
+  }
+
+  private static int segmentIndex(long offset) {
+    return Math.toIntExact(offset / SEGMENT_SIZE);
+  }
+}
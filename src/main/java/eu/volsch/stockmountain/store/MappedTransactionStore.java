@@ -0,0 +1,551 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Store that keeps {@linkplain Transaction transactions} as rows of a fixed binary layout in
+ * memory-mapped files of a directory. The rows are kept outside the heap, so that histories that
+ * are too large for the heap can be stored and the rows are not scanned by the garbage collector.
+ * When the store is opened again, the rows are used as they are without deserialization. Strings
+ * (e.g. ISINs and names) are stored in a separate append-only string file and are referenced by
+ * their offsets. When a transaction is replaced, the strings of the row that have not changed are
+ * referenced again, so that an update of a transaction only adds the changed strings.
+ * Dates are stored as epoch days, times as nanoseconds of the day and decimal values as unscaled
+ * <code>long</code> values with their scale.
+ *
+ * <p>The transactions are read through lightweight views that implement
+ * {@link PurchaseTransaction} or {@link SaleTransaction} and that read their values from the
+ * mapped rows on each access. The views must not be used after the store has been closed. Changes
+ * are written to the files by the operating system. They are only guaranteed to survive a crash of
+ * the operating system after the store has been {@linkplain #flush() flushed}. The store is not
+ * thread-safe. Concurrent reads are safe as long as no transaction is added or updated
+ * concurrently.</p>
+ */
+@NotThreadSafe
+public final class MappedTransactionStore implements Closeable {
+
+  static final String ROWS_FILE_NAME = "transactions.dat";
+  static final String STRINGS_FILE_NAME = "strings.dat";
+
+  private static final int MAGIC = 0x534d5452;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_POSITION = 0;
+  private static final int FORMAT_VERSION_POSITION = 4;
+  private static final int ROW_SIZE_POSITION = 8;
+  private static final int SIZE_POSITION = 16;
+  private static final int ROWS_PER_SEGMENT = 1 << 16;
+
+  private static final int ID = 0;
+  private static final int VERSION = 8;
+  private static final int FLAGS = 12;
+  private static final int EPOCH_DAY = 16;
+  private static final int LAST_SPLIT_EPOCH_DAY = 20;
+  private static final int NANO_OF_DAY = 24;
+  private static final int ISIN = 32;
+  private static final int TICKER_SYMBOL = 40;
+  private static final int NAME = 48;
+  private static final int SECURITIES_EXCHANGE = 56;
+  private static final int ORDER_ID = 64;
+  private static final int TRANSACTION_ID = 72;
+  private static final int QUANTITY = 80;
+  private static final int REMAINING_QUANTITY = 89;
+  private static final int EXCHANGE_RATE = 98;
+  private static final int LOCAL_PRICE = 107;
+  private static final int LOCAL_VALUE = 124;
+  private static final int VALUE = 141;
+  private static final int COMMISSION = 158;
+  private static final int TOTAL = 175;
+  private static final int ROW_SIZE = 192;
+
+  private static final int DECIMAL_SCALE = 8;
+  private static final int DECIMAL_SIZE = 9;
+  private static final byte NULL_SCALE = Byte.MIN_VALUE;
+  private static final byte INFLATED_SCALE = Byte.MIN_VALUE + 1;
+  private static final int LONG_BITS = 63;
+
+  private static final byte SALE_FLAG = 1;
+  private static final byte FICTIONAL_FLAG = 2;
+  private static final long NULL_TIME = -1;
+  private static final int NULL_DATE = Integer.MIN_VALUE;
+
+  private final @NonNull MappedSegments rowFile;
+  private final @NonNull MappedStrings strings;
+  private final Rows rows = new Rows();
+  private @NonNegative int size;
+  private boolean closed;
+  private @Nullable String lastOrderId;
+  private long lastOrderIdOffset = MappedStrings.NULL_OFFSET;
+
+  private MappedTransactionStore(@NonNull MappedSegments rowFile, @NonNull MappedStrings strings)
+      throws IOException {
+    this.rowFile = rowFile;
+    this.strings = strings;
+    final MappedByteBuffer header = rowFile.header();
+    if (rowFile.isCreated()) {
+      header.putInt(MAGIC_POSITION, MAGIC);
+      header.putInt(FORMAT_VERSION_POSITION, FORMAT_VERSION);
+      header.putInt(ROW_SIZE_POSITION, ROW_SIZE);
+      header.putLong(SIZE_POSITION, 0);
+    } else {
+      if (header.getInt(MAGIC_POSITION) != MAGIC) {
+        throw new IOException("File is not a transaction file");
+      }
+      if (header.getInt(FORMAT_VERSION_POSITION) != FORMAT_VERSION
+          || header.getInt(ROW_SIZE_POSITION) != ROW_SIZE) {
+        throw new IOException("Unsupported format version of transaction file: "
+            + header.getInt(FORMAT_VERSION_POSITION));
+      }
+      size = Math.toIntExact(header.getLong(SIZE_POSITION));
+    }
+  }
+
+  /**
+   * Opens the store in the specified directory. The directory and the files of the store are
+   * created if they do not exist.
+   *
+   * @param directory the directory of the store.
+   * @return the opened store.
+   * @throws IOException thrown if the files of the store cannot be opened or are invalid.
+   */
+  public static @NonNull MappedTransactionStore open(@NonNull Path directory) throws IOException {
+    Files.createDirectories(directory);
+    final MappedStrings strings = MappedStrings.open(directory.resolve(STRINGS_FILE_NAME));
+    MappedSegments rowFile = null;
+    try {
+      rowFile = MappedSegments.open(directory.resolve(ROWS_FILE_NAME), HEADER_SIZE,
+          ROWS_PER_SEGMENT * ROW_SIZE);
+      return new MappedTransactionStore(rowFile, strings);
+    } catch (IOException | RuntimeException e) {
+      if (rowFile != null) {
+        rowFile.close();
+      }
+      strings.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the number of stored transactions.
+   *
+   * @return the number of stored transactions.
+   */
+  public @NonNegative int size() {
+    return size;
+  }
+
+  /**
+   * Adds the specified transaction to the end of this store.
+   *
+   * @param transaction the transaction that should be added.
+   * @return the index of the added transaction.
+   * @throws IllegalStateException thrown if the store is full or has been closed.
+   */
+  public @NonNegative int add(@NonNull Transaction transaction) throws IllegalStateException {
+    if (size == Integer.MAX_VALUE) {
+      throw new IllegalStateException("Store is full");
+    }
+    final int index = size;
+    write(index, transaction, false);
+    size++;
+    rowFile.header().putLong(SIZE_POSITION, size);
+    return index;
+  }
+
+  /**
+   * Adds all specified transactions to the end of this store.
+   *
+   * @param transactions the transactions that should be added.
+   * @throws IllegalStateException thrown if the store is full or has been closed.
+   */
+  public void addAll(@NonNull Iterable<? extends Transaction> transactions)
+      throws IllegalStateException {
+    transactions.forEach(this::add);
+  }
+
+  /**
+   * Replaces the transaction at the specified index (e.g. a new version of the transaction).
+   *
+   * @param index       the index of the transaction.
+   * @param transaction the transaction that replaces the stored transaction.
+   * @throws IndexOutOfBoundsException thrown if the index is invalid.
+   * @throws IllegalStateException     thrown if the store has been closed.
+   */
+  public void set(@NonNegative int index, @NonNull Transaction transaction)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    Objects.checkIndex(index, size);
+    write(index, transaction, true);
+  }
+
+  /**
+   * Returns a view of the transaction at the specified index. The view implements
+   * {@link PurchaseTransaction} or {@link SaleTransaction} depending on the type of the
+   * transaction.
+   *
+   * @param index the index of the transaction.
+   * @return the view of the transaction.
+   * @throws IndexOutOfBoundsException thrown if the index is invalid.
+   * @throws IllegalStateException     thrown if the store has been closed.
+   */
+  public @NonNull Transaction get(@NonNegative int index)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    return TransactionView.of(rows, Objects.checkIndex(index, size));
+  }
+
+  /**
+   * Returns a stream of views of all transactions in the order of their indexes.
+   *
+   * @return the stream of views of all transactions.
+   */
+  public @NonNull Stream<Transaction> stream() {
+    return IntStream.range(0, size).mapToObj(this::get);
+  }
+
+  public long getId(@NonNegative int index) {
+    return rows.getId(Objects.checkIndex(index, size));
+  }
+
+  public @NonNull TransactionType getType(@NonNegative int index) {
+    return rows.isSale(Objects.checkIndex(index, size))
+        ? TransactionType.SALE : TransactionType.PURCHASE;
+  }
+
+  /**
+   * Returns the date of the transaction at the specified index as epoch day.
+   *
+   * @param index the index of the transaction.
+   * @return the epoch day of the date of the transaction.
+   * @see LocalDate#toEpochDay()
+   */
+  public int getEpochDay(@NonNegative int index) {
+    Objects.checkIndex(index, size);
+    return segment(index).getInt(position(index) + EPOCH_DAY);
+  }
+
+  /**
+   * Writes all changes of this store to the storage device. The strings are written before the
+   * rows that reference them and the number of transactions is written last.
+   *
+   * @throws IllegalStateException thrown if the store has been closed.
+   */
+  public void flush() throws IllegalStateException {
+    strings.force();
+    rowFile.force();
+  }
+
+  /**
+   * Flushes and closes this store. Views of the transactions of this store must no longer be used.
+   *
+   * @throws IOException thrown if the files of the store cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      flush();
+    } finally {
+      try {
+        rowFile.close();
+      } finally {
+        strings.close();
+      }
+    }
+  }
+
+  private @NonNull ByteBuffer segment(@NonNegative int index) {
+    return rowFile.segment(index / ROWS_PER_SEGMENT);
+  }
+
+  private static int position(@NonNegative int index) {
+    return (index % ROWS_PER_SEGMENT) * ROW_SIZE;
+  }
+
+  private void write(@NonNegative int index, @NonNull Transaction transaction, boolean replace) {
+    final TransactionType type = requireNonNull(transaction.getType());
+    final ByteBuffer segment = segment(index);
+    final int position = position(index);
+    segment.putLong(position + ID, transaction.getId());
+    segment.putInt(position + VERSION, transaction.getVersion());
+    segment.put(position + FLAGS, (byte) ((type == TransactionType.SALE ? SALE_FLAG : 0)
+        | (transaction.isFictional() ? FICTIONAL_FLAG : 0)));
+    segment.putInt(position + EPOCH_DAY, Math.toIntExact(transaction.getDate().toEpochDay()));
+    final LocalTime time = transaction.getTime();
+    segment.putLong(position + NANO_OF_DAY, time == null ? NULL_TIME : time.toNanoOfDay());
+    segment.putLong(position + ISIN, strings.addShared(requireNonNull(transaction.getIsin())));
+    segment.putLong(position + TICKER_SYMBOL, strings.addShared(transaction.getTickerSymbol()));
+    segment.putLong(position + NAME, strings.addShared(requireNonNull(transaction.getName())));
+    segment.putLong(position + SECURITIES_EXCHANGE,
+        strings.addShared(transaction.getSecuritiesExchange()));
+    segment.putLong(position + ORDER_ID,
+        addOrderId(segment, position + ORDER_ID, replace, transaction.getOrderId()));
+    segment.putLong(position + TRANSACTION_ID,
+        addString(segment, position + TRANSACTION_ID, replace, transaction.getTransactionId()));
+    writeDecimal(segment, position + QUANTITY, replace, requireNonNull(transaction.getQuantity()));
+    writeDecimal(segment, position + EXCHANGE_RATE, replace, transaction.getExchangeRate());
+    writePrice(segment, position + LOCAL_PRICE, replace, transaction.getLocalPrice());
+    writePrice(segment, position + LOCAL_VALUE, replace, transaction.getLocalValue());
+    writePrice(segment, position + VALUE, replace, transaction.getValue());
+    writePrice(segment, position + COMMISSION, replace, transaction.getCommission());
+    writePrice(segment, position + TOTAL, replace, requireNonNull(transaction.getTotal()));
+
+    BigDecimal remainingQuantity = null;
+    LocalDate lastSplitDate = null;
+    if (transaction instanceof PurchaseTransaction) {
+      remainingQuantity = ((PurchaseTransaction) transaction).getRemainingQuantity();
+      lastSplitDate = ((PurchaseTransaction) transaction).getLastSplitDate();
+    }
+    writeDecimal(segment, position + REMAINING_QUANTITY, replace, remainingQuantity);
+    segment.putInt(position + LAST_SPLIT_EPOCH_DAY, lastSplitDate == null
+        ? NULL_DATE : Math.toIntExact(lastSplitDate.toEpochDay()));
+  }
+
+  private long addOrderId(@NonNull ByteBuffer segment, int position, boolean replace,
+      @Nullable String orderId) {
+    if (orderId == null) {
+      return MappedStrings.NULL_OFFSET;
+    }
+    // the transactions of an order are usually adjacent
+    if (!orderId.equals(lastOrderId)) {
+      lastOrderIdOffset = addString(segment, position, replace, orderId);
+      lastOrderId = orderId;
+    }
+    return lastOrderIdOffset;
+  }
+
+  /**
+   * Adds the specified string unless the replaced row references an equal string at the specified
+   * position. The offset of the string is returned.
+   */
+  private long addString(@NonNull ByteBuffer segment, int position, boolean replace,
+      @Nullable String value) {
+    if (replace && value != null) {
+      final long offset = segment.getLong(position);
+      if (value.equals(strings.get(offset))) {
+        return offset;
+      }
+    }
+    return strings.add(value);
+  }
+
+  private void writeDecimal(@NonNull ByteBuffer segment, int position, boolean replace,
+      @Nullable BigDecimal value) {
+    if (value == null) {
+      segment.putLong(position, 0);
+      segment.put(position + DECIMAL_SCALE, NULL_SCALE);
+      return;
+    }
+    final int scale = value.scale();
+    if (scale >= 0 && scale <= DecimalColumn.MAX_SCALE) {
+      final BigInteger unscaledValue = value.unscaledValue();
+      if (unscaledValue.bitLength() <= LONG_BITS) {
+        segment.putLong(position, unscaledValue.longValue());
+        segment.put(position + DECIMAL_SCALE, (byte) scale);
+        return;
+      }
+    }
+    // only an inflated value of the replaced row references a string
+    segment.putLong(position, addString(segment, position,
+        replace && segment.get(position + DECIMAL_SCALE) == INFLATED_SCALE, value.toString()));
+    segment.put(position + DECIMAL_SCALE, INFLATED_SCALE);
+  }
+
+  private void writePrice(@NonNull ByteBuffer segment, int position, boolean replace,
+      @Nullable Price price) {
+    if (price == null) {
+      writeDecimal(segment, position, replace, null);
+      segment.putLong(position + DECIMAL_SIZE, MappedStrings.NULL_OFFSET);
+    } else {
+      writeDecimal(segment, position, replace, price.getValue());
+      segment.putLong(position + DECIMAL_SIZE, strings.addShared(price.getCurrency()));
+    }
+  }
+
+  /**
+   * Reads the values of the rows from the mapped segments of the store.
+   */
+  private final class Rows implements TransactionRows {
+
+    @Override
+    public long getId(@NonNegative int index) {
+      return segment(index).getLong(position(index) + ID);
+    }
+
+    @Override
+    public int getVersion(@NonNegative int index) {
+      return segment(index).getInt(position(index) + VERSION);
+    }
+
+    @Override
+    public boolean isSale(@NonNegative int index) {
+      return (segment(index).get(position(index) + FLAGS) & SALE_FLAG) != 0;
+    }
+
+    @Override
+    public boolean isFictional(@NonNegative int index) {
+      return (segment(index).get(position(index) + FLAGS) & FICTIONAL_FLAG) != 0;
+    }
+
+    @Override
+    public @NonNull LocalDate getDate(@NonNegative int index) {
+      return LocalDate.ofEpochDay(segment(index).getInt(position(index) + EPOCH_DAY));
+    }
+
+    @Override
+    public @Nullable LocalTime getTime(@NonNegative int index) {
+      final long nanoOfDay = segment(index).getLong(position(index) + NANO_OF_DAY);
+      return nanoOfDay == NULL_TIME ? null : LocalTime.ofNanoOfDay(nanoOfDay);
+    }
+
+    @Override
+    public @NonNull String getIsin(@NonNegative int index) {
+      return requireNonNull(readString(index, ISIN));
+    }
+
+    @Override
+    public @Nullable String getTickerSymbol(@NonNegative int index) {
+      return readString(index, TICKER_SYMBOL);
+    }
+
+    @Override
+    public @NonNull String getName(@NonNegative int index) {
+      return requireNonNull(readString(index, NAME));
+    }
+
+    @Override
+    public @Nullable String getSecuritiesExchange(@NonNegative int index) {
+      return readString(index, SECURITIES_EXCHANGE);
+    }
+
+    @Override
+    public @NonNull BigDecimal getQuantity(@NonNegative int index) {
+      return requireNonNull(readDecimal(index, QUANTITY));
+    }
+
+    @Override
+    public @Nullable Price getLocalPrice(@NonNegative int index) {
+      return readPrice(index, LOCAL_PRICE);
+    }
+
+    @Override
+    public @Nullable Price getLocalValue(@NonNegative int index) {
+      return readPrice(index, LOCAL_VALUE);
+    }
+
+    @Override
+    public @Nullable BigDecimal getExchangeRate(@NonNegative int index) {
+      return readDecimal(index, EXCHANGE_RATE);
+    }
+
+    @Override
+    public @Nullable Price getValue(@NonNegative int index) {
+      return readPrice(index, VALUE);
+    }
+
+    @Override
+    public @Nullable Price getCommission(@NonNegative int index) {
+      return readPrice(index, COMMISSION);
+    }
+
+    @Override
+    public @NonNull Price getTotal(@NonNegative int index) {
+      return requireNonNull(readPrice(index, TOTAL));
+    }
+
+    @Override
+    public @Nullable String getOrderId(@NonNegative int index) {
+      return readString(index, ORDER_ID);
+    }
+
+    @Override
+    public @Nullable String getTransactionId(@NonNegative int index) {
+      return readString(index, TRANSACTION_ID);
+    }
+
+    @Override
+    public @Nullable BigDecimal getRemainingQuantity(@NonNegative int index) {
+      return readDecimal(index, REMAINING_QUANTITY);
+    }
+
+    @Override
+    public @Nullable LocalDate getLastSplitDate(@NonNegative int index) {
+      final int epochDay = segment(index).getInt(position(index) + LAST_SPLIT_EPOCH_DAY);
+      return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private @Nullable String readString(@NonNegative int index, int offset) {
+      return strings.get(segment(index).getLong(position(index) + offset));
+    }
+
+    private @Nullable BigDecimal readDecimal(@NonNegative int index, int offset) {
+      final ByteBuffer segment = segment(index);
+      final int position = position(index) + offset;
+      final byte scale = segment.get(position + DECIMAL_SCALE);
+      if (scale == NULL_SCALE) {
+        return null;
+      }
+      if (scale == INFLATED_SCALE) {
+        return new BigDecimal(requireNonNull(strings.get(segment.getLong(position))));
+      }
+      return BigDecimal.valueOf(segment.getLong(position), scale);
+    }
+
+    private @Nullable Price readPrice(@NonNegative int index, int offset) {
+      final BigDecimal value = readDecimal(index, offset);
+      if (value == null) {
+        return null;
+      }
+      return new Price(value, requireNonNull(readString(index, offset + DECIMAL_SIZE)));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Dictionary that assigns consecutive IDs to distinct strings, so that columns store the IDs
+ * instead of references to equal strings.
+ */
+@NotThreadSafe
+final class StringDictionary {
+
+  /**
+   * The ID that represents a <code>null</code> string.
+   */
+  static final int NULL_ID = -1;
+
+  private final int maxSize;
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> values = new ArrayList<>();
+
+  StringDictionary(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the ID of the specified string and adds the string if it does not exist yet.
+   *
+   * @param value the string.
+   * @return the ID of the string or {@link #NULL_ID} if the string is <code>null</code>.
+   * @throws IllegalStateException thrown if the maximum number of strings has been reached.
+   */
+  int add(@Nullable String value) throws IllegalStateException {
+    if (value == null) {
+      return NULL_ID;
+    }
+    final Integer id = ids.get(value);
+    if (id != null) {
+      return id;
+    }
+    if (values.size() >= maxSize) {
+      throw new IllegalStateException("Dictionary exceeds " + maxSize + " strings");
+    }
+    final int newId = values.size();
+    values.add(value);
+    ids.put(value, newId);
+    return newId;
+  }
+
+  /**
+   * Returns the ID of the specified string.
+   *
+   * @param value the string.
+   * @return the ID of the string or {@link #NULL_ID} if the string does not exist.
+   */
+  int find(@NonNull String value) {
+    final Integer id = ids.get(value);
+    return id == null ? NULL_ID : id;
+  }
+
+  @Nullable String get(int id) {
+    return id == NULL_ID ? null : values.get(id);
+  }
+
+  @NonNegative int size() {
+    return values.size();
+  }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static java.util.Objects.requireNonNull;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Allocates strictly increasing {@linkplain eu.volsch.stockmountain.model.Transaction#getId()
+ * transaction IDs} per account. IDs are handed out from blocks that are reserved in advance, so
+ * that allocation within a block is a single atomic increment and concurrent imports of the same
+ * account do not serialize on a lock.
+ *
+ * <p>The end of the reserved IDs of each account is stored durably in a file per account before
+ * any ID of a block is handed out. When a process restarts, the allocation continues after the
+ * stored end, so that the IDs remain strictly increasing across restarts. The unused IDs of the
+ * last block before the restart are skipped.
+ *
+ * <p>When less than half of a block remains, the next block is reserved asynchronously with the
+ * specified executor. An allocation that exhausts the reserved IDs before the reservation has
+ * completed waits for it. If storing a reservation fails, all further allocations of the account
+ * fail, since the stored end is unknown.
+ */
+@ThreadSafe
+public final class TransactionIdAllocator {
+
+  /**
+   * The first ID of an account.
+   */
+  public static final long FIRST_ID = 1;
+
+  private static final String FILE_PREFIX = "account-";
+  private static final String FILE_SUFFIX = ".ids";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final int MAGIC = 0x534d4944;
+  private static final int VERSION = 1;
+  private static final int FILE_SIZE = 20;
+  private static final int CHECKSUM_OFFSET = 16;
+
+  private final @NonNull Path directory;
+  private final @Positive int blockSize;
+  private final @NonNull Executor executor;
+  private final Map<String, AccountIds> accounts = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an allocator that stores the reserved IDs in the specified directory. The directory is
+   * created if it does not exist.
+   *
+   * @param directory the directory in which the reserved IDs are stored.
+   * @param blockSize the number of IDs that are reserved at once.
+   * @param executor  the executor that reserves the next blocks asynchronously.
+   * @throws IOException              thrown if the directory cannot be created.
+   * @throws IllegalArgumentException thrown if the block size is not positive.
+   */
+  public TransactionIdAllocator(@NonNull Path directory, @Positive int blockSize,
+      @NonNull Executor executor) throws IOException, IllegalArgumentException {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+    }
+    this.directory = Files.createDirectories(requireNonNull(directory));
+    this.blockSize = blockSize;
+    this.executor = requireNonNull(executor);
+  }
+
+  /**
+   * Allocates the next ID of the specified account. The ID is greater than all IDs that have been
+   * allocated for the account before, also by previous processes.
+   *
+   * @param account the identifier of the account (e.g. broker and account number).
+   * @return the allocated ID.
+   * @throws IOException thrown if the reserved IDs cannot be read or stored.
+   */
+  public long allocate(@NonNull String account) throws IOException {
+    return accountIds(account).allocate();
+  }
+
+  /**
+   * Returns the end (exclusive) of the IDs of the specified account that have been reserved
+   * durably.
+   *
+   * @param account the identifier of the account.
+   * @return the end of the reserved IDs.
+   * @throws IOException thrown if the reserved IDs cannot be read.
+   */
+  public long getReservedEnd(@NonNull String account) throws IOException {
+    return accountIds(account).reservedEnd;
+  }
+
+  private @NonNull AccountIds accountIds(@NonNull String account) throws IOException {
+    try {
+      return accounts.computeIfAbsent(requireNonNull(account), a -> {
+        try {
+          return new AccountIds(a, readReservedEnd(file(a)));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private @NonNull Path file(@NonNull String account) {
+    // the account is encoded, so that it may contain any character
+    final StringBuilder name = new StringBuilder(FILE_PREFIX);
+    for (final byte b : account.getBytes(StandardCharsets.UTF_8)) {
+      name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return directory.resolve(name.append(FILE_SUFFIX).toString());
+  }
+
+  private static long readReservedEnd(@NonNull Path file) throws IOException {
+    final ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    } catch (NoSuchFileException e) {
+      return FIRST_ID;
+    }
+    if (buffer.remaining() != FILE_SIZE || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION) {
+      throw new IOException("File contains no reserved IDs of version " + VERSION + ": " + file);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, CHECKSUM_OFFSET);
+    if ((int) crc.getValue() != buffer.getInt(CHECKSUM_OFFSET)) {
+      throw new IOException("Checksum of reserved IDs does not match: " + file);
+    }
+    return buffer.getLong(8);
+  }
+
+  private static void writeReservedEnd(@NonNull Path file, long reservedEnd) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE)
+        .putInt(MAGIC)
+        .putInt(VERSION)
+        .putLong(reservedEnd);
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, CHECKSUM_OFFSET);
+    buffer.putInt((int) crc.getValue()).flip();
+
+    final Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    try {
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      // the renamed file is only durable when the directory has been written as well
+      try (FileChannel channel = FileChannel.open(
+          requireNonNull(file.toAbsolutePath().getParent()), StandardOpenOption.READ)) {
+        channel.force(true);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * IDs of a single account.
+   */
+  @ThreadSafe
+  private final class AccountIds {
+
+    private final @NonNull Path file;
+    private final AtomicLong nextId;
+    private final AtomicBoolean refillRequested = new AtomicBoolean();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition reservedCondition = lock.newCondition();
+    private volatile long reservedEnd;
+    @GuardedBy("lock")
+    private boolean reserving;
+    @GuardedBy("lock")
+    private @Nullable IOException failure;
+
+    AccountIds(@NonNull String account, long reservedEnd) {
+      this.file = file(account);
+      this.nextId = new AtomicLong(reservedEnd);
+      this.reservedEnd = reservedEnd;
+    }
+
+    long allocate() throws IOException {
+      final long id = nextId.getAndIncrement();
+      final long end = reservedEnd;
+      if (end - id <= blockSize / 2 && refillRequested.compareAndSet(false, true)) {
+        requestRefill();
+      }
+      if (id < end) {
+        return id;
+      }
+      awaitReserved(id);
+      return id;
+    }
+
+    private void requestRefill() {
+      try {
+        executor.execute(() -> {
+          lock.lock();
+          try {
+            // the reserved IDs may have been extended by an exhausting allocation meanwhile
+            if (!reserving && failure == null && reservedEnd - nextId.get() <= blockSize / 2) {
+              reserve();
+            } else {
+              refillRequested.set(false);
+            }
+          } finally {
+            lock.unlock();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // allocations reserve the next block themselves when the reserved IDs are exhausted
+        refillRequested.set(false);
+      }
+    }
+
+    private void awaitReserved(long id) throws IOException {
+      lock.lock();
+      try {
+        while (reservedEnd <= id) {
+          if (failure != null) {
+            throw new IOException("Reservation of IDs failed before: " + file, failure);
+          }
+          if (reserving) {
+            reservedCondition.awaitUninterruptibly();
+          } else {
+            reserve();
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Reserves the next block after all IDs that have been allocated so far. The lock is released
+     * while the reservation is stored, so that other allocations proceed in the meantime.
+     */
+    @GuardedBy("lock")
+    @SuppressFBWarnings({"UL_UNRELEASED_LOCK", "UL_UNRELEASED_LOCK_EXCEPTION_PATH"})
+    private void reserve() {
+      final long newReservedEnd = Math.max(reservedEnd, nextId.get()) + blockSize;
+      reserving = true;
+      IOException error = null;
+      lock.unlock();
+      try {
+        writeReservedEnd(file, newReservedEnd);
+      } catch (IOException e) {
+        error = e;
+      } finally {
+        lock.lock();
+      }
+      reserving = false;
+      if (error == null) {
+        reservedEnd = newReservedEnd;
+      } else {
+        failure = error;
+      }
+      refillRequested.set(false);
+      reservedCondition.signalAll();
+    }
+  }
+}
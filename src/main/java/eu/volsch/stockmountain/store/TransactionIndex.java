@@ -0,0 +1,298 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.model.Isin;
+import eu.volsch.stockmountain.model.OrderId;
+import eu.volsch.stockmountain.model.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Secondary indexes over a list of transactions. The indexes store the positions of the
+ * transactions in the list: a primitive hash map by the IDs, posting lists by the ISINs and by the
+ * order IDs and a sorted index by the dates. Transactions that are appended to the list later are
+ * indexed incrementally by {@link #refresh()}. Other changes of the list require a new index.
+ *
+ * <p>Valid ISINs are keyed by their {@linkplain Isin#tryPack(CharSequence) packed values} in a
+ * primitive hash map and canonical order IDs by their parsed {@link OrderId}, so that the keys
+ * neither hash nor retain the strings of the transactions. Other ISINs and order IDs are keyed by
+ * their strings. Lookups are exact like string comparisons in both cases.</p>
+ *
+ * <p>The results of all queries are ordered by the positions of the transactions in the list,
+ * except for date range queries that are ordered by the dates first.</p>
+ *
+ * @param <T> the type of the indexed transactions.
+ */
+@NotThreadSafe
+public final class TransactionIndex<T extends Transaction> {
+
+  private final @NonNull List<? extends T> transactions;
+  private final LongIntHashMap positionsById = new LongIntHashMap();
+  private final LongIntHashMap postingsIndexesByPackedIsin = new LongIntHashMap();
+  private final List<Postings> postingsOfPackedIsins = new ArrayList<>();
+  private final Map<String, Postings> postingsByOtherIsin = new HashMap<>();
+  private final Map<OrderId, Postings> postingsByOrderId = new HashMap<>();
+  private final Map<String, Postings> postingsByOtherOrderId = new HashMap<>();
+  private final NavigableMap<Integer, Postings> postingsByEpochDay = new TreeMap<>();
+  private int[] epochDays = new int[0];
+  private boolean dateOrdered = true;
+  private @NonNegative int size;
+
+  /**
+   * Creates the index of the specified transactions.
+   *
+   * @param transactions the transactions that should be indexed.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  public TransactionIndex(@NonNull List<? extends T> transactions) {
+    this.transactions = transactions;
+    refresh();
+  }
+
+  /**
+   * Indexes the transactions that have been appended to the list since the last refresh. If there
+   * are several transactions with the same ID, the last one is found by its ID.
+   */
+  public void refresh() {
+    final int newSize = transactions.size();
+    if (newSize > epochDays.length) {
+      epochDays = Arrays.copyOf(epochDays, Math.max(newSize, epochDays.length * 2));
+    }
+    for (int position = size; position < newSize; position++) {
+      final T transaction = transactions.get(position);
+      final int epochDay = Math.toIntExact(transaction.getDate().toEpochDay());
+      if (position > 0 && epochDay < epochDays[position - 1]) {
+        dateOrdered = false;
+      }
+      epochDays[position] = epochDay;
+      positionsById.put(transaction.getId(), position);
+      addIsinPosting(transaction.getIsin(), position);
+      final String orderId = transaction.getOrderId();
+      if (orderId != null) {
+        addOrderIdPosting(orderId, position);
+      }
+      postingsByEpochDay.computeIfAbsent(epochDay, k -> new Postings()).add(position);
+      size = position + 1;
+    }
+  }
+
+  /**
+   * Returns the number of indexed transactions.
+   *
+   * @return the number of indexed transactions.
+   */
+  public @NonNegative int size() {
+    return size;
+  }
+
+  /**
+   * Returns the transaction with the specified ID.
+   *
+   * @param id the ID of the transaction.
+   * @return the transaction or <code>null</code> if no transaction has the ID.
+   */
+  public @Nullable T findById(long id) {
+    final int position = positionsById.get(id);
+    return position == LongIntHashMap.MISSING ? null : transactions.get(position);
+  }
+
+  /**
+   * Returns all transactions of the specified ISIN.
+   *
+   * @param isin the ISIN.
+   * @return the transactions of the ISIN.
+   */
+  public @NonNull List<T> findByIsin(@NonNull String isin) {
+    return resolve(getIsinPostings(isin));
+  }
+
+  /**
+   * Returns all transactions that belong to the specified order.
+   *
+   * @param orderId the broker generated ID of the order.
+   * @return the transactions of the order.
+   */
+  public @NonNull List<T> findByOrderId(@NonNull String orderId) {
+    return resolve(getOrderIdPostings(orderId));
+  }
+
+  /**
+   * Returns all transactions with a date in the specified range.
+   *
+   * @param from the first date of the range (inclusive).
+   * @param to   the last date of the range (inclusive).
+   * @return the transactions in the range ordered by their dates.
+   */
+  public @NonNull List<T> findByDateRange(@NonNull LocalDate from, @NonNull LocalDate to) {
+    if (from.isAfter(to)) {
+      return List.of();
+    }
+    final List<T> result = new ArrayList<>();
+    postingsByEpochDay.subMap(epochDay(from), true, epochDay(to), true).values()
+        .forEach(postings -> {
+          for (int i = 0; i < postings.size; i++) {
+            result.add(transactions.get(postings.positions[i]));
+          }
+        });
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Returns all transactions of the specified ISIN with a date in the specified range. If the
+   * transactions have been appended in the order of their dates, the range is found by a binary
+   * search in the posting list of the ISIN.
+   *
+   * @param isin the ISIN.
+   * @param from the first date of the range (inclusive).
+   * @param to   the last date of the range (inclusive).
+   * @return the transactions of the ISIN in the range.
+   */
+  public @NonNull List<T> findByIsinAndDateRange(@NonNull String isin, @NonNull LocalDate from,
+      @NonNull LocalDate to) {
+    final Postings postings = getIsinPostings(isin);
+    if (postings == null || from.isAfter(to)) {
+      return List.of();
+    }
+    final int fromEpochDay = epochDay(from);
+    final int toEpochDay = epochDay(to);
+    final List<T> result = new ArrayList<>();
+    if (dateOrdered) {
+      for (int i = lowerBound(postings, fromEpochDay);
+          i < postings.size && epochDays[postings.positions[i]] <= toEpochDay; i++) {
+        result.add(transactions.get(postings.positions[i]));
+      }
+    } else {
+      for (int i = 0; i < postings.size; i++) {
+        final int epochDay = epochDays[postings.positions[i]];
+        if (epochDay >= fromEpochDay && epochDay <= toEpochDay) {
+          result.add(transactions.get(postings.positions[i]));
+        }
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private void addIsinPosting(@NonNull String isin, @NonNegative int position) {
+    final long packedIsin = Isin.tryPack(isin);
+    if (packedIsin == Isin.INVALID_PACKED_VALUE) {
+      postingsByOtherIsin.computeIfAbsent(isin, k -> new Postings()).add(position);
+      return;
+    }
+    final int postingsIndex = postingsIndexesByPackedIsin.get(packedIsin);
+    if (postingsIndex != LongIntHashMap.MISSING) {
+      postingsOfPackedIsins.get(postingsIndex).add(position);
+      return;
+    }
+    final Postings postings = new Postings();
+    postings.add(position);
+    postingsIndexesByPackedIsin.put(packedIsin, postingsOfPackedIsins.size());
+    postingsOfPackedIsins.add(postings);
+  }
+
+  private @Nullable Postings getIsinPostings(@NonNull String isin) {
+    final long packedIsin = Isin.tryPack(isin);
+    if (packedIsin == Isin.INVALID_PACKED_VALUE) {
+      return postingsByOtherIsin.get(isin);
+    }
+    final int postingsIndex = postingsIndexesByPackedIsin.get(packedIsin);
+    return postingsIndex == LongIntHashMap.MISSING
+        ? null : postingsOfPackedIsins.get(postingsIndex);
+  }
+
+  private void addOrderIdPosting(@NonNull String orderId, @NonNegative int position) {
+    if (OrderId.isCanonical(orderId)) {
+      postingsByOrderId.computeIfAbsent(OrderId.parse(orderId), k -> new Postings())
+          .add(position);
+    } else {
+      postingsByOtherOrderId.computeIfAbsent(orderId, k -> new Postings()).add(position);
+    }
+  }
+
+  private @Nullable Postings getOrderIdPostings(@NonNull String orderId) {
+    return OrderId.isCanonical(orderId)
+        ? postingsByOrderId.get(OrderId.parse(orderId)) : postingsByOtherOrderId.get(orderId);
+  }
+
+  private int lowerBound(@NonNull Postings postings, int epochDay) {
+    int low = 0;
+    int high = postings.size;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (epochDays[postings.positions[middle]] < epochDay) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private @NonNull List<T> resolve(@Nullable Postings postings) {
+    if (postings == null) {
+      return List.of();
+    }
+    final List<T> result = new ArrayList<>(postings.size);
+    for (int i = 0; i < postings.size; i++) {
+      result.add(transactions.get(postings.positions[i]));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private static int epochDay(@NonNull LocalDate date) {
+    final long epochDay = date.toEpochDay();
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
+  }
+
+  /**
+   * Growable list of positions in ascending order.
+   */
+  @NotThreadSafe
+  private static final class Postings {
+
+    private int[] positions = new int[4];
+    private int size;
+
+    private void add(@NonNegative int position) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+      }
+      positions[size++] = position;
+    }
+  }
+}
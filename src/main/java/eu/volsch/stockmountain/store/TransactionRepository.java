@@ -0,0 +1,466 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Concurrent repository of the transactions of an account with multi-version concurrency control.
+ * Reads are made against an immutable {@linkplain Snapshot snapshot} of all transactions and never
+ * lock. Each write publishes a new snapshot.
+ *
+ * <p>The transactions are partitioned into stripes by their ISIN. A write locks only the stripes
+ * of the ISINs that it changes and copies only these stripes, so that writers of different
+ * securities (e.g. lot matching, split processing and imports) proceed concurrently. The new
+ * snapshot is published with a compare-and-set of the current snapshot that only replaces the
+ * changed stripes.
+ *
+ * <p>Writes use optimistic concurrency control with the
+ * {@linkplain Transaction#getVersion() version} of the transactions. An inserted transaction must
+ * not exist yet, an updated transaction must have the version of the stored transaction incremented
+ * by one and a deleted transaction must have the expected version. Otherwise, the write fails
+ * fast with a {@link VersionConflictException} without changing any transaction. The ISIN of a
+ * transaction ID must never change while the transaction exists.
+ *
+ * <p>The ISINs of the IDs of the stored transactions are registered, so that an ID can be looked
+ * up in the stripe of its ISIN. An ID is registered by the write that inserts it while the stripe
+ * is locked and is unregistered when the write fails or the transaction has been deleted. Since the
+ * registration may be newer than a snapshot, a snapshot uses it only as a hint and searches all of
+ * its stripes otherwise.
+ *
+ * <p>Each write copies the changed stripes. The cost of a write is therefore proportional to the
+ * number of transactions in these stripes, and inserting <i>N</i> transactions one by one costs
+ * <i>O(N<sup>2</sup>/stripes)</i>. Bulk inserts (e.g. imports) should use
+ * {@link #writeAll(Collection)}, which copies each changed stripe once.
+ */
+@ThreadSafe
+public class TransactionRepository {
+
+  /**
+   * The default number of stripes.
+   */
+  public static final int DEFAULT_STRIPE_COUNT = 64;
+
+  private final ReentrantLock[] locks;
+  private final Map<Long, String> isins = new ConcurrentHashMap<>();
+  private final AtomicReference<Snapshot> current;
+
+  /**
+   * Creates an empty repository with the default number of stripes.
+   */
+  public TransactionRepository() {
+    this(DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * Creates an empty repository.
+   *
+   * @param stripeCount the number of stripes into which the transactions are partitioned.
+   * @throws IllegalArgumentException thrown if the number of stripes is not positive.
+   */
+  public TransactionRepository(@Positive int stripeCount) throws IllegalArgumentException {
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+    }
+    this.locks = new ReentrantLock[stripeCount];
+    final Stripe[] stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      locks[i] = new ReentrantLock();
+      stripes[i] = Stripe.EMPTY;
+    }
+    this.current = new AtomicReference<>(new Snapshot(stripes, 0, 0));
+  }
+
+  /**
+   * Returns the current snapshot of all transactions.
+   *
+   * @return the current snapshot.
+   */
+  public @NonNull Snapshot snapshot() {
+    return current.get();
+  }
+
+  /**
+   * Returns the current version of the transaction with the specified ID.
+   *
+   * @param id the ID of the transaction.
+   * @return the transaction or <code>null</code> if no transaction has the ID.
+   */
+  public @Nullable Transaction get(long id) {
+    return snapshot().get(id);
+  }
+
+  /**
+   * Returns the current versions of the transactions of the specified ISIN.
+   *
+   * @param isin the ISIN of the transactions.
+   * @return the transactions ordered by their IDs.
+   */
+  public @NonNull List<Transaction> getByIsin(@NonNull String isin) {
+    return snapshot().getByIsin(isin);
+  }
+
+  /**
+   * Inserts the specified transaction.
+   *
+   * @param transaction the transaction that should be inserted.
+   * @throws VersionConflictException thrown if a transaction with the ID exists.
+   * @throws IllegalArgumentException thrown if the ID has been used for a different ISIN.
+   */
+  public void insert(@NonNull Transaction transaction)
+      throws VersionConflictException, IllegalArgumentException {
+    write(List.of(Operation.insert(transaction)));
+  }
+
+  /**
+   * Updates the specified transaction. The version of the transaction must be the version of the
+   * stored transaction incremented by one.
+   *
+   * @param transaction the new version of the transaction.
+   * @throws VersionConflictException thrown if the stored transaction does not exist or does not
+   *                                  have the preceding version.
+   * @throws IllegalArgumentException thrown if the ISIN of the transaction has changed or the
+   *                                  version of the transaction is not positive.
+   */
+  public void update(@NonNull Transaction transaction)
+      throws VersionConflictException, IllegalArgumentException {
+    write(List.of(Operation.update(transaction)));
+  }
+
+  /**
+   * Deletes the transaction with the specified ID.
+   *
+   * @param id              the ID of the transaction.
+   * @param expectedVersion the version of the stored transaction.
+   * @throws VersionConflictException thrown if the stored transaction does not exist or does not
+   *                                  have the expected version.
+   */
+  public void delete(long id, @NonNegative int expectedVersion) throws VersionConflictException {
+    final String isin = isins.get(id);
+    if (isin == null) {
+      throw new VersionConflictException(id, expectedVersion, VersionConflictException.NO_VERSION);
+    }
+    write(List.of(new Operation(id, isin, null, expectedVersion)));
+  }
+
+  /**
+   * Inserts or updates the specified transactions atomically. A transaction with version 0 is
+   * inserted and any other transaction is an update of the preceding version. Either all
+   * transactions are written or none.
+   *
+   * @param transactions the transactions that should be written.
+   * @throws VersionConflictException thrown if a transaction conflicts with a stored transaction.
+   * @throws IllegalArgumentException thrown if the ISIN of a transaction has changed.
+   */
+  public void writeAll(@NonNull Collection<? extends Transaction> transactions)
+      throws VersionConflictException, IllegalArgumentException {
+    final List<Operation> operations = new ArrayList<>(transactions.size());
+    for (final Transaction transaction : transactions) {
+      operations.add(transaction.getVersion() == 0
+          ? Operation.insert(transaction) : Operation.update(transaction));
+    }
+    write(operations);
+  }
+
+  private void write(@NonNull List<Operation> operations) {
+    final TreeMap<Integer, StripeBuilder> builders = new TreeMap<>();
+    for (final Operation operation : operations) {
+      builders.put(stripeIndex(operation.isin), null);
+    }
+
+    final List<ReentrantLock> lockedLocks = new ArrayList<>(builders.size());
+    final List<Operation> registeredOperations = new ArrayList<>();
+    boolean published = false;
+    try {
+      // stripes are always locked in ascending order to avoid deadlocks
+      for (final int stripe : builders.keySet()) {
+        locks[stripe].lock();
+        lockedLocks.add(locks[stripe]);
+      }
+      for (final Operation operation : operations) {
+        if (operation.transaction != null) {
+          register(operation, registeredOperations);
+        }
+      }
+      final Snapshot base = current.get();
+      builders.replaceAll((stripe, builder) -> new StripeBuilder(base.stripes[stripe]));
+      int sizeDelta = 0;
+      for (final Operation operation : operations) {
+        sizeDelta += builders.get(stripeIndex(operation.isin)).apply(operation);
+      }
+      final Map<Integer, Stripe> changedStripes = publish(builders, sizeDelta);
+      published = true;
+      for (final Operation operation : operations) {
+        if (operation.transaction == null && !changedStripes.get(stripeIndex(operation.isin))
+            .transactions.containsKey(operation.id)) {
+          isins.remove(operation.id, operation.isin);
+        }
+      }
+    } finally {
+      if (!published) {
+        registeredOperations.forEach(operation -> isins.remove(operation.id, operation.isin));
+      }
+      lockedLocks.forEach(ReentrantLock::unlock);
+    }
+  }
+
+  private void register(@NonNull Operation operation,
+      @NonNull List<Operation> registeredOperations) {
+    final String registeredIsin = isins.putIfAbsent(operation.id, operation.isin);
+    if (registeredIsin == null) {
+      registeredOperations.add(operation);
+    } else if (!registeredIsin.equals(operation.isin)) {
+      throw new IllegalArgumentException("ISIN of transaction " + operation.id
+          + " must not change: " + registeredIsin + " -> " + operation.isin);
+    }
+  }
+
+  private @NonNull Map<Integer, Stripe> publish(@NonNull Map<Integer, StripeBuilder> builders,
+      int sizeDelta) {
+    final Map<Integer, Stripe> changedStripes = new HashMap<>();
+    builders.forEach((stripe, builder) -> changedStripes.put(stripe, builder.build()));
+    Snapshot snapshot;
+    Snapshot newSnapshot;
+    do {
+      // other stripes may have been changed concurrently, but not the locked stripes
+      snapshot = current.get();
+      final Stripe[] stripes = snapshot.stripes.clone();
+      changedStripes.forEach((stripe, changedStripe) -> stripes[stripe] = changedStripe);
+      newSnapshot = new Snapshot(stripes, snapshot.sequence + 1, snapshot.size + sizeDelta);
+    } while (!current.compareAndSet(snapshot, newSnapshot));
+    return changedStripes;
+  }
+
+  private int stripeIndex(@NonNull String isin) {
+    return Math.floorMod(isin.hashCode(), locks.length);
+  }
+
+  /**
+   * Immutable snapshot of all transactions of a repository.
+   */
+  @Immutable
+  @ThreadSafe
+  public final class Snapshot {
+
+    private final Stripe[] stripes;
+    private final long sequence;
+    private final @NonNegative int size;
+
+    private Snapshot(Stripe @NonNull [] stripes, long sequence, @NonNegative int size) {
+      this.stripes = stripes;
+      this.sequence = sequence;
+      this.size = size;
+    }
+
+    /**
+     * Returns the sequence number of the snapshot, which is incremented by each write.
+     *
+     * @return the sequence number.
+     */
+    public long getSequence() {
+      return sequence;
+    }
+
+    /**
+     * Returns the number of transactions of the snapshot.
+     *
+     * @return the number of transactions.
+     */
+    public @NonNegative int size() {
+      return size;
+    }
+
+    /**
+     * Returns the transaction with the specified ID.
+     *
+     * @param id the ID of the transaction.
+     * @return the transaction or <code>null</code> if the snapshot contains no such transaction.
+     */
+    public @Nullable Transaction get(long id) {
+      final String isin = isins.get(id);
+      if (isin != null) {
+        final Transaction transaction = stripes[stripeIndex(isin)].transactions.get(id);
+        if (transaction != null) {
+          return transaction;
+        }
+      }
+      // the transaction may have been deleted or inserted with another ISIN after the snapshot
+      for (final Stripe stripe : stripes) {
+        final Transaction transaction = stripe.transactions.get(id);
+        if (transaction != null) {
+          return transaction;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the transactions of the specified ISIN.
+     *
+     * @param isin the ISIN of the transactions.
+     * @return the transactions ordered by their IDs.
+     */
+    public @NonNull List<Transaction> getByIsin(@NonNull String isin) {
+      return stripes[stripeIndex(isin)].transactionsByIsin.getOrDefault(isin, List.of());
+    }
+
+    /**
+     * Returns a stream of all transactions of the snapshot in no particular order.
+     *
+     * @return the stream of the transactions.
+     */
+    public @NonNull Stream<Transaction> stream() {
+      return Arrays.stream(stripes).flatMap(stripe -> stripe.transactions.values().stream());
+    }
+  }
+
+  /**
+   * Immutable partition of the transactions.
+   */
+  @Immutable
+  private static final class Stripe {
+
+    private static final Stripe EMPTY = new Stripe(Map.of(), Map.of());
+
+    private final @NonNull Map<Long, Transaction> transactions;
+    private final @NonNull Map<String, List<Transaction>> transactionsByIsin;
+
+    private Stripe(@NonNull Map<Long, Transaction> transactions,
+        @NonNull Map<String, List<Transaction>> transactionsByIsin) {
+      this.transactions = transactions;
+      this.transactionsByIsin = transactionsByIsin;
+    }
+  }
+
+  /**
+   * Copy of a stripe to which the operations of a write are applied.
+   */
+  @NotThreadSafe
+  private static final class StripeBuilder {
+
+    private final Map<Long, Transaction> transactions;
+    private final Map<String, List<Transaction>> transactionsByIsin;
+    private final Set<String> changedIsins = new HashSet<>();
+
+    private StripeBuilder(@NonNull Stripe stripe) {
+      this.transactions = new HashMap<>(stripe.transactions);
+      this.transactionsByIsin = new HashMap<>(stripe.transactionsByIsin);
+    }
+
+    private int apply(@NonNull Operation operation) {
+      final Transaction stored = transactions.get(operation.id);
+      final int actualVersion =
+          stored == null ? VersionConflictException.NO_VERSION : stored.getVersion();
+      if (actualVersion != operation.expectedVersion) {
+        throw new VersionConflictException(operation.id, operation.expectedVersion,
+            actualVersion);
+      }
+      if (changedIsins.add(operation.isin)) {
+        transactionsByIsin.put(operation.isin,
+            new ArrayList<>(transactionsByIsin.getOrDefault(operation.isin, List.of())));
+      }
+      final List<Transaction> isinTransactions = transactionsByIsin.get(operation.isin);
+      if (stored != null) {
+        isinTransactions.remove(stored);
+      }
+      if (operation.transaction == null) {
+        transactions.remove(operation.id);
+        return -1;
+      }
+      transactions.put(operation.id, operation.transaction);
+      isinTransactions.add(operation.transaction);
+      return stored == null ? 1 : 0;
+    }
+
+    private @NonNull Stripe build() {
+      for (final String isin : changedIsins) {
+        final List<Transaction> isinTransactions = transactionsByIsin.get(isin);
+        if (isinTransactions.isEmpty()) {
+          transactionsByIsin.remove(isin);
+        } else {
+          isinTransactions.sort(Comparator.comparingLong(Transaction::getId));
+          transactionsByIsin.put(isin, Collections.unmodifiableList(isinTransactions));
+        }
+      }
+      return new Stripe(Collections.unmodifiableMap(transactions),
+          Collections.unmodifiableMap(transactionsByIsin));
+    }
+  }
+
+  private static final class Operation {
+
+    private final long id;
+    private final @NonNull String isin;
+    private final @Nullable Transaction transaction;
+    private final int expectedVersion;
+
+    private Operation(long id, @NonNull String isin, @Nullable Transaction transaction,
+        int expectedVersion) {
+      this.id = id;
+      this.isin = requireNonNull(isin);
+      this.transaction = transaction;
+      this.expectedVersion = expectedVersion;
+    }
+
+    private static @NonNull Operation insert(@NonNull Transaction transaction) {
+      return new Operation(transaction.getId(), transaction.getIsin(), transaction,
+          VersionConflictException.NO_VERSION);
+    }
+
+    private static @NonNull Operation update(@NonNull Transaction transaction) {
+      if (transaction.getVersion() <= 0) {
+        throw new IllegalArgumentException("Version of updated transaction "
+            + transaction.getId() + " must be positive: " + transaction.getVersion());
+      }
+      return new Operation(transaction.getId(), transaction.getIsin(), transaction,
+          transaction.getVersion() - 1);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import eu.volsch.stockmountain.model.Price;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads the values of stored transactions by the index of their rows. The
+ * {@linkplain TransactionView views} of the transactions delegate to the rows, so that different
+ * storage layouts can share the views.
+ */
+interface TransactionRows {
+
+  long getId(@NonNegative int index);
+
+  int getVersion(@NonNegative int index);
+
+  boolean isSale(@NonNegative int index);
+
+  boolean isFictional(@NonNegative int index);
+
+  @NonNull LocalDate getDate(@NonNegative int index);
+
+  @Nullable LocalTime getTime(@NonNegative int index);
+
+  @NonNull String getIsin(@NonNegative int index);
+
+  @Nullable String getTickerSymbol(@NonNegative int index);
+
+  @NonNull String getName(@NonNegative int index);
+
+  @Nullable String getSecuritiesExchange(@NonNegative int index);
+
+  @NonNull BigDecimal getQuantity(@NonNegative int index);
+
+  @Nullable Price getLocalPrice(@NonNegative int index);
+
+  @Nullable Price getLocalValue(@NonNegative int index);
+
+  @Nullable BigDecimal getExchangeRate(@NonNegative int index);
+
+  @Nullable Price getValue(@NonNegative int index);
+
+  @Nullable Price getCommission(@NonNegative int index);
+
+  @NonNull Price getTotal(@NonNegative int index);
+
+  @Nullable String getOrderId(@NonNegative int index);
+
+  @Nullable String getTransactionId(@NonNegative int index);
+
+  @Nullable BigDecimal getRemainingQuantity(@NonNegative int index);
+
+  @Nullable LocalDate getLastSplitDate(@NonNegative int index);
+}
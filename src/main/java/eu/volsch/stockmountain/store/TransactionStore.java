@@ -0,0 +1,535 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.volsch.stockmountain.model.OrderId;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import net.jcip.annotations.NotThreadSafe;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * In-memory store that keeps {@linkplain Transaction transactions} column by column. Dates are
+ * stored as epoch days, times as minutes of the day, strings (e.g. ISINs and currencies) as IDs of
+ * dictionaries and decimal values as unscaled <code>long</code> values with their scale. A stored
+ * transaction needs only a small fraction of the heap of a transaction object with all its value
+ * objects. Canonical {@linkplain OrderId order IDs} are stored as their 128 bits instead, since
+ * nearly every order has a distinct ID that would otherwise add a string to the dictionary.
+ *
+ * <p>The transactions are read through lightweight views that implement
+ * {@link PurchaseTransaction} or {@link SaleTransaction} and that read their values from the
+ * columns on each access. A view reflects later {@linkplain #set(int, Transaction) updates} of the
+ * values of its row, but its type is determined when the view is created. The store is not
+ * thread-safe. Concurrent reads are safe as long as no transaction is added or updated
+ * concurrently.</p>
+ */
+@NotThreadSafe
+public final class TransactionStore {
+
+  private static final int DEFAULT_CAPACITY = 64;
+  private static final int MAX_CURRENCIES = Short.MAX_VALUE;
+
+  private static final byte SALE_FLAG = 1;
+  private static final byte FICTIONAL_FLAG = 2;
+
+  private static final short NULL_TIME = -1;
+  private static final short PRECISE_TIME = -2;
+  private static final int NULL_DATE = Integer.MIN_VALUE;
+  private static final int PACKED_ORDER_ID = -2;
+  private static final int MINUTES_PER_HOUR = 60;
+
+  private final StringDictionary isins = new StringDictionary(Integer.MAX_VALUE);
+  private final StringDictionary names = new StringDictionary(Integer.MAX_VALUE);
+  private final StringDictionary tickerSymbols = new StringDictionary(Integer.MAX_VALUE);
+  private final StringDictionary securitiesExchanges = new StringDictionary(Integer.MAX_VALUE);
+  private final StringDictionary orderIds = new StringDictionary(Integer.MAX_VALUE);
+  private final StringDictionary currencies = new StringDictionary(MAX_CURRENCIES);
+  private final Rows rows = new Rows();
+
+  private @NonNegative int size;
+  private long[] ids;
+  private int[] versions;
+  private byte[] flags;
+  private int[] epochDays;
+  private short[] minutesOfDay;
+  private final Map<Integer, LocalTime> preciseTimes = new HashMap<>();
+  private int[] isinIds;
+  private int[] tickerSymbolIds;
+  private int[] nameIds;
+  private int[] securitiesExchangeIds;
+  private final DecimalColumn quantities;
+  private final PriceColumn localPrices;
+  private final PriceColumn localValues;
+  private final DecimalColumn exchangeRates;
+  private final PriceColumn values;
+  private final PriceColumn commissions;
+  private final PriceColumn totals;
+  private int[] orderIdIds;
+  private long[] orderIdMostSignificantBits;
+  private long[] orderIdLeastSignificantBits;
+  private @Nullable String[] transactionIds;
+  private final DecimalColumn remainingQuantities;
+  private int[] lastSplitEpochDays;
+
+  /**
+   * Creates an empty store.
+   */
+  public TransactionStore() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an empty store with the specified initial capacity.
+   *
+   * @param capacity the initial number of transactions that can be stored without growing.
+   */
+  public TransactionStore(@NonNegative int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+    }
+    ids = new long[capacity];
+    versions = new int[capacity];
+    flags = new byte[capacity];
+    epochDays = new int[capacity];
+    minutesOfDay = new short[capacity];
+    isinIds = new int[capacity];
+    tickerSymbolIds = new int[capacity];
+    nameIds = new int[capacity];
+    securitiesExchangeIds = new int[capacity];
+    quantities = new DecimalColumn(capacity);
+    localPrices = new PriceColumn(capacity);
+    localValues = new PriceColumn(capacity);
+    exchangeRates = new DecimalColumn(capacity);
+    values = new PriceColumn(capacity);
+    commissions = new PriceColumn(capacity);
+    totals = new PriceColumn(capacity);
+    orderIdIds = new int[capacity];
+    orderIdMostSignificantBits = new long[capacity];
+    orderIdLeastSignificantBits = new long[capacity];
+    transactionIds = new String[capacity];
+    remainingQuantities = new DecimalColumn(capacity);
+    lastSplitEpochDays = new int[capacity];
+  }
+
+  /**
+   * Returns the number of stored transactions.
+   *
+   * @return the number of stored transactions.
+   */
+  public @NonNegative int size() {
+    return size;
+  }
+
+  /**
+   * Adds the specified transaction to the end of this store.
+   *
+   * @param transaction the transaction that should be added.
+   * @return the index of the added transaction.
+   * @throws IllegalStateException thrown if the store contains too many distinct currencies.
+   */
+  public @NonNegative int add(@NonNull Transaction transaction) throws IllegalStateException {
+    if (size == ids.length) {
+      grow(Math.max(DEFAULT_CAPACITY, size * 2));
+    }
+    final int index = size;
+    write(index, transaction);
+    size++;
+    return index;
+  }
+
+  /**
+   * Adds all specified transactions to the end of this store.
+   *
+   * @param transactions the transactions that should be added.
+   * @throws IllegalStateException thrown if the store contains too many distinct currencies.
+   */
+  public void addAll(@NonNull Iterable<? extends Transaction> transactions)
+      throws IllegalStateException {
+    transactions.forEach(this::add);
+  }
+
+  /**
+   * Replaces the transaction at the specified index (e.g. a new version of the transaction).
+   *
+   * @param index       the index of the transaction.
+   * @param transaction the transaction that replaces the stored transaction.
+   * @throws IndexOutOfBoundsException thrown if the index is invalid.
+   * @throws IllegalStateException     thrown if the store contains too many distinct currencies.
+   */
+  public void set(@NonNegative int index, @NonNull Transaction transaction)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    Objects.checkIndex(index, size);
+    write(index, transaction);
+  }
+
+  /**
+   * Returns a view of the transaction at the specified index. The view implements
+   * {@link PurchaseTransaction} or {@link SaleTransaction} depending on the type of the
+   * transaction.
+   *
+   * @param index the index of the transaction.
+   * @return the view of the transaction.
+   * @throws IndexOutOfBoundsException thrown if the index is invalid.
+   */
+  public @NonNull Transaction get(@NonNegative int index) throws IndexOutOfBoundsException {
+    return TransactionView.of(rows, Objects.checkIndex(index, size));
+  }
+
+  /**
+   * Returns a stream of views of all transactions in the order of their indexes.
+   *
+   * @return the stream of views of all transactions.
+   */
+  public @NonNull Stream<Transaction> stream() {
+    return IntStream.range(0, size).mapToObj(this::get);
+  }
+
+  public long getId(@NonNegative int index) {
+    return ids[Objects.checkIndex(index, size)];
+  }
+
+  public @NonNull TransactionType getType(@NonNegative int index) {
+    return (flags[Objects.checkIndex(index, size)] & SALE_FLAG) != 0
+        ? TransactionType.SALE : TransactionType.PURCHASE;
+  }
+
+  /**
+   * Returns the date of the transaction at the specified index as epoch day.
+   *
+   * @param index the index of the transaction.
+   * @return the epoch day of the date of the transaction.
+   * @see LocalDate#toEpochDay()
+   */
+  public int getEpochDay(@NonNegative int index) {
+    return epochDays[Objects.checkIndex(index, size)];
+  }
+
+  /**
+   * Returns the dictionary ID of the ISIN of the transaction at the specified index. All
+   * transactions with the same ISIN have the same ID.
+   *
+   * @param index the index of the transaction.
+   * @return the dictionary ID of the ISIN.
+   */
+  public @NonNegative int getIsinId(@NonNegative int index) {
+    return isinIds[Objects.checkIndex(index, size)];
+  }
+
+  /**
+   * Returns the dictionary ID of the specified ISIN.
+   *
+   * @param isin the ISIN.
+   * @return the dictionary ID or <code>-1</code> if no transaction with the ISIN exists.
+   */
+  public int findIsinId(@NonNull String isin) {
+    return isins.find(isin);
+  }
+
+  /**
+   * Returns the ISIN with the specified dictionary ID.
+   *
+   * @param isinId the dictionary ID of the ISIN.
+   * @return the ISIN.
+   * @throws IndexOutOfBoundsException thrown if the ID is invalid.
+   */
+  public @NonNull String getIsin(@NonNegative int isinId) throws IndexOutOfBoundsException {
+    return requireNonNull(isins.get(Objects.checkIndex(isinId, isins.size())));
+  }
+
+  /**
+   * Returns the number of distinct ISINs. The dictionary IDs of the ISINs range from zero to this
+   * number exclusive.
+   *
+   * @return the number of distinct ISINs.
+   */
+  public @NonNegative int getIsinCount() {
+    return isins.size();
+  }
+
+  private void grow(@NonNegative int capacity) {
+    ids = Arrays.copyOf(ids, capacity);
+    versions = Arrays.copyOf(versions, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+    epochDays = Arrays.copyOf(epochDays, capacity);
+    minutesOfDay = Arrays.copyOf(minutesOfDay, capacity);
+    isinIds = Arrays.copyOf(isinIds, capacity);
+    tickerSymbolIds = Arrays.copyOf(tickerSymbolIds, capacity);
+    nameIds = Arrays.copyOf(nameIds, capacity);
+    securitiesExchangeIds = Arrays.copyOf(securitiesExchangeIds, capacity);
+    quantities.grow(capacity);
+    localPrices.grow(capacity);
+    localValues.grow(capacity);
+    exchangeRates.grow(capacity);
+    values.grow(capacity);
+    commissions.grow(capacity);
+    totals.grow(capacity);
+    orderIdIds = Arrays.copyOf(orderIdIds, capacity);
+    orderIdMostSignificantBits = Arrays.copyOf(orderIdMostSignificantBits, capacity);
+    orderIdLeastSignificantBits = Arrays.copyOf(orderIdLeastSignificantBits, capacity);
+    transactionIds = Arrays.copyOf(transactionIds, capacity);
+    remainingQuantities.grow(capacity);
+    lastSplitEpochDays = Arrays.copyOf(lastSplitEpochDays, capacity);
+  }
+
+  private void write(@NonNegative int index, @NonNull Transaction transaction) {
+    final TransactionType type = requireNonNull(transaction.getType());
+    ids[index] = transaction.getId();
+    versions[index] = transaction.getVersion();
+    flags[index] = (byte) ((type == TransactionType.SALE ? SALE_FLAG : 0)
+        | (transaction.isFictional() ? FICTIONAL_FLAG : 0));
+    epochDays[index] = Math.toIntExact(transaction.getDate().toEpochDay());
+    writeTime(index, transaction.getTime());
+    isinIds[index] = isins.add(requireNonNull(transaction.getIsin()));
+    tickerSymbolIds[index] = tickerSymbols.add(transaction.getTickerSymbol());
+    nameIds[index] = names.add(requireNonNull(transaction.getName()));
+    securitiesExchangeIds[index] = securitiesExchanges.add(transaction.getSecuritiesExchange());
+    quantities.set(index, requireNonNull(transaction.getQuantity()));
+    localPrices.set(index, transaction.getLocalPrice());
+    localValues.set(index, transaction.getLocalValue());
+    exchangeRates.set(index, transaction.getExchangeRate());
+    values.set(index, transaction.getValue());
+    commissions.set(index, transaction.getCommission());
+    totals.set(index, requireNonNull(transaction.getTotal()));
+    writeOrderId(index, transaction.getOrderId());
+    transactionIds[index] = transaction.getTransactionId();
+
+    BigDecimal remainingQuantity = null;
+    LocalDate lastSplitDate = null;
+    if (transaction instanceof PurchaseTransaction) {
+      remainingQuantity = ((PurchaseTransaction) transaction).getRemainingQuantity();
+      lastSplitDate = ((PurchaseTransaction) transaction).getLastSplitDate();
+    }
+    remainingQuantities.set(index, remainingQuantity);
+    lastSplitEpochDays[index] = lastSplitDate == null
+        ? NULL_DATE : Math.toIntExact(lastSplitDate.toEpochDay());
+  }
+
+  private void writeTime(@NonNegative int index, @Nullable LocalTime time) {
+    preciseTimes.remove(index);
+    if (time == null) {
+      minutesOfDay[index] = NULL_TIME;
+    } else if (time.getSecond() == 0 && time.getNano() == 0) {
+      minutesOfDay[index] = (short) (time.getHour() * MINUTES_PER_HOUR + time.getMinute());
+    } else {
+      minutesOfDay[index] = PRECISE_TIME;
+      preciseTimes.put(index, time);
+    }
+  }
+
+  private @Nullable LocalTime readTime(@NonNegative int index) {
+    final short minuteOfDay = minutesOfDay[index];
+    if (minuteOfDay == NULL_TIME) {
+      return null;
+    }
+    if (minuteOfDay == PRECISE_TIME) {
+      return preciseTimes.get(index);
+    }
+    return LocalTime.of(minuteOfDay / MINUTES_PER_HOUR, minuteOfDay % MINUTES_PER_HOUR);
+  }
+
+  private void writeOrderId(@NonNegative int index, @Nullable String orderId) {
+    if (orderId != null && OrderId.isCanonical(orderId)) {
+      final OrderId packedOrderId = OrderId.parse(orderId);
+      orderIdIds[index] = PACKED_ORDER_ID;
+      orderIdMostSignificantBits[index] = packedOrderId.getMostSignificantBits();
+      orderIdLeastSignificantBits[index] = packedOrderId.getLeastSignificantBits();
+    } else {
+      orderIdIds[index] = orderIds.add(orderId);
+    }
+  }
+
+  private @Nullable String readOrderId(@NonNegative int index) {
+    final int orderIdId = orderIdIds[index];
+    if (orderIdId == PACKED_ORDER_ID) {
+      return new OrderId(orderIdMostSignificantBits[index], orderIdLeastSignificantBits[index])
+          .toString();
+    }
+    return orderIds.get(orderIdId);
+  }
+
+  @NotThreadSafe
+  private final class PriceColumn {
+
+    private final DecimalColumn decimalValues;
+    private short[] currencyIds;
+
+    private PriceColumn(@NonNegative int capacity) {
+      decimalValues = new DecimalColumn(capacity);
+      currencyIds = new short[capacity];
+    }
+
+    private void grow(@NonNegative int capacity) {
+      decimalValues.grow(capacity);
+      currencyIds = Arrays.copyOf(currencyIds, capacity);
+    }
+
+    private void set(@NonNegative int index, @Nullable Price price) {
+      if (price == null) {
+        decimalValues.set(index, null);
+        currencyIds[index] = StringDictionary.NULL_ID;
+      } else {
+        decimalValues.set(index, price.getValue());
+        currencyIds[index] = (short) currencies.add(price.getCurrency());
+      }
+    }
+
+    private @Nullable Price get(@NonNegative int index) {
+      final BigDecimal value = decimalValues.get(index);
+      if (value == null) {
+        return null;
+      }
+      return new Price(value, requireNonNull(currencies.get(currencyIds[index])));
+    }
+  }
+
+  /**
+   * Reads the values of the rows from the columns of the store.
+   */
+  private final class Rows implements TransactionRows {
+
+    @Override
+    public long getId(@NonNegative int index) {
+      return ids[index];
+    }
+
+    @Override
+    public int getVersion(@NonNegative int index) {
+      return versions[index];
+    }
+
+    @Override
+    public boolean isSale(@NonNegative int index) {
+      return (flags[index] & SALE_FLAG) != 0;
+    }
+
+    @Override
+    public boolean isFictional(@NonNegative int index) {
+      return (flags[index] & FICTIONAL_FLAG) != 0;
+    }
+
+    @Override
+    public @NonNull LocalDate getDate(@NonNegative int index) {
+      return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    @Override
+    public @Nullable LocalTime getTime(@NonNegative int index) {
+      return readTime(index);
+    }
+
+    @Override
+    public @NonNull String getIsin(@NonNegative int index) {
+      return requireNonNull(isins.get(isinIds[index]));
+    }
+
+    @Override
+    public @Nullable String getTickerSymbol(@NonNegative int index) {
+      return tickerSymbols.get(tickerSymbolIds[index]);
+    }
+
+    @Override
+    public @NonNull String getName(@NonNegative int index) {
+      return requireNonNull(names.get(nameIds[index]));
+    }
+
+    @Override
+    public @Nullable String getSecuritiesExchange(@NonNegative int index) {
+      return securitiesExchanges.get(securitiesExchangeIds[index]);
+    }
+
+    @Override
+    public @NonNull BigDecimal getQuantity(@NonNegative int index) {
+      return requireNonNull(quantities.get(index));
+    }
+
+    @Override
+    public @Nullable Price getLocalPrice(@NonNegative int index) {
+      return localPrices.get(index);
+    }
+
+    @Override
+    public @Nullable Price getLocalValue(@NonNegative int index) {
+      return localValues.get(index);
+    }
+
+    @Override
+    public @Nullable BigDecimal getExchangeRate(@NonNegative int index) {
+      return exchangeRates.get(index);
+    }
+
+    @Override
+    public @Nullable Price getValue(@NonNegative int index) {
+      return values.get(index);
+    }
+
+    @Override
+    public @Nullable Price getCommission(@NonNegative int index) {
+      return commissions.get(index);
+    }
+
+    @Override
+    public @NonNull Price getTotal(@NonNegative int index) {
+      return requireNonNull(totals.get(index));
+    }
+
+    @Override
+    public @Nullable String getOrderId(@NonNegative int index) {
+      return readOrderId(index);
+    }
+
+    @Override
+    public @Nullable String getTransactionId(@NonNegative int index) {
+      return transactionIds[index];
+    }
+
+    @Override
+    public @Nullable BigDecimal getRemainingQuantity(@NonNegative int index) {
+      return remainingQuantities.get(index);
+    }
+
+    @Override
+    public @Nullable LocalDate getLastSplitDate(@NonNegative int index) {
+      final int epochDay = lastSplitEpochDays[index];
+      return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import net.jcip.annotations.Immutable;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Lightweight view of a stored transaction that reads all values from the
+ * {@linkplain TransactionRows rows} of a store on each access. Two views are equal if they refer to
+ * the same row of the same store.
+ */
+@Immutable
+abstract class TransactionView implements Transaction {
+
+  protected final @NonNull TransactionRows rows;
+  protected final @NonNegative int index;
+
+  private TransactionView(@NonNull TransactionRows rows, @NonNegative int index) {
+    this.rows = rows;
+    this.index = index;
+  }
+
+  /**
+   * Creates a view of the specified row. The view implements {@link PurchaseTransaction} or
+   * {@link SaleTransaction} depending on the current type of the transaction.
+   *
+   * @param rows  the rows of the store.
+   * @param index the index of the row.
+   * @return the view of the row.
+   */
+  static @NonNull Transaction of(@NonNull TransactionRows rows, @NonNegative int index) {
+    if (rows.isSale(index)) {
+      return new SaleView(rows, index);
+    }
+    return new PurchaseView(rows, index);
+  }
+
+  @Override
+  public long getId() {
+    return rows.getId(index);
+  }
+
+  @Override
+  public int getVersion() {
+    return rows.getVersion(index);
+  }
+
+  @Override
+  public boolean isFictional() {
+    return rows.isFictional(index);
+  }
+
+  @Override
+  public @NonNull LocalDate getDate() {
+    return rows.getDate(index);
+  }
+
+  @Override
+  public @Nullable LocalTime getTime() {
+    return rows.getTime(index);
+  }
+
+  @Override
+  public @NonNull String getIsin() {
+    return rows.getIsin(index);
+  }
+
+  @Override
+  public @Nullable String getTickerSymbol() {
+    return rows.getTickerSymbol(index);
+  }
+
+  @Override
+  public @NonNull String getName() {
+    return rows.getName(index);
+  }
+
+  @Override
+  public @Nullable String getSecuritiesExchange() {
+    return rows.getSecuritiesExchange(index);
+  }
+
+  @Override
+  public @NonNull BigDecimal getQuantity() {
+    return rows.getQuantity(index);
+  }
+
+  @Override
+  public @Nullable Price getLocalPrice() {
+    return rows.getLocalPrice(index);
+  }
+
+  @Override
+  public @Nullable Price getLocalValue() {
+    return rows.getLocalValue(index);
+  }
+
+  @Override
+  public @Nullable BigDecimal getExchangeRate() {
+    return rows.getExchangeRate(index);
+  }
+
+  @Override
+  public @Nullable Price getValue() {
+    return rows.getValue(index);
+  }
+
+  @Override
+  public @Nullable Price getCommission() {
+    return rows.getCommission(index);
+  }
+
+  @Override
+  public @NonNull Price getTotal() {
+    return rows.getTotal(index);
+  }
+
+  @Override
+  public @Nullable String getOrderId() {
+    return rows.getOrderId(index);
+  }
+
+  @Override
+  public @Nullable String getTransactionId() {
+    return rows.getTransactionId(index);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final TransactionView that = (TransactionView) o;
+    return rows == that.rows && index == that.index;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(rows) + index;
+  }
+
+  @Immutable
+  private static final class PurchaseView extends TransactionView implements PurchaseTransaction {
+
+    private PurchaseView(@NonNull TransactionRows rows, @NonNegative int index) {
+      super(rows, index);
+    }
+
+    @Override
+    public @Nullable BigDecimal getRemainingQuantity() {
+      return rows.getRemainingQuantity(index);
+    }
+
+    @Override
+    public @Nullable LocalDate getLastSplitDate() {
+      return rows.getLastSplitDate(index);
+    }
+  }
+
+  @Immutable
+  private static final class SaleView extends TransactionView implements SaleTransaction {
+
+    private SaleView(@NonNull TransactionRows rows, @NonNegative int index) {
+      super(rows, index);
+    }
+  }
+}
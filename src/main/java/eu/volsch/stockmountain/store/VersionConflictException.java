@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+/**
+ * Thrown if a transaction cannot be written, since the stored transaction has a different
+ * {@linkplain eu.volsch.stockmountain.model.Transaction#getVersion() version} than expected (e.g.
+ * the transaction has been updated concurrently).
+ */
+public class VersionConflictException extends RuntimeException {
+
+  /**
+   * The version that is reported if no transaction is stored.
+   */
+  public static final int NO_VERSION = -1;
+
+  private static final long serialVersionUID = 1L;
+
+  private final long id;
+  private final int expectedVersion;
+  private final int actualVersion;
+
+  /**
+   * Creates an exception.
+   *
+   * @param id              the ID of the transaction.
+   * @param expectedVersion the expected version of the stored transaction or {@link #NO_VERSION}
+   *                        if no transaction was expected.
+   * @param actualVersion   the actual version of the stored transaction or {@link #NO_VERSION} if
+   *                        no transaction is stored.
+   */
+  public VersionConflictException(long id, int expectedVersion, int actualVersion) {
+    super("Version conflict of transaction " + id + ": expected " + expectedVersion
+        + ", actual " + actualVersion);
+    this.id = id;
+    this.expectedVersion = expectedVersion;
+    this.actualVersion = actualVersion;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public int getExpectedVersion() {
+    return expectedVersion;
+  }
+
+  public int getActualVersion() {
+    return actualVersion;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+class CodecOutputTest {
+
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  private final CodecOutput output = new CodecOutput(bytes);
+
+  @Test
+  void writeVarLong() throws IOException {
+    final long[] values = {0, 1, 127, 128, 16383, 16384, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+    for (final long value : values) {
+      output.writeVarLong(value);
+      output.writeSignedVarLong(value);
+    }
+    final CodecInput input = input();
+    for (final long value : values) {
+      assertEquals(value, input.readVarLong());
+      assertEquals(value, input.readSignedVarLong());
+    }
+    assertTrue(input.isAtEnd());
+  }
+
+  @Test
+  void writeVarLong_small() throws IOException {
+    output.writeVarLong(127);
+    output.writeSignedVarLong(-64);
+    output.flush();
+    assertEquals(2, bytes.size());
+  }
+
+  @Test
+  void writeDecimal() throws IOException {
+    final BigDecimal[] values = {BigDecimal.ZERO, new BigDecimal("-0.00"), new BigDecimal("12.50"),
+        new BigDecimal("1E+5"), new BigDecimal(Long.MIN_VALUE).subtract(BigDecimal.ONE),
+        new BigDecimal("98765432109876543210.0123456789")};
+    for (final BigDecimal value : values) {
+      output.writeDecimal(value);
+    }
+    final CodecInput input = input();
+    for (final BigDecimal value : values) {
+      // the scale must be preserved
+      assertEquals(value, input.readDecimal());
+    }
+  }
+
+  @Test
+  void writeTime() throws IOException {
+    final LocalTime[] values = {LocalTime.MIDNIGHT, LocalTime.of(14, 51), LocalTime.MAX};
+    for (final LocalTime value : values) {
+      output.writeTime(value);
+    }
+    final CodecInput input = input();
+    for (final LocalTime value : values) {
+      assertEquals(value, input.readTime());
+    }
+  }
+
+  @Test
+  void writeDictionaryString() throws IOException {
+    output.writeDictionaryString("EUR");
+    output.writeDictionaryString("USD");
+    output.writeDictionaryString("EUR");
+    output.writeDictionaryString("EUR");
+    output.flush();
+    // new strings require a marker, a length and the bytes, references a single byte
+    assertEquals(5 + 5 + 1 + 1, bytes.size());
+
+    final CodecInput input = input();
+    assertEquals("EUR", input.readDictionaryString());
+    assertEquals("USD", input.readDictionaryString());
+    assertEquals("EUR", input.readDictionaryString());
+    assertEquals("EUR", input.readDictionaryString());
+  }
+
+  @Test
+  void readDictionaryString_invalidReference_fail() throws IOException {
+    output.writeVarLong(3);
+    assertThrows(IOException.class, () -> input().readDictionaryString());
+  }
+
+  @Test
+  void readVarLong_tooLong_fail() throws IOException {
+    for (int i = 0; i < 10; i++) {
+      output.writeByte(0xff);
+    }
+    assertThrows(IOException.class, () -> input().readVarLong());
+  }
+
+  private CodecInput input() throws IOException {
+    output.flush();
+    return new CodecInput(new ByteArrayInputStream(bytes.toByteArray()));
+  }
+}
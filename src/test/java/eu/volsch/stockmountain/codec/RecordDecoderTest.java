@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static eu.volsch.stockmountain.codec.RecordEncoderTest.AMOUNT;
+import static eu.volsch.stockmountain.codec.RecordEncoderTest.DATE;
+import static eu.volsch.stockmountain.codec.RecordEncoderTest.META_DATA;
+import static eu.volsch.stockmountain.codec.RecordEncoderTest.NAME;
+import static eu.volsch.stockmountain.codec.RecordEncoderTest.encode;
+import static eu.volsch.stockmountain.codec.RecordEncoderTest.newRecord;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.MappingRecordBinder;
+import eu.volsch.stockmountain.extraction.api.RecordMetaData;
+import eu.volsch.stockmountain.extraction.api.SimpleField;
+import eu.volsch.stockmountain.extraction.api.SimpleRecordMetaData;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class RecordDecoderTest {
+
+  @Test
+  void read_binder() throws IOException {
+    final byte[] bytes = encode(List.of(
+        newRecord(LocalDate.of(2022, 12, 16), "Test", BigDecimal.TEN, null, null, null, null,
+            null, null, null)));
+    final MappingRecordBinder<StringBuilder, String> binder =
+        MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString)
+            .bind(DATE, (b, v) -> b.append(v).append(';'))
+            .bind(NAME, (b, v) -> b.append(v).append(';'))
+            .bind(AMOUNT, StringBuilder::append)
+            .build();
+    try (RecordDecoder decoder = new RecordDecoder(new ByteArrayInputStream(bytes), META_DATA)) {
+      assertEquals("2022-12-16;Test;10", decoder.read(binder));
+      assertNull(decoder.read(binder));
+    }
+  }
+
+  @Test
+  void read_fieldsMismatch_fail() throws IOException {
+    final byte[] bytes = encode(List.of());
+    final RecordMetaData metaData = new SimpleRecordMetaData(Set.of(DATE, NAME));
+    assertThrows(IOException.class,
+        () -> new RecordDecoder(new ByteArrayInputStream(bytes), metaData));
+  }
+
+  @Test
+  void read_fieldTypeMismatch_fail() throws IOException {
+    final Field<String> name = new SimpleField<>("name", 0, String.class, null);
+    final Field<Integer> number = new SimpleField<>("name", 0, Integer.class, null);
+    final byte[] bytes;
+    try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+      new RecordEncoder(output, new SimpleRecordMetaData(Set.of(name))).close();
+      bytes = output.toByteArray();
+    }
+    final RecordMetaData metaData = new SimpleRecordMetaData(Set.of(number));
+    assertThrows(IOException.class,
+        () -> new RecordDecoder(new ByteArrayInputStream(bytes), metaData));
+  }
+
+  @Test
+  void read_invalidTag_fail() throws IOException {
+    final byte[] bytes = encode(List.of(
+        newRecord(null, null, null, null, null, null, null, null, null, null)));
+    bytes[bytes.length - 1] = 99;
+    try (RecordDecoder decoder = new RecordDecoder(new ByteArrayInputStream(bytes), META_DATA)) {
+      assertThrows(IOException.class, decoder::read);
+    }
+  }
+}
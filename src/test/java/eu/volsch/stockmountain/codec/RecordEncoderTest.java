@@ -0,0 +1,123 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.Record;
+import eu.volsch.stockmountain.extraction.api.RecordMetaData;
+import eu.volsch.stockmountain.extraction.api.SimpleField;
+import eu.volsch.stockmountain.extraction.api.SimpleImmutableRecord;
+import eu.volsch.stockmountain.extraction.api.SimpleRecordMetaData;
+import eu.volsch.stockmountain.model.Isin;
+import eu.volsch.stockmountain.model.OrderId;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class RecordEncoderTest {
+
+  static final Field<LocalDate> DATE = new SimpleField<>("date", 0, LocalDate.class, null);
+  static final Field<String> NAME = new SimpleField<>("name", 1, String.class, null);
+  static final Field<BigDecimal> AMOUNT = new SimpleField<>("amount", 3, BigDecimal.class, null);
+  static final Field<Isin> ISIN = new SimpleField<>("isin", 4, Isin.class, null);
+  static final Field<OrderId> ORDER_ID = new SimpleField<>("orderId", 5, OrderId.class, null);
+  static final Field<LocalTime> TIME = new SimpleField<>("time", 6, LocalTime.class, null);
+  static final Field<LocalDateTime> TIMESTAMP =
+      new SimpleField<>("timestamp", 7, LocalDateTime.class, null);
+  static final Field<Long> COUNT = new SimpleField<>("count", 8, Long.class, null);
+  static final Field<Integer> NUMBER = new SimpleField<>("number", 9, Integer.class, null);
+  static final Field<Boolean> FLAG = new SimpleField<>("flag", 10, Boolean.class, null);
+  static final RecordMetaData META_DATA = new SimpleRecordMetaData(
+      Set.of(DATE, NAME, AMOUNT, ISIN, ORDER_ID, TIME, TIMESTAMP, COUNT, NUMBER, FLAG));
+
+  @Test
+  void write() throws IOException {
+    final Record record1 = newRecord(LocalDate.of(2022, 12, 16), "Test", new BigDecimal("-12.50"),
+        Isin.parse("US0378331005"), OrderId.parse("0d71cb9d-1879-43cc-838b-bfd845a81856"),
+        LocalTime.of(14, 51), LocalDateTime.of(2022, 12, 16, 14, 51, 7), -7L, 12, true);
+    final Record record2 = newRecord(LocalDate.of(2022, 12, 1), "Test", null, null, null,
+        LocalTime.of(14, 51, 0, 1), LocalDateTime.of(2020, 1, 1, 0, 0), 0L, -1, false);
+
+    final List<Record> records = decode(encode(List.of(record1, record2)));
+    assertEquals(2, records.size());
+    assertRecord(record1, records.get(0));
+    assertRecord(record2, records.get(1));
+  }
+
+  @Test
+  void write_unsupportedValueType_fail() throws IOException {
+    final Field<Object> field = new SimpleField<>("object", 0, Object.class, null);
+    final RecordMetaData metaData = new SimpleRecordMetaData(Set.of(field));
+    try (RecordEncoder encoder = new RecordEncoder(new ByteArrayOutputStream(), metaData)) {
+      final Record record = new SimpleImmutableRecord(metaData, new Object());
+      assertThrows(IllegalArgumentException.class, () -> encoder.write(record));
+    }
+  }
+
+  static Record newRecord(LocalDate date, String name, BigDecimal amount, Isin isin,
+      OrderId orderId, LocalTime time, LocalDateTime timestamp, Long count, Integer number,
+      Boolean flag) {
+    return new SimpleImmutableRecord(META_DATA, date, name, null, amount, isin, orderId, time,
+        timestamp, count, number, flag);
+  }
+
+  static void assertRecord(Record expected, Record actual) {
+    META_DATA.fieldStream().forEach(field ->
+        assertEquals(expected.getValue(field), actual.getValue(field), field.name()));
+  }
+
+  static byte[] encode(List<Record> records) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (RecordEncoder encoder = new RecordEncoder(bytes, META_DATA)) {
+      for (final Record record : records) {
+        encoder.write(record);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static List<Record> decode(byte[] bytes) throws IOException {
+    final List<Record> records = new ArrayList<>();
+    try (RecordDecoder decoder = new RecordDecoder(new ByteArrayInputStream(bytes), META_DATA)) {
+      Record record;
+      while ((record = decoder.read()) != null) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+}
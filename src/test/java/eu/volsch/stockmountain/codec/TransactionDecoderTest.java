@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static eu.volsch.stockmountain.codec.TransactionEncoderTest.decode;
+import static eu.volsch.stockmountain.codec.TransactionEncoderTest.encode;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TransactionDecoderTest {
+
+  @Test
+  void read_noMagic_fail() {
+    final byte[] bytes = {1, 2, 3, 4, 1};
+    assertThrows(IOException.class, () -> new TransactionDecoder(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  void read_unsupportedFormatVersion_fail() throws IOException {
+    final byte[] bytes = encode(List.of());
+    bytes[4] = 99;
+    assertThrows(IOException.class, () -> decode(bytes));
+  }
+
+  @Test
+  void read_truncated_fail() throws IOException {
+    final byte[] bytes = encode(List.of(newPurchase(1, 3)));
+    assertThrows(EOFException.class, () -> decode(Arrays.copyOf(bytes, bytes.length - 1)));
+  }
+
+  @Test
+  void read_invalidFlags_fail() throws IOException {
+    final byte[] bytes = encode(List.of(newPurchase(1, 3)));
+    bytes[6] = (byte) 0xff;
+    assertThrows(IOException.class, () -> decode(bytes));
+  }
+
+  @Test
+  void read_afterEnd() throws IOException {
+    final byte[] bytes = encode(List.of(newPurchase(1, 3)));
+    try (TransactionDecoder decoder = new TransactionDecoder(new ByteArrayInputStream(bytes))) {
+      assertEquals(1, decoder.read().getId());
+      assertEquals(null, decoder.read());
+      assertEquals(null, decoder.read());
+    }
+  }
+}
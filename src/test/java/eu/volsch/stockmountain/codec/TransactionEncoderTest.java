@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.codec;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TransactionEncoderTest {
+
+  @Test
+  void write_purchaseAndSale() throws IOException {
+    final List<Transaction> transactions = List.of(newPurchase(1007, 3), newSale(1003),
+        newPurchase(1008, 3).toBuilder()
+            .remainingQuantity(new BigDecimal("1.5"))
+            .lastSplitDate(LocalDate.of(2022, 6, 6))
+            .time(LocalTime.of(9, 0, 1, 5000))
+            .build());
+    final List<Transaction> decoded = decode(encode(transactions));
+    assertEquals(transactions.size(), decoded.size());
+    for (int i = 0; i < transactions.size(); i++) {
+      assertTransaction(transactions.get(i), decoded.get(i));
+    }
+  }
+
+  @Test
+  void write_nonCanonicalOrderId() throws IOException {
+    final Transaction transaction = newSale(1).toBuilder()
+        .orderId("0D71CB9D-1879-43CC-838B-BFD845A81856")
+        .build();
+    assertEquals("0D71CB9D-1879-43CC-838B-BFD845A81856",
+        decode(encode(List.of(transaction))).get(0).getOrderId());
+  }
+
+  @Test
+  void write_largeDecimal() throws IOException {
+    final Transaction transaction = newSale(1).toBuilder()
+        .exchangeRate(new BigDecimal("-123456789012345678901234567890.123456789"))
+        .build();
+    assertEquals(new BigDecimal("-123456789012345678901234567890.123456789"),
+        decode(encode(List.of(transaction))).get(0).getExchangeRate());
+  }
+
+  @Test
+  void write_compact() throws IOException {
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      transactions.add(newPurchase(1000 + i, 3).toBuilder()
+          .date(LocalDate.of(2022, 1, 1).plusDays(i / 3))
+          .build());
+    }
+    // repeated strings are encoded as dictionary references, IDs and dates as small differences
+    assertTrue(encode(transactions).length < 1000 * 64);
+  }
+
+  @Test
+  void write_empty() throws IOException {
+    assertEquals(List.of(), decode(encode(List.of())));
+  }
+
+  static byte[] encode(List<Transaction> transactions) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TransactionEncoder encoder = new TransactionEncoder(bytes)) {
+      for (final Transaction transaction : transactions) {
+        encoder.write(transaction);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static List<Transaction> decode(byte[] bytes) throws IOException {
+    final List<Transaction> transactions = new ArrayList<>();
+    try (TransactionDecoder decoder = new TransactionDecoder(new ByteArrayInputStream(bytes))) {
+      Transaction transaction;
+      while ((transaction = decoder.read()) != null) {
+        transactions.add(transaction);
+      }
+    }
+    return transactions;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.degiro;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.portfolio.OrderAggregate;
+import eu.volsch.stockmountain.portfolio.OrderAggregator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DegiroTransactionBinderTest {
+
+  private static final String HEADER = ",".repeat(18) + "\n";
+
+  @Test
+  void extract() throws IOException {
+    final List<Transaction> transactions;
+    try (final InputStream is = DegiroTransactionExtractorProvider.class.getResourceAsStream(
+        "simple_transactions.csv")) {
+      assertNotNull(is, "Sample data does not exist");
+      transactions = new DegiroTransactionExtractorProvider().getExtractor()
+          .extract(is, new DegiroTransactionBinder()).collect(toList());
+    }
+
+    assertEquals(2, transactions.size());
+    final Transaction purchase = transactions.get(0);
+    assertTrue(purchase instanceof PurchaseTransaction);
+    assertEquals(LocalDate.of(2022, 7, 20), purchase.getDate());
+    assertEquals(LocalTime.of(18, 12), purchase.getTime());
+    assertEquals("US0231351067", purchase.getIsin());
+    assertEquals("AMAZON.COM INC. - COM", purchase.getName());
+    assertEquals("NDQ", purchase.getSecuritiesExchange());
+    assertEquals(new BigDecimal("1"), purchase.getQuantity());
+    assertEquals(new Price(new BigDecimal("122.6800"), "USD"), purchase.getLocalPrice());
+    assertEquals(new Price(new BigDecimal("-245.36"), "USD"), purchase.getLocalValue());
+    assertEquals(new BigDecimal("1.0215"), purchase.getExchangeRate());
+    assertEquals(new Price(new BigDecimal("-240.20"), "EUR"), purchase.getValue());
+    assertEquals(new Price(new BigDecimal("-0.50"), "EUR"), purchase.getCommission());
+    assertEquals(new Price(new BigDecimal("-240.90"), "EUR"), purchase.getTotal());
+    assertEquals("0d71cb9d-1879-43cc-838b-bfd845a81856", purchase.getOrderId());
+
+    final Transaction second = transactions.get(1);
+    assertNull(second.getCommission());
+    assertNull(second.getOrderId());
+  }
+
+  @Test
+  void extract_sale() {
+    final List<Transaction> transactions = new DegiroTransactionExtractorProvider().getExtractor()
+        .extract(new StringReader(HEADER + row("-3", "0.00", "")), new DegiroTransactionBinder())
+        .collect(toList());
+    assertEquals(1, transactions.size());
+    assertTrue(transactions.get(0) instanceof SaleTransaction);
+    assertEquals(new BigDecimal("-3"), transactions.get(0).getQuantity());
+  }
+
+  @Test
+  void extract_zeroQuantity_fail() {
+    final List<Transaction> transactions = new ArrayList<>();
+    assertThrows(IllegalArgumentException.class, () -> new DegiroTransactionExtractorProvider()
+        .getExtractor()
+        .extract(new StringReader(HEADER + row("0", "0.00", "")), new DegiroTransactionBinder())
+        .forEach(transactions::add));
+    assertEquals(List.of(), transactions);
+  }
+
+  @Test
+  void extract_aggregateOrders() {
+    final String orderId = "0d71cb9d-1879-43cc-838b-bfd845a81856";
+    final List<OrderAggregate> aggregates = new ArrayList<>();
+    final OrderAggregator aggregator = new OrderAggregator(1, aggregates::add);
+    new DegiroTransactionExtractorProvider().getExtractor()
+        .extract(new StringReader(HEADER + row("2", "-1.00", orderId)
+            + row("3", "-0.50", orderId) + row("1", "", "")), new DegiroTransactionBinder())
+        .forEachOrdered(aggregator);
+    aggregator.flush();
+
+    assertEquals(2, aggregates.size());
+    assertNull(aggregates.get(0).getOrderId());
+    assertEquals(1, aggregates.get(0).getFillCount());
+    final OrderAggregate order = aggregates.get(1);
+    assertEquals(orderId, order.getOrderId());
+    assertEquals(2, order.getFillCount());
+    assertEquals(new BigDecimal("5"), order.getQuantity());
+    assertEquals(new Price(new BigDecimal("-1.50"), "EUR"), order.getCommission());
+  }
+
+  private static String row(String quantity, String costs, String orderId) {
+    return "20-07-2022,18:12,AMAZON.COM INC. - COM,US0231351067,NDQ,CDED," + quantity
+        + ",122.6800,USD,-245.36,USD,-240.20,EUR,1.0215," + costs + ","
+        + (costs.isEmpty() ? "" : "EUR") + ",-240.90,EUR," + orderId + "\n";
+  }
+}
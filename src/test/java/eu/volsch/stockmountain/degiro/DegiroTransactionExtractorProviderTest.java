@@ -31,10 +31,12 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import eu.volsch.stockmountain.extraction.api.Extractor;
+import eu.volsch.stockmountain.extraction.api.ExtractorProvider;
 import eu.volsch.stockmountain.extraction.api.Record;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
@@ -66,6 +68,42 @@ class DegiroTransactionExtractorProviderTest {
     assertExtractedRecord2(records.get(1));
   }
 
+  @Test
+  void score_sample() throws IOException {
+    final byte[] prefix;
+    try (final InputStream is = DegiroTransactionExtractorProvider.class.getResourceAsStream(
+        "simple_transactions.csv")) {
+      assertNotNull(is, "Sample data does not exist");
+      prefix = is.readAllBytes();
+    }
+    assertEquals(ExtractorProvider.MAX_SCORE, provider.score(prefix, prefix.length));
+  }
+
+  @Test
+  void score_headerOnly() {
+    final byte[] prefix = (",".repeat(18) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    assertEquals(50, provider.score(prefix, prefix.length));
+  }
+
+  @Test
+  void score_incompleteDataRow() {
+    final byte[] prefix = (",".repeat(18) + "\n20-07-2022,18:12,AMAZON,US02313")
+        .getBytes(StandardCharsets.ISO_8859_1);
+    assertEquals(80, provider.score(prefix, prefix.length));
+  }
+
+  @Test
+  void score_otherFieldCount() {
+    final byte[] prefix = "Date,Time,\"A,B\"\n".getBytes(StandardCharsets.ISO_8859_1);
+    assertEquals(0, provider.score(prefix, prefix.length));
+  }
+
+  @Test
+  void score_utf16() {
+    final byte[] prefix = ",".repeat(18).getBytes(StandardCharsets.UTF_16);
+    assertEquals(0, provider.score(prefix, prefix.length));
+  }
+
   private static void assertExtractedRecord1(Record r) {
     assertEquals(LocalDate.of(2022, 7, 20), r.getValue(DegiroTransactionFields.DATE));
     assertEquals(LocalTime.of(18, 12, 0), r.getValue(DegiroTransactionFields.TIME));
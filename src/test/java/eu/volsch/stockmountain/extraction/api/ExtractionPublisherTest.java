@@ -0,0 +1,221 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class ExtractionPublisherTest {
+
+  private final AtomicInteger extracted = new AtomicInteger();
+  private final CloseTracker input = new CloseTracker();
+
+  @Test
+  void publish_onlyRequested() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        this::extraction, input, Runnable::run);
+    final TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    assertEquals(0, extracted.get());
+    subscriber.subscription.request(2);
+    assertEquals(List.of(0, 1), subscriber.items);
+    assertEquals(2, extracted.get());
+
+    subscriber.subscription.request(1);
+    assertEquals(List.of(0, 1, 2), subscriber.items);
+    assertEquals(3, extracted.get());
+    assertFalse(input.closed);
+  }
+
+  @Test
+  void publish_complete() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        () -> Stream.of(1, 2), input, Runnable::run);
+    final TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(List.of(1, 2), subscriber.items);
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+    assertTrue(input.closed);
+  }
+
+  @Test
+  void publish_requestInOnNext() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        () -> Stream.of(1, 2, 3), input, Runnable::run);
+    final TestSubscriber subscriber = new TestSubscriber() {
+      @Override
+      public void onNext(Integer item) {
+        super.onNext(item);
+        subscription.request(1);
+      }
+    };
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    assertEquals(List.of(1, 2, 3), subscriber.items);
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  void cancel_closesInput() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        this::extraction, input, Runnable::run);
+    final TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+
+    assertEquals(List.of(0), subscriber.items);
+    assertTrue(input.closed);
+    assertFalse(subscriber.completed);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  void publish_extractionError() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        () -> Stream.of(1, 0).map(i -> 1 / i), input, Runnable::run);
+    final TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(5);
+    assertEquals(List.of(1), subscriber.items);
+    assertTrue(subscriber.error instanceof ArithmeticException);
+    assertTrue(input.closed);
+  }
+
+  @Test
+  void request_nonPositive_fail() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        this::extraction, input, Runnable::run);
+    final TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertTrue(input.closed);
+  }
+
+  @Test
+  void subscribe_secondSubscriber_fail() {
+    final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+        this::extraction, input, Runnable::run);
+    publisher.subscribe(new TestSubscriber());
+    final TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.error instanceof IllegalStateException);
+    assertTrue(subscriber.items.isEmpty());
+  }
+
+  @Test
+  void publish_executor() throws InterruptedException {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final ExtractionPublisher<Integer> publisher = new ExtractionPublisher<>(
+          () -> Stream.of(1, 2, 3), input, executor);
+      final CountDownLatch latch = new CountDownLatch(1);
+      final TestSubscriber subscriber = new TestSubscriber() {
+        @Override
+        public void onComplete() {
+          super.onComplete();
+          latch.countDown();
+        }
+      };
+      publisher.subscribe(subscriber);
+      subscriber.subscription.request(10);
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertEquals(List.of(1, 2, 3), subscriber.items);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private Stream<Integer> extraction() {
+    return Stream.iterate(0, i -> i + 1).peek(i -> extracted.incrementAndGet());
+  }
+
+  private static class TestSubscriber implements Flow.Subscriber<Integer> {
+
+    protected Flow.Subscription subscription;
+    private final List<Integer> items = new ArrayList<>();
+    private volatile boolean completed;
+    private volatile Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Integer item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  private static class CloseTracker implements Closeable {
+
+    private boolean closed;
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+    }
+  }
+}
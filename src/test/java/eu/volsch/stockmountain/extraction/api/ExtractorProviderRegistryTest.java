@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.degiro.DegiroTransactionExtractorProvider;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Test;
+
+class ExtractorProviderRegistryTest {
+
+  @Test
+  void getDefault() {
+    final ExtractorProviderRegistry registry = ExtractorProviderRegistry.getDefault();
+    assertSame(registry, ExtractorProviderRegistry.getDefault());
+    assertEquals(Set.of("DEGIRO"), registry.getBrokerIds());
+    assertTrue(registry.getProvider("DEGIRO").orElseThrow()
+        instanceof DegiroTransactionExtractorProvider);
+    assertFalse(registry.getProvider("OTHER").isPresent());
+  }
+
+  @Test
+  void newRegistry_duplicateBrokerId_fail() {
+    final List<ExtractorProvider> providers = List.of(new TestProvider("A", 1),
+        new TestProvider("A", 2));
+    assertThrows(IllegalArgumentException.class, () -> new ExtractorProviderRegistry(providers));
+  }
+
+  @Test
+  void newRegistry_invalidPrefixLength_fail() {
+    final List<ExtractorProvider> providers = List.of();
+    assertThrows(IllegalArgumentException.class,
+        () -> new ExtractorProviderRegistry(providers, 0));
+  }
+
+  @Test
+  void detect_highestScore() {
+    final ExtractorProvider provider = new TestProvider("B", 20);
+    final ExtractorProviderRegistry registry = new ExtractorProviderRegistry(List.of(
+        new TestProvider("A", 10), provider, new TestProvider("C", 20),
+        new TestProvider("D", 0)));
+    assertSame(provider, registry.detect(new byte[0], 0).orElseThrow());
+  }
+
+  @Test
+  void detect_noScore() {
+    final ExtractorProviderRegistry registry = new ExtractorProviderRegistry(List.of(
+        new TestProvider("A", 0)));
+    assertFalse(registry.detect(new byte[0], 0).isPresent());
+  }
+
+  @Test
+  void detect_inputStreamNotConsumed() throws IOException {
+    final ExtractorProviderRegistry registry = ExtractorProviderRegistry.getDefault();
+    try (final InputStream is = new BufferedInputStream(
+        DegiroTransactionExtractorProvider.class.getResourceAsStream(
+            "simple_transactions.csv"))) {
+      final Optional<ExtractorProvider> provider = registry.detect(is);
+      assertEquals("DEGIRO", provider.orElseThrow().getBrokerId());
+      assertEquals(2, provider.get().getExtractor().extract(is).collect(toList()).size());
+    }
+  }
+
+  @Test
+  void detect_unknownContent() throws IOException {
+    final ExtractorProviderRegistry registry = new ExtractorProviderRegistry(
+        List.of(new DegiroTransactionExtractorProvider()), 16);
+    final InputStream is = new ByteArrayInputStream(
+        "Date;Name;Value\n".getBytes(StandardCharsets.ISO_8859_1));
+    assertFalse(registry.detect(is).isPresent());
+    assertEquals('D', is.read());
+  }
+
+  @Test
+  void detect_markNotSupported_fail() {
+    final ExtractorProviderRegistry registry = ExtractorProviderRegistry.getDefault();
+    final InputStream is = InputStream.nullInputStream();
+    assertThrows(IllegalArgumentException.class, () -> registry.detect(is));
+  }
+
+  private static final class TestProvider implements ExtractorProvider {
+
+    private final String brokerId;
+    private final int score;
+
+    private TestProvider(String brokerId, int score) {
+      this.brokerId = brokerId;
+      this.score = score;
+    }
+
+    @Override
+    public @NonNull String getBrokerId() {
+      return brokerId;
+    }
+
+    @Override
+    public @NonNull Extractor getExtractor() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int score(byte @NonNull [] prefix, int length) {
+      return score;
+    }
+  }
+}
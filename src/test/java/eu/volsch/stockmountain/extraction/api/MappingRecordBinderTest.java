@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class MappingRecordBinderTest {
+
+  private final Field<String> field1 = new SimpleField<>("testField1", 0, String.class, null);
+  private final Field<BigDecimal> field2 =
+      new SimpleField<>("testField2", 2, BigDecimal.class, null);
+  private final Field<String> field3 = new SimpleField<>("testField3", 3, String.class, null);
+
+  @Test
+  void bind_newTargetPerRecord() {
+    final MappingRecordBinder<Holder, String> binder =
+        MappingRecordBinder.builder(Holder::new, Holder::toString)
+            .bind(field1, Holder::setName)
+            .bind(field2, Holder::setAmount)
+            .build();
+
+    binder.begin();
+    binder.bind(field1, "abc");
+    binder.bind(field2, new BigDecimal("12.5"));
+    assertEquals("abc=12.5", binder.complete());
+
+    binder.begin();
+    binder.bind(field1, "def");
+    assertEquals("def=null", binder.complete());
+  }
+
+  @Test
+  void bind_reusableTarget() {
+    final Holder holder = new Holder();
+    final MappingRecordBinder<Holder, Holder> binder = MappingRecordBinder.builder(holder)
+        .bind(field1, Holder::setName)
+        .build();
+
+    binder.begin();
+    binder.bind(field1, "abc");
+    assertSame(holder, binder.complete());
+    assertEquals("abc", holder.name);
+
+    binder.begin();
+    binder.bind(field1, "def");
+    assertSame(holder, binder.complete());
+    assertEquals("def", holder.name);
+  }
+
+  @Test
+  void bind_unmappedFieldIgnored() {
+    final MappingRecordBinder<Holder, Holder> binder =
+        MappingRecordBinder.builder(Holder::new, h -> h)
+            .bind(field1, Holder::setName)
+            .build();
+
+    binder.begin();
+    binder.bind(field3, "ignored");
+    binder.bind(new SimpleField<>("other", 0, String.class, null), "ignored");
+    assertNull(binder.complete().name);
+  }
+
+  @Test
+  void bind_noMappings() {
+    final MappingRecordBinder<Holder, Holder> binder =
+        MappingRecordBinder.builder(Holder::new, h -> h).build();
+
+    binder.begin();
+    binder.bind(field2, BigDecimal.ONE);
+    assertNull(binder.complete().amount);
+  }
+
+  @Test
+  void build_independentBinders() {
+    final MappingRecordBinder.Builder<Holder, Holder> builder =
+        MappingRecordBinder.builder(Holder::new, h -> h).bind(field1, Holder::setName);
+    assertNotSame(builder.build(), builder.build());
+  }
+
+  @Test
+  void bind_duplicateOrdinal_fail() {
+    final MappingRecordBinder.Builder<Holder, Holder> builder =
+        MappingRecordBinder.builder(Holder::new, h -> h).bind(field1, Holder::setName);
+    final Field<String> other = new SimpleField<>("other", 0, String.class, null);
+    assertThrows(IllegalArgumentException.class, () -> builder.bind(other, Holder::setName));
+  }
+
+  @Test
+  void bind_notBegun_fail() {
+    final MappingRecordBinder<Holder, Holder> binder =
+        MappingRecordBinder.builder(Holder::new, h -> h)
+            .bind(field1, Holder::setName)
+            .build();
+    assertThrows(IllegalStateException.class, () -> binder.bind(field1, "abc"));
+  }
+
+  @Test
+  void complete_notBegun_fail() {
+    final MappingRecordBinder<Holder, Holder> binder =
+        MappingRecordBinder.builder(Holder::new, h -> h).build();
+    binder.begin();
+    binder.complete();
+    assertThrows(IllegalStateException.class, binder::complete);
+  }
+
+  private static final class Holder {
+
+    private String name;
+    private BigDecimal amount;
+
+    void setName(String name) {
+      this.name = name;
+    }
+
+    void setAmount(BigDecimal amount) {
+      this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+      return name + "=" + amount;
+    }
+  }
+}
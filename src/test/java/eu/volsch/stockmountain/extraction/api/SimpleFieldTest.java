@@ -25,11 +25,13 @@
 
 package eu.volsch.stockmountain.extraction.api;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import eu.volsch.stockmountain.extraction.conversion.ColumnConversionException;
 import eu.volsch.stockmountain.extraction.conversion.ConversionException;
 import eu.volsch.stockmountain.extraction.conversion.StringToBigDecimalConvertor;
 import java.math.BigDecimal;
@@ -132,4 +134,37 @@ class SimpleFieldTest {
     assertEquals("testName",
         new SimpleField<>("testName", 2, String.class, null).toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  void convertColumn_withoutConverter() throws ConversionException {
+    final Object[] targets = new Object[2];
+    new SimpleField<>("testName", 2, String.class, null)
+        .convertColumn(new Object[]{"abc", null}, 2, targets);
+    assertArrayEquals(new Object[]{"abc", null}, targets);
+  }
+
+  @Test
+  void convertColumn_withoutConverterNonMatchingType_fail() {
+    final SimpleField<String> field = new SimpleField<>("testName", 2, String.class, null);
+    assertThrows(ClassCastException.class,
+        () -> field.convertColumn(new Object[]{"abc", 1}, 2, new Object[2]));
+  }
+
+  @Test
+  void convertColumn_withConverter() throws ConversionException {
+    final Object[] targets = new BigDecimal[2];
+    new SimpleField<>("testName", 2, BigDecimal.class,
+        StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE)
+        .convertColumn(new String[]{"12.5", "1"}, 2, targets);
+    assertArrayEquals(new BigDecimal[]{new BigDecimal("12.5"), BigDecimal.ONE}, targets);
+  }
+
+  @Test
+  void convertColumn_withConverterNonMatchingValue_fail() {
+    final SimpleField<BigDecimal> field = new SimpleField<>("testName", 2, BigDecimal.class,
+        StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE);
+    final ColumnConversionException e = assertThrows(ColumnConversionException.class,
+        () -> field.convertColumn(new String[]{"12.5", "x"}, 2, new Object[2]));
+    assertEquals(1, e.getIndex());
+  }
+}
@@ -72,6 +72,7 @@ class AbstractStringConverterTest {
   void convert_string() throws ConversionException {
     when(converter.doConvert(any())).thenReturn("Test Result");
     assertEquals("Test Result", converter.convert(" Test Value "));
+    verify(converter).convert(" Test Value ");
     verify(converter).doConvert("Test Value");
     verifyNoMoreInteractions(converter);
   }
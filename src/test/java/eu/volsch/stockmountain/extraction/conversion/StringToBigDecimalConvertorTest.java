@@ -25,6 +25,7 @@
 
 package eu.volsch.stockmountain.extraction.conversion;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -180,4 +181,58 @@ class StringToBigDecimalConvertorTest {
     assertThrows(ConversionException.class,
         () -> StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE.convert("1.23345353454567E16"));
   }
-}
\ No newline at end of file
+
+  @Test
+  void convert_simpleValues() throws ConversionException {
+    final StringToBigDecimalConvertor converter =
+        StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE;
+    assertEquals(new BigDecimal("-0.00"), converter.convert("-0.00"));
+    assertEquals(new BigDecimal("5"), converter.convert("+5"));
+    assertEquals(new BigDecimal("0.5"), converter.convert(".5"));
+    assertEquals(new BigDecimal("1"), converter.convert("1."));
+    assertEquals(new BigDecimal("123456789012345678"), converter.convert("123456789012345678"));
+    assertEquals(new BigDecimal("-1234567890.123456789"),
+        converter.convert("-1234567890.123456789"));
+  }
+
+  @Test
+  void convertColumn() throws ConversionException {
+    final String[] sources = {"1,5", null, " ", "1.234,56", "-3"};
+    final BigDecimal[] targets = new BigDecimal[sources.length];
+    StringToBigDecimalConvertor.DECIMAL_COMMA_INSTANCE.convertColumn(sources, 4, targets);
+
+    assertArrayEquals(new BigDecimal[]{new BigDecimal("1.5"), null, null,
+        new BigDecimal("1234.56"), null}, targets);
+  }
+
+  @Test
+  void convertColumn_invalid_fail() {
+    final String[] sources = {"1", "2", "1.5", "4"};
+    final BigDecimal[] targets = new BigDecimal[sources.length];
+    final ColumnConversionException e = assertThrows(ColumnConversionException.class,
+        () -> StringToBigDecimalConvertor.DECIMAL_COMMA_INSTANCE.convertColumn(
+            sources, sources.length, targets));
+
+    assertEquals(2, e.getIndex());
+    assertArrayEquals(new BigDecimal[]{BigDecimal.ONE, new BigDecimal("2"), null, null}, targets);
+  }
+
+  @Test
+  void castAndConvertColumn_objectArrays() throws ConversionException {
+    final Object[] sources = {"1.5", "2"};
+    final Object[] targets = new Object[sources.length];
+    StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE.castAndConvertColumn(
+        sources, sources.length, targets);
+
+    assertArrayEquals(new Object[]{new BigDecimal("1.5"), new BigDecimal("2")}, targets);
+  }
+
+  @Test
+  void castAndConvertColumn_invalidType_fail() {
+    final Object[] sources = {"1.5", 2};
+    final Object[] targets = new Object[sources.length];
+    assertThrows(ClassCastException.class,
+        () -> StringToBigDecimalConvertor.DECIMAL_POINT_INSTANCE.castAndConvertColumn(
+            sources, sources.length, targets));
+  }
+}
@@ -25,10 +25,13 @@
 
 package eu.volsch.stockmountain.extraction.conversion;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.junit.jupiter.api.Test;
 
 class StringToCurrencyConverterTest {
@@ -64,4 +67,30 @@ class StringToCurrencyConverterTest {
     assertThrows(ConversionException.class,
         () -> StringToCurrencyConverter.INSTANCE.convert("EU"));
   }
-}
\ No newline at end of file
+
+  @Test
+  void convert_nonLetter_fail() {
+    assertThrows(ConversionException.class,
+        () -> StringToCurrencyConverter.INSTANCE.convert("E1R"));
+  }
+
+  @Test
+  @SuppressFBWarnings("DM_STRING_CTOR")
+  void convertColumn() throws ConversionException {
+    final String[] sources = {"EUR", new String("EUR"), " ", "USD", " USD"};
+    final String[] targets = new String[sources.length];
+    StringToCurrencyConverter.INSTANCE.convertColumn(sources, sources.length, targets);
+
+    assertArrayEquals(new String[]{"EUR", "EUR", null, "USD", "USD"}, targets);
+    assertSame(targets[0], targets[1]);
+  }
+
+  @Test
+  void convertColumn_invalid_fail() {
+    final String[] sources = {"EUR", "EUR", "eur"};
+    final ColumnConversionException e = assertThrows(ColumnConversionException.class,
+        () -> StringToCurrencyConverter.INSTANCE.convertColumn(
+            sources, sources.length, new String[sources.length]));
+    assertEquals(2, e.getIndex());
+  }
+}
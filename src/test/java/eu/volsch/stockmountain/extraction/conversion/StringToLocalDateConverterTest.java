@@ -25,6 +25,7 @@
 
 package eu.volsch.stockmountain.extraction.conversion;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -77,4 +78,26 @@ class StringToLocalDateConverterTest {
 
     assertThrows(ConversionException.class, () -> converter.convert("14-17-2022"));
   }
-}
\ No newline at end of file
+
+  @Test
+  void convertColumn() throws ConversionException {
+    final StringToLocalDateConverter converter = new StringToLocalDateConverter(
+        DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+    final String[] sources = {"14-03-2022", "14-03-2022", null, "15-03-2022"};
+    final LocalDate[] targets = new LocalDate[sources.length];
+    converter.convertColumn(sources, sources.length, targets);
+
+    assertArrayEquals(new LocalDate[]{LocalDate.of(2022, 3, 14), LocalDate.of(2022, 3, 14), null,
+        LocalDate.of(2022, 3, 15)}, targets);
+  }
+
+  @Test
+  void convertColumn_invalid_fail() {
+    final StringToLocalDateConverter converter = new StringToLocalDateConverter(
+        DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+    final String[] sources = {"14-03-2022", "14-17-2022", "14-17-2022"};
+    final ColumnConversionException e = assertThrows(ColumnConversionException.class,
+        () -> converter.convertColumn(sources, sources.length, new LocalDate[sources.length]));
+    assertEquals(1, e.getIndex());
+  }
+}
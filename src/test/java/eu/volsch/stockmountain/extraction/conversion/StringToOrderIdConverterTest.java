@@ -0,0 +1,63 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.extraction.conversion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.OrderId;
+import org.junit.jupiter.api.Test;
+
+class StringToOrderIdConverterTest {
+
+  @Test
+  void getTargetType() {
+    assertEquals(OrderId.class, StringToOrderIdConverter.INSTANCE.getTargetType());
+  }
+
+  @Test
+  void convert_null() throws ConversionException {
+    assertNull(StringToOrderIdConverter.INSTANCE.convert(null));
+  }
+
+  @Test
+  void convert_empty() throws ConversionException {
+    assertNull(StringToOrderIdConverter.INSTANCE.convert("  "));
+  }
+
+  @Test
+  void convert_string() throws ConversionException {
+    assertEquals(OrderId.parse("0d71cb9d-1879-43cc-838b-bfd845a81856"),
+        StringToOrderIdConverter.INSTANCE.convert(" 0d71cb9d-1879-43cc-838b-bfd845a81856 "));
+  }
+
+  @Test
+  void convert_invalid_fail() {
+    assertThrows(ConversionException.class,
+        () -> StringToOrderIdConverter.INSTANCE.convert("0d71cb9d"));
+  }
+}
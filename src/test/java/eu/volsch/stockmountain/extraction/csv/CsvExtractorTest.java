@@ -31,6 +31,7 @@ import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.isA;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -39,6 +40,7 @@ import static org.mockito.Mockito.when;
 import eu.volsch.stockmountain.extraction.api.ExtractionDataAccessException;
 import eu.volsch.stockmountain.extraction.api.ExtractionException;
 import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.MappingRecordBinder;
 import eu.volsch.stockmountain.extraction.api.Record;
 import eu.volsch.stockmountain.extraction.api.SimpleField;
 import eu.volsch.stockmountain.extraction.conversion.StringConverter;
@@ -52,8 +54,10 @@ import java.math.BigDecimal;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Flow;
 import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.junit.jupiter.api.BeforeEach;
@@ -418,6 +422,84 @@ class CsvExtractorTest {
     assertThat(e.getCause(), isA(CharacterCodingException.class));
   }
 
+  @Test
+  void extract_binder() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 1, Integer.MAX_VALUE);
+    final List<String> result = extractor.extract(
+            new StringReader(HEADER_2 + NL
+                + DATA_2 + CR_NL
+                + DATA_1),
+            MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString)
+                .bind(field1, (sb, v) -> sb.append(v).append('|'))
+                .bind(field2, (sb, v) -> sb.append(v).append('|'))
+                .build())
+        .collect(toList());
+
+    assertEquals(List.of("Line 1,\n\"Line 2\",\n\"Line 3,\n\nLine 4\"|-492|", "Value 1|47.896|"),
+        result);
+  }
+
+  @Test
+  void extract_binderInputStream() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 0, Integer.MAX_VALUE);
+    final BigDecimal[] target = new BigDecimal[1];
+    final List<BigDecimal> result = extractor.extract(
+            new ByteArrayInputStream("a,,10,b\nc,,1.234,d".getBytes(StandardCharsets.ISO_8859_1)),
+            MappingRecordBinder.builder(target)
+                .bind(field2, (t, v) -> t[0] = v)
+                .build())
+        .map(t -> t[0])
+        .collect(toList());
+
+    assertEquals(List.of(new BigDecimal("10"), new BigDecimal("1234")), result);
+  }
+
+  @Test
+  void extract_binderInvalidValue_fail() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 0, Integer.MAX_VALUE);
+    final Stream<String> stream = extractor.extract(new StringReader("a,,10E01,b"),
+        MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString).build());
+
+    final CsvExtractionException e = assertThrows(CsvExtractionException.class,
+        () -> stream.forEach(r -> {
+        }));
+    assertEquals("10E01", e.getInvalidValue());
+  }
+
+  @Test
+  void publish() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 0, Integer.MAX_VALUE);
+    final List<Record> result = new ArrayList<>();
+    extractor.publish(new ByteArrayInputStream(
+            (DATA_1 + NL + DATA_1).getBytes(StandardCharsets.ISO_8859_1)))
+        .subscribe(new Flow.Subscriber<>() {
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+          }
+
+          @Override
+          public void onNext(Record item) {
+            result.add(item);
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            result.add(null);
+          }
+        });
+
+    assertEquals(3, result.size());
+    assertData1(result.get(0));
+    assertData1(result.get(1));
+    assertNull(result.get(2));
+  }
+
   @Test
   void extract_ioException_fail(@Mock Reader reader) throws IOException {
     when(reader.read()).thenThrow(new IOException("TEST"));
@@ -474,4 +556,130 @@ class CsvExtractorTest {
     recordStream.forEach(r -> {
     });
   }
-}
\ No newline at end of file
+
+  @Test
+  void extract_batches() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 1, Integer.MAX_VALUE);
+    final String data = newData(600, -1);
+
+    final List<String> batchResult = extractor.extract(new StringReader(data))
+        .map(this::toValueString)
+        .collect(toList());
+    final List<String> singleResult = new ArrayList<>();
+    extractor.extract(new StringReader(data)).iterator()
+        .forEachRemaining(r -> singleResult.add(toValueString(r)));
+
+    assertEquals(600, batchResult.size());
+    assertEquals(singleResult, batchResult);
+    assertEquals("Value 599|599.5|Other", batchResult.get(599));
+  }
+
+  @Test
+  void extract_batchesInvalidValue_fail() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 1, Integer.MAX_VALUE);
+    final List<Record> result = new ArrayList<>();
+    final Stream<Record> stream = extractor.extract(new StringReader(newData(600, 300)));
+
+    final CsvExtractionException e = assertThrows(CsvExtractionException.class,
+        () -> stream.forEach(result::add));
+    assertEquals(300, result.size());
+    assertEquals(302, e.getRecordNo());
+    assertEquals(302, e.getLineNo());
+    assertEquals(13, e.getLinePos());
+    assertEquals("x", e.getInvalidValue());
+  }
+
+  @Test
+  void extract_batchesInvalidFormat_fail() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 1, Integer.MAX_VALUE);
+    final List<Record> result = new ArrayList<>();
+    final Stream<Record> stream = extractor.extract(
+        new StringReader(newData(10, -1) + "a,b" + NL));
+
+    final CsvExtractionException e = assertThrows(CsvExtractionException.class,
+        () -> stream.forEach(result::add));
+    assertEquals(10, result.size());
+    assertEquals(12, e.getRecordNo());
+    assertFalse(result.isEmpty());
+  }
+
+  @Test
+  void extract_rowFilterBatches() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 1, Integer.MAX_VALUE);
+    final List<String> rawValues = new ArrayList<>();
+    final List<String> result = extractor.extract(new StringReader(newData(600, 300)),
+            newValueBinder(),
+            row -> {
+              rawValues.add(row.getRawValue(field2));
+              return row.getRecordNo() % 3 == 0 && !"x".equals(row.getRawValue(field2));
+            })
+        .collect(toList());
+
+    assertEquals(600, rawValues.size());
+    assertEquals("0,5", rawValues.get(0));
+    assertEquals("x", rawValues.get(300));
+    assertEquals(200, result.size());
+    assertEquals("Value 1|1.5|Other", result.get(0));
+    assertEquals("Value 598|598.5|Other", result.get(199));
+  }
+
+  @Test
+  void extract_rowFilterSingle() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 1, Integer.MAX_VALUE);
+    final CsvRowFilter filter = row -> row.getRawValue(field1).endsWith("7");
+    final List<String> batchResult = extractor.extract(
+            new StringReader(newData(300, 150)), newValueBinder(), filter)
+        .collect(toList());
+    final List<String> singleResult = new ArrayList<>();
+    extractor.extract(new StringReader(newData(300, 150)), newValueBinder(), filter)
+        .iterator().forEachRemaining(singleResult::add);
+
+    assertEquals(30, batchResult.size());
+    assertEquals(batchResult, singleResult);
+    assertEquals("Value 7|7.5|Other", singleResult.get(0));
+  }
+
+  @Test
+  void extract_rowFilterInputStream() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 0, Integer.MAX_VALUE);
+    final List<String> result = extractor.extract(
+            new ByteArrayInputStream("a,,10,b\nc,,1.234,d".getBytes(StandardCharsets.ISO_8859_1)),
+            newValueBinder(), row -> row.getRawValue(field1).equals("c"))
+        .collect(toList());
+
+    assertEquals(List.of("c|1234|d"), result);
+  }
+
+  @Test
+  void extract_rowFilterUnknownField_fail() {
+    final CsvExtractor extractor = new CsvExtractor(',', fields, 0, Integer.MAX_VALUE);
+    final Field<String> other = new SimpleField<>("other", 1, String.class, null);
+    final Stream<String> stream = extractor.extract(new StringReader("a,,10,b"),
+        newValueBinder(), row -> row.getRawValue(other).isEmpty());
+
+    assertThrows(IllegalArgumentException.class, () -> stream.forEach(r -> {
+    }));
+  }
+
+  private @NonNull MappingRecordBinder<StringBuilder, String> newValueBinder() {
+    return MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString)
+        .bind(field1, (sb, v) -> sb.append(v).append('|'))
+        .bind(field2, (sb, v) -> sb.append(v).append('|'))
+        .bind(field3, StringBuilder::append)
+        .build();
+  }
+
+  private @NonNull String toValueString(@NonNull Record record) {
+    return record.getValue(field1) + "|" + record.getValue(field2) + "|"
+        + record.getValue(field3);
+  }
+
+  private static @NonNull String newData(int count, int invalidIndex) {
+    final StringBuilder sb = new StringBuilder(HEADER_1).append(NL);
+    for (int i = 0; i < count; i++) {
+      sb.append("Value ").append(i).append(",,")
+          .append(i == invalidIndex ? "x" : "\"" + i + ",5\"").append(",Other").append(NL);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.fx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ExchangeRateSeriesTest {
+
+  @Test
+  void put() {
+    final ExchangeRateSeries series = new ExchangeRateSeries();
+    for (int i = 0; i < 40; i++) {
+      series.put(100 + 2 * i, i);
+    }
+    series.put(99, -1);
+    series.put(111, 111);
+    series.put(110, 110);
+
+    assertEquals(42, series.size());
+    assertEquals(99, series.getEpochDay(0));
+    assertEquals(-1, series.getRate(0));
+    assertEquals(110, series.getEpochDay(6));
+    assertEquals(110, series.getRate(6));
+    assertEquals(111, series.getEpochDay(7));
+    assertEquals(178, series.getEpochDay(41));
+  }
+
+  @Test
+  void indexOf_asOf() {
+    final ExchangeRateSeries series = newSeries();
+    assertEquals(-1, series.indexOf(9, RateLookup.AS_OF));
+    assertEquals(0, series.indexOf(10, RateLookup.AS_OF));
+    assertEquals(0, series.indexOf(19, RateLookup.AS_OF));
+    assertEquals(1, series.indexOf(20, RateLookup.AS_OF));
+    assertEquals(2, series.indexOf(1000, RateLookup.AS_OF));
+  }
+
+  @Test
+  void indexOf_nearest() {
+    final ExchangeRateSeries series = newSeries();
+    assertEquals(0, series.indexOf(9, RateLookup.NEAREST));
+    assertEquals(0, series.indexOf(15, RateLookup.NEAREST));
+    assertEquals(1, series.indexOf(16, RateLookup.NEAREST));
+    assertEquals(2, series.indexOf(26, RateLookup.NEAREST));
+    assertEquals(2, series.indexOf(1000, RateLookup.NEAREST));
+  }
+
+  @Test
+  void indexOf_empty() {
+    final ExchangeRateSeries series = new ExchangeRateSeries();
+    assertEquals(-1, series.indexOf(10, RateLookup.AS_OF));
+    assertEquals(-1, series.indexOf(10, RateLookup.NEAREST));
+  }
+
+  private static ExchangeRateSeries newSeries() {
+    final ExchangeRateSeries series = new ExchangeRateSeries();
+    series.put(20, 2);
+    series.put(10, 1);
+    series.put(30, 3);
+    return series;
+  }
+}
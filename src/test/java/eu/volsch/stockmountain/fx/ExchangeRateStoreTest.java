@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.fx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ExchangeRateStoreTest {
+
+  private static final LocalDate DATE_1 = LocalDate.of(2022, 7, 20);
+  private static final LocalDate DATE_2 = LocalDate.of(2022, 7, 25);
+
+  @Test
+  void addAll_transactions() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR");
+    store.addAll(List.of(
+        newTransaction(DATE_1, "-245.36", "USD", "-240.20", "1.0215"),
+        newTransaction(DATE_2, "-100.00", "EUR", "-100.00", null),
+        newTransaction(DATE_2, "-100.00", "USD", "-97.09", "1.0300")));
+
+    assertEquals(new BigDecimal("1.0215"),
+        store.getRate("EUR", "USD", DATE_1, RateLookup.AS_OF));
+    assertEquals(new BigDecimal("1.0215"),
+        store.getRate("EUR", "USD", DATE_2.minusDays(1), RateLookup.AS_OF));
+    assertEquals(new BigDecimal("1.03"),
+        store.getRate("EUR", "USD", DATE_2.minusDays(2), RateLookup.NEAREST));
+    assertNull(store.getRate("EUR", "USD", DATE_1.minusDays(1), RateLookup.AS_OF));
+    assertEquals(new BigDecimal("1.0215"),
+        store.getRate("EUR", "USD", DATE_1.minusDays(1), RateLookup.NEAREST));
+  }
+
+  @Test
+  void getRate_inverse() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR");
+    store.add("EUR", "USD", DATE_1, new BigDecimal("1.25"));
+
+    assertEquals(new BigDecimal("0.8"), store.getRate("USD", "EUR", DATE_1, RateLookup.AS_OF));
+    assertEquals(BigDecimal.ONE, store.getRate("USD", "USD", DATE_1, RateLookup.AS_OF));
+    assertNull(store.getRate("USD", "GBP", DATE_1, RateLookup.AS_OF));
+  }
+
+  @Test
+  void getRate_triangulated() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR");
+    store.add("EUR", "USD", DATE_1, new BigDecimal("1.25"));
+    assertNull(store.getRate("USD", "GBP", DATE_1, RateLookup.AS_OF));
+
+    store.add("EUR", "GBP", DATE_2, new BigDecimal("0.85"));
+    assertEquals(new BigDecimal("0.68"), store.getRate("USD", "GBP", DATE_2, RateLookup.AS_OF));
+    assertEquals(new BigDecimal("1.470588235294118"),
+        store.getRate("GBP", "USD", DATE_2, RateLookup.AS_OF));
+    assertNull(store.getRate("USD", "GBP", DATE_1, RateLookup.AS_OF));
+    assertEquals(new BigDecimal("0.68"),
+        store.getRate("USD", "GBP", DATE_1, RateLookup.NEAREST));
+  }
+
+  @Test
+  void getRate_directPreferred() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR", 1);
+    store.add("EUR", "USD", DATE_1, new BigDecimal("1.25"));
+    store.add("EUR", "GBP", DATE_1, new BigDecimal("0.85"));
+    assertEquals(new BigDecimal("0.68"), store.getRate("USD", "GBP", DATE_1, RateLookup.AS_OF));
+    assertEquals(new BigDecimal("0.8"), store.getRate("USD", "EUR", DATE_1, RateLookup.AS_OF));
+
+    store.add("USD", "GBP", DATE_1, new BigDecimal("0.7"));
+    assertEquals(new BigDecimal("0.7"), store.getRate("USD", "GBP", DATE_1, RateLookup.AS_OF));
+  }
+
+  @Test
+  void getRate_seriesUpdated() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR");
+    store.add("EUR", "USD", DATE_1, new BigDecimal("1.25"));
+    assertEquals(new BigDecimal("1.25"), store.getRate("EUR", "USD", DATE_2, RateLookup.AS_OF));
+
+    store.add("EUR", "USD", DATE_2, new BigDecimal("1.5"));
+    store.add("EUR", "USD", DATE_1, new BigDecimal("1.2"));
+    assertEquals(new BigDecimal("1.5"), store.getRate("EUR", "USD", DATE_2, RateLookup.AS_OF));
+    assertEquals(new BigDecimal("1.2"), store.getRate("EUR", "USD", DATE_1, RateLookup.AS_OF));
+  }
+
+  @Test
+  void convert() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR");
+    store.add("EUR", "USD", DATE_1, new BigDecimal("1.25"));
+
+    assertEquals(new Price(new BigDecimal("80.00"), "EUR"), store.convert(
+        new Price(new BigDecimal("100"), "USD"), "EUR", DATE_1, RateLookup.AS_OF));
+    assertEquals(new Price(new BigDecimal("12.5000"), "USD"), store.convert(
+        new Price(new BigDecimal("10.0000"), "EUR"), "USD", DATE_1, RateLookup.AS_OF));
+    final Price price = new Price(new BigDecimal("10"), "USD");
+    assertSame(price, store.convert(price, "USD", DATE_1, RateLookup.AS_OF));
+    assertNull(store.convert(price, "GBP", DATE_1, RateLookup.AS_OF));
+  }
+
+  @Test
+  void add_invalid_fail() {
+    final ExchangeRateStore store = new ExchangeRateStore("EUR");
+    final BigDecimal rate = BigDecimal.ONE;
+    assertThrows(IllegalArgumentException.class,
+        () -> store.add("EUR", "EUR", DATE_1, rate));
+    assertThrows(IllegalArgumentException.class,
+        () -> store.add("EUR", "usd", DATE_1, rate));
+    assertThrows(IllegalArgumentException.class,
+        () -> store.add("EUR", "USD", DATE_1, BigDecimal.ZERO));
+  }
+
+  @Test
+  void new_invalid_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new ExchangeRateStore("EURO"));
+    assertThrows(IllegalArgumentException.class, () -> new ExchangeRateStore("EUR", 0));
+  }
+
+  private static Transaction newTransaction(LocalDate date, String localValue,
+      String localCurrency, String value, String exchangeRate) {
+    return SimplePurchaseTransaction.builder()
+        .id(1)
+        .date(date)
+        .isin("US0231351067")
+        .name("Test stock")
+        .quantity(BigDecimal.ONE)
+        .localValue(new Price(new BigDecimal(localValue), localCurrency))
+        .value(new Price(new BigDecimal(value), "EUR"))
+        .exchangeRate(exchangeRate == null ? null : new BigDecimal(exchangeRate))
+        .total(new Price(new BigDecimal(value), "EUR"))
+        .build();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+  @Test
+  void new_sized() {
+    assertEquals(1024, new BloomFilter(0).getBitCount());
+    assertEquals(1024, new BloomFilter(102).getBitCount());
+    assertEquals(2048, new BloomFilter(103).getBitCount());
+  }
+
+  @Test
+  void mightContain() {
+    final BloomFilter filter = new BloomFilter(10_000);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add(RowFingerprintTest.spread(i));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(filter.mightContain(RowFingerprintTest.spread(i)));
+      if (filter.mightContain(RowFingerprintTest.spread(-i - 2))) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 150, "False positives: " + falsePositives);
+  }
+
+  @Test
+  void writeTo() throws IOException {
+    final BloomFilter filter = new BloomFilter(100);
+    filter.add(42);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    filter.writeTo(new DataOutputStream(bytes));
+
+    final BloomFilter readFilter = BloomFilter.readFrom(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(filter.getBitCount(), readFilter.getBitCount());
+    assertTrue(readFilter.mightContain(42));
+    assertFalse(readFilter.mightContain(43));
+  }
+
+  @Test
+  void readFrom_invalid_fail() {
+    assertThrows(IOException.class, () -> BloomFilter.readFrom(
+        new DataInputStream(new ByteArrayInputStream(new byte[] {0, 0, 0, 3}))));
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.importing.FingerprintIndex.Entry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FingerprintIndexTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void open_empty() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory.resolve("account"))) {
+      assertEquals(0, index.size());
+      assertEquals(-1, index.find(42));
+      assertThrows(IndexOutOfBoundsException.class, () -> index.getContent(0));
+    }
+  }
+
+  @Test
+  void commit() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      index.commit(List.of(new Entry(30, 3, 300, 19000), new Entry(-10, 1, 100, 19001),
+          new Entry(20, 2, 200, 19002)), Set.of());
+      assertEquals(3, index.size());
+      assertEquals(-10, index.getIdentity(0));
+      assertEquals(20, index.getIdentity(1));
+      assertEquals(30, index.getIdentity(2));
+
+      index.commit(List.of(new Entry(20, 22, 220, 19003), new Entry(25, 5, 500, 19004)),
+          Set.of(30L));
+      assertEquals(3, index.size());
+      final int position = index.find(20);
+      assertEquals(22, index.getContent(position));
+      assertEquals(220, index.getReference(position));
+      assertEquals(19003, index.getEpochDay(position));
+      assertEquals(-1, index.find(30));
+      assertEquals(2, index.find(25));
+    }
+
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      assertEquals(3, index.size());
+      assertEquals(0, index.find(-10));
+      assertEquals(100, index.getReference(0));
+    }
+  }
+
+  @Test
+  void open_filterRebuilt() throws IOException {
+    final List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      entries.add(new Entry(RowFingerprintTest.spread(i), i, i, i));
+    }
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      index.commit(entries, Set.of());
+    }
+    Files.delete(directory.resolve(FingerprintIndex.FILTER_FILE_NAME));
+
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(i, index.getContent(index.find(RowFingerprintTest.spread(i))));
+      }
+    }
+  }
+
+  @Test
+  void open_staleFilterRebuilt() throws IOException {
+    final Path filterFile = directory.resolve(FingerprintIndex.FILTER_FILE_NAME);
+    final byte[] staleFilter;
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      index.commit(List.of(new Entry(1, 1, 1, 1)), Set.of());
+      staleFilter = Files.readAllBytes(filterFile);
+      index.commit(List.of(new Entry(2, 2, 2, 2)), Set.of());
+    }
+    Files.write(filterFile, staleFilter);
+
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      assertEquals(1, index.find(2));
+    }
+  }
+
+  @Test
+  void open_invalid_fail() throws IOException {
+    Files.write(directory.resolve(FingerprintIndex.ENTRIES_FILE_NAME), new byte[30]);
+    assertThrows(IOException.class, () -> FingerprintIndex.open(directory));
+  }
+
+  @Test
+  void commit_duplicateIdentity_fail() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      final List<Entry> entries = List.of(new Entry(1, 1, 1, 1), new Entry(1, 2, 2, 2));
+      assertThrows(IllegalArgumentException.class, () -> index.commit(entries, Set.of()));
+      assertEquals(0, index.size());
+    }
+  }
+
+  @Test
+  void find_closed_fail() throws IOException {
+    final FingerprintIndex index = FingerprintIndex.open(directory);
+    index.close();
+    assertThrows(IllegalStateException.class, () -> index.find(1));
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.degiro.DegiroTransactionExtractorProvider;
+import eu.volsch.stockmountain.extraction.api.ExtractorProvider;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractionException;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ImportServiceTest {
+
+  private final ExtractorProvider provider = new DegiroTransactionExtractorProvider();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void importAll() throws Exception {
+    final ImportService service = new ImportService(executor, 4);
+    final List<ImportJob> jobs = List.of(
+        new ImportJob("A1", provider, ImportServiceTest::openSample),
+        new ImportJob("A2", provider, () -> {
+          throw new IOException("TEST");
+        }),
+        new ImportJob("A3", provider, () -> new ByteArrayInputStream(
+            "header\ninvalid".getBytes(StandardCharsets.ISO_8859_1))),
+        new ImportJob("A4", provider, ImportServiceTest::openSample));
+
+    final ImportSummary<Long> summary = service.importAll(jobs, records -> records.count())
+        .get(10, TimeUnit.SECONDS);
+
+    assertEquals(4, summary.getResults().size());
+    assertEquals(2, summary.getSuccessful().size());
+    assertEquals(2, summary.getFailedCount());
+    assertEquals(2, summary.getFailed().size());
+
+    final ImportResult<Long> result1 = summary.getResults().get(0);
+    assertEquals("A1", result1.getJob().getAccountId());
+    assertEquals("DEGIRO", result1.getJob().getBrokerId());
+    assertTrue(result1.isSuccessful());
+    assertEquals(Long.valueOf(2L), result1.getValue());
+    assertNull(result1.getFailure());
+
+    final ImportResult<Long> result2 = summary.getResults().get(1);
+    assertFalse(result2.isSuccessful());
+    assertNull(result2.getValue());
+    assertTrue(result2.getFailure() instanceof IOException);
+
+    assertTrue(summary.getResults().get(2).getFailure() instanceof CsvExtractionException);
+    assertEquals(Long.valueOf(2L), summary.getResults().get(3).getValue());
+  }
+
+  @Test
+  void importAll_brokerConcurrencyLimit() throws Exception {
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    final ImportService service = new ImportService(executor, 10, Map.of("DEGIRO", 2));
+    final List<ImportJob> jobs = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      jobs.add(new ImportJob("A" + i, provider, () -> {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        return new FilterInputStream(openSample()) {
+          @Override
+          public void close() throws IOException {
+            sleep();
+            active.decrementAndGet();
+            super.close();
+          }
+        };
+      }));
+    }
+
+    final ImportSummary<Long> summary = service.importAll(jobs, records -> records.count())
+        .get(30, TimeUnit.SECONDS);
+
+    assertEquals(12, summary.getSuccessful().size());
+    assertTrue(maxActive.get() <= 2, "Maximum concurrency exceeded: " + maxActive.get());
+  }
+
+  @Test
+  void submit_virtualThread() throws Exception {
+    final ImportService service = new ImportService(2);
+    final ImportResult<Boolean> result = service.submit(
+        new ImportJob("A1", provider, ImportServiceTest::openSample),
+        records -> Thread.currentThread().isVirtual()).get(10, TimeUnit.SECONDS);
+    assertEquals(Boolean.TRUE, result.getValue());
+  }
+
+  @Test
+  void submit_rejected() throws Exception {
+    final ImportService service = new ImportService(r -> {
+      throw new RejectedExecutionException("TEST");
+    }, 1);
+
+    final ImportResult<Long> result1 = service.submit(
+        new ImportJob("A1", provider, ImportServiceTest::openSample), records -> records.count())
+        .get(10, TimeUnit.SECONDS);
+    final ImportResult<Long> result2 = service.submit(
+        new ImportJob("A2", provider, ImportServiceTest::openSample), records -> records.count())
+        .get(10, TimeUnit.SECONDS);
+
+    assertTrue(result1.getFailure() instanceof RejectedExecutionException);
+    assertTrue(result2.getFailure() instanceof RejectedExecutionException);
+  }
+
+  @Test
+  void submit_error() throws Exception {
+    final ImportService service = new ImportService(executor, 1);
+    final CompletableFuture<ImportResult<Long>> future = service.submit(
+        new ImportJob("A1", provider, () -> {
+          throw new ServiceConfigurationError("TEST");
+        }), records -> records.count());
+
+    final ExecutionException e = assertThrows(ExecutionException.class,
+        () -> future.get(10, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof ServiceConfigurationError);
+    assertTrue(service.submit(new ImportJob("A2", provider, ImportServiceTest::openSample),
+        records -> records.count()).get(10, TimeUnit.SECONDS).isSuccessful());
+  }
+
+  @Test
+  void newService_invalidConcurrency_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new ImportService(executor, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ImportService(executor, 1, Map.of("DEGIRO", -1)));
+  }
+
+  @Test
+  void importJob_toString() {
+    assertEquals("DEGIRO/A1",
+        new ImportJob("A1", provider, ImportServiceTest::openSample).toString());
+  }
+
+  private static InputStream openSample() throws IOException {
+    final InputStream is = DegiroTransactionExtractorProvider.class.getResourceAsStream(
+        "simple_transactions.csv");
+    if (is == null) {
+      throw new IOException("Sample data does not exist");
+    }
+    return is;
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.degiro.DegiroTransactionFields;
+import eu.volsch.stockmountain.extraction.api.MappingRecordBinder;
+import eu.volsch.stockmountain.extraction.api.Record;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractionException;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractor;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParseCacheTest {
+
+  private static final String HEADER = "Date,Time,Product,ISIN,Exchange,Execution,Quantity,Price,,"
+      + "Local value,,Value,,Rate,Costs,,Total,,Order ID\n";
+
+  private final CsvExtractor extractor =
+      new CsvExtractor(',', DegiroTransactionFields.fields(), 1, Integer.MAX_VALUE);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void extract_hit() throws IOException {
+    final ParseCache cache = new ParseCache(directory, 1 << 20);
+    final String csv = HEADER + row("20-07-2022", "A", "5") + row("21-07-2022", "B", "2");
+
+    final List<Record> records1 = extract(cache, csv);
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    final List<Record> records2 = extract(cache, csv);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getEntryCount());
+
+    assertEquals(2, records2.size());
+    for (int i = 0; i < records1.size(); i++) {
+      final Record expected = records1.get(i);
+      final Record actual = records2.get(i);
+      DegiroTransactionFields.fields().forEach(field ->
+          assertEquals(expected.getValue(field), actual.getValue(field), field.name()));
+    }
+    assertEquals(LocalDate.of(2022, 7, 21), records2.get(1).getValue(DegiroTransactionFields.DATE));
+    assertEquals(new BigDecimal("2"), records2.get(1).getValue(DegiroTransactionFields.QUANTITY));
+  }
+
+  @Test
+  void extract_binder() throws IOException {
+    final ParseCache cache = new ParseCache(directory, 1 << 20);
+    final String csv = HEADER + row("20-07-2022", "A", "5");
+    final MappingRecordBinder<StringBuilder, String> binder =
+        MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString)
+            .bind(DegiroTransactionFields.ISIN, StringBuilder::append)
+            .build();
+    for (int i = 0; i < 2; i++) {
+      try (Stream<String> isins = cache.extract(extractor, input(csv), binder)) {
+        assertEquals(List.of("DE000000000A"), isins.collect(toList()));
+      }
+    }
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  void extract_differentContentOrSchema() throws IOException {
+    final ParseCache cache = new ParseCache(directory, 1 << 20);
+    extract(cache, HEADER + row("20-07-2022", "A", "5"));
+    extract(cache, HEADER + row("20-07-2022", "A", "6"));
+    try (Stream<Record> records = cache.extract(
+        new CsvExtractor(',', DegiroTransactionFields.fields(), 0, Integer.MAX_VALUE),
+        input(row("20-07-2022", "A", "5")))) {
+      assertEquals(1, records.count());
+    }
+    assertEquals(0, cache.getHitCount());
+    assertEquals(3, cache.getEntryCount());
+    assertNotEquals(ParseCache.key(extractor, new byte[0]), ParseCache.key(
+        new CsvExtractor(';', DegiroTransactionFields.fields(), 1, Integer.MAX_VALUE),
+        new byte[0]));
+  }
+
+  @Test
+  void extract_invalidInputNotCached() throws IOException {
+    final ParseCache cache = new ParseCache(directory, 1 << 20);
+    assertThrows(CsvExtractionException.class,
+        () -> extract(cache, HEADER + row("2022-07-20", "A", "5")));
+    assertEquals(0, cache.getEntryCount());
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void extract_leastRecentlyUsedEvicted() throws IOException {
+    final String csv1 = HEADER + row("20-07-2022", "A", "1");
+    final String csv2 = HEADER + row("20-07-2022", "A", "2");
+    final String csv3 = HEADER + row("20-07-2022", "A", "3");
+    final ParseCache unlimited = new ParseCache(directory.resolve("size"), Long.MAX_VALUE);
+    extract(unlimited, csv1);
+    final long entrySize = unlimited.getSize();
+
+    final ParseCache cache = new ParseCache(directory.resolve("cache"), 2 * entrySize + 1);
+    extract(cache, csv1);
+    extract(cache, csv2);
+    extract(cache, csv1);
+    extract(cache, csv3);
+    assertEquals(2, cache.getEntryCount());
+    assertTrue(cache.getSize() <= 2 * entrySize + 1);
+
+    extract(cache, csv1);
+    extract(cache, csv3);
+    assertEquals(3, cache.getHitCount());
+    extract(cache, csv2);
+    assertEquals(4, cache.getMissCount());
+    extract(cache, csv3);
+    assertEquals(4, cache.getHitCount());
+    extract(cache, csv1);
+    assertEquals(5, cache.getMissCount());
+  }
+
+  @Test
+  void extract_reopened() throws IOException {
+    final String csv = HEADER + row("20-07-2022", "A", "5");
+    extract(new ParseCache(directory, 1 << 20), csv);
+
+    final ParseCache cache = new ParseCache(directory, 1 << 20);
+    assertEquals(1, cache.getEntryCount());
+    assertEquals(1, extract(cache, csv).size());
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  void extract_damagedFileReplaced() throws IOException {
+    final ParseCache cache = new ParseCache(directory, 1 << 20);
+    final String csv = HEADER + row("20-07-2022", "A", "5");
+    extract(cache, csv);
+    try (Stream<Path> files = Files.list(directory)) {
+      Files.write(files.findFirst().orElseThrow(), new byte[] {1, 2, 3});
+    }
+    assertEquals(1, extract(cache, csv).size());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  void maxSizeNotPositive_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new ParseCache(directory, 0));
+  }
+
+  private List<Record> extract(ParseCache cache, String csv) throws IOException {
+    try (Stream<Record> records = cache.extract(extractor, input(csv))) {
+      return records.collect(toList());
+    }
+  }
+
+  private static ByteArrayInputStream input(String csv) {
+    return new ByteArrayInputStream(csv.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private static @NonNull String row(@NonNull String date, @NonNull String isinSuffix,
+      @NonNull String quantity) {
+    return date + ",10:00,Product,DE000000000" + isinSuffix + ",XET,XETA," + quantity
+        + ",10.00,EUR,-10.00,EUR,-10.00,EUR,1.0000,-0.50,EUR,-10.50,EUR,o1\n";
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.degiro.DegiroTransactionFields;
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.MappingRecordBinder;
+import eu.volsch.stockmountain.extraction.api.SimpleField;
+import eu.volsch.stockmountain.extraction.conversion.StringToLocalDateConverter;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractionException;
+import eu.volsch.stockmountain.extraction.csv.CsvExtractor;
+import eu.volsch.stockmountain.importing.ReimportChange.Type;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReimporterTest {
+
+  private static final String HEADER = "Date,Time,Product,ISIN,Exchange,Execution,Quantity,Price,,"
+      + "Local value,,Value,,Rate,Costs,,Total,,Order ID\n";
+
+  private final List<Field<?>> identityFields = List.of(DegiroTransactionFields.DATE,
+      DegiroTransactionFields.TIME, DegiroTransactionFields.ISIN, DegiroTransactionFields.ORDER_ID);
+  private final List<Field<?>> contentFields = List.of(DegiroTransactionFields.DATE,
+      DegiroTransactionFields.TIME, DegiroTransactionFields.ISIN, DegiroTransactionFields.QUANTITY,
+      DegiroTransactionFields.TOTAL, DegiroTransactionFields.ORDER_ID);
+  private final Reimporter reimporter = new Reimporter(
+      new CsvExtractor(',', DegiroTransactionFields.fields(), 1, Integer.MAX_VALUE),
+      DegiroTransactionFields.DATE, identityFields, contentFields);
+  private final AtomicLong nextReference = new AtomicLong(100);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void reimport_overlapping() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      final ReimportResult<String> result1 = reimport(HEADER
+          + row("20-07-2022", "A", "5", "-50.50", "o1")
+          + row("21-07-2022", "B", "2", "-20.50", "o2")
+          + row("22-07-2022", "C", "3", "-30.50", "o3"), index);
+      assertEquals(3, result1.getChanges(Type.ADDED).size());
+      assertEquals(0, result1.getUnchangedCount());
+      assertEquals(3, index.size());
+      assertEquals(103, nextReference.get());
+
+      final ReimportResult<String> result2 = reimport(HEADER
+          + row("21-07-2022", "B", "2", "-20.50", "o2")
+          + row("22-07-2022", "C", "4", "-40.50", "o3")
+          + row("23-07-2022", "D", "1", "-10.50", "o4"), index);
+      assertEquals(1, result2.getUnchangedCount());
+      assertEquals(2, result2.getChanges().size());
+      final ReimportChange<String> changed = result2.getChanges().get(0);
+      assertEquals(Type.CHANGED, changed.getType());
+      assertEquals("DE000000000C|4", changed.getValue());
+      assertEquals(102, changed.getPreviousReference());
+      assertEquals(LocalDate.of(2022, 7, 22), changed.getDate());
+      final ReimportChange<String> added = result2.getChanges().get(1);
+      assertEquals(Type.ADDED, added.getType());
+      assertEquals("DE000000000D|1", added.getValue());
+      assertEquals(FingerprintIndex.NO_REFERENCE, added.getPreviousReference());
+      assertEquals(4, index.size());
+      assertEquals(105, nextReference.get());
+    }
+  }
+
+  @Test
+  void reimport_disappeared() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      reimport(HEADER
+          + row("20-07-2022", "A", "5", "-50.50", "o1")
+          + row("21-07-2022", "B", "2", "-20.50", "o2")
+          + row("22-07-2022", "C", "3", "-30.50", "o3"), index);
+    }
+
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      final ReimportResult<String> result = reimport(HEADER
+          + row("22-07-2022", "C", "3", "-30.50", "o3")
+          + row("21-07-2022", "E", "7", "-70.50", "o5"), index);
+      assertEquals(1, result.getUnchangedCount());
+      assertEquals(2, result.getChanges().size());
+      assertEquals(Type.ADDED, result.getChanges().get(0).getType());
+      final ReimportChange<String> disappeared = result.getChanges().get(1);
+      assertEquals(Type.DISAPPEARED, disappeared.getType());
+      assertNull(disappeared.getValue());
+      assertEquals(101, disappeared.getPreviousReference());
+      assertEquals(LocalDate.of(2022, 7, 21), disappeared.getDate());
+      assertEquals(3, index.size());
+    }
+  }
+
+  @Test
+  void reimport_sameIdentityOccurrences() throws IOException {
+    final String data = HEADER
+        + row("20-07-2022", "A", "5", "-50.50", "")
+        + row("20-07-2022", "A", "5", "-50.50", "");
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      assertEquals(2, reimport(data, index).getChanges(Type.ADDED).size());
+      final ReimportResult<String> result = reimport(data, index);
+      assertEquals(List.of(), result.getChanges());
+      assertEquals(2, result.getUnchangedCount());
+      assertEquals(2, index.size());
+    }
+  }
+
+  @Test
+  void reimport_invalidValue_indexUnchanged() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      reimport(HEADER + row("20-07-2022", "A", "5", "-50.50", "o1"), index);
+
+      final String data = HEADER
+          + row("20-07-2022", "A", "5", "-50.50", "o1")
+          + row("21-07-2022", "B", "x", "-20.50", "o2");
+      assertThrows(CsvExtractionException.class, () -> reimport(data, index));
+      assertEquals(1, index.size());
+    }
+  }
+
+  @Test
+  void reimport_invalidDate_fail() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      final String data = HEADER + row("2022-07-20", "A", "5", "-50.50", "o1");
+      final CsvExtractionException e =
+          assertThrows(CsvExtractionException.class, () -> reimport(data, index));
+      assertEquals("2022-07-20", e.getInvalidValue());
+      assertEquals(0, index.size());
+    }
+  }
+
+  @Test
+  void reimport_blankDate_skipped() throws IOException {
+    final Field<LocalDate> dateField = new SimpleField<>("DATE", 0, LocalDate.class,
+        new StringToLocalDateConverter(DateTimeFormatter.ofPattern("dd-MM-yyyy")));
+    final Set<Field<?>> fields = new HashSet<>(DegiroTransactionFields.fields());
+    fields.remove(DegiroTransactionFields.DATE);
+    fields.add(dateField);
+    final Reimporter nullableDateReimporter = new Reimporter(
+        new CsvExtractor(',', fields, 1, Integer.MAX_VALUE), dateField,
+        List.of(dateField, DegiroTransactionFields.ISIN, DegiroTransactionFields.ORDER_ID),
+        List.of(dateField, DegiroTransactionFields.ISIN, DegiroTransactionFields.TOTAL));
+
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      final ReimportResult<String> result = nullableDateReimporter.reimport(new StringReader(HEADER
+              + row("20-07-2022", "A", "5", "-50.50", "o1")
+              + row("", "B", "2", "-20.50", "o2")
+              + row("21-07-2022", "C", "3", "-30.50", "o3")),
+          MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString)
+              .bind(DegiroTransactionFields.ISIN, StringBuilder::append)
+              .build(),
+          value -> nextReference.getAndIncrement(), index);
+      assertEquals(2, result.getChanges(Type.ADDED).size());
+      assertEquals("DE000000000A", result.getChanges().get(0).getValue());
+      assertEquals("DE000000000C", result.getChanges().get(1).getValue());
+      assertEquals(LocalDate.of(2022, 7, 21), result.getChanges().get(1).getDate());
+      assertEquals(2, index.size());
+    }
+  }
+
+  @Test
+  void reimport_blankNonNullableDate_fail() throws IOException {
+    try (FingerprintIndex index = FingerprintIndex.open(directory)) {
+      final String data = HEADER + row("", "A", "5", "-50.50", "o1");
+      assertThrows(CsvExtractionException.class, () -> reimport(data, index));
+      assertEquals(0, index.size());
+    }
+  }
+
+  @Test
+  void new_noFields_fail() {
+    final CsvExtractor extractor =
+        new CsvExtractor(',', DegiroTransactionFields.fields(), 1, Integer.MAX_VALUE);
+    assertThrows(IllegalArgumentException.class,
+        () -> new Reimporter(extractor, DegiroTransactionFields.DATE, List.of(), contentFields));
+  }
+
+  private @NonNull ReimportResult<String> reimport(@NonNull String data,
+      @NonNull FingerprintIndex index) throws IOException {
+    return reimporter.reimport(new StringReader(data),
+        MappingRecordBinder.builder(StringBuilder::new, StringBuilder::toString)
+            .bind(DegiroTransactionFields.ISIN, StringBuilder::append)
+            .bind(DegiroTransactionFields.QUANTITY, (sb, v) -> sb.append('|').append(v))
+            .build(),
+        value -> nextReference.getAndIncrement(), index);
+  }
+
+  private static @NonNull String row(@NonNull String date, @NonNull String isinSuffix,
+      @NonNull String quantity, @NonNull String total, @NonNull String orderId) {
+    return date + ",10:00,Product,DE000000000" + isinSuffix + ",XET,XETA," + quantity
+        + ",10.00,EUR,-10.00,EUR,-10.00,EUR,1.0000,-0.50,EUR," + total + ",EUR," + orderId
+        + "\n";
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.importing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import eu.volsch.stockmountain.extraction.api.Field;
+import eu.volsch.stockmountain.extraction.api.SimpleField;
+import eu.volsch.stockmountain.extraction.csv.CsvRow;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Test;
+
+class RowFingerprintTest {
+
+  private final Field<String> field1 = new SimpleField<>("field1", 0, String.class, null);
+  private final Field<String> field2 = new SimpleField<>("field2", 1, String.class, null);
+  private final List<Field<?>> fields = List.of(field1, field2);
+
+  @Test
+  void of() {
+    final long fingerprint = RowFingerprint.of(row("abc", "def"), fields);
+    assertEquals(fingerprint, RowFingerprint.of(row("abc", "def"), fields));
+    assertNotEquals(fingerprint, RowFingerprint.of(row("abc", "deg"), fields));
+    assertNotEquals(fingerprint, RowFingerprint.of(row("abcd", "ef"), fields));
+    assertNotEquals(fingerprint, RowFingerprint.of(row("def", "abc"), fields));
+    assertNotEquals(fingerprint, RowFingerprint.of(row("abc", "def"), List.of(field2, field1)));
+  }
+
+  @Test
+  void occurrence() {
+    final long fingerprint = RowFingerprint.of(row("abc", ""), fields);
+    assertEquals(fingerprint, RowFingerprint.occurrence(fingerprint, 0));
+    assertNotEquals(fingerprint, RowFingerprint.occurrence(fingerprint, 1));
+    assertNotEquals(RowFingerprint.occurrence(fingerprint, 1),
+        RowFingerprint.occurrence(fingerprint, 2));
+  }
+
+  private @NonNull CsvRow row(@NonNull String value1, @NonNull String value2) {
+    final Map<Field<?>, String> values = Map.of(field1, value1, field2, value2);
+    return new CsvRow() {
+      @Override
+      public int getRecordNo() {
+        return 1;
+      }
+
+      @Override
+      public @NonNull String getRawValue(@NonNull Field<?> field) {
+        return values.get(field);
+      }
+    };
+  }
+
+  static long spread(int value) {
+    return RowFingerprint.occurrence(0, value + 1);
+  }
+}
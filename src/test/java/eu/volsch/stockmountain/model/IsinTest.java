@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class IsinTest {
+
+  @Test
+  void parse() {
+    assertEquals("US0231351067", Isin.parse("US0231351067").toString());
+    assertEquals("DE0007164600", Isin.parse("DE0007164600").toString());
+    assertEquals("IE00B4L5Y983", Isin.parse(new StringBuilder("IE00B4L5Y983")).toString());
+  }
+
+  @Test
+  void parse_invalidLength_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Isin.parse("US023135106"));
+  }
+
+  @Test
+  void parse_invalidCharacter_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Isin.parse("us0231351067"));
+    assertThrows(IllegalArgumentException.class, () -> Isin.parse("U-0231351067"));
+  }
+
+  @Test
+  void parse_invalidCountry_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Isin.parse("1S0231351067"));
+  }
+
+  @Test
+  void parse_invalidCheckDigit_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Isin.parse("US0231351068"));
+  }
+
+  @Test
+  void isValid() {
+    assertTrue(Isin.isValid("US0378331005"));
+    assertFalse(Isin.isValid("US0378331006"));
+  }
+
+  @Test
+  void tryPack() {
+    assertEquals(Isin.pack("US0378331005"), Isin.tryPack("US0378331005"));
+    assertEquals(Isin.INVALID_PACKED_VALUE, Isin.tryPack("US0378331006"));
+    assertEquals(Isin.INVALID_PACKED_VALUE, Isin.tryPack("us0378331005"));
+    assertEquals(Isin.INVALID_PACKED_VALUE, Isin.tryPack("X"));
+  }
+
+  @Test
+  void ofPackedValue() {
+    final long packedValue = Isin.pack("IE00B4L5Y983");
+    assertEquals(Isin.parse("IE00B4L5Y983"), Isin.ofPackedValue(packedValue));
+    assertEquals(packedValue, Isin.ofPackedValue(packedValue).getPackedValue());
+  }
+
+  @Test
+  void ofPackedValue_invalid_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Isin.ofPackedValue(-1));
+    assertThrows(IllegalArgumentException.class, () -> Isin.ofPackedValue(0));
+    assertThrows(IllegalArgumentException.class, () -> Isin.ofPackedValue(Long.MAX_VALUE));
+  }
+
+  @Test
+  void getCountryCode() {
+    assertEquals("US", Isin.parse("US0231351067").getCountryCode());
+  }
+
+  @Test
+  void compareTo() {
+    assertThat(Isin.parse("DE0007164600").compareTo(Isin.parse("US0231351067")), lessThan(0));
+    assertThat(Isin.parse("IE00B4L5Y983").compareTo(Isin.parse("IE0031442068")),
+        greaterThan(0));
+    assertEquals(0, Isin.parse("DE0007164600").compareTo(Isin.parse("DE0007164600")));
+  }
+
+  @Test
+  void equalsAndHashCode() {
+    final Isin isin = Isin.parse("US0231351067");
+    assertEquals(isin, isin);
+    assertEquals(isin, Isin.parse("US0231351067"));
+    assertEquals(isin.hashCode(), Isin.parse("US0231351067").hashCode());
+    assertNotEquals(isin, Isin.parse("DE0007164600"));
+    assertNotEquals(isin, null);
+    assertNotEquals(isin, "US0231351067");
+  }
+}
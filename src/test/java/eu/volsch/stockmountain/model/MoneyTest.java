@@ -0,0 +1,256 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+  @Test
+  void of_unscaledValue() {
+    final Money money = Money.of(-4711, 2, "EUR");
+    assertTrue(money.isCompact());
+    assertEquals(new BigDecimal("-47.11"), money.toBigDecimal());
+    assertEquals("EUR", money.getCurrency());
+  }
+
+  @Test
+  void of_invalidScale_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Money.of(1, -1, "EUR"));
+    assertThrows(IllegalArgumentException.class,
+        () -> Money.of(1, Money.MAX_SCALE + 1, "EUR"));
+  }
+
+  @Test
+  void of_decimalValue() {
+    final Money money = Money.of(new BigDecimal("12.500"), "USD");
+    assertTrue(money.isCompact());
+    assertEquals(new BigDecimal("12.500"), money.toBigDecimal());
+  }
+
+  @Test
+  void of_negativeScale() {
+    final Money money = Money.of(new BigDecimal("1E+3"), "USD");
+    assertTrue(money.isCompact());
+    assertEquals(new BigDecimal("1000"), money.toBigDecimal());
+  }
+
+  @Test
+  void of_largeValue() {
+    final BigDecimal value = new BigDecimal("123456789012345678901234.5");
+    final Money money = Money.of(value, "USD");
+    assertFalse(money.isCompact());
+    assertEquals(value, money.toBigDecimal());
+  }
+
+  @Test
+  void of_largeScale() {
+    final BigDecimal value = new BigDecimal("0.1234567890123456789");
+    final Money money = Money.of(value, "USD");
+    assertFalse(money.isCompact());
+    assertEquals(value, money.toBigDecimal());
+  }
+
+  @Test
+  void currencyId() {
+    assertEquals(0, Money.currencyId("AAA"));
+    assertEquals(26 * 26 * 26 - 1, Money.currencyId("ZZZ"));
+    assertThat(Money.currencyId("USD"), greaterThan(Money.currencyId("EUR")));
+    assertEquals("EUR", Money.currency(Money.currencyId("EUR")));
+    assertSame(Money.currency(Money.currencyId("CHF")),
+        Money.currency(Money.currencyId("CHF")));
+  }
+
+  @Test
+  void currencyId_invalid_fail() {
+    assertThrows(IllegalArgumentException.class, () -> Money.currencyId("EU"));
+    assertThrows(IllegalArgumentException.class, () -> Money.currencyId("EUr"));
+    assertThrows(IllegalArgumentException.class, () -> Money.currencyId("E@R"));
+    assertThrows(IllegalArgumentException.class, () -> Money.currency(-1));
+    assertThrows(IllegalArgumentException.class, () -> Money.currency(26 * 26 * 26));
+  }
+
+  @Test
+  void add() {
+    final Money money = Money.of(1050, 2, "EUR").add(Money.of(-3, 0, "EUR"));
+    assertTrue(money.isCompact());
+    assertEquals(new BigDecimal("7.50"), money.toBigDecimal());
+    assertEquals(Money.currencyId("EUR"), money.getCurrencyId());
+  }
+
+  @Test
+  void add_overflow() {
+    final Money money = Money.of(Long.MAX_VALUE, 0, "EUR").add(Money.of(1, 0, "EUR"));
+    assertFalse(money.isCompact());
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE), money.toBigDecimal());
+  }
+
+  @Test
+  void add_rescaleOverflow() {
+    final Money money = Money.of(Long.MAX_VALUE, 0, "EUR").add(Money.of(1, 1, "EUR"));
+    assertFalse(money.isCompact());
+    assertEquals(new BigDecimal(Long.MAX_VALUE + ".1"), money.toBigDecimal());
+  }
+
+  @Test
+  void add_backToCompact() {
+    final Money large = Money.of(Long.MAX_VALUE, 0, "EUR").add(Money.of(1, 0, "EUR"));
+    final Money money = large.add(Money.of(-2, 0, "EUR"));
+    assertTrue(money.isCompact());
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE - 1), money.toBigDecimal());
+  }
+
+  @Test
+  void add_currencyDiffers_fail() {
+    final Money money = Money.of(1, 0, "EUR");
+    final Money other = Money.of(1, 0, "USD");
+    assertThrows(IllegalArgumentException.class, () -> money.add(other));
+  }
+
+  @Test
+  void subtract() {
+    final Money money = Money.of(1050, 2, "EUR").subtract(Money.of(125, 3, "EUR"));
+    assertEquals(new BigDecimal("10.375"), money.toBigDecimal());
+  }
+
+  @Test
+  void subtract_overflow() {
+    final Money money = Money.of(Long.MIN_VALUE, 0, "EUR").subtract(Money.of(1, 0, "EUR"));
+    assertFalse(money.isCompact());
+    assertEquals(BigDecimal.valueOf(Long.MIN_VALUE).subtract(BigDecimal.ONE),
+        money.toBigDecimal());
+  }
+
+  @Test
+  void subtract_currencyDiffers_fail() {
+    final Money money = Money.of(1, 0, "EUR");
+    final Money other = Money.of(1, 0, "USD");
+    assertThrows(IllegalArgumentException.class, () -> money.subtract(other));
+  }
+
+  @Test
+  void multiply() {
+    final Money money = Money.of(4711, 2, "EUR").multiply(new BigDecimal("-2.5"));
+    assertTrue(money.isCompact());
+    assertEquals(new BigDecimal("-117.775"), money.toBigDecimal());
+  }
+
+  @Test
+  void multiply_negativeScale() {
+    final Money money = Money.of(4711, 2, "EUR").multiply(new BigDecimal("2E+2"));
+    assertEquals(new BigDecimal("9422"), money.toBigDecimal());
+  }
+
+  @Test
+  void multiply_overflow() {
+    final Money money = Money.of(Long.MAX_VALUE, 2, "EUR").multiply(2, 0);
+    assertFalse(money.isCompact());
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(BigDecimal.valueOf(2)),
+        money.toBigDecimal());
+  }
+
+  @Test
+  void multiply_scaleOverflow() {
+    final Money money = Money.of(5, Money.MAX_SCALE, "EUR").multiply(3, 1);
+    assertFalse(money.isCompact());
+    assertEquals(BigDecimal.valueOf(15, Money.MAX_SCALE + 1), money.toBigDecimal());
+  }
+
+  @Test
+  void multiply_largeQuantity() {
+    final BigDecimal quantity = new BigDecimal("123456789012345678901234");
+    final Money money = Money.of(2, 0, "EUR").multiply(quantity);
+    assertEquals(quantity.multiply(BigDecimal.valueOf(2)), money.toBigDecimal());
+  }
+
+  @Test
+  void negate() {
+    assertEquals(new BigDecimal("-1.5"), Money.of(15, 1, "EUR").negate().toBigDecimal());
+    assertEquals(BigDecimal.valueOf(Long.MIN_VALUE).negate(),
+        Money.of(Long.MIN_VALUE, 0, "EUR").negate().toBigDecimal());
+  }
+
+  @Test
+  void signum() {
+    assertEquals(-1, Money.of(-15, 1, "EUR").signum());
+    assertEquals(0, Money.of(0, 1, "EUR").signum());
+    assertEquals(1, Money.of(new BigDecimal("123456789012345678901234"), "EUR").signum());
+  }
+
+  @Test
+  void compareTo_currencyDiffers() {
+    assertThat(Money.of(2, 0, "ABC").compareTo(Money.of(1, 0, "BCD")), lessThan(0));
+  }
+
+  @Test
+  void compareTo_valueDiffers() {
+    assertThat(Money.of(4712, 2, "ABC").compareTo(Money.of(471, 1, "ABC")), greaterThan(0));
+    assertThat(Money.of(Long.MAX_VALUE, 0, "ABC").compareTo(Money.of(1, 1, "ABC")),
+        greaterThan(0));
+  }
+
+  @Test
+  void equalsAndHashCode() {
+    final Money money = Money.of(4710, 2, "EUR");
+    final Money other = Money.of(new BigDecimal("47.1000"), "EUR");
+    assertEquals(money, money);
+    assertEquals(money, other);
+    assertEquals(money.hashCode(), other.hashCode());
+    assertEquals(0, money.compareTo(other));
+    assertNotEquals(money, Money.of(4710, 2, "USD"));
+    assertNotEquals(money, Money.of(4711, 2, "EUR"));
+    assertNotEquals(money, null);
+    assertNotEquals(money, "47.10 EUR");
+    assertEquals(Money.of(0, 3, "EUR").hashCode(), Money.of(BigDecimal.ZERO, "EUR").hashCode());
+  }
+
+  @Test
+  void hashCode_inflated() {
+    final Money large = Money.of(Long.MAX_VALUE, 0, "EUR").add(Money.of(1, 0, "EUR"));
+    final Money inflated = Money.of(new BigDecimal("1.5000000000000000000"), "EUR");
+    assertFalse(inflated.isCompact());
+    assertEquals(Money.of(15, 1, "EUR"), inflated);
+    assertEquals(Money.of(15, 1, "EUR").hashCode(), inflated.hashCode());
+    assertEquals(large.hashCode(),
+        Money.of(new BigDecimal(large.toBigDecimal() + ".00"), "EUR").hashCode());
+  }
+
+  @Test
+  void testToString() {
+    assertEquals("-20.57 DEF", Money.of(-2057, 2, "DEF").toString());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class OrderIdTest {
+
+  private static final String ORDER_ID = "0d71cb9d-1879-43cc-838b-bfd845a81856";
+
+  @Test
+  void parse() {
+    final OrderId orderId = OrderId.parse(ORDER_ID);
+    final UUID uuid = UUID.fromString(ORDER_ID);
+    assertEquals(uuid.getMostSignificantBits(), orderId.getMostSignificantBits());
+    assertEquals(uuid.getLeastSignificantBits(), orderId.getLeastSignificantBits());
+    assertEquals(ORDER_ID, orderId.toString());
+  }
+
+  @Test
+  void parse_upperCase() {
+    assertEquals(OrderId.parse(ORDER_ID), OrderId.parse(ORDER_ID.toUpperCase()));
+  }
+
+  @Test
+  void parse_invalid_fail() {
+    assertThrows(IllegalArgumentException.class, () -> OrderId.parse(ORDER_ID.substring(1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> OrderId.parse(ORDER_ID.replace('-', '0')));
+    assertThrows(IllegalArgumentException.class,
+        () -> OrderId.parse(ORDER_ID.replace('d', 'g')));
+  }
+
+  @Test
+  void isValid() {
+    assertTrue(OrderId.isValid(ORDER_ID));
+    assertFalse(OrderId.isValid("0d71cb9d187943cc838bbfd845a81856"));
+  }
+
+  @Test
+  void isCanonical() {
+    assertTrue(OrderId.isCanonical(ORDER_ID));
+    assertFalse(OrderId.isCanonical(ORDER_ID.toUpperCase()));
+    assertFalse(OrderId.isCanonical("0d71cb9d187943cc838bbfd845a81856"));
+  }
+
+  @Test
+  void compareTo() {
+    assertThat(OrderId.parse("00000000-0000-0000-0000-000000000001")
+        .compareTo(OrderId.parse("f0000000-0000-0000-0000-000000000000")), lessThan(0));
+    assertThat(OrderId.parse("00000000-0000-0000-f000-000000000000")
+        .compareTo(OrderId.parse("00000000-0000-0000-0000-000000000001")), greaterThan(0));
+  }
+
+  @Test
+  void equalsAndHashCode() {
+    final OrderId orderId = new OrderId(1, 2);
+    assertEquals(orderId, orderId);
+    assertEquals(orderId, new OrderId(1, 2));
+    assertEquals(orderId.hashCode(), new OrderId(1, 2).hashCode());
+    assertNotEquals(orderId, new OrderId(2, 2));
+    assertNotEquals(orderId, new OrderId(1, 1));
+    assertNotEquals(orderId, null);
+    assertNotEquals(orderId, "1");
+  }
+
+  @Test
+  void testToString() {
+    assertEquals("00000000-0000-0001-ffff-fffffffffffe", new OrderId(1, -2).toString());
+  }
+}
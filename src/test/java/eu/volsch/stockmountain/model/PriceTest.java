@@ -30,6 +30,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.math.BigDecimal;
 import nl.jqno.equalsverifier.EqualsVerifier;
@@ -71,10 +72,36 @@ class PriceTest {
   void equalsAndHashCode() {
     EqualsVerifier.forClass(Price.class)
         .usingGetClass()
+        .withCachedHashCode("cachedHashCode", "calcHashCode",
+            new Price(new BigDecimal("47.11"), "ABC"))
         .withNonnullFields("value", "currency")
         .verify();
   }
 
+  @Test
+  void newPrice_money() {
+    final Price price = new Price(Money.of(4711, 2, "EUR"));
+    assertEquals(new BigDecimal("47.11"), price.getValue());
+    assertEquals("EUR", price.getCurrency());
+  }
+
+  @Test
+  void toMoney() {
+    assertEquals(Money.of(4711, 2, "EUR"), new Price(new BigDecimal("47.11"), "EUR").toMoney());
+  }
+
+  @Test
+  void toMoney_invalidCurrency_fail() {
+    final Price price = new Price(new BigDecimal("47.11"), "Euro");
+    assertThrows(IllegalArgumentException.class, price::toMoney);
+  }
+
+  @Test
+  void hashCode_scaleIgnored() {
+    assertEquals(new Price(new BigDecimal("47.1"), "EUR").hashCode(),
+        new Price(new BigDecimal("47.100"), "EUR").hashCode());
+  }
+
   @Test
   void testToString() {
     assertEquals("-20.57 DEF",
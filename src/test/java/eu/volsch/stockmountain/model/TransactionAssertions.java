@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Assertions of transactions that compare all properties, since the transactions do not implement
+ * {@link Object#equals(Object)} with the scale of their values (e.g. for encoded transactions).
+ */
+public final class TransactionAssertions {
+
+  /**
+   * Asserts that all properties of the specified transactions are equal. The values of the prices
+   * must have the same scale.
+   *
+   * @param expected the expected transaction.
+   * @param actual   the actual transaction.
+   */
+  public static void assertTransaction(Transaction expected, Transaction actual) {
+    assertEquals(expected.getId(), actual.getId());
+    assertEquals(expected.getVersion(), actual.getVersion());
+    assertEquals(expected.getType(), actual.getType());
+    assertEquals(expected.isFictional(), actual.isFictional());
+    assertEquals(expected.getDate(), actual.getDate());
+    assertEquals(expected.getTime(), actual.getTime());
+    assertEquals(expected.getIsin(), actual.getIsin());
+    assertEquals(expected.getTickerSymbol(), actual.getTickerSymbol());
+    assertEquals(expected.getName(), actual.getName());
+    assertEquals(expected.getSecuritiesExchange(), actual.getSecuritiesExchange());
+    assertEquals(expected.getQuantity(), actual.getQuantity());
+    assertPrice(expected.getLocalPrice(), actual.getLocalPrice());
+    assertPrice(expected.getLocalValue(), actual.getLocalValue());
+    assertEquals(expected.getExchangeRate(), actual.getExchangeRate());
+    assertPrice(expected.getValue(), actual.getValue());
+    assertPrice(expected.getCommission(), actual.getCommission());
+    assertPrice(expected.getTotal(), actual.getTotal());
+    assertEquals(expected.getOrderId(), actual.getOrderId());
+    assertEquals(expected.getTransactionId(), actual.getTransactionId());
+    if (expected.getType() == TransactionType.PURCHASE) {
+      assertEquals(((PurchaseTransaction) expected).getRemainingQuantity(),
+          ((PurchaseTransaction) actual).getRemainingQuantity());
+      assertEquals(((PurchaseTransaction) expected).getLastSplitDate(),
+          ((PurchaseTransaction) actual).getLastSplitDate());
+    }
+  }
+
+  private static void assertPrice(Price expected, Price actual) {
+    if (expected == null) {
+      assertNull(actual);
+    } else {
+      // the scale of the value must be preserved
+      assertEquals(expected.getValue(), actual.getValue());
+      assertEquals(expected.getCurrency(), actual.getCurrency());
+    }
+  }
+
+  private TransactionAssertions() {
+  }
+}
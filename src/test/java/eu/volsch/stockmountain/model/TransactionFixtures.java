@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Sample transactions that are shared by the tests. The transactions with all properties are used
+ * by the tests of the stores and encodings and the transactions with only the quantity and the
+ * total are used by the tests of the lot matching.
+ */
+public final class TransactionFixtures {
+
+  /**
+   * Creates a purchase of Amazon shares with all properties except the lot state.
+   *
+   * @param id      the ID of the purchase.
+   * @param version the version of the purchase.
+   * @return the purchase.
+   */
+  public static SimplePurchaseTransaction newPurchase(long id, int version) {
+    return SimplePurchaseTransaction.builder()
+        .id(id)
+        .version(version)
+        .date(LocalDate.of(2022, 7, 20))
+        .time(LocalTime.of(18, 12))
+        .isin("US0231351067")
+        .tickerSymbol("AMZN")
+        .name("AMAZON.COM INC. - COM")
+        .securitiesExchange("NDQ")
+        .quantity(new BigDecimal("2"))
+        .localPrice(new Price(new BigDecimal("122.6800"), "USD"))
+        .localValue(new Price(new BigDecimal("-245.36"), "USD"))
+        .exchangeRate(new BigDecimal("1.0215"))
+        .value(new Price(new BigDecimal("-240.20"), "EUR"))
+        .commission(new Price(new BigDecimal("-0.50"), "EUR"))
+        .total(new Price(new BigDecimal("-240.70"), "EUR"))
+        .orderId("0d71cb9d-1879-43cc-838b-bfd845a81856")
+        .transactionId("T1")
+        .build();
+  }
+
+  /**
+   * Creates a fictional purchase with all properties including the lot state.
+   *
+   * @param id   the ID of the purchase.
+   * @param isin the ISIN of the purchase.
+   * @return the purchase.
+   */
+  public static SimplePurchaseTransaction newPurchase(long id, String isin) {
+    return SimplePurchaseTransaction.builder()
+        .id(id)
+        .version(827)
+        .date(LocalDate.of(2022, 12, 16))
+        .time(LocalTime.of(14, 51))
+        .fictional(true)
+        .isin(isin)
+        .tickerSymbol("ABAB")
+        .name("Test stock")
+        .securitiesExchange("XETRA")
+        .quantity(new BigDecimal("47.89"))
+        .localPrice(new Price(new BigDecimal("28.34"), "GBP"))
+        .localValue(new Price(new BigDecimal("-98.43"), "GBP"))
+        .exchangeRate(new BigDecimal("1.8397"))
+        .value(new Price(new BigDecimal("-78.23"), "EUR"))
+        .commission(new Price(new BigDecimal("-1.23"), "EUR"))
+        .total(new Price(new BigDecimal("-79.46"), "EUR"))
+        .orderId("0d71cb9d-1879-43cc-838b-bfd845a81856")
+        .transactionId("T947625684")
+        .remainingQuantity(new BigDecimal("45.82"))
+        .lastSplitDate(LocalDate.of(2022, 12, 19))
+        .build();
+  }
+
+  /**
+   * Creates a purchase on December 16, 2022 with only the mandatory properties.
+   *
+   * @param id       the ID of the purchase.
+   * @param isin     the ISIN of the purchase.
+   * @param quantity the positive quantity.
+   * @param total    the negative total in EUR.
+   * @return the purchase.
+   */
+  public static SimplePurchaseTransaction newPurchase(long id, String isin, String quantity,
+      String total) {
+    return SimplePurchaseTransaction.builder()
+        .id(id)
+        .date(LocalDate.of(2022, 12, 16))
+        .isin(isin)
+        .name("Test stock")
+        .quantity(new BigDecimal(quantity))
+        .total(eur(total))
+        .build();
+  }
+
+  /**
+   * Creates a fictional sale of Amazon shares with only the mandatory properties.
+   *
+   * @param id the ID of the sale.
+   * @return the sale.
+   */
+  public static SimpleSaleTransaction newSale(long id) {
+    return SimpleSaleTransaction.builder()
+        .id(id)
+        .fictional(true)
+        .date(LocalDate.of(2022, 6, 6))
+        .isin("US0231351067")
+        .name("AMAZON.COM INC. - COM")
+        .quantity(new BigDecimal("-6"))
+        .total(new Price(new BigDecimal("0"), "EUR"))
+        .build();
+  }
+
+  /**
+   * Creates a sale with some optional properties.
+   *
+   * @param id   the ID of the sale.
+   * @param isin the ISIN of the sale.
+   * @return the sale.
+   */
+  public static SimpleSaleTransaction newSale(long id, String isin) {
+    return SimpleSaleTransaction.builder()
+        .id(id)
+        .version(1)
+        .date(LocalDate.of(2022, 12, 16))
+        .time(LocalTime.of(0, 0))
+        .isin(isin)
+        .name("Other stock")
+        .quantity(new BigDecimal("-2"))
+        .value(new Price(new BigDecimal("78.000"), "EUR"))
+        .total(new Price(new BigDecimal("78"), "EUR"))
+        .orderId("0d71cb9d-1879-43cc-838b-bfd845a81856")
+        .build();
+  }
+
+  /**
+   * Creates a sale on December 17, 2022 with only the mandatory properties.
+   *
+   * @param id       the ID of the sale.
+   * @param isin     the ISIN of the sale.
+   * @param quantity the negative quantity.
+   * @param total    the positive total in EUR.
+   * @return the sale.
+   */
+  public static SimpleSaleTransaction newSale(long id, String isin, String quantity,
+      String total) {
+    return SimpleSaleTransaction.builder()
+        .id(id)
+        .date(LocalDate.of(2022, 12, 17))
+        .isin(isin)
+        .name("Test stock")
+        .quantity(new BigDecimal(quantity))
+        .total(eur(total))
+        .build();
+  }
+
+  public static Price eur(String value) {
+    return new Price(new BigDecimal(value), "EUR");
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotStoreTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void write_compacted() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory.resolve("snapshots"));
+    final TransactionSnapshot snapshot = store.write(100,
+        List.of(newPurchase(5, 0), newSale(2), newPurchase(5, 1)));
+    assertEquals(100, snapshot.getPosition());
+    assertEquals(2, snapshot.size());
+
+    final TransactionSnapshot loaded = requireNonNull(store.loadLatest(100));
+    assertEquals(100, loaded.getPosition());
+    assertEquals(2, loaded.size());
+    assertTransaction(newSale(2), loaded.getTransactions().get(0));
+    assertTransaction(newPurchase(5, 1), loaded.getTransactions().get(1));
+  }
+
+  @Test
+  void write_lotState() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory);
+    final Transaction purchase = newPurchase(5, 2).toBuilder()
+        .remainingQuantity(new BigDecimal("3"))
+        .lastSplitDate(LocalDate.of(2022, 6, 6))
+        .build();
+    store.write(100, List.of(purchase));
+
+    final SimplePurchaseTransaction loaded =
+        (SimplePurchaseTransaction) requireNonNull(store.loadLatest(100)).getTransactions().get(0);
+    assertEquals(new BigDecimal("3"), loaded.getRemainingQuantity());
+    assertEquals(LocalDate.of(2022, 6, 6), loaded.getLastSplitDate());
+  }
+
+  @Test
+  void write_invalidPosition_fail() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory);
+    assertThrows(IllegalArgumentException.class, () -> store.write(0, List.of()));
+  }
+
+  @Test
+  void write_retainsNewestSnapshots() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory);
+    store.write(100, List.of(newSale(1)));
+    store.write(300, List.of(newSale(1), newSale(3)));
+    store.write(200, List.of(newSale(2)));
+    assertEquals(SnapshotStore.RETAINED_SNAPSHOT_COUNT, store.listFiles().size());
+    assertEquals(300, store.loadLatest(Long.MAX_VALUE).getPosition());
+    assertEquals(200, store.loadLatest(299).getPosition());
+    assertNull(store.loadLatest(199));
+  }
+
+  @Test
+  void loadLatest_damagedSnapshotSkipped() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory);
+    store.write(100, List.of(newSale(1)));
+    store.write(200, List.of(newSale(2)));
+    try (RandomAccessFile file = new RandomAccessFile(store.listFiles().get(0).toFile(), "rw")) {
+      file.seek(file.length() - 1);
+      file.write(file.read() ^ 0xff);
+    }
+    assertEquals(100, store.loadLatest(Long.MAX_VALUE).getPosition());
+  }
+
+  @Test
+  void loadLatest_incompleteSnapshotSkipped() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory);
+    store.write(100, List.of(newSale(1)));
+    store.write(200, List.of(newSale(2)));
+    try (RandomAccessFile file = new RandomAccessFile(store.listFiles().get(0).toFile(), "rw")) {
+      file.setLength(file.length() - 3);
+    }
+    assertEquals(100, store.loadLatest(Long.MAX_VALUE).getPosition());
+  }
+
+  @Test
+  void recover_withoutSnapshot() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory.resolve("snapshots"));
+    try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal"))) {
+      journal.appendAll(List.of(newPurchase(1, 0), newSale(2), newPurchase(1, 1)));
+
+      final RecoveredState state = store.recover(journal);
+      assertEquals(TransactionJournal.START_POSITION, state.getSnapshotPosition());
+      assertEquals(journal.getEndPosition(), state.getPosition());
+      assertEquals(3, state.getReplayedEntryCount());
+      assertEquals(2, state.getTransactions().size());
+      assertTransaction(newPurchase(1, 1), state.getTransactions().get(0));
+      assertTransaction(newSale(2), state.getTransactions().get(1));
+    }
+  }
+
+  @Test
+  void compact_replaysOnlyEntriesAfterSnapshot() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory.resolve("snapshots"));
+    final Path journalFile = directory.resolve("journal");
+    try (TransactionJournal journal = TransactionJournal.open(journalFile)) {
+      journal.appendAll(List.of(newPurchase(1, 0), newSale(2), newPurchase(1, 1)));
+      final RecoveredState compacted = store.compact(journal);
+      assertEquals(journal.getEndPosition(), compacted.getPosition());
+      journal.appendAll(List.of(newPurchase(1, 2), newSale(3)));
+    }
+
+    try (TransactionJournal journal = TransactionJournal.open(journalFile)) {
+      final RecoveredState state = store.recover(journal);
+      assertEquals(2, state.getReplayedEntryCount());
+      assertEquals(3, state.getTransactions().size());
+      assertTransaction(newPurchase(1, 2), state.getTransactions().get(0));
+      assertTransaction(newSale(3), state.getTransactions().get(2));
+
+      store.compact(journal);
+      assertEquals(0, store.recover(journal).getReplayedEntryCount());
+      assertEquals(2, store.listFiles().size());
+    }
+  }
+
+  @Test
+  void compact_upToDateSnapshotNotRewritten() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory.resolve("snapshots"));
+    try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal"))) {
+      journal.append(newSale(2));
+      store.compact(journal);
+      final Path file = store.listFiles().get(0);
+      final long modified = Files.getLastModifiedTime(file).toMillis();
+      store.compact(journal);
+      assertEquals(List.of(file), store.listFiles());
+      assertEquals(modified, Files.getLastModifiedTime(file).toMillis());
+    }
+  }
+
+  @Test
+  void recover_snapshotBeyondJournalSkipped() throws IOException {
+    final SnapshotStore store = new SnapshotStore(directory.resolve("snapshots"));
+    try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal"))) {
+      journal.append(newSale(2));
+      store.write(journal.getEndPosition() + 100, List.of(newSale(7)));
+
+      final RecoveredState state = store.recover(journal);
+      assertEquals(TransactionJournal.START_POSITION, state.getSnapshotPosition());
+      assertEquals(1, state.getTransactions().size());
+      assertTransaction(newSale(2), state.getTransactions().get(0));
+    }
+  }
+}
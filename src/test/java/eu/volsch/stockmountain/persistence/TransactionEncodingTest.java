@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class TransactionEncodingTest {
+
+  @Test
+  void read_purchase() throws IOException {
+    final Transaction transaction = newPurchase(7, 3);
+    assertTransaction(transaction, decode(encode(transaction)));
+  }
+
+  @Test
+  void read_purchaseLotState() throws IOException {
+    final SimplePurchaseTransaction transaction = newPurchase(7, 3).toBuilder()
+        .remainingQuantity(new BigDecimal("4.50"))
+        .lastSplitDate(LocalDate.of(2022, 6, 6))
+        .build();
+    final SimplePurchaseTransaction result =
+        (SimplePurchaseTransaction) decode(encode(transaction));
+    assertTransaction(transaction, result);
+    assertEquals(new BigDecimal("4.50"), result.getRemainingQuantity());
+    assertEquals(LocalDate.of(2022, 6, 6), result.getLastSplitDate());
+  }
+
+  @Test
+  void read_purchaseWithoutLotState() throws IOException {
+    final SimplePurchaseTransaction result =
+        (SimplePurchaseTransaction) decode(encode(newPurchase(7, 3)));
+    assertNull(result.getRemainingQuantity());
+    assertNull(result.getLastSplitDate());
+  }
+
+  @Test
+  void read_formatVersion1() throws IOException {
+    final Transaction transaction = newPurchase(7, 3);
+    final byte[] bytes = encode(transaction);
+    bytes[0] = 1;
+    // version 1 has no lot state, which is the trailing nullable decimal flag and the split date
+    final byte[] legacyBytes = Arrays.copyOf(bytes, bytes.length - 9);
+    final SimplePurchaseTransaction result = (SimplePurchaseTransaction) decode(legacyBytes);
+    assertTransaction(transaction, result);
+    assertNull(result.getRemainingQuantity());
+  }
+
+  @Test
+  void read_sale() throws IOException {
+    final Transaction transaction = newSale(8);
+    assertTransaction(transaction, decode(encode(transaction)));
+  }
+
+  @Test
+  void read_invalidFormatVersion_fail() throws IOException {
+    final byte[] bytes = encode(newSale(8));
+    bytes[0] = 99;
+    assertThrows(IOException.class, () -> decode(bytes));
+  }
+
+  @Test
+  void read_invalidType_fail() throws IOException {
+    final byte[] bytes = encode(newSale(8));
+    bytes[1] = 5;
+    assertThrows(IOException.class, () -> decode(bytes));
+  }
+
+  private static byte[] encode(Transaction transaction) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TransactionEncoding.write(new DataOutputStream(bytes), transaction);
+    return bytes.toByteArray();
+  }
+
+  private static Transaction decode(byte[] bytes) throws IOException {
+    return TransactionEncoding.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+}
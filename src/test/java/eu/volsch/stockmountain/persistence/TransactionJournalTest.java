@@ -0,0 +1,219 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.persistence;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransactionJournalTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @TempDir
+  Path directory;
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void append() throws IOException {
+    final Path file = directory.resolve("journal.dat");
+    final long position1;
+    final long position2;
+    try (TransactionJournal journal = TransactionJournal.open(file)) {
+      assertEquals(TransactionJournal.START_POSITION, journal.getEndPosition());
+      position1 = journal.append(newPurchase(1, 0));
+      position2 = journal.append(newSale(2));
+      assertEquals(TransactionJournal.START_POSITION, position1);
+      assertEquals(2, journal.getSyncCount());
+    }
+
+    try (TransactionJournal journal = TransactionJournal.open(file);
+        Stream<JournalEntry> stream = journal.readFrom(TransactionJournal.START_POSITION)) {
+      assertEquals(0, journal.getTruncatedByteCount());
+      final List<JournalEntry> entries = stream.collect(toList());
+      assertEquals(2, entries.size());
+      assertEquals(position1, entries.get(0).getPosition());
+      assertEquals(position2, entries.get(0).getNextPosition());
+      assertEquals(journal.getEndPosition(), entries.get(1).getNextPosition());
+      assertTransaction(newPurchase(1, 0), entries.get(0).getTransaction());
+      assertTransaction(newSale(2), entries.get(1).getTransaction());
+    }
+  }
+
+  @Test
+  void appendAll() throws IOException {
+    try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal.dat"))) {
+      final long[] positions = journal.appendAll(List.of(newPurchase(1, 0), newPurchase(2, 0),
+          newSale(3)));
+      assertEquals(1, journal.getSyncCount());
+      assertEquals(3, positions.length);
+
+      try (Stream<JournalEntry> stream = journal.readFrom(positions[1])) {
+        assertArrayEquals(new long[] {positions[1], positions[2]},
+            stream.mapToLong(JournalEntry::getPosition).toArray());
+      }
+    }
+  }
+
+  @Test
+  void append_groupCommit() throws Exception {
+    final int count = 400;
+    try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal.dat"))) {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Long>> futures = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        final Transaction transaction = newPurchase(i, 0);
+        futures.add(executor.submit(() -> {
+          start.await();
+          return journal.append(transaction);
+        }));
+      }
+      start.countDown();
+      final Set<Long> positions = new HashSet<>();
+      for (final Future<Long> future : futures) {
+        positions.add(future.get());
+      }
+
+      assertEquals(count, positions.size());
+      assertTrue(journal.getSyncCount() <= count);
+      try (Stream<JournalEntry> stream = journal.readFrom(TransactionJournal.START_POSITION)) {
+        final Set<Long> ids = new HashSet<>();
+        stream.forEach(e -> {
+          assertTrue(positions.contains(e.getPosition()));
+          ids.add(e.getTransaction().getId());
+        });
+        assertEquals(count, ids.size());
+      }
+    }
+  }
+
+  @Test
+  void open_tornTailTruncated() throws IOException {
+    final Path file = directory.resolve("journal.dat");
+    final long end;
+    try (TransactionJournal journal = TransactionJournal.open(file)) {
+      journal.append(newPurchase(1, 0));
+      end = journal.getEndPosition();
+      journal.append(newPurchase(2, 0));
+    }
+    final long size = Files.size(file);
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.setLength(size - 3);
+    }
+
+    try (TransactionJournal journal = TransactionJournal.open(file)) {
+      assertEquals(size - 3 - end, journal.getTruncatedByteCount());
+      assertEquals(end, journal.getEndPosition());
+      assertEquals(end, Files.size(file));
+      journal.append(newPurchase(3, 0));
+      try (Stream<JournalEntry> stream = journal.readFrom(TransactionJournal.START_POSITION)) {
+        assertArrayEquals(new long[] {1, 3},
+            stream.mapToLong(e -> e.getTransaction().getId()).toArray());
+      }
+    }
+  }
+
+  @Test
+  void open_corruptedEntryTruncated() throws IOException {
+    final Path file = directory.resolve("journal.dat");
+    final long end;
+    try (TransactionJournal journal = TransactionJournal.open(file)) {
+      journal.append(newPurchase(1, 0));
+      end = journal.getEndPosition();
+      journal.append(newPurchase(2, 0));
+      journal.append(newPurchase(3, 0));
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(end + 20);
+      raf.write(0xff);
+    }
+
+    try (TransactionJournal journal = TransactionJournal.open(file)) {
+      assertEquals(end, journal.getEndPosition());
+      assertTrue(journal.getTruncatedByteCount() > 0);
+    }
+  }
+
+  @Test
+  void open_incompleteHeader() throws IOException {
+    final Path file = directory.resolve("journal.dat");
+    Files.write(file, new byte[] {0x53, 0x4d});
+    try (TransactionJournal journal = TransactionJournal.open(file)) {
+      assertEquals(2, journal.getTruncatedByteCount());
+      assertEquals(TransactionJournal.START_POSITION, journal.getEndPosition());
+    }
+  }
+
+  @Test
+  void open_noJournal_fail() throws IOException {
+    final Path file = directory.resolve("journal.dat");
+    Files.write(file, new byte[16]);
+    assertThrows(IOException.class, () -> TransactionJournal.open(file));
+  }
+
+  @Test
+  void readFrom_invalidPosition_fail() throws IOException {
+    try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal.dat"))) {
+      assertThrows(IllegalArgumentException.class, () -> journal.readFrom(0));
+      assertThrows(IllegalArgumentException.class, () -> journal.readFrom(100));
+    }
+  }
+
+  @Test
+  void append_closed_fail() throws IOException {
+    final TransactionJournal journal = TransactionJournal.open(directory.resolve("journal.dat"));
+    journal.close();
+    final Transaction transaction = newSale(1);
+    assertThrows(IllegalStateException.class, () -> journal.append(transaction));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.eur;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class HoldingsIndexTest {
+
+  private static final String ISIN = "US0231351067";
+  private static final String OTHER_ISIN = "DE0005140008";
+
+  @Test
+  void getHoldings() {
+    final List<Transaction> history = List.of(
+        purchase(1, ISIN, "10", "-100.00", 2022, 11, 30),
+        purchase(2, OTHER_ISIN, "5", "-20.00", 2022, 12, 1),
+        purchase(3, ISIN, "10", "-120.00", 2022, 12, 1),
+        sale(4, ISIN, "-5", "70.00", 2022, 12, 5),
+        sale(5, OTHER_ISIN, "-5", "30.00", 2022, 12, 6));
+    final HoldingsIndex index = new HoldingsIndex(history, 2);
+
+    assertEquals(Map.of(), index.getHoldings(LocalDate.of(2022, 11, 29)));
+    assertEquals(Map.of(ISIN, new Position(ISIN, new BigDecimal("10"), eur("100.00"))),
+        index.getHoldings(LocalDate.of(2022, 11, 30)));
+    assertEquals(Map.of(
+            ISIN, new Position(ISIN, new BigDecimal("20"), eur("220.00")),
+            OTHER_ISIN, new Position(OTHER_ISIN, new BigDecimal("5"), eur("20.00"))),
+        index.getHoldings(LocalDate.of(2022, 12, 4)));
+    assertEquals(Map.of(ISIN, new Position(ISIN, new BigDecimal("15"), eur("165.00"))),
+        index.getHoldings(LocalDate.of(2023, 1, 1)));
+    assertEquals(3, index.getCheckpointCount());
+  }
+
+  @Test
+  void getHoldings_matchesFullReplay() {
+    final List<Transaction> history = new ArrayList<>();
+    LocalDate date = LocalDate.of(2020, 1, 1);
+    for (int i = 0; i < 500; i++) {
+      history.add(newPurchase(i * 2L, ISIN, "3", "-31.00").toBuilder().date(date).build());
+      history.add(newSale(i * 2L + 1, ISIN, "-2", "25.00").toBuilder().date(date).build());
+      date = date.plusDays(1);
+    }
+    final HoldingsIndex index = new HoldingsIndex(history, 64);
+    final HoldingsIndex fullReplay = new HoldingsIndex(history, Integer.MAX_VALUE);
+
+    for (int count = 0; count <= history.size(); count += 7) {
+      assertEquals(fullReplay.getHoldings(count), index.getHoldings(count));
+    }
+    assertEquals(new BigDecimal("500"), index.getHoldings(history.size()).get(ISIN).getQuantity());
+  }
+
+  @Test
+  void getHoldings_fictional() {
+    final List<Transaction> history = List.of(
+        purchase(1, ISIN, "10", "-100.00", 2022, 12, 1),
+        newSale(2, ISIN, "-10", "0.00").toBuilder().fictional(true).build(),
+        newPurchase(3, ISIN, "20", "0.00").toBuilder()
+            .date(LocalDate.of(2022, 12, 17)).fictional(true).build());
+    final HoldingsIndex index = new HoldingsIndex(history, 1);
+    assertEquals(Map.of(ISIN, new Position(ISIN, new BigDecimal("20"), eur("100.00"))),
+        index.getHoldings(3));
+  }
+
+  @Test
+  void refresh() {
+    final List<Transaction> history = new ArrayList<>();
+    history.add(purchase(1, ISIN, "10", "-100.00", 2022, 12, 1));
+    final HoldingsIndex index = new HoldingsIndex(history, 10);
+    history.add(sale(2, ISIN, "-4", "50.00", 2022, 12, 2));
+    assertThrows(IndexOutOfBoundsException.class, () -> index.getHoldings(2));
+
+    index.refresh();
+    assertEquals(Map.of(ISIN, new Position(ISIN, new BigDecimal("6"), eur("60.00"))),
+        index.getHoldings(2));
+  }
+
+  @Test
+  void new_unordered_fail() {
+    final List<Transaction> history = List.of(
+        purchase(1, ISIN, "10", "-100.00", 2022, 12, 2),
+        purchase(2, ISIN, "10", "-100.00", 2022, 12, 1));
+    assertThrows(IllegalArgumentException.class, () -> new HoldingsIndex(history, 10));
+  }
+
+  private static Transaction purchase(long id, String isin, String quantity, String total,
+      int year, int month, int day) {
+    return newPurchase(id, isin, quantity, total).toBuilder()
+        .date(LocalDate.of(year, month, day)).build();
+  }
+
+  private static Transaction sale(long id, String isin, String quantity, String total,
+      int year, int month, int day) {
+    return newSale(id, isin, quantity, total).toBuilder()
+        .date(LocalDate.of(year, month, day)).build();
+  }
+}
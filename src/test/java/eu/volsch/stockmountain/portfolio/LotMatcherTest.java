@@ -0,0 +1,225 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.eur;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class LotMatcherTest {
+
+  private static final String ISIN = "US0231351067";
+  private static final String OTHER_ISIN = "DE0005140008";
+
+  @Test
+  void process_fifo() {
+    final LotMatcher matcher = new LotMatcher();
+    final LotMatchResult result = matcher.process(List.of(
+        newPurchase(1, ISIN, "10", "-100.00"),
+        newPurchase(2, OTHER_ISIN, "5", "-20.00"),
+        newPurchase(3, ISIN, "10", "-120.00"),
+        newSale(4, ISIN, "-15", "195.00")));
+
+    assertEquals(List.of(
+        new RealizedCost(4, 1, ISIN, new BigDecimal("10"), eur("100.00"), eur("130.00")),
+        new RealizedCost(4, 3, ISIN, new BigDecimal("5"), eur("60.00"), eur("65.00"))),
+        result.getRealizedCosts());
+    assertEquals(Map.of(1L, new BigDecimal("0"), 2L, new BigDecimal("5"),
+        3L, new BigDecimal("5")), result.getRemainingQuantities());
+    assertEquals(new BigDecimal("5"), matcher.getOpenQuantity(ISIN));
+    assertEquals(1, matcher.getOpenLotCount(ISIN));
+    assertEquals(1, matcher.getOpenLotCount(OTHER_ISIN));
+    assertEquals(4, matcher.getLastId());
+  }
+
+  @Test
+  void view() {
+    final LotMatcher matcher = new LotMatcher();
+    final SimplePurchaseTransaction purchase = newPurchase(1, ISIN, "10", "-100.00");
+    matcher.process(List.of(purchase));
+    final PurchaseTransaction view = matcher.view(purchase);
+    final LotStateTable snapshot = matcher.getLotStates().snapshot();
+
+    matcher.process(List.of(newSale(2, ISIN, "-4", "60.00")));
+    assertEquals(new BigDecimal("6"), view.getRemainingQuantity());
+    assertEquals(new BigDecimal("10"), snapshot.view(purchase).getRemainingQuantity());
+  }
+
+  @Test
+  void process_incremental() {
+    final LotMatcher matcher = new LotMatcher();
+    matcher.process(List.of(
+        newPurchase(1, ISIN, "10", "-100.00"),
+        newSale(2, ISIN, "-4", "60.00")));
+
+    final LotMatchResult result = matcher.process(List.of(newSale(3, ISIN, "-6", "90.00")));
+    assertEquals(List.of(
+            new RealizedCost(3, 1, ISIN, new BigDecimal("6"), eur("60.00"), eur("90.00"))),
+        result.getRealizedCosts());
+    assertEquals(Map.of(1L, new BigDecimal("0")), result.getRemainingQuantities());
+    assertEquals(0, matcher.getOpenLotCount(ISIN));
+    assertEquals(0, BigDecimal.ZERO.compareTo(matcher.getOpenQuantity(ISIN)));
+  }
+
+  @Test
+  void process_costSharesAddUp() {
+    final LotMatcher matcher = new LotMatcher();
+    matcher.process(List.of(newPurchase(1, ISIN, "3", "-10.00")));
+    final List<RealizedCost> costs = matcher.process(List.of(
+        newSale(2, ISIN, "-1", "5.00"),
+        newSale(3, ISIN, "-1", "5.00"),
+        newSale(4, ISIN, "-1", "5.00"))).getRealizedCosts();
+
+    assertEquals(eur("3.33"), costs.get(0).getCost());
+    assertEquals(eur("3.34"), costs.get(1).getCost());
+    assertEquals(eur("3.33"), costs.get(2).getCost());
+  }
+
+  @Test
+  void applySplit() {
+    final LotMatcher matcher = new LotMatcher();
+    matcher.process(List.of(
+        newPurchase(1, ISIN, "10", "-100.00"),
+        newPurchase(2, ISIN, "5", "-60.00"),
+        newSale(3, ISIN, "-12", "130.00"),
+        newSale(4, ISIN, "-3", "0.00").toBuilder().fictional(true).build()));
+
+    final LocalDate splitDate = LocalDate.of(2022, 12, 19);
+    assertEquals(new BigDecimal("3"),
+        matcher.applySplit(new SplitEvent(ISIN, splitDate, new BigDecimal("3"))));
+    assertEquals(new BigDecimal("9"), matcher.getOpenQuantity(ISIN));
+    assertEquals(new BigDecimal("9"), matcher.getLotStates().getRemainingQuantity(1));
+    assertEquals(splitDate, matcher.getLotStates().getLastSplitDate(1));
+    assertNull(matcher.getLotStates().getLastSplitDate(0));
+
+    final LotMatchResult result = matcher.process(List.of(newSale(5, ISIN, "-9", "90.00")));
+    assertEquals(List.of(
+            new RealizedCost(5, 2, ISIN, new BigDecimal("9"), eur("36.00"), eur("90.00"))),
+        result.getRealizedCosts());
+  }
+
+  @Test
+  void restore() {
+    final LotMatcher matcher = new LotMatcher();
+    matcher.restore(newPurchase(1, ISIN, "10", "-100.00").toBuilder()
+        .remainingQuantity(new BigDecimal("4")).build());
+    matcher.restore(newPurchase(2, ISIN, "10", "-100.00").toBuilder()
+        .remainingQuantity(BigDecimal.ZERO).build());
+    assertEquals(new BigDecimal("4"), matcher.getOpenQuantity(ISIN));
+    assertEquals(1, matcher.getOpenLotCount(ISIN));
+
+    final LotMatchResult result = matcher.process(List.of(newSale(3, ISIN, "-4", "50.00")));
+    assertEquals(List.of(
+            new RealizedCost(3, 1, ISIN, new BigDecimal("4"), eur("40.00"), eur("50.00"))),
+        result.getRealizedCosts());
+  }
+
+  @Test
+  void restore_split() {
+    final SplitEvent split = new SplitEvent(ISIN, LocalDate.of(2022, 12, 19), new BigDecimal("2"));
+    final LotMatcher matcher = new LotMatcher();
+    matcher.restore(newPurchase(1, ISIN, "10", "-100.00").toBuilder()
+        .remainingQuantity(new BigDecimal("8")).lastSplitDate(split.getDate()).build(),
+        List.of(split, new SplitEvent(OTHER_ISIN, split.getDate(), new BigDecimal("5"))));
+
+    assertEquals(BigDecimal.ZERO, matcher.applySplit(split));
+    assertEquals(new BigDecimal("8"), matcher.getOpenQuantity(ISIN));
+    assertEquals(new BigDecimal("8"), matcher.getLotStates().getRemainingQuantity(0));
+
+    final LotMatchResult result = matcher.process(List.of(newSale(3, ISIN, "-8", "50.00")));
+    assertEquals(List.of(
+            new RealizedCost(3, 1, ISIN, new BigDecimal("8"), eur("40.00"), eur("50.00"))),
+        result.getRealizedCosts());
+  }
+
+  @Test
+  void restore_missingSplit_fail() {
+    final LotMatcher matcher = new LotMatcher();
+    final PurchaseTransaction purchase = newPurchase(1, ISIN, "10", "-100.00").toBuilder()
+        .remainingQuantity(new BigDecimal("8")).lastSplitDate(LocalDate.of(2022, 12, 19)).build();
+    assertThrows(IllegalArgumentException.class, () -> matcher.restore(purchase));
+  }
+
+  @Test
+  void process_unordered_fail() {
+    final LotMatcher matcher = new LotMatcher();
+    matcher.process(List.of(newPurchase(2, ISIN, "10", "-100.00")));
+    final List<Transaction> transactions = List.of(newPurchase(2, ISIN, "10", "-100.00"));
+    assertThrows(IllegalArgumentException.class, () -> matcher.process(transactions));
+  }
+
+  @Test
+  void process_exceedsOpenQuantity_fail() {
+    final LotMatcher matcher = new LotMatcher();
+    final List<Transaction> transactions = List.of(
+        newPurchase(1, ISIN, "10", "-100.00"),
+        newSale(2, ISIN, "-11", "120.00"));
+    assertThrows(IllegalArgumentException.class, () -> matcher.process(transactions));
+    assertEquals(new BigDecimal("10"), matcher.getOpenQuantity(ISIN));
+    assertEquals(1, matcher.getLastId());
+  }
+
+  @Test
+  void process_invalid_partialResult() {
+    final LotMatcher matcher = new LotMatcher();
+    final List<Transaction> transactions = List.of(
+        newPurchase(1, ISIN, "10", "-100.00"),
+        newSale(2, ISIN, "-4", "48.00"),
+        newSale(3, ISIN, "-7", "84.00"),
+        newPurchase(4, ISIN, "1", "-10.00"));
+    final LotMatchException e = assertThrows(LotMatchException.class,
+        () -> matcher.process(transactions));
+
+    assertEquals(3, e.getTransactionId());
+    assertEquals(List.of(
+        new RealizedCost(2, 1, ISIN, new BigDecimal("4"), eur("40.00"), eur("48.00"))),
+        e.getPartialResult().getRealizedCosts());
+    assertEquals(Map.of(1L, new BigDecimal("6")), e.getPartialResult().getRemainingQuantities());
+    assertEquals(2, matcher.getLastId());
+    assertEquals(new BigDecimal("6"), matcher.getOpenQuantity(ISIN));
+  }
+
+  @Test
+  void process_invalidQuantity_fail() {
+    final LotMatcher matcher = new LotMatcher();
+    final List<Transaction> transactions = List.of(newPurchase(1, ISIN, "-1", "-100.00"));
+    assertThrows(IllegalArgumentException.class, () -> matcher.process(transactions));
+    assertTrue(matcher.getLastId() < 0);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class LotStateTableTest {
+
+  @Test
+  void add() {
+    final LotStateTable table = new LotStateTable();
+    assertEquals(0, table.add(10, new BigDecimal("5"), null));
+    assertEquals(1, table.add(12, null, LocalDate.of(2022, 12, 19)));
+    assertEquals(2, table.size());
+
+    assertEquals(10, table.getId(0));
+    assertEquals(new BigDecimal("5"), table.getRemainingQuantity(0));
+    assertNull(table.getLastSplitDate(0));
+    assertNull(table.getRemainingQuantity(1));
+    assertEquals(LocalDate.of(2022, 12, 19), table.getLastSplitDate(1));
+  }
+
+  @Test
+  void add_unordered_fail() {
+    final LotStateTable table = new LotStateTable();
+    table.add(10, BigDecimal.ONE, null);
+    assertThrows(IllegalArgumentException.class, () -> table.add(10, BigDecimal.ONE, null));
+  }
+
+  @Test
+  void find() {
+    final LotStateTable table = new LotStateTable();
+    for (int i = 0; i < 3000; i++) {
+      table.add(i * 2L, BigDecimal.ONE, null);
+    }
+    assertEquals(0, table.find(0));
+    assertEquals(1500, table.find(3000));
+    assertEquals(2999, table.find(5998));
+    assertEquals(-1, table.find(3001));
+    assertEquals(-1, table.find(6000));
+    assertEquals(-1, new LotStateTable().find(0));
+  }
+
+  @Test
+  void set() {
+    final LotStateTable table = new LotStateTable();
+    table.add(10, new BigDecimal("5"), null);
+    table.setRemainingQuantity(0, new BigDecimal("2"));
+    table.setLastSplitDate(0, LocalDate.of(2022, 12, 19));
+    assertEquals(new BigDecimal("2"), table.getRemainingQuantity(0));
+    assertEquals(LocalDate.of(2022, 12, 19), table.getLastSplitDate(0));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> table.setRemainingQuantity(1, BigDecimal.ONE));
+  }
+
+  @Test
+  void snapshot() {
+    final LotStateTable table = new LotStateTable();
+    for (int i = 0; i < 2000; i++) {
+      table.add(i, new BigDecimal(i), null);
+    }
+    final LotStateTable snapshot = table.snapshot();
+    table.setRemainingQuantity(5, BigDecimal.ZERO);
+    table.add(2000, BigDecimal.ONE, null);
+    snapshot.setRemainingQuantity(1500, BigDecimal.ONE);
+
+    assertEquals(BigDecimal.ZERO, table.getRemainingQuantity(5));
+    assertEquals(new BigDecimal(5), snapshot.getRemainingQuantity(5));
+    assertEquals(new BigDecimal(1500), table.getRemainingQuantity(1500));
+    assertEquals(BigDecimal.ONE, snapshot.getRemainingQuantity(1500));
+    assertEquals(2001, table.size());
+    assertEquals(2000, snapshot.size());
+    assertEquals(-1, snapshot.find(2000));
+  }
+
+  @Test
+  void view() {
+    final LotStateTable table = new LotStateTable();
+    final SimplePurchaseTransaction purchase = newPurchase(7, "US0231351067", "10", "-100.00");
+    table.add(7, new BigDecimal("10"), null);
+
+    final PurchaseTransaction view = table.view(purchase);
+    assertEquals(new BigDecimal("10"), view.getRemainingQuantity());
+    table.setRemainingQuantity(0, new BigDecimal("4"));
+    table.setLastSplitDate(0, LocalDate.of(2022, 12, 19));
+    assertEquals(new BigDecimal("4"), view.getRemainingQuantity());
+    assertEquals(LocalDate.of(2022, 12, 19), view.getLastSplitDate());
+    assertEquals(purchase.getId(), view.getId());
+    assertEquals(purchase.getIsin(), view.getIsin());
+    assertEquals(purchase.getQuantity(), view.getQuantity());
+    assertEquals(purchase.getTotal(), view.getTotal());
+    assertEquals(purchase.getDate(), view.getDate());
+  }
+
+  @Test
+  void view_noLot() {
+    final SimplePurchaseTransaction purchase = newPurchase(7, "US0231351067", "10", "-100.00");
+    assertSame(purchase, new LotStateTable().view(purchase));
+  }
+}
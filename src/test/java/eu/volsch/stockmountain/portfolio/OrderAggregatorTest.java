@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.eur;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OrderAggregatorTest {
+
+  private static final String ISIN = "US0231351067";
+
+  private final List<OrderAggregate> aggregates = new ArrayList<>();
+
+  @Test
+  void accept_adjacent() {
+    final OrderAggregator aggregator = new OrderAggregator(1, aggregates::add);
+    aggregator.accept(fill(1, "a", "10", "100.00", "-1.00"));
+    aggregator.accept(fill(2, "a", "30", "104.00", "-2.50"));
+    aggregator.accept(fill(3, "b", "5", "90.00", null));
+    assertEquals(1, aggregates.size());
+    aggregator.flush();
+
+    assertEquals(List.of(
+        new OrderAggregate("a", ISIN, LocalDate.of(2022, 12, 16), 2, new BigDecimal("40"),
+            new Price(new BigDecimal("103.00"), "USD"), eur("-3.50"), eur("-4123.50")),
+        new OrderAggregate("b", ISIN, LocalDate.of(2022, 12, 16), 1, new BigDecimal("5"),
+            new Price(new BigDecimal("90.00"), "USD"), null, eur("-450.00"))), aggregates);
+  }
+
+  @Test
+  void accept_window() {
+    final OrderAggregator aggregator = new OrderAggregator(2, aggregates::add);
+    aggregator.accept(fill(1, "a", "1", "1.00", null));
+    aggregator.accept(fill(2, "b", "1", "1.00", null));
+    aggregator.accept(fill(3, "a", "1", "1.00", null));
+    aggregator.accept(fill(4, "c", "1", "1.00", null));
+    aggregator.accept(fill(5, "a", "1", "1.00", null));
+    aggregator.accept(fill(6, "b", "1", "1.00", null));
+    aggregator.flush();
+
+    assertEquals(List.of("b", "c", "a", "b"),
+        aggregates.stream().map(OrderAggregate::getOrderId).collect(toList()));
+    assertEquals(List.of(1, 1, 3, 1),
+        aggregates.stream().map(OrderAggregate::getFillCount).collect(toList()));
+  }
+
+  @Test
+  void accept_noOrderId() {
+    final OrderAggregator aggregator = new OrderAggregator(aggregates::add);
+    aggregator.accept(fill(1, null, "2", "3.00", "-1.00"));
+    assertEquals(1, aggregates.size());
+    assertNull(aggregates.get(0).getOrderId());
+    assertEquals(new BigDecimal("2"), aggregates.get(0).getQuantity());
+  }
+
+  @Test
+  void accept_missingPrice() {
+    final OrderAggregator aggregator = new OrderAggregator(aggregates::add);
+    aggregator.accept(fill(1, "a", "2", "3.00", null));
+    aggregator.accept(newPurchase(2, ISIN, "1", "-1.00").toBuilder().orderId("a").build());
+    aggregator.flush();
+    assertNull(aggregates.get(0).getAveragePrice());
+  }
+
+  @Test
+  void accept_differentCurrencies_fail() {
+    final OrderAggregator aggregator = new OrderAggregator(aggregates::add);
+    aggregator.accept(fill(1, "a", "2", "3.00", null));
+    final Transaction fill = newPurchase(2, ISIN, "1", "-1.00").toBuilder()
+        .orderId("a").total(new Price(BigDecimal.ONE.negate(), "USD")).build();
+    assertThrows(IllegalArgumentException.class, () -> aggregator.accept(fill));
+  }
+
+  @Test
+  void new_invalidWindowSize_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new OrderAggregator(0, aggregates::add));
+  }
+
+  private static Transaction fill(long id, String orderId, String quantity, String price,
+      String commission) {
+    final BigDecimal value = new BigDecimal(quantity).multiply(new BigDecimal(price));
+    final BigDecimal total = value.negate().add(
+        commission == null ? BigDecimal.ZERO : new BigDecimal(commission));
+    return newPurchase(id, ISIN, quantity, total.toPlainString()).toBuilder()
+        .orderId(orderId)
+        .localPrice(new Price(new BigDecimal(price), "USD"))
+        .commission(commission == null ? null : eur(commission))
+        .build();
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.eur;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelRecomputerTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void recompute() {
+    final List<Transaction> transactions = new ArrayList<>();
+    long id = 0;
+    for (int i = 0; i < 1000; i++) {
+      for (int isin = 0; isin < 7; isin++) {
+        transactions.add(newPurchase(id++, isin(isin), "3", "-30.00"));
+        if (i % 3 == 2) {
+          transactions.add(newSale(id++, isin(isin), "-4", "44.00"));
+        }
+      }
+    }
+
+    final RecomputationResult result = new ParallelRecomputer(4, executor).recompute(
+        transactions);
+    final LotMatchResult expected = new LotMatcher().process(transactions);
+    assertEquals(expected.getRealizedCosts(), result.getMatchResult().getRealizedCosts());
+    assertEquals(expected.getRemainingQuantities(),
+        result.getMatchResult().getRemainingQuantities());
+    assertEquals(7, result.getPositions().size());
+    assertEquals(new BigDecimal("1668"), result.getPositions().get(isin(3)));
+    assertEquals(eur("1332.00"), result.getRealizedGains().get(isin(3)));
+  }
+
+  @Test
+  void recompute_empty() {
+    final RecomputationResult result = new ParallelRecomputer(3, executor).recompute(List.of());
+    assertEquals(List.of(), result.getMatchResult().getRealizedCosts());
+    assertEquals(Map.of(), result.getPositions());
+  }
+
+  @Test
+  void recompute_invalidSale_fail() {
+    final List<Transaction> transactions = List.of(
+        newPurchase(1, isin(0), "3", "-30.00"),
+        newSale(2, isin(1), "-1", "10.00"));
+    final ParallelRecomputer recomputer = new ParallelRecomputer(2, executor);
+    assertThrows(IllegalArgumentException.class, () -> recomputer.recompute(transactions));
+  }
+
+  @Test
+  void recompute_invalidSaleBeforeManyBatches_fail() {
+    final List<Transaction> transactions = new ArrayList<>();
+    transactions.add(newSale(0, isin(0), "-1", "10.00"));
+    for (int i = 1; i <= 4 * ParallelRecomputer.QUEUE_CAPACITY * ParallelRecomputer.BATCH_SIZE;
+        i++) {
+      transactions.add(newPurchase(i, isin(0), "1", "-10.00"));
+    }
+    final ParallelRecomputer recomputer = new ParallelRecomputer(1, executor);
+    assertThrows(IllegalArgumentException.class, () -> recomputer.recompute(transactions));
+  }
+
+  @Test
+  void recompute_boundedQueue() throws Exception {
+    final int limit = (ParallelRecomputer.QUEUE_CAPACITY + 1) * ParallelRecomputer.BATCH_SIZE;
+    final AtomicInteger readCount = new AtomicInteger();
+    final Iterable<Transaction> transactions = () -> new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return readCount.get() < 2 * limit;
+      }
+
+      @Override
+      public Transaction next() {
+        final int index = readCount.getAndIncrement();
+        return newPurchase(index, isin(0), "1", "-10.00");
+      }
+    };
+    final CountDownLatch laneReleased = new CountDownLatch(1);
+    final Executor blockingExecutor = command -> executor.execute(() -> {
+      try {
+        laneReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      command.run();
+    });
+    final CompletableFuture<RecomputationResult> future = CompletableFuture.supplyAsync(
+        () -> new ParallelRecomputer(1, blockingExecutor).recompute(transactions), executor);
+
+    // the calling thread reads one batch beyond the full queue of the blocked lane
+    while (readCount.get() < limit) {
+      Thread.onSpinWait();
+    }
+    Thread.sleep(100);
+    assertEquals(limit, readCount.get());
+    laneReleased.countDown();
+    assertEquals(BigDecimal.valueOf(2L * limit),
+        future.get(10, TimeUnit.SECONDS).getPositions().get(isin(0)));
+  }
+
+  @Test
+  void recompute_callerRuns_fail() {
+    final List<Transaction> transactions = List.of(newPurchase(1, isin(0), "3", "-30.00"));
+    final ParallelRecomputer recomputer = new ParallelRecomputer(2, Runnable::run);
+    assertThrows(IllegalStateException.class, () -> recomputer.recompute(transactions));
+  }
+
+  @Test
+  void new_invalidLaneCount_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new ParallelRecomputer(0, executor));
+  }
+
+  private static String isin(int index) {
+    return "US000000000" + index;
+  }
+}
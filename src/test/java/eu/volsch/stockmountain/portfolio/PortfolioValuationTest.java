@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.eur;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.volsch.stockmountain.fx.ExchangeRateStore;
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.Transaction;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import org.junit.jupiter.api.Test;
+
+class PortfolioValuationTest {
+
+  private static final String ISIN_1 = "US0231351067";
+  private static final String ISIN_2 = "US5949181045";
+  private static final LocalDate DATE_1 = LocalDate.of(2022, 12, 16);
+
+  @Test
+  void getValues() {
+    final PortfolioValuation valuation = new PortfolioValuation("EUR");
+    assertNull(valuation.getFirstDate());
+    valuation.addTransactions(List.of(newPurchase(1, ISIN_1, "10", "-100.00"),
+        newSale(2, ISIN_1, "-4", "50.00").toBuilder().date(DATE_1.plusDays(2)).build()));
+    assertEquals(3, valuation.addClosePrices(new StringReader("DATE,ISIN,CLOSE,CURRENCY\n"
+        + "2022-12-16,US0231351067,10.00,EUR\n"
+        + "2022-12-19,US0231351067,11.00,EUR\n"
+        + "2022-12-17,US5949181045,100.00,EUR\n")));
+
+    assertEquals(DATE_1, valuation.getFirstDate());
+    assertEquals(DATE_1.plusDays(3), valuation.getLastDate());
+    final SortedMap<LocalDate, Price> values =
+        valuation.getValues(DATE_1.minusDays(5), DATE_1.plusDays(5));
+    assertEquals(List.of(eur("100.00"), eur("100.00"), eur("60.00"), eur("66.00")),
+        new ArrayList<>(values.values()));
+    assertEquals(DATE_1, values.firstKey());
+    assertEquals(eur("0.00"), valuation.getValue(DATE_1.minusDays(1)));
+    assertEquals(eur("66.00"), valuation.getValue(DATE_1.plusDays(30)));
+  }
+
+  @Test
+  void getValues_incremental() {
+    final PortfolioValuation valuation = new PortfolioValuation("EUR");
+    valuation.addTransaction(newPurchase(1, ISIN_1, "10", "-100.00"));
+    for (int i = 0; i < 100; i++) {
+      valuation.addClosePrice(ISIN_1, DATE_1.plusDays(i), eur("10.00"));
+    }
+    assertEquals(eur("100.00"), valuation.getValue(DATE_1.plusDays(99)));
+    assertEquals(100, valuation.getRecomputedDayCount());
+
+    valuation.addClosePrice(ISIN_1, DATE_1.plusDays(100), eur("12.00"));
+    assertEquals(eur("120.00"), valuation.getValue(DATE_1.plusDays(100)));
+    assertEquals(1, valuation.getRecomputedDayCount());
+
+    valuation.addTransaction(
+        newPurchase(2, ISIN_1, "5", "-50.00").toBuilder().date(DATE_1.plusDays(90)).build());
+    assertEquals(eur("180.00"), valuation.getValue(DATE_1.plusDays(100)));
+    assertEquals(eur("100.00"), valuation.getValue(DATE_1.plusDays(89)));
+    assertEquals(11, valuation.getRecomputedDayCount());
+
+    valuation.getValue(DATE_1);
+    assertEquals(11, valuation.getRecomputedDayCount());
+  }
+
+  @Test
+  void addTransaction_beforeFirstDate() {
+    final PortfolioValuation valuation = new PortfolioValuation("EUR");
+    valuation.addClosePrice(ISIN_1, DATE_1, eur("10.00"));
+    valuation.addTransaction(newPurchase(1, ISIN_1, "10", "-100.00"));
+    assertEquals(eur("100.00"), valuation.getValue(DATE_1));
+
+    valuation.addTransaction(
+        newPurchase(2, ISIN_1, "2", "-16.00").toBuilder().date(DATE_1.minusDays(3)).build());
+    valuation.addClosePrice(ISIN_1, DATE_1.minusDays(2), eur("8.00"));
+    assertEquals(DATE_1.minusDays(3), valuation.getFirstDate());
+    assertEquals(eur("0.00"), valuation.getValue(DATE_1.minusDays(3)));
+    assertEquals(eur("16.00"), valuation.getValue(DATE_1.minusDays(1)));
+    assertEquals(eur("120.00"), valuation.getValue(DATE_1));
+  }
+
+  @Test
+  void addClosePrice_converted() {
+    final ExchangeRateStore exchangeRates = new ExchangeRateStore("EUR");
+    exchangeRates.add("EUR", "USD", DATE_1, new BigDecimal("1.25"));
+    final PortfolioValuation valuation = new PortfolioValuation("EUR", exchangeRates);
+    valuation.addTransaction(newPurchase(1, ISIN_1, "10", "-100.00"));
+    valuation.addClosePrice(ISIN_1, DATE_1.plusDays(1),
+        new Price(new BigDecimal("12.50"), "USD"));
+
+    assertEquals(eur("100.00"), valuation.getValue(DATE_1.plusDays(1)));
+    final Price gbp = new Price(BigDecimal.ONE, "GBP");
+    assertThrows(IllegalArgumentException.class,
+        () -> valuation.addClosePrice(ISIN_1, DATE_1, gbp));
+    final Price usd = new Price(BigDecimal.ONE, "USD");
+    final PortfolioValuation withoutRates = new PortfolioValuation("EUR");
+    assertThrows(IllegalArgumentException.class,
+        () -> withoutRates.addClosePrice(ISIN_1, DATE_1, usd));
+  }
+
+  @Test
+  @SuppressFBWarnings("DMI_RANDOM_USED_ONLY_ONCE")
+  void getValues_orderIndependent() {
+    final List<Transaction> transactions = new ArrayList<>();
+    final List<Object[]> closes = new ArrayList<>();
+    final Random random = new Random(17);
+    for (int i = 0; i < 200; i++) {
+      final String isin = i % 2 == 0 ? ISIN_1 : ISIN_2;
+      final LocalDate date = DATE_1.plusDays(random.nextInt(60));
+      transactions.add(newPurchase(i, isin, String.valueOf(random.nextInt(10) + 1), "-1.00")
+          .toBuilder().date(date).build());
+      closes.add(new Object[] {isin, DATE_1.plusDays(random.nextInt(60)),
+          eur(random.nextInt(1000) + ".25")});
+    }
+
+    final PortfolioValuation ordered = new PortfolioValuation("EUR");
+    ordered.addTransactions(transactions);
+    closes.forEach(c -> ordered.addClosePrice((String) c[0], (LocalDate) c[1], (Price) c[2]));
+
+    final PortfolioValuation interleaved = new PortfolioValuation("EUR");
+    Collections.shuffle(transactions, random);
+    for (int i = 0; i < transactions.size(); i++) {
+      interleaved.addTransaction(transactions.get(i));
+      final Object[] c = closes.get(i);
+      interleaved.addClosePrice((String) c[0], (LocalDate) c[1], (Price) c[2]);
+      interleaved.getValue(DATE_1);
+    }
+
+    assertEquals(ordered.getValues(DATE_1, DATE_1.plusDays(60)),
+        interleaved.getValues(DATE_1, DATE_1.plusDays(60)));
+  }
+
+  @Test
+  void new_invalidCurrency_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new PortfolioValuation("Euro"));
+  }
+}
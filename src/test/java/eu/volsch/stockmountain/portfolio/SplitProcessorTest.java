@@ -0,0 +1,237 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.portfolio;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.eur;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class SplitProcessorTest {
+
+  private static final String ISIN = "US0231351067";
+  private static final String OTHER_ISIN = "DE0005140008";
+
+  private final SplitProcessor processor = new SplitProcessor(id -> id + 1);
+
+  @Test
+  void process() {
+    final LotMatcher matcher = new LotMatcher();
+    final LocalDate splitDate = LocalDate.of(2022, 12, 17);
+    final SplitResult result = processor.process(List.of(
+            newPurchase(10, ISIN, "10", "-100.00").toBuilder()
+                .date(LocalDate.of(2022, 12, 16)).build(),
+            newPurchase(20, ISIN, "5", "-60.00").toBuilder()
+                .date(LocalDate.of(2022, 12, 18)).build(),
+            newSale(30, ISIN, "-4", "50.00").toBuilder()
+                .date(LocalDate.of(2022, 12, 19)).build()),
+        List.of(new SplitEvent(ISIN, splitDate, new BigDecimal("2"))), matcher);
+
+    final LotStateTable lotStates = matcher.getLotStates();
+    assertEquals(new BigDecimal("16"), lotStates.getRemainingQuantity(0));
+    assertEquals(splitDate, lotStates.getLastSplitDate(0));
+    assertEquals(new BigDecimal("5"), lotStates.getRemainingQuantity(1));
+    assertNull(lotStates.getLastSplitDate(1));
+    assertEquals(new BigDecimal("21"), matcher.getOpenQuantity(ISIN));
+    assertEquals(List.of(
+            new RealizedCost(30, 10, ISIN, new BigDecimal("4"), eur("20.00"), eur("50.00"))),
+        result.getMatchResult().getRealizedCosts());
+
+    assertEquals(1, result.getFictionalTransactions().size());
+    final SplitTransactions fictional = result.getFictionalTransactions().get(0);
+    assertEquals(11, fictional.getSale().getId());
+    assertTrue(fictional.getSale().isFictional());
+    assertEquals(splitDate, fictional.getSale().getDate());
+    assertEquals(new BigDecimal("-10"), fictional.getSale().getQuantity());
+    assertEquals(12, fictional.getPurchase().getId());
+    assertTrue(fictional.getPurchase().isFictional());
+    assertEquals(new BigDecimal("20"), fictional.getPurchase().getQuantity());
+    assertEquals(eur("0"), fictional.getPurchase().getTotal());
+  }
+
+  @Test
+  void process_splitAfterLastTransaction() {
+    final LotMatcher matcher = new LotMatcher();
+    final SplitResult result = processor.process(
+        List.of(newPurchase(1, ISIN, "10", "-100.00"), newPurchase(2, OTHER_ISIN, "3", "-9.00")),
+        List.of(new SplitEvent(ISIN, LocalDate.of(2023, 1, 2), new BigDecimal("0.5")),
+            new SplitEvent(ISIN, LocalDate.of(2023, 1, 1), new BigDecimal("4"))),
+        matcher);
+
+    assertEquals(new BigDecimal("20.0"), matcher.getLotStates().getRemainingQuantity(0));
+    assertEquals(LocalDate.of(2023, 1, 2), matcher.getLotStates().getLastSplitDate(0));
+    assertEquals(new BigDecimal("3"), matcher.getLotStates().getRemainingQuantity(1));
+    assertEquals(2, result.getFictionalTransactions().size());
+    assertEquals(new BigDecimal("40"),
+        result.getFictionalTransactions().get(0).getPurchase().getQuantity());
+    assertEquals(4, result.getFictionalTransactions().get(0).getPurchase().getId());
+    assertEquals(new BigDecimal("-40"),
+        result.getFictionalTransactions().get(1).getSale().getQuantity());
+    assertEquals(5, result.getFictionalTransactions().get(1).getSale().getId());
+  }
+
+  @Test
+  void process_consecutiveIds() {
+    final AtomicLong ids = new AtomicLong(1000);
+    final SplitResult result = new SplitProcessor(id -> ids.getAndIncrement()).process(
+        List.of(newPurchase(1, ISIN, "10", "-100.00")),
+        List.of(new SplitEvent(ISIN, LocalDate.of(2023, 1, 1), new BigDecimal("2"))),
+        new LotMatcher());
+
+    final SplitTransactions fictional = result.getFictionalTransactions().get(0);
+    assertEquals(1000, fictional.getSale().getId());
+    assertEquals(1001, fictional.getPurchase().getId());
+  }
+
+  @Test
+  void process_idNotInOrder_fail() {
+    final AtomicLong ids = new AtomicLong(1000);
+    final SplitProcessor consecutiveProcessor = new SplitProcessor(id -> ids.getAndIncrement());
+    final List<Transaction> transactions = List.of(
+        newPurchase(1, ISIN, "10", "-100.00"),
+        newPurchase(2, ISIN, "5", "-60.00").toBuilder()
+            .date(LocalDate.of(2022, 12, 18)).build());
+    final List<SplitEvent> splits =
+        List.of(new SplitEvent(ISIN, LocalDate.of(2022, 12, 17), new BigDecimal("2")));
+    final LotMatcher matcher = new LotMatcher();
+    assertThrows(IllegalStateException.class,
+        () -> consecutiveProcessor.process(transactions, splits, matcher));
+  }
+
+  @Test
+  void process_noOpenQuantity() {
+    final SplitResult result = processor.process(
+        List.of(newPurchase(1, ISIN, "10", "-100.00"), newSale(2, ISIN, "-10", "120.00")),
+        List.of(new SplitEvent(ISIN, LocalDate.of(2023, 1, 1), new BigDecimal("2")),
+            new SplitEvent(OTHER_ISIN, LocalDate.of(2023, 1, 1), new BigDecimal("2"))),
+        new LotMatcher());
+    assertTrue(result.getFictionalTransactions().isEmpty());
+  }
+
+  @Test
+  void process_alreadyRecorded() {
+    final LocalDate splitDate = LocalDate.of(2022, 12, 17);
+    final List<Transaction> transactions = List.of(
+        newPurchase(1, ISIN, "10", "-100.00").toBuilder()
+            .date(LocalDate.of(2022, 12, 16)).build(),
+        newSale(2, ISIN, "-10", "0.00").toBuilder()
+            .date(splitDate).fictional(true).build(),
+        newPurchase(3, ISIN, "20", "0.00").toBuilder()
+            .date(splitDate).fictional(true).build());
+    final LotMatcher matcher = new LotMatcher();
+    // the transactions can only be iterated once
+    final Iterator<Transaction> iterator = transactions.iterator();
+    final SplitResult result = processor.process(() -> iterator,
+        List.of(new SplitEvent(ISIN, splitDate, new BigDecimal("2"))), matcher);
+
+    assertTrue(result.getFictionalTransactions().isEmpty());
+    assertEquals(new BigDecimal("20"), matcher.getOpenQuantity(ISIN));
+    assertEquals(1, matcher.getOpenLotCount(ISIN));
+  }
+
+  @Test
+  void process_restoredLots() {
+    final LotMatcher matcher = new LotMatcher();
+    final LocalDate splitDate = LocalDate.of(2023, 1, 1);
+    final SplitEvent split = new SplitEvent(ISIN, splitDate, new BigDecimal("2"));
+    final SplitEvent otherSplit = new SplitEvent(OTHER_ISIN, LocalDate.of(2023, 1, 2),
+        new BigDecimal("3"));
+    matcher.restore(newPurchase(10, ISIN, "10", "-100.00").toBuilder()
+        .remainingQuantity(new BigDecimal("16")).lastSplitDate(splitDate).build(), List.of(split));
+    matcher.restore(newPurchase(20, OTHER_ISIN, "5", "-20.00").toBuilder()
+        .tickerSymbol("DBK").name("Deutsche Bank").build());
+
+    final SplitResult result = processor.process(
+        List.of(newPurchase(30, ISIN, "1", "-10.00").toBuilder()
+            .date(LocalDate.of(2023, 1, 3)).build()),
+        List.of(otherSplit, split), matcher);
+
+    assertEquals(new BigDecimal("16"), matcher.getLotStates().getRemainingQuantity(0));
+    assertEquals(new BigDecimal("15"), matcher.getOpenQuantity(OTHER_ISIN));
+    assertEquals(1, result.getFictionalTransactions().size());
+    final SplitTransactions fictional = result.getFictionalTransactions().get(0);
+    assertEquals(otherSplit, fictional.getSplit());
+    assertEquals(21, fictional.getSale().getId());
+    assertEquals("DBK", fictional.getSale().getTickerSymbol());
+    assertEquals("Deutsche Bank", fictional.getPurchase().getName());
+    assertEquals(new BigDecimal("-5"), fictional.getSale().getQuantity());
+    assertEquals(new BigDecimal("15"), fictional.getPurchase().getQuantity());
+  }
+
+  @Test
+  void process_idsInOrderOfSplits() {
+    final SplitResult result = processor.process(
+        List.of(newPurchase(10, ISIN, "10", "-100.00").toBuilder()
+                .date(LocalDate.of(2022, 12, 16)).build(),
+            newPurchase(20, OTHER_ISIN, "3", "-9.00").toBuilder()
+                .date(LocalDate.of(2022, 12, 18)).build()),
+        List.of(new SplitEvent(OTHER_ISIN, LocalDate.of(2022, 12, 20), new BigDecimal("2")),
+            new SplitEvent(ISIN, LocalDate.of(2022, 12, 17), new BigDecimal("2"))),
+        new LotMatcher());
+
+    assertEquals(2, result.getFictionalTransactions().size());
+    assertEquals(ISIN, result.getFictionalTransactions().get(0).getSale().getIsin());
+    assertEquals(11, result.getFictionalTransactions().get(0).getSale().getId());
+    assertEquals(12, result.getFictionalTransactions().get(0).getPurchase().getId());
+    assertEquals(OTHER_ISIN, result.getFictionalTransactions().get(1).getSale().getIsin());
+    assertEquals(21, result.getFictionalTransactions().get(1).getSale().getId());
+    assertEquals(22, result.getFictionalTransactions().get(1).getPurchase().getId());
+  }
+
+  @Test
+  void process_invalid_partialResult() {
+    final List<Transaction> transactions = List.of(
+        newPurchase(10, ISIN, "10", "-100.00").toBuilder()
+            .date(LocalDate.of(2022, 12, 16)).build(),
+        newSale(20, ISIN, "-30", "50.00").toBuilder()
+            .date(LocalDate.of(2022, 12, 18)).build());
+    final List<SplitEvent> splits =
+        List.of(new SplitEvent(ISIN, LocalDate.of(2022, 12, 17), new BigDecimal("2")));
+    final LotMatcher matcher = new LotMatcher();
+    final SplitProcessingException e = assertThrows(SplitProcessingException.class,
+        () -> processor.process(transactions, splits, matcher));
+
+    assertEquals(20, e.getTransactionId());
+    assertEquals(1, e.getPartialSplitResult().getFictionalTransactions().size());
+    assertEquals(new BigDecimal("20"), e.getPartialSplitResult().getFictionalTransactions().get(0)
+        .getPurchase().getQuantity());
+    assertEquals(Map.of(10L, new BigDecimal("10")),
+        e.getPartialResult().getRemainingQuantities());
+    assertEquals(new BigDecimal("20"), matcher.getOpenQuantity(ISIN));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+
+  @Test
+  void put() {
+    final LongIntHashMap map = new LongIntHashMap();
+    assertEquals(LongIntHashMap.MISSING, map.put(0, 1));
+    assertEquals(LongIntHashMap.MISSING, map.put(Long.MIN_VALUE, 2));
+    assertEquals(LongIntHashMap.MISSING, map.put(-1, 3));
+    assertEquals(1, map.put(0, 4));
+    assertEquals(3, map.size());
+    assertEquals(4, map.get(0));
+    assertEquals(2, map.get(Long.MIN_VALUE));
+    assertEquals(3, map.get(-1));
+    assertEquals(LongIntHashMap.MISSING, map.get(1));
+  }
+
+  @Test
+  void put_rehash() {
+    final LongIntHashMap map = new LongIntHashMap();
+    for (int i = 0; i < 10_000; i++) {
+      map.put(i * 1024L, i);
+    }
+    assertEquals(10_000, map.size());
+    for (int i = 0; i < 10_000; i++) {
+      assertEquals(i, map.get(i * 1024L));
+    }
+    assertEquals(LongIntHashMap.MISSING, map.get(1023));
+  }
+
+  @Test
+  void put_negativeValue_fail() {
+    final LongIntHashMap map = new LongIntHashMap();
+    assertThrows(IllegalArgumentException.class, () -> map.put(1, -1));
+  }
+}
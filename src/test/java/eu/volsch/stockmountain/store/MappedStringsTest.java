@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedStringsTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void add() throws IOException {
+    try (MappedStrings strings = MappedStrings.open(directory.resolve("strings.dat"))) {
+      final long offset1 = strings.add("abc");
+      final long offset2 = strings.add("abc");
+      assertNotEquals(offset1, offset2);
+      assertEquals("abc", strings.get(offset1));
+      assertEquals("abc", strings.get(offset2));
+      assertEquals(MappedStrings.NULL_OFFSET, strings.add(null));
+      assertNull(strings.get(MappedStrings.NULL_OFFSET));
+    }
+  }
+
+  @Test
+  void addShared() throws IOException {
+    final Path file = directory.resolve("strings.dat");
+    final long offset;
+    try (MappedStrings strings = MappedStrings.open(file)) {
+      strings.add("EUR");
+      offset = strings.addShared("EUR");
+      assertEquals(offset, strings.addShared("EUR"));
+      assertEquals(MappedStrings.NULL_OFFSET, strings.addShared(null));
+    }
+
+    try (MappedStrings strings = MappedStrings.open(file)) {
+      assertEquals(offset, strings.addShared("EUR"));
+      assertEquals("EUR", strings.get(offset));
+    }
+  }
+
+  @Test
+  void add_segmentBoundary() throws IOException {
+    final Path file = directory.resolve("strings.dat");
+    final String value = "x".repeat(1024 * 1024);
+    final long[] offsets = new long[5];
+    try (MappedStrings strings = MappedStrings.open(file)) {
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = strings.addShared(value + i);
+      }
+    }
+
+    try (MappedStrings strings = MappedStrings.open(file)) {
+      for (int i = 0; i < offsets.length; i++) {
+        assertEquals(value + i, strings.get(offsets[i]));
+        assertEquals(offsets[i], strings.addShared(value + i));
+      }
+    }
+  }
+
+  @Test
+  void add_tooLong_fail() throws IOException {
+    try (MappedStrings strings = MappedStrings.open(directory.resolve("strings.dat"))) {
+      assertThrows(IllegalArgumentException.class,
+          () -> strings.add("x".repeat(4 * 1024 * 1024)));
+    }
+  }
+}
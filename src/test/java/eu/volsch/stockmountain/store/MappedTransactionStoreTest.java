@@ -0,0 +1,263 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedTransactionStoreTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void add_purchase() throws IOException {
+    final SimplePurchaseTransaction purchase = newPurchase(7893L, "US0231351067");
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      assertEquals(0, store.add(purchase));
+      assertEquals(1, store.size());
+
+      final Transaction transaction = store.get(0);
+      assertTrue(transaction instanceof PurchaseTransaction);
+      assertTransaction(purchase, transaction);
+      assertEquals(purchase.getRemainingQuantity(),
+          ((PurchaseTransaction) transaction).getRemainingQuantity());
+      assertEquals(purchase.getLastSplitDate(),
+          ((PurchaseTransaction) transaction).getLastSplitDate());
+    }
+  }
+
+  @Test
+  void add_sale() throws IOException {
+    final SimpleSaleTransaction sale = newSale(7894L, "US0231351067");
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(sale);
+
+      final Transaction transaction = store.get(0);
+      assertTrue(transaction instanceof SaleTransaction);
+      assertEquals(TransactionType.SALE, store.getType(0));
+      assertTransaction(sale, transaction);
+    }
+  }
+
+  @Test
+  void add_nullValues() throws IOException {
+    final SimplePurchaseTransaction purchase = SimplePurchaseTransaction.builder()
+        .date(LocalDate.of(1960, 1, 2))
+        .isin("US0231351067")
+        .name("Test stock")
+        .quantity(new BigDecimal("3"))
+        .total(new Price(new BigDecimal("-79.52"), "EUR"))
+        .build();
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(purchase);
+
+      final PurchaseTransaction transaction = (PurchaseTransaction) store.get(0);
+      assertTransaction(purchase, transaction);
+      assertNull(transaction.getTime());
+      assertNull(transaction.getRemainingQuantity());
+      assertNull(transaction.getLastSplitDate());
+    }
+  }
+
+  @Test
+  void add_preciseValues() throws IOException {
+    final SimplePurchaseTransaction purchase = SimplePurchaseTransaction.builder()
+        .date(LocalDate.of(2022, 12, 16))
+        .time(LocalTime.of(14, 51, 23, 123456789))
+        .isin("US0231351067")
+        .name("Test stöck")
+        .quantity(new BigDecimal("12345678901234567890.123"))
+        .exchangeRate(new BigDecimal("1E+3"))
+        .total(new Price(new BigDecimal("-79.5200000000000000001"), "EUR"))
+        .build();
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(purchase);
+      assertTransaction(purchase, store.get(0));
+    }
+  }
+
+  @Test
+  void open_existing() throws IOException {
+    final SimplePurchaseTransaction purchase = newPurchase(7893L, "US0231351067");
+    final SimpleSaleTransaction sale = newSale(7894L, "DE0005140008");
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(purchase);
+      store.add(sale);
+    }
+
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      assertEquals(2, store.size());
+      assertTransaction(purchase, store.get(0));
+      assertTransaction(sale, store.get(1));
+      assertEquals(LocalDate.of(2022, 12, 16).toEpochDay(), store.getEpochDay(1));
+
+      store.add(newPurchase(7895L, "US0231351067"));
+    }
+
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      assertEquals(List.of(7893L, 7894L, 7895L),
+          store.stream().map(Transaction::getId).collect(toList()));
+      assertEquals("US0231351067", store.get(2).getIsin());
+    }
+  }
+
+  @Test
+  void open_invalidFile_fail() throws IOException {
+    Files.write(directory.resolve(MappedTransactionStore.ROWS_FILE_NAME), new byte[128]);
+    assertThrows(IOException.class, () -> MappedTransactionStore.open(directory));
+  }
+
+  @Test
+  void add_multipleSegments() throws IOException {
+    final int count = (1 << 16) + 10;
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      final SimplePurchaseTransaction purchase = newPurchase(1L, "US0231351067");
+      for (int i = 0; i < count; i++) {
+        store.add(purchase.toBuilder().id(i).build());
+      }
+      store.flush();
+    }
+
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      assertEquals(count, store.size());
+      assertEquals(count - 1, store.getId(count - 1));
+      assertTransaction(newPurchase(count - 1, "US0231351067"), store.get(count - 1));
+    }
+  }
+
+  @Test
+  void set() throws IOException {
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(newPurchase(7893L, "US0231351067"));
+      store.add(newPurchase(7894L, "US0231351067"));
+      final Transaction view = store.get(1);
+
+      final SimpleSaleTransaction sale = newSale(7894L, "DE0005140008");
+      store.set(1, sale);
+      assertEquals(TransactionType.SALE, store.getType(1));
+      assertEquals("DE0005140008", view.getIsin());
+      assertTransaction(sale, store.get(1));
+    }
+  }
+
+  @Test
+  void set_unchangedStrings() throws IOException {
+    final SimplePurchaseTransaction purchase = newPurchase(7893L, "US0231351067").toBuilder()
+        .quantity(new BigDecimal("12345678901234567890.123"))
+        .build();
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(purchase);
+      store.flush();
+      final long stringsEnd = readStringsEnd();
+
+      for (int i = 1; i <= 3; i++) {
+        final SimplePurchaseTransaction update = purchase.toBuilder()
+            .version(purchase.getVersion() + i)
+            .remainingQuantity(new BigDecimal(i))
+            .build();
+        store.set(0, update);
+        assertTransaction(update, store.get(0));
+      }
+      store.flush();
+      assertEquals(stringsEnd, readStringsEnd());
+
+      final SimplePurchaseTransaction update = purchase.toBuilder()
+          .transactionId("T947625685")
+          .build();
+      store.set(0, update);
+      store.flush();
+      assertTransaction(update, store.get(0));
+      assertTrue(readStringsEnd() > stringsEnd);
+    }
+  }
+
+  @Test
+  void get_invalidIndex_fail() throws IOException {
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(newPurchase(7893L, "US0231351067"));
+      assertThrows(IndexOutOfBoundsException.class, () -> store.get(1));
+      assertThrows(IndexOutOfBoundsException.class, () -> store.set(-1, newSale(1L, "X")));
+    }
+  }
+
+  @Test
+  void get_closed_fail() throws IOException {
+    final MappedTransactionStore store = MappedTransactionStore.open(directory);
+    store.add(newPurchase(7893L, "US0231351067"));
+    final Transaction transaction = store.get(0);
+    store.close();
+    store.close();
+    assertThrows(IllegalStateException.class, transaction::getId);
+  }
+
+  @Test
+  void equals() throws IOException {
+    try (MappedTransactionStore store = MappedTransactionStore.open(directory)) {
+      store.add(newPurchase(7893L, "US0231351067"));
+      store.add(newPurchase(7894L, "US0231351067"));
+      assertEquals(store.get(0), store.get(0));
+      assertEquals(store.get(0).hashCode(), store.get(0).hashCode());
+      assertNotEquals(store.get(0), store.get(1));
+    }
+  }
+
+  private long readStringsEnd() throws IOException {
+    try (FileChannel channel = FileChannel.open(
+        directory.resolve(MappedTransactionStore.STRINGS_FILE_NAME))) {
+      // the end of the entries follows the magic number and the format version
+      final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+      channel.read(buffer, 8);
+      return buffer.flip().getLong();
+    }
+  }
+}
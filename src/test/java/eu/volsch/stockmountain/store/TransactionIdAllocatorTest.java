@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransactionIdAllocatorTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @TempDir
+  Path directory;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    executor.shutdown();
+    // a refill must not write to the directory while the directory is deleted
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void blockSizeNotPositive_fail() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new TransactionIdAllocator(directory, 0, executor));
+  }
+
+  @Test
+  void allocate() throws IOException {
+    final TransactionIdAllocator allocator = new TransactionIdAllocator(directory, 4, executor);
+    for (long expected = TransactionIdAllocator.FIRST_ID; expected < 20; expected++) {
+      assertEquals(expected, allocator.allocate("DEGIRO/1"));
+      assertTrue(allocator.getReservedEnd("DEGIRO/1") > expected);
+    }
+  }
+
+  @Test
+  void allocate_accountsIndependent() throws IOException {
+    final TransactionIdAllocator allocator = new TransactionIdAllocator(directory, 4, executor);
+    assertEquals(1, allocator.allocate("DEGIRO/1"));
+    assertEquals(2, allocator.allocate("DEGIRO/1"));
+    assertEquals(1, allocator.allocate("DEGIRO/2"));
+    assertEquals(1, allocator.allocate("Ä/ß:*"));
+  }
+
+  @Test
+  void allocate_increasingAcrossRestart() throws IOException {
+    final TransactionIdAllocator allocator1 = new TransactionIdAllocator(directory, 10, executor);
+    long last = 0;
+    for (int i = 0; i < 3; i++) {
+      last = allocator1.allocate("DEGIRO/1");
+    }
+
+    final TransactionIdAllocator allocator2 = new TransactionIdAllocator(directory, 10, executor);
+    final long next = allocator2.allocate("DEGIRO/1");
+    assertTrue(next > last);
+    // the unused IDs of the reserved blocks are skipped
+    assertTrue(next >= allocator1.getReservedEnd("DEGIRO/1"));
+  }
+
+  @Test
+  void allocate_withoutAsynchronousRefill() throws IOException {
+    final Executor rejecting = command -> {
+      throw new RejectedExecutionException();
+    };
+    final TransactionIdAllocator allocator = new TransactionIdAllocator(directory, 3, rejecting);
+    for (long expected = 1; expected <= 10; expected++) {
+      assertEquals(expected, allocator.allocate("DEGIRO/1"));
+    }
+  }
+
+  @Test
+  void allocate_concurrent() throws Exception {
+    final TransactionIdAllocator allocator = new TransactionIdAllocator(directory, 64, executor);
+    final ExecutorService importers = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<long[]>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(importers.submit(() -> {
+          final long[] ids = new long[1000];
+          for (int j = 0; j < ids.length; j++) {
+            ids[j] = allocator.allocate("DEGIRO/1");
+          }
+          return ids;
+        }));
+      }
+      final List<Long> allIds = new ArrayList<>();
+      for (final Future<long[]> future : futures) {
+        final long[] ids = future.get();
+        for (int j = 0; j < ids.length; j++) {
+          // IDs are increasing in the order of allocation of each importer
+          assertTrue(j == 0 || ids[j] > ids[j - 1]);
+          allIds.add(ids[j]);
+        }
+      }
+      assertEquals(8000, allIds.stream().distinct().count());
+      assertTrue(allocator.getReservedEnd("DEGIRO/1") > allIds.stream().mapToLong(id -> id).max()
+          .orElseThrow());
+    } finally {
+      importers.shutdownNow();
+    }
+  }
+
+  @Test
+  void allocate_damagedFile_fail() throws IOException {
+    new TransactionIdAllocator(directory, 4, executor).allocate("DEGIRO/1");
+    try (Stream<Path> files = Files.list(directory)) {
+      final Path file = files.findFirst().orElseThrow();
+      final byte[] bytes = Files.readAllBytes(file);
+      bytes[10] ^= 1;
+      Files.write(file, bytes);
+    }
+    final TransactionIdAllocator allocator = new TransactionIdAllocator(directory, 4, executor);
+    assertThrows(IOException.class, () -> allocator.allocate("DEGIRO/1"));
+  }
+}
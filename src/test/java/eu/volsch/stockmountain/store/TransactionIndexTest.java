@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TransactionIndexTest {
+
+  private static final String ISIN = "US0231351067";
+  private static final String OTHER_ISIN = "DE0005140008";
+  private static final String ORDER_ID = "0d71cb9d-1879-43cc-838b-bfd845a81856";
+
+  @Test
+  void findById() {
+    final List<Transaction> transactions = newTransactions();
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(transactions);
+    assertEquals(5, index.size());
+    assertSame(transactions.get(2), index.findById(3));
+    assertNull(index.findById(6));
+  }
+
+  @Test
+  void findByIsin() {
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(newTransactions());
+    assertEquals(List.of(1L, 3L, 5L), ids(index.findByIsin(ISIN)));
+    assertEquals(List.of(2L, 4L), ids(index.findByIsin(OTHER_ISIN)));
+    assertEquals(List.of(), index.findByIsin("XX0000000000"));
+  }
+
+  @Test
+  void findByOrderId() {
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(newTransactions());
+    assertEquals(List.of(3L, 4L), ids(index.findByOrderId("order-2")));
+    assertEquals(List.of(), index.findByOrderId("order-3"));
+  }
+
+  @Test
+  void findByIsin_invalidIsin() {
+    final List<Transaction> transactions = newTransactions();
+    transactions.add(newSale(6, "X"));
+    transactions.add(newSale(7, ISIN.toLowerCase()));
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(transactions);
+    assertEquals(List.of(6L), ids(index.findByIsin("X")));
+    assertEquals(List.of(7L), ids(index.findByIsin(ISIN.toLowerCase())));
+    assertEquals(List.of(1L, 3L, 5L), ids(index.findByIsin(ISIN)));
+  }
+
+  @Test
+  void findByOrderId_uuid() {
+    final List<Transaction> transactions = newTransactions();
+    transactions.add(newSale(6, ISIN).toBuilder().orderId(ORDER_ID).build());
+    transactions.add(newSale(7, ISIN).toBuilder().orderId(ORDER_ID.toUpperCase()).build());
+    transactions.add(newSale(8, ISIN).toBuilder().orderId(ORDER_ID).build());
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(transactions);
+    assertEquals(List.of(6L, 8L), ids(index.findByOrderId(ORDER_ID)));
+    assertEquals(List.of(7L), ids(index.findByOrderId(ORDER_ID.toUpperCase())));
+    assertEquals(List.of(), index.findByOrderId(ORDER_ID.replace('d', 'e')));
+  }
+
+  @Test
+  void findByDateRange() {
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(newTransactions());
+    assertEquals(List.of(2L, 3L, 4L),
+        ids(index.findByDateRange(LocalDate.of(2022, 2, 1), LocalDate.of(2022, 3, 1))));
+    assertEquals(List.of(), ids(index.findByDateRange(LocalDate.MAX, LocalDate.MIN)));
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+        ids(index.findByDateRange(LocalDate.MIN, LocalDate.MAX)));
+  }
+
+  @Test
+  void findByIsinAndDateRange() {
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(newTransactions());
+    assertEquals(List.of(3L, 5L), ids(index.findByIsinAndDateRange(ISIN,
+        LocalDate.of(2022, 1, 2), LocalDate.of(2022, 12, 31))));
+    assertEquals(List.of(1L), ids(index.findByIsinAndDateRange(ISIN,
+        LocalDate.of(2021, 1, 1), LocalDate.of(2022, 1, 1))));
+  }
+
+  @Test
+  void refresh() {
+    final List<Transaction> transactions = newTransactions();
+    final TransactionIndex<Transaction> index = new TransactionIndex<>(transactions);
+    transactions.add(newSale(6, ISIN).toBuilder().date(LocalDate.of(2022, 2, 15)).build());
+    assertNull(index.findById(6));
+
+    index.refresh();
+    assertEquals(6, index.size());
+    assertEquals(6L, index.findById(6).getId());
+    assertEquals(List.of(3L, 6L), ids(index.findByIsinAndDateRange(ISIN,
+        LocalDate.of(2022, 1, 2), LocalDate.of(2022, 3, 1))));
+    assertEquals(List.of(2L, 6L, 3L, 4L),
+        ids(index.findByDateRange(LocalDate.of(2022, 2, 1), LocalDate.of(2022, 3, 1))));
+  }
+
+  private static List<Transaction> newTransactions() {
+    final List<Transaction> transactions = new ArrayList<>();
+    transactions.add(newPurchase(1, ISIN).toBuilder()
+        .date(LocalDate.of(2022, 1, 1)).orderId("order-1").build());
+    transactions.add(newPurchase(2, OTHER_ISIN).toBuilder()
+        .date(LocalDate.of(2022, 2, 1)).orderId(null).build());
+    transactions.add(newPurchase(3, ISIN).toBuilder()
+        .date(LocalDate.of(2022, 3, 1)).orderId("order-2").build());
+    transactions.add(newSale(4, OTHER_ISIN).toBuilder()
+        .date(LocalDate.of(2022, 3, 1)).orderId("order-2").build());
+    transactions.add(newSale(5, ISIN).toBuilder()
+        .date(LocalDate.of(2022, 12, 31)).orderId(null).build());
+    return transactions;
+  }
+
+  private static List<Long> ids(List<Transaction> transactions) {
+    return transactions.stream().map(Transaction::getId).collect(toList());
+  }
+}
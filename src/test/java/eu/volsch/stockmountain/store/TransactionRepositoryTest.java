@@ -0,0 +1,262 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class TransactionRepositoryTest {
+
+  private final TransactionRepository repository = new TransactionRepository(4);
+
+  @Test
+  void stripeCountNotPositive() {
+    assertThrows(IllegalArgumentException.class, () -> new TransactionRepository(0));
+  }
+
+  @Test
+  void empty() {
+    assertEquals(0, repository.snapshot().size());
+    assertEquals(0, repository.snapshot().getSequence());
+    assertNull(repository.get(1));
+    assertEquals(List.of(), repository.getByIsin("DE0007164600"));
+  }
+
+  @Test
+  void insert() {
+    final Transaction transaction = newPurchase(7, "DE0007164600").toBuilder().version(0).build();
+    repository.insert(transaction);
+    assertSame(transaction, repository.get(7));
+    assertEquals(List.of(transaction), repository.getByIsin("DE0007164600"));
+    assertEquals(1, repository.snapshot().size());
+    assertEquals(1, repository.snapshot().getSequence());
+  }
+
+  @Test
+  void insertExisting() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    final VersionConflictException e = assertThrows(VersionConflictException.class,
+        () -> repository.insert(newSale(7, "DE0007164600")));
+    assertEquals(7, e.getId());
+    assertEquals(VersionConflictException.NO_VERSION, e.getExpectedVersion());
+    assertEquals(827, e.getActualVersion());
+  }
+
+  @Test
+  void update() {
+    final Transaction transaction = newPurchase(7, "DE0007164600");
+    repository.insert(transaction);
+    final TransactionRepository.Snapshot snapshot = repository.snapshot();
+
+    final Transaction updated = newPurchase(7, "DE0007164600").toBuilder().version(828).build();
+    repository.update(updated);
+    assertSame(updated, repository.get(7));
+    assertEquals(List.of(updated), repository.getByIsin("DE0007164600"));
+    assertEquals(1, repository.snapshot().size());
+    assertSame(transaction, snapshot.get(7));
+    assertEquals(List.of(transaction), snapshot.getByIsin("DE0007164600"));
+  }
+
+  @Test
+  void updateVersionConflict() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    final Transaction stale = newPurchase(7, "DE0007164600").toBuilder().version(827).build();
+    final VersionConflictException e =
+        assertThrows(VersionConflictException.class, () -> repository.update(stale));
+    assertEquals(826, e.getExpectedVersion());
+    assertEquals(827, e.getActualVersion());
+    assertEquals(827, repository.get(7).getVersion());
+  }
+
+  @Test
+  void updateMissing() {
+    final VersionConflictException e = assertThrows(VersionConflictException.class,
+        () -> repository.update(newSale(7, "DE0007164600")));
+    assertEquals(0, e.getExpectedVersion());
+    assertEquals(VersionConflictException.NO_VERSION, e.getActualVersion());
+  }
+
+  @Test
+  void updateVersionNotPositive() {
+    final Transaction transaction = newSale(7, "DE0007164600").toBuilder().version(0).build();
+    assertThrows(IllegalArgumentException.class, () -> repository.update(transaction));
+  }
+
+  @Test
+  void updateIsinChanged() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    final Transaction changed = newPurchase(7, "US0378331005").toBuilder().version(828).build();
+    assertThrows(IllegalArgumentException.class, () -> repository.update(changed));
+    assertEquals("DE0007164600", repository.get(7).getIsin());
+  }
+
+  @Test
+  void delete() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    repository.insert(newSale(8, "DE0007164600"));
+    repository.delete(7, 827);
+    assertNull(repository.get(7));
+    assertEquals(1, repository.snapshot().size());
+    assertEquals(List.of(8L), ids(repository.getByIsin("DE0007164600")));
+
+    repository.delete(8, 1);
+    assertEquals(List.of(), repository.getByIsin("DE0007164600"));
+    assertEquals(0, repository.snapshot().size());
+  }
+
+  @Test
+  void deleteVersionConflict() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    assertThrows(VersionConflictException.class, () -> repository.delete(7, 826));
+    assertThrows(VersionConflictException.class, () -> repository.delete(8, 0));
+    assertEquals(827, repository.get(7).getVersion());
+  }
+
+  @Test
+  void deleteAndInsertWithOtherIsin() {
+    final Transaction transaction = newPurchase(7, "DE0007164600");
+    repository.insert(transaction);
+    final TransactionRepository.Snapshot snapshot = repository.snapshot();
+    repository.delete(7, 827);
+
+    final Transaction inserted = newPurchase(7, "US0378331005").toBuilder().version(0).build();
+    repository.insert(inserted);
+    assertSame(inserted, repository.get(7));
+    assertSame(transaction, snapshot.get(7));
+    assertEquals(List.of(transaction), snapshot.getByIsin("DE0007164600"));
+    assertEquals(List.of(), repository.getByIsin("DE0007164600"));
+  }
+
+  @Test
+  void failedWriteAndInsertWithOtherIsin() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    final Transaction inserted = newSale(8, "US0378331005").toBuilder().version(0).build();
+    final Transaction stale = newPurchase(7, "DE0007164600").toBuilder().version(900).build();
+    assertThrows(VersionConflictException.class,
+        () -> repository.writeAll(List.of(inserted, stale)));
+
+    final Transaction otherInserted = newSale(8, "DE0007164600").toBuilder().version(0).build();
+    repository.insert(otherInserted);
+    assertSame(otherInserted, repository.get(8));
+  }
+
+  @Test
+  void getByIsinOrderedById() {
+    repository.insert(newSale(9, "DE0007164600"));
+    repository.insert(newPurchase(3, "DE0007164600"));
+    repository.insert(newPurchase(5, "US0378331005"));
+    repository.insert(newSale(4, "DE0007164600"));
+    assertEquals(List.of(3L, 4L, 9L), ids(repository.getByIsin("DE0007164600")));
+    assertEquals(List.of(5L), ids(repository.getByIsin("US0378331005")));
+    assertEquals(List.of(3L, 4L, 5L, 9L), repository.snapshot().stream()
+        .map(Transaction::getId).sorted().collect(Collectors.toList()));
+  }
+
+  @Test
+  void writeAll() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    final Transaction inserted = newSale(8, "US0378331005").toBuilder().version(0).build();
+    final Transaction updated = newPurchase(7, "DE0007164600").toBuilder().version(828).build();
+    repository.writeAll(List.of(inserted, updated));
+    assertSame(inserted, repository.get(8));
+    assertSame(updated, repository.get(7));
+    assertEquals(2, repository.snapshot().size());
+    assertEquals(2, repository.snapshot().getSequence());
+  }
+
+  @Test
+  void writeAllConflictWritesNothing() {
+    repository.insert(newPurchase(7, "DE0007164600"));
+    final TransactionRepository.Snapshot snapshot = repository.snapshot();
+    final Transaction inserted = newSale(8, "US0378331005").toBuilder().version(0).build();
+    final Transaction stale = newPurchase(7, "DE0007164600").toBuilder().version(900).build();
+    assertThrows(VersionConflictException.class,
+        () -> repository.writeAll(List.of(inserted, stale)));
+    assertSame(snapshot, repository.snapshot());
+    assertNull(repository.get(8));
+  }
+
+  @Test
+  void writeAllSameTransactionTwice() {
+    final Transaction inserted = newSale(8, "US0378331005").toBuilder().version(0).build();
+    final Transaction updated = newSale(8, "US0378331005").toBuilder().version(1).build();
+    repository.writeAll(List.of(inserted, updated));
+    assertTransaction(updated, repository.get(8));
+    assertEquals(1, repository.snapshot().size());
+  }
+
+  @Test
+  void concurrentWriters() throws Exception {
+    final int writerCount = 8;
+    final int transactionCount = 500;
+    final ExecutorService executor = Executors.newFixedThreadPool(writerCount);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int writer = 0; writer < writerCount; writer++) {
+        final String isin = "DE000000000" + writer;
+        final long firstId = (long) writer * transactionCount;
+        futures.add(executor.submit(() -> {
+          for (long id = firstId; id < firstId + transactionCount; id++) {
+            repository.insert(newSale(id, isin).toBuilder().version(0).build());
+            repository.update(newSale(id, isin).toBuilder().version(1).build());
+          }
+        }));
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    final TransactionRepository.Snapshot snapshot = repository.snapshot();
+    assertEquals(writerCount * transactionCount, snapshot.size());
+    assertEquals(2L * writerCount * transactionCount, snapshot.getSequence());
+    assertTrue(snapshot.stream().allMatch(t -> t.getVersion() == 1));
+    for (int writer = 0; writer < writerCount; writer++) {
+      assertEquals(transactionCount, snapshot.getByIsin("DE000000000" + writer).size());
+    }
+  }
+
+  private static List<Long> ids(List<Transaction> transactions) {
+    return transactions.stream().map(Transaction::getId).collect(Collectors.toList());
+  }
+}
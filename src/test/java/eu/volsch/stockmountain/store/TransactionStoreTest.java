@@ -0,0 +1,229 @@
+/*
+ * Copyright 2023 Volker Schmidt
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package eu.volsch.stockmountain.store;
+
+import static eu.volsch.stockmountain.model.TransactionAssertions.assertTransaction;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newPurchase;
+import static eu.volsch.stockmountain.model.TransactionFixtures.newSale;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.volsch.stockmountain.model.Price;
+import eu.volsch.stockmountain.model.PurchaseTransaction;
+import eu.volsch.stockmountain.model.SaleTransaction;
+import eu.volsch.stockmountain.model.SimplePurchaseTransaction;
+import eu.volsch.stockmountain.model.SimpleSaleTransaction;
+import eu.volsch.stockmountain.model.Transaction;
+import eu.volsch.stockmountain.model.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TransactionStoreTest {
+
+  @Test
+  void add_purchase() {
+    final TransactionStore store = new TransactionStore();
+    final SimplePurchaseTransaction purchase = newPurchase(7893L, "US0231351067");
+    assertEquals(0, store.add(purchase));
+    assertEquals(1, store.size());
+
+    final Transaction transaction = store.get(0);
+    assertTrue(transaction instanceof PurchaseTransaction);
+    assertTransaction(purchase, transaction);
+    assertEquals(purchase.getRemainingQuantity(),
+        ((PurchaseTransaction) transaction).getRemainingQuantity());
+    assertEquals(purchase.getLastSplitDate(),
+        ((PurchaseTransaction) transaction).getLastSplitDate());
+  }
+
+  @Test
+  void add_sale() {
+    final TransactionStore store = new TransactionStore();
+    final SimpleSaleTransaction sale = newSale(7894L, "US0231351067");
+    store.add(sale);
+
+    final Transaction transaction = store.get(0);
+    assertTrue(transaction instanceof SaleTransaction);
+    assertEquals(TransactionType.SALE, transaction.getType());
+    assertTransaction(sale, transaction);
+  }
+
+  @Test
+  void add_nullValues() {
+    final TransactionStore store = new TransactionStore();
+    final SimplePurchaseTransaction purchase = SimplePurchaseTransaction.builder()
+        .date(LocalDate.of(1960, 1, 2))
+        .isin("US0231351067")
+        .name("Test stock")
+        .quantity(new BigDecimal("3"))
+        .total(new Price(new BigDecimal("-79.52"), "EUR"))
+        .build();
+    store.add(purchase);
+
+    final PurchaseTransaction transaction = (PurchaseTransaction) store.get(0);
+    assertTransaction(purchase, transaction);
+    assertNull(transaction.getTime());
+    assertNull(transaction.getRemainingQuantity());
+    assertNull(transaction.getLastSplitDate());
+  }
+
+  @Test
+  void add_preciseValues() {
+    final TransactionStore store = new TransactionStore();
+    final SimpleSaleTransaction sale = newSale(1L, "US0231351067").toBuilder()
+        .time(LocalTime.of(9, 1, 2, 3))
+        .quantity(new BigDecimal("-123456789012345678901234.567"))
+        .exchangeRate(new BigDecimal("1.0000000000000000000001"))
+        .total(new Price(new BigDecimal("1E+3"), "Euro"))
+        .build();
+    store.add(sale);
+
+    final Transaction transaction = store.get(0);
+    assertTransaction(sale, transaction);
+    assertEquals(new BigDecimal("1E+3"), transaction.getTotal().getValue());
+  }
+
+  @Test
+  void add_orderIds() {
+    final String orderId = "0d71cb9d-1879-43cc-838b-bfd845a81856";
+    final TransactionStore store = new TransactionStore();
+    store.add(newSale(1L, "US0231351067").toBuilder().orderId(orderId).build());
+    store.add(newSale(2L, "US0231351067").toBuilder().orderId(orderId.toUpperCase()).build());
+    store.add(newSale(3L, "US0231351067").toBuilder().orderId("order-3").build());
+    assertEquals(orderId, store.get(0).getOrderId());
+    assertEquals(orderId.toUpperCase(), store.get(1).getOrderId());
+    assertEquals("order-3", store.get(2).getOrderId());
+
+    store.set(0, newSale(1L, "US0231351067").toBuilder().orderId("order-1").build());
+    store.set(2, newSale(3L, "US0231351067").toBuilder().orderId(orderId).build());
+    assertEquals("order-1", store.get(0).getOrderId());
+    assertEquals(orderId, store.get(2).getOrderId());
+  }
+
+  @Test
+  void add_grow() {
+    final TransactionStore store = new TransactionStore(1);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, store.add(newPurchase(i, i % 2 == 0 ? "US0231351067" : "DE0007164600")));
+    }
+    assertEquals(100, store.size());
+    assertEquals(99L, store.get(99).getId());
+    assertEquals(2, store.getIsinCount());
+  }
+
+  @Test
+  void addAll() {
+    final TransactionStore store = new TransactionStore(0);
+    store.addAll(List.of(newPurchase(1L, "US0231351067"), newSale(2L, "US0231351067")));
+    assertEquals(List.of(1L, 2L), store.stream().map(Transaction::getId).collect(toList()));
+  }
+
+  @Test
+  void newStore_negativeCapacity_fail() {
+    assertThrows(IllegalArgumentException.class, () -> new TransactionStore(-1));
+  }
+
+  @Test
+  void set() {
+    final TransactionStore store = new TransactionStore();
+    store.add(newPurchase(1L, "US0231351067").toBuilder()
+        .time(LocalTime.of(9, 1, 2))
+        .quantity(new BigDecimal("123456789012345678901234"))
+        .build());
+    final Transaction view = store.get(0);
+
+    final SimpleSaleTransaction sale = newSale(1L, "DE0007164600").toBuilder()
+        .version(2)
+        .build();
+    store.set(0, sale);
+
+    assertTransaction(sale, store.get(0));
+    assertTrue(store.get(0) instanceof SaleTransaction);
+    assertEquals(2, view.getVersion());
+    assertEquals("DE0007164600", view.getIsin());
+  }
+
+  @Test
+  void set_invalidIndex_fail() {
+    final TransactionStore store = new TransactionStore();
+    final SimpleSaleTransaction sale = newSale(1L, "DE0007164600");
+    assertThrows(IndexOutOfBoundsException.class, () -> store.set(0, sale));
+  }
+
+  @Test
+  void get_invalidIndex_fail() {
+    final TransactionStore store = new TransactionStore();
+    store.add(newSale(1L, "DE0007164600"));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.get(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.get(-1));
+  }
+
+  @Test
+  void columnAccess() {
+    final TransactionStore store = new TransactionStore();
+    store.add(newPurchase(5L, "US0231351067"));
+    store.add(newSale(6L, "DE0007164600"));
+
+    assertEquals(6L, store.getId(1));
+    assertEquals(TransactionType.PURCHASE, store.getType(0));
+    assertEquals(TransactionType.SALE, store.getType(1));
+    assertEquals(LocalDate.of(2022, 12, 16).toEpochDay(), store.getEpochDay(1));
+    assertEquals(1, store.getIsinId(1));
+    assertEquals(1, store.findIsinId("DE0007164600"));
+    assertEquals(-1, store.findIsinId("IE00B4L5Y983"));
+    assertEquals("DE0007164600", store.getIsin(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.getIsin(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.getId(2));
+  }
+
+  @Test
+  void viewEqualsAndHashCode() {
+    final TransactionStore store = new TransactionStore();
+    store.add(newPurchase(5L, "US0231351067"));
+    store.add(newPurchase(6L, "US0231351067"));
+    final Transaction view = store.get(0);
+
+    assertEquals(view, view);
+    assertEquals(view, store.get(0));
+    assertEquals(view.hashCode(), store.get(0).hashCode());
+    assertNotEquals(view, store.get(1));
+    assertNotEquals(view, null);
+    assertNotEquals(view, newPurchase(5L, "US0231351067"));
+
+    final TransactionStore other = new TransactionStore();
+    other.add(newPurchase(5L, "US0231351067"));
+    assertNotEquals(view, other.get(0));
+    assertFalse(view.equals(other.get(0)));
+  }
+}